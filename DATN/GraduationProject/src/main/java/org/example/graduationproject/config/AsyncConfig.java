@@ -1,46 +1,82 @@
 package org.example.graduationproject.config;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.scheduling.annotation.EnableAsync;
-import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
 import java.util.concurrent.Executor;
 
 @EnableAsync(proxyTargetClass = true)
 @Configuration
 public class AsyncConfig {
-    
+
+    // platform | virtual
+    @Value("${app.executors.mode:platform}")
+    private String executorMode;
+
+    @Value("${app.executors.notification.max-concurrency:10}")
+    private int notificationMaxConcurrency;
+
+    @Value("${app.executors.general.max-concurrency:5}")
+    private int generalMaxConcurrency;
+
+    @Value("${app.executors.export.max-concurrency:4}")
+    private int exportMaxConcurrency;
+
+    @Value("${app.executors.image.max-concurrency:8}")
+    private int imageMaxConcurrency;
+
+    @Value("${app.executors.mvc.max-concurrency:16}")
+    private int mvcMaxConcurrency;
+
     /**
-     * Thread pool cho notification services
-     * - Core pool size: 3 threads (đủ cho 3 loại notification: email, SMS, push)
-     * - Max pool size: 10 threads (xử lý peak load)
-     * - Queue capacity: 100 tasks (buffer cho notification requests)
+     * Registry chứa mọi executor, chế độ thread chọn qua app.executors.mode
      */
+    @Bean
+    public ExecutorRegistry executorRegistry() {
+        ExecutorRegistry registry = new ExecutorRegistry(ExecutorRegistry.Mode.valueOf(executorMode.trim().toUpperCase()));
+        /*
+         * Notification services
+         * - Core pool size: 3 threads (đủ cho 3 loại notification: email, SMS, push)
+         * - Max pool size: 10 threads (xử lý peak load)
+         * - Queue capacity: 100 tasks (buffer cho notification requests)
+         */
+        registry.register("notification", 3, 10, 100, notificationMaxConcurrency);
+        // General async operations
+        registry.register("general", 2, 5, 50, generalMaxConcurrency);
+        // Export Excel / file tạm (trước đây là Executors.newFixedThreadPool(4) riêng trong ExcelExportService)
+        registry.register("export", exportMaxConcurrency, exportMaxConcurrency, 50, exportMaxConcurrency);
+        // Upload / xóa ảnh song song (Cloudinary hoặc ổ đĩa), giới hạn số request tới provider
+        registry.register("image", imageMaxConcurrency, imageMaxConcurrency, 100, imageMaxConcurrency);
+        // Request async của Spring MVC (StreamingResponseBody tải file), tách khỏi "export" để tải xuống
+        // không chiếm chỗ của job export nền và ngược lại
+        registry.register("mvc", 4, mvcMaxConcurrency, 100, mvcMaxConcurrency);
+        return registry;
+    }
+
     @Bean("notificationTaskExecutor")
-    public Executor notificationTaskExecutor() {
-        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
-        executor.setCorePoolSize(3);
-        executor.setMaxPoolSize(10);
-        executor.setQueueCapacity(100);
-        executor.setThreadNamePrefix("Notification-");
-        executor.setRejectedExecutionHandler(new java.util.concurrent.ThreadPoolExecutor.CallerRunsPolicy());
-        executor.initialize();
-        return executor;
+    public Executor notificationTaskExecutor(ExecutorRegistry executorRegistry) {
+        return executorRegistry.get("notification");
     }
-    
-    /**
-     * Thread pool cho general async operations
-     */
+
     @Bean("generalTaskExecutor")
-    public Executor generalTaskExecutor() {
-        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
-        executor.setCorePoolSize(2);
-        executor.setMaxPoolSize(5);
-        executor.setQueueCapacity(50);
-        executor.setThreadNamePrefix("General-");
-        executor.setRejectedExecutionHandler(new java.util.concurrent.ThreadPoolExecutor.CallerRunsPolicy());
-        executor.initialize();
-        return executor;
+    public Executor generalTaskExecutor(ExecutorRegistry executorRegistry) {
+        return executorRegistry.get("general");
+    }
+
+    @Bean("exportTaskExecutor")
+    public Executor exportTaskExecutor(ExecutorRegistry executorRegistry) {
+        return executorRegistry.get("export");
+    }
+
+    @Bean("imageTaskExecutor")
+    public Executor imageTaskExecutor(ExecutorRegistry executorRegistry) {
+        return executorRegistry.get("image");
+    }
+
+    @Bean("mvcTaskExecutor")
+    public Executor mvcTaskExecutor(ExecutorRegistry executorRegistry) {
+        return executorRegistry.get("mvc");
     }
 }
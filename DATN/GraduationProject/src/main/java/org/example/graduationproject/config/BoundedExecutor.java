@@ -0,0 +1,85 @@
+package org.example.graduationproject.config;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Executor giới hạn số task chạy đồng thời bằng semaphore.
+ * Ở chế độ virtual thread số thread không còn là giới hạn, semaphore giữ số lời gọi tới dịch vụ phía sau
+ * (SMTP, SMS gateway, Cloudinary, ổ đĩa) không vượt maxConcurrency.
+ */
+public class BoundedExecutor implements Executor {
+
+    private final String name;
+    private final Executor delegate;
+    private final Semaphore permits;
+    private final int maxConcurrency;
+
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final AtomicInteger active = new AtomicInteger();
+    private final AtomicInteger peakActive = new AtomicInteger();
+
+    public BoundedExecutor(String name, Executor delegate, int maxConcurrency) {
+        this.name = name;
+        this.delegate = delegate;
+        this.maxConcurrency = maxConcurrency;
+        this.permits = new Semaphore(maxConcurrency, true);
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        submitted.increment();
+        delegate.execute(() -> run(task));
+    }
+
+    private void run(Runnable task) {
+        waiting.incrementAndGet();
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            failed.increment();
+            return;
+        } finally {
+            waiting.decrementAndGet();
+        }
+        peakActive.accumulateAndGet(active.incrementAndGet(), Math::max);
+        try {
+            task.run();
+            completed.increment();
+        } catch (RuntimeException | Error e) {
+            failed.increment();
+            throw e;
+        } finally {
+            active.decrementAndGet();
+            permits.release();
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("maxConcurrency", maxConcurrency);
+        stats.put("active", active.get());
+        stats.put("peakActive", peakActive.get());
+        stats.put("waiting", waiting.get());
+        stats.put("submitted", submitted.sum());
+        stats.put("completed", completed.sum());
+        stats.put("failed", failed.sum());
+        return stats;
+    }
+}
@@ -0,0 +1,116 @@
+package org.example.graduationproject.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Nơi tạo và quản lý mọi executor của ứng dụng (notification, general, export...).
+ * - PLATFORM: mỗi executor là một ThreadPoolTaskExecutor cố định (CallerRunsPolicy khi đầy)
+ * - VIRTUAL: mỗi task một virtual thread, không có hàng đợi / giới hạn thread
+ * Ở cả hai chế độ số task chạy đồng thời bị chặn bởi semaphore của BoundedExecutor.
+ */
+@Slf4j
+public class ExecutorRegistry implements DisposableBean {
+
+    public enum Mode { PLATFORM, VIRTUAL }
+
+    private final Mode mode;
+    private final Map<String, BoundedExecutor> executors = new LinkedHashMap<>();
+    private final Map<String, ThreadPoolTaskExecutor> platformPools = new LinkedHashMap<>();
+    private final Map<String, ExecutorService> virtualExecutors = new LinkedHashMap<>();
+
+    public ExecutorRegistry(Mode mode) {
+        this.mode = mode;
+    }
+
+    /**
+     * Đăng ký executor; pool size / queue chỉ dùng ở chế độ PLATFORM
+     */
+    public synchronized BoundedExecutor register(String name, int corePoolSize, int maxPoolSize,
+                                                 int queueCapacity, int maxConcurrency) {
+        if (executors.containsKey(name)) {
+            throw new IllegalStateException("Executor already registered: " + name);
+        }
+        String threadPrefix = Character.toUpperCase(name.charAt(0)) + name.substring(1) + "-";
+        BoundedExecutor executor;
+        if (mode == Mode.VIRTUAL) {
+            ExecutorService virtual = Executors.newThreadPerTaskExecutor(
+                    Thread.ofVirtual().name(threadPrefix, 0).factory());
+            virtualExecutors.put(name, virtual);
+            executor = new BoundedExecutor(name, virtual, maxConcurrency);
+        } else {
+            ThreadPoolTaskExecutor pool = new ThreadPoolTaskExecutor();
+            pool.setCorePoolSize(corePoolSize);
+            pool.setMaxPoolSize(maxPoolSize);
+            pool.setQueueCapacity(queueCapacity);
+            pool.setThreadNamePrefix(threadPrefix);
+            pool.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+            pool.setWaitForTasksToCompleteOnShutdown(true);
+            pool.setAwaitTerminationSeconds(10);
+            pool.initialize();
+            platformPools.put(name, pool);
+            executor = new BoundedExecutor(name, pool, maxConcurrency);
+        }
+        executors.put(name, executor);
+        log.info("ExecutorRegistry: Registered '{}' ({} mode, max concurrency {})", name, mode, maxConcurrency);
+        return executor;
+    }
+
+    public synchronized BoundedExecutor get(String name) {
+        BoundedExecutor executor = executors.get(name);
+        if (executor == null) {
+            throw new IllegalArgumentException("Unknown executor: " + name);
+        }
+        return executor;
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    public synchronized Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("mode", mode.name());
+        Map<String, Object> perExecutor = new LinkedHashMap<>();
+        for (BoundedExecutor executor : executors.values()) {
+            Map<String, Object> executorStats = executor.stats();
+            ThreadPoolTaskExecutor pool = platformPools.get(executor.getName());
+            if (pool != null) {
+                executorStats.put("poolSize", pool.getPoolSize());
+                executorStats.put("maxPoolSize", pool.getMaxPoolSize());
+                executorStats.put("queued", pool.getQueueSize());
+            }
+            perExecutor.put(executor.getName(), executorStats);
+        }
+        stats.put("executors", perExecutor);
+        return stats;
+    }
+
+    @Override
+    public synchronized void destroy() {
+        for (ThreadPoolTaskExecutor pool : platformPools.values()) {
+            pool.shutdown();
+        }
+        for (ExecutorService virtual : virtualExecutors.values()) {
+            virtual.shutdown();
+        }
+        for (ExecutorService virtual : virtualExecutors.values()) {
+            try {
+                if (!virtual.awaitTermination(10, TimeUnit.SECONDS)) {
+                    virtual.shutdownNow();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                virtual.shutdownNow();
+            }
+        }
+    }
+}
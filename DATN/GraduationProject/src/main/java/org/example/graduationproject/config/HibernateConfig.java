@@ -0,0 +1,33 @@
+package org.example.graduationproject.config;
+
+import org.example.graduationproject.utils.SqlStatementCounter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Cấu hình batch JDBC và batch fetch cho Hibernate, giá trị trong application.properties vẫn được ưu tiên
+ */
+@Configuration
+public class HibernateConfig {
+
+    @Value("${app.jpa.batch-size:50}")
+    private int batchSize;
+
+    @Value("${app.jpa.batch-fetch-size:50}")
+    private int batchFetchSize;
+
+    @Bean
+    public HibernatePropertiesCustomizer batchingHibernatePropertiesCustomizer() {
+        return properties -> {
+            properties.putIfAbsent("hibernate.jdbc.batch_size", String.valueOf(batchSize));
+            properties.putIfAbsent("hibernate.order_inserts", "true");
+            properties.putIfAbsent("hibernate.order_updates", "true");
+            properties.putIfAbsent("hibernate.jdbc.batch_versioned_data", "true");
+            // Quan hệ lazy / eager chưa fetch join được nạp theo lô thay vì từng dòng
+            properties.putIfAbsent("hibernate.default_batch_fetch_size", String.valueOf(batchFetchSize));
+            properties.putIfAbsent("hibernate.session_factory.statement_inspector", new SqlStatementCounter());
+        };
+    }
+}
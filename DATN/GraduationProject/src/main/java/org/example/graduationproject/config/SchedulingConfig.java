@@ -0,0 +1,12 @@
+package org.example.graduationproject.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Bật các tác vụ định kỳ (@Scheduled)
+ */
+@EnableScheduling
+@Configuration
+public class SchedulingConfig {
+}
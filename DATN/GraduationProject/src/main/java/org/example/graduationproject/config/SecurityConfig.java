@@ -3,6 +3,7 @@ package org.example.graduationproject.config;
 import org.example.graduationproject.security.JpaUserDetailsService;
 import org.example.graduationproject.security.jwt.JwtTokenProvider;
 import org.example.graduationproject.security.jwt.TokenProvider;
+import org.example.graduationproject.security.jwt.TokenRevocationRegistry;
 import org.example.graduationproject.security.jwt.authentication.JwtAuthenticationConverter;
 import org.example.graduationproject.security.jwt.authentication.JwtAuthenticationFilter;
 import org.example.graduationproject.security.jwt.authentication.JwtAuthenticationProvider;
@@ -34,6 +35,8 @@ public class SecurityConfig {
                         .requestMatchers("/login", "/register").permitAll()
                         .requestMatchers("/api/auth/**").permitAll() // Cho phép tất cả API auth
                         .requestMatchers("/api/user/products/**").permitAll() // Cho phép xem sản phẩm
+                        .requestMatchers("/api/images/files/**").permitAll() // Ảnh lưu trên ổ đĩa (image.provider=local)
+                        .requestMatchers("/api/images/derivatives/**").permitAll() // Ảnh thumbnail / card / detail
                         .requestMatchers("/api/user/orders/**").authenticated() // Yêu cầu đăng nhập cho orders
                         .requestMatchers("/api/cart/**").authenticated()
                         .requestMatchers("/cart").authenticated()
@@ -76,8 +79,10 @@ public class SecurityConfig {
     }
 
     @Bean
-    public JwtAuthenticationProvider jwtAuthenticationProvider(TokenProvider tokenProvider, UserDetailsService userDetailsService) {
-        return new JwtAuthenticationProvider(tokenProvider, userDetailsService);
+    public JwtAuthenticationProvider jwtAuthenticationProvider(TokenProvider tokenProvider, UserDetailsService userDetailsService,
+                                                               TokenRevocationRegistry tokenRevocationRegistry,
+                                                               @Value("${security.jwt.stateless:true}") boolean stateless) {
+        return new JwtAuthenticationProvider(tokenProvider, userDetailsService, tokenRevocationRegistry, stateless);
     }
 
     @Bean
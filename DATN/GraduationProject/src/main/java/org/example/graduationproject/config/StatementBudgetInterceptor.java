@@ -0,0 +1,87 @@
+package org.example.graduationproject.config;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.example.graduationproject.utils.LoggerManager;
+import org.example.graduationproject.utils.SqlStatementCounter;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Đếm số câu lệnh SQL của các endpoint danh sách / chi tiết và cảnh báo khi vượt ngân sách.
+ * Ngân sách không phụ thuộc số dòng của trang: vượt ngân sách thường là dấu hiệu N+1 quay lại.
+ * Số đếm gồm cả lazy load khi serialize response (open-in-view), không gồm truy vấn của filter bảo mật.
+ * Ngân sách cũng là ngưỡng của ListingStatementCountTest, vượt ngân sách thì build lỗi.
+ */
+@Slf4j
+public class StatementBudgetInterceptor implements AsyncHandlerInterceptor {
+
+    private static final Map<String, Integer> BUDGETS = new LinkedHashMap<>();
+
+    static {
+        // Trang id + count + nạp chi tiết, sau đó theo lô: role của user (2),
+        // loại / nhãn hiệu / nhà cung cấp của sản phẩm (3, loại của màu / size thường đã có sẵn)
+        BUDGETS.put("/api/admin/invoices", 9);
+        BUDGETS.put("/api/admin/invoices/*", 7);
+        // Trang id + count + nạp sản phẩm kèm quan hệ
+        BUDGETS.put("/api/admin/products", 4);
+        // Trang phiếu nhập + count + nhà cung cấp (batch)
+        BUDGETS.put("/api/admin/imports", 5);
+        // Đơn của user kèm chi tiết, sau đó theo lô: role của user (2), loại / nhãn hiệu / nhà cung cấp (3), ảnh sản phẩm
+        BUDGETS.put("/api/user/orders", 8);
+        BUDGETS.put("/api/user/orders/*", 8);
+    }
+
+    private static final AntPathMatcher PATH_MATCHER = new AntPathMatcher();
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if ("GET".equals(request.getMethod()) && findBudget(request.getRequestURI()) != null) {
+            SqlStatementCounter.start();
+        }
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        if (!"GET".equals(request.getMethod())) {
+            return;
+        }
+        Integer budget = findBudget(request.getRequestURI());
+        if (budget == null) {
+            return;
+        }
+        int statements = SqlStatementCounter.stop();
+        if (statements > budget) {
+            log.warn("Statement budget exceeded for {}: {} statements (budget {})",
+                    request.getRequestURI(), statements, budget);
+        }
+        LoggerManager.getInstance().logPerformance("SQL_STATEMENTS " + request.getRequestURI(), 0,
+                "statements=" + statements + ", budget=" + budget);
+    }
+
+    /**
+     * Handler trả về Callable / DeferredResult: thread này quay lại pool ngay, afterCompletion chạy ở lần
+     * dispatch sau (preHandle đếm lại từ đầu) nên phải dọn counter, không để request khác trên thread này cộng dồn
+     */
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        SqlStatementCounter.stop();
+    }
+
+    /**
+     * Ngân sách câu lệnh SQL của uri, null nếu endpoint không được theo dõi
+     */
+    public static Integer findBudget(String uri) {
+        for (Map.Entry<String, Integer> entry : BUDGETS.entrySet()) {
+            if (PATH_MATCHER.match(entry.getKey(), uri)) {
+                return entry.getValue();
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,45 @@
+package org.example.graduationproject.config;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.concurrent.Executor;
+
+@Configuration
+public class WebMvcConfig implements WebMvcConfigurer {
+
+    @Value("${app.jpa.statement-budget.enabled:true}")
+    private boolean statementBudgetEnabled;
+
+    // Export dạng stream có thể chạy vài phút, timeout mặc định của container quá ngắn
+    @Value("${export.stream-timeout-ms:600000}")
+    private long streamTimeoutMs;
+
+    @Autowired
+    @Qualifier("mvcTaskExecutor")
+    private Executor mvcTaskExecutor;
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        if (statementBudgetEnabled) {
+            registry.addInterceptor(new StatementBudgetInterceptor())
+                    .addPathPatterns("/api/admin/**", "/api/user/orders/**");
+        }
+    }
+
+    /**
+     * StreamingResponseBody chạy trên executor "mvc" riêng (app.executors.mvc.max-concurrency):
+     * client tải chậm chỉ giữ chỗ của executor này, không chặn job export nền
+     */
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.setTaskExecutor(new TaskExecutorAdapter(mvcTaskExecutor));
+        configurer.setDefaultTimeout(streamTimeoutMs);
+    }
+}
@@ -5,7 +5,9 @@ import lombok.RequiredArgsConstructor;
 import org.example.graduationproject.dto.LoginRequestDTO;
 import org.example.graduationproject.dto.LoginResponseDTO;
 import org.example.graduationproject.dto.RegisterRequestDTO;
+import org.example.graduationproject.security.LoginAttemptTracker;
 import org.example.graduationproject.security.jwt.TokenProvider;
+import org.example.graduationproject.security.jwt.TokenRevocationRegistry;
 import org.example.graduationproject.services.UserRegistrationService;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
@@ -27,6 +29,8 @@ public class AuthController {
     private final PasswordEncoder passwordEncoder;
     private final TokenProvider tokenProvider;
     private final UserRegistrationService userRegistrationService;
+    private final LoginAttemptTracker loginAttemptTracker;
+    private final TokenRevocationRegistry tokenRevocationRegistry;
 
     @PostMapping("/login")
     public ResponseEntity<?> login(@Valid @RequestBody LoginRequestDTO loginRequest) {
@@ -37,20 +41,23 @@ public class AuthController {
             // Verify username and password
             UserDetails userDetails = userDetailsService.loadUserByUsername(username);
             if (!passwordEncoder.matches(password, userDetails.getPassword())) {
+                loginAttemptTracker.recordFailure(username);
                 return ResponseEntity.status(401).body(new ErrorResponse("Invalid username or password"));
             }
             if (!userDetails.isEnabled()) {
                 return ResponseEntity.status(401).body(new ErrorResponse("User is disabled"));
             }
+            loginAttemptTracker.reset(username);
 
-            // Extract roles and generate token with roles claim
+            // Extract roles and generate token with roles + version claims (xác thực JWT không cần tra database)
             String roles = userDetails.getAuthorities()
                     .stream()
                     .map(GrantedAuthority::getAuthority)
                     .collect(Collectors.joining(","));
             String token = tokenProvider.generateToken(Map.of(
                     "username", username,
-                    "roles", roles
+                    "roles", roles,
+                    TokenRevocationRegistry.VERSION_CLAIM, tokenRevocationRegistry.currentVersion(username)
             ));
 
             return ResponseEntity.ok(new LoginResponseDTO(token, username, roles));
@@ -84,6 +91,18 @@ public class AuthController {
         }
     }
 
+    /**
+     * Thu hồi mọi token đã phát cho user hiện tại
+     */
+    @PostMapping("/logout")
+    public ResponseEntity<?> logout(Authentication authentication) {
+        if (authentication == null || !authentication.isAuthenticated()) {
+            return ResponseEntity.status(401).body(new ErrorResponse("Not authenticated"));
+        }
+        tokenRevocationRegistry.revokeAll(authentication.getName());
+        return ResponseEntity.ok(new SuccessResponse("Logged out"));
+    }
+
     @GetMapping("/me")
     public ResponseEntity<?> getCurrentUser(Authentication authentication) {
         if (authentication == null || !authentication.isAuthenticated()) {
@@ -1,14 +1,29 @@
 package org.example.graduationproject.controllers;
 
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.example.graduationproject.dto.ImageOperationResult;
 import org.example.graduationproject.dto.ServiceResult;
+import org.example.graduationproject.exceptions.NotFoundException;
 import org.example.graduationproject.services.ImageService;
 import org.example.graduationproject.services.ImageServiceFactory;
+import org.example.graduationproject.services.adapters.LocalFileSystemAdapter;
+import org.example.graduationproject.services.image.ImageDerivativeCache;
+import org.example.graduationproject.services.image.ImageVariant;
+import org.example.graduationproject.utils.FileRangeSender;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 
 /**
  * REST Controller cho Image Service
@@ -18,8 +33,19 @@ import java.util.List;
 @RequestMapping("/api/images")
 public class ImageController {
 
+    // URL theo hash nội dung không bao giờ đổi nội dung
+    private static final String CACHE_IMMUTABLE = "public, max-age=31536000, immutable";
+    // URL theo ảnh gốc: cache dài, ETag để xác nhận lại rẻ
+    private static final String CACHE_BY_SOURCE = "public, max-age=604800";
+
     @Autowired
     private ImageServiceFactory imageServiceFactory;
+
+    @Autowired
+    private LocalFileSystemAdapter localImageService;
+
+    @Autowired
+    private ImageDerivativeCache imageDerivativeCache;
     
     private ImageService getImageService() {
         return imageServiceFactory.getDefaultImageService();
@@ -59,6 +85,25 @@ public class ImageController {
         }
     }
 
+    /**
+     * Upload nhiều images song song, trả kết quả từng file (file lỗi không làm hỏng cả lô)
+     */
+    @PostMapping("/upload-batch")
+    public ResponseEntity<ServiceResult<List<ImageOperationResult>>> uploadImages(
+            @RequestParam("files") List<MultipartFile> files,
+            @RequestParam(value = "folder", defaultValue = "clothes/images") String folder) {
+
+        try {
+            List<ImageOperationResult> results = getImageService().uploadImages(files, folder);
+            long failed = results.stream().filter(result -> !result.isSuccess()).count();
+            String message = failed == 0 ? "Upload thành công" : "Upload lỗi " + failed + "/" + results.size() + " file";
+            return ResponseEntity.ok(ServiceResult.ok(message, results));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest()
+                .body(ServiceResult.serverError("Lỗi upload images: " + e.getMessage()));
+        }
+    }
+
     /**
      * Xóa image
      */
@@ -97,6 +142,102 @@ public class ImageController {
         }
     }
 
+    /**
+     * Xóa nhiều images song song, trả kết quả từng URL
+     */
+    @DeleteMapping("/delete-batch")
+    public ResponseEntity<ServiceResult<List<ImageOperationResult>>> deleteImages(@RequestBody List<String> imageUrls) {
+        try {
+            return ResponseEntity.ok(ServiceResult.ok("Kết quả xóa images", getImageService().deleteImages(imageUrls)));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest()
+                .body(ServiceResult.serverError("Lỗi xóa images: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * Trả file ảnh lưu trên ổ đĩa (image.provider=local)
+     */
+    @GetMapping("/files/**")
+    public void getLocalFile(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        String relativePath = request.getRequestURI().substring(request.getContextPath().length() + "/api/images/files/".length());
+        Path file;
+        try {
+            file = localImageService.resolve(relativePath);
+        } catch (IllegalArgumentException e) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST);
+            return;
+        }
+        if (!Files.isRegularFile(file)) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        String contentType = MediaTypeFactory.getMediaType(file.getFileName().toString())
+                .orElse(MediaType.APPLICATION_OCTET_STREAM).toString();
+        // Tên file có hậu tố UUID nên nội dung của một URL không đổi
+        String etag = "\"" + Files.size(file) + "-" + Files.getLastModifiedTime(file).toMillis() + "\"";
+        FileRangeSender.send(request, response, file, contentType, etag, CACHE_IMMUTABLE);
+    }
+
+    /**
+     * Ảnh phái sinh của một URL ảnh gốc (thumbnail | card | detail), tạo nếu chưa có
+     */
+    @GetMapping("/derivatives/{variant}")
+    public void getDerivative(@PathVariable("variant") String variantKey,
+                              @RequestParam("src") String sourceUrl,
+                              HttpServletRequest request, HttpServletResponse response) throws IOException {
+        ImageVariant variant = ImageVariant.fromKey(variantKey);
+        if (variant == null) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Kích thước ảnh không hợp lệ");
+            return;
+        }
+        Path file;
+        try {
+            file = imageDerivativeCache.resolve(sourceUrl, variant);
+        } catch (IllegalArgumentException e) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+            return;
+        } catch (NotFoundException e) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND, e.getMessage());
+            return;
+        } catch (IOException e) {
+            response.sendError(HttpServletResponse.SC_BAD_GATEWAY, e.getMessage());
+            return;
+        }
+        sendDerivative(request, response, file, variant, CACHE_BY_SOURCE);
+    }
+
+    /**
+     * Ảnh phái sinh theo hash nội dung ảnh gốc
+     */
+    @GetMapping("/derivatives/{hash}/{variant}")
+    public void getDerivativeByHash(@PathVariable("hash") String hash,
+                                    @PathVariable("variant") String variantKey,
+                                    HttpServletRequest request, HttpServletResponse response) throws IOException {
+        ImageVariant variant = ImageVariant.fromKey(variantKey);
+        Optional<Path> file = variant != null ? imageDerivativeCache.find(hash, variant) : Optional.empty();
+        if (file.isEmpty()) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        sendDerivative(request, response, file.get(), variant, CACHE_IMMUTABLE);
+    }
+
+    /**
+     * Thống kê cache ảnh phái sinh
+     */
+    @GetMapping("/derivatives/stats")
+    public ResponseEntity<ServiceResult<Map<String, Object>>> getDerivativeStats() {
+        return ResponseEntity.ok(ServiceResult.ok("Derivative cache stats", imageDerivativeCache.getStats()));
+    }
+
+    private void sendDerivative(HttpServletRequest request, HttpServletResponse response, Path file,
+                                ImageVariant variant, String cacheControl) throws IOException {
+        // Thư mục chứa file là hash nội dung ảnh gốc
+        String etag = "\"" + file.getParent().getFileName() + "-" + variant.getKey() + "\"";
+        FileRangeSender.send(request, response, file, MediaType.IMAGE_JPEG_VALUE, etag, cacheControl);
+    }
+
     /**
      * Lấy thông tin provider
      */
@@ -105,8 +246,4 @@ public class ImageController {
         String providerName = getImageService().getProviderName();
         return ResponseEntity.ok(ServiceResult.ok("Provider info", providerName));
     }
-
-
-
-
 }
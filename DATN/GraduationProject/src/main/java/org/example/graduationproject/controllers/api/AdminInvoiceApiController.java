@@ -1,17 +1,32 @@
 package org.example.graduationproject.controllers.api;
 
+import org.example.graduationproject.dto.CursorPage;
+import org.example.graduationproject.dto.InvoiceReportRequest;
+import org.example.graduationproject.exceptions.BadRequestException;
+import org.example.graduationproject.exceptions.TooManyRequestsException;
+import org.example.graduationproject.models.ChiTietHoaDon;
 import org.example.graduationproject.models.HoaDon;
 import org.example.graduationproject.services.HoaDonService;
+import org.example.graduationproject.services.InvoiceReportService;
+import org.example.graduationproject.services.PdfExportService;
+import org.example.graduationproject.services.export.ExportJob;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/api/admin")
@@ -21,6 +36,15 @@ public class AdminInvoiceApiController {
     @Autowired
     private HoaDonService hoaDonService;
 
+    @Autowired
+    private InvoiceReportService invoiceReportService;
+
+    @Autowired
+    private PdfExportService pdfExportService;
+
+    @Value("${pdf.batch.max-invoices:500}")
+    private int maxBatchInvoices;
+
     /**
      * Lấy danh sách tất cả hóa đơn với phân trang và lọc
      */
@@ -29,8 +53,22 @@ public class AdminInvoiceApiController {
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size,
             @RequestParam(required = false) String search,
-            @RequestParam(required = false) String status) {
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) String cursor) {
         try {
+            // Có tham số cursor (kể cả rỗng) thì dùng phân trang keyset, không đếm chính xác
+            if (cursor != null) {
+                CursorPage<HoaDon> cursorPage = hoaDonService.getInvoicesKeyset(cursor, size);
+                Map<String, Object> response = new HashMap<>();
+                response.put("content", cursorPage.getContent().stream().map(this::convertToInvoiceDTO).toArray());
+                response.put("nextCursor", cursorPage.getNextCursor());
+                response.put("hasNext", cursorPage.isHasNext());
+                response.put("size", cursorPage.getSize());
+                response.put("totalElements", cursorPage.getApproximateTotal());
+                response.put("totalIsApproximate", true);
+                return ResponseEntity.ok(response);
+            }
+
             // Tạo Pageable với sắp xếp theo ngày tạo giảm dần
             Pageable pageable = PageRequest.of(page, size, Sort.by("ngayTao").descending());
             
@@ -165,6 +203,74 @@ public class AdminInvoiceApiController {
         }
     }
 
+    /**
+     * Tạo job xuất báo cáo hóa đơn theo khoảng ngày (xlsx / csv).
+     * Theo dõi tiến độ và tải file qua /api/admin/exports/{jobId}
+     */
+    @PostMapping("/invoices/reports")
+    public ResponseEntity<Map<String, Object>> createInvoiceReport(@ModelAttribute InvoiceReportRequest request) {
+        try {
+            ExportJob job = invoiceReportService.submitInvoiceReport(request);
+            return ResponseEntity.accepted().body(Map.of(
+                "success", true,
+                "message", "Đã tạo job xuất báo cáo",
+                "data", job.toMap()
+            ));
+        } catch (BadRequestException e) {
+            return ResponseEntity.status(400).body(Map.of(
+                "success", false,
+                "message", e.getMessage()
+            ));
+        } catch (TooManyRequestsException e) {
+            return ResponseEntity.status(429).body(Map.of(
+                "success", false,
+                "message", e.getMessage()
+            ));
+        } catch (Exception e) {
+            return ResponseEntity.status(500).body(Map.of(
+                "success", false,
+                "message", "Lỗi khi tạo báo cáo: " + e.getMessage()
+            ));
+        }
+    }
+
+    /**
+     * Tải PDF hóa đơn, các trang được ghi thẳng vào response
+     */
+    @GetMapping("/invoices/{id}/pdf")
+    public ResponseEntity<StreamingResponseBody> getInvoicePdf(@PathVariable Integer id) {
+        HoaDon invoice = hoaDonService.getOrderById(id);
+        if (invoice == null) {
+            return ResponseEntity.notFound().build();
+        }
+        List<ChiTietHoaDon> details = invoice.getChiTietHoaDons() != null ? invoice.getChiTietHoaDons() : List.of();
+        StreamingResponseBody body = outputStream -> pdfExportService.writeOrderDetailPdf(invoice, details, outputStream);
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"hoa-don-" + id + ".pdf\"")
+                .contentType(MediaType.APPLICATION_PDF)
+                .body(body);
+    }
+
+    /**
+     * In nhiều hóa đơn vào một PDF (mỗi hóa đơn một trang mới), tối đa pdf.batch.max-invoices hóa đơn
+     */
+    @GetMapping("/invoices/pdf")
+    public ResponseEntity<?> getInvoicesPdf(@RequestParam List<Integer> ids) {
+        List<Integer> orderIds = ids.stream().filter(Objects::nonNull).distinct().collect(Collectors.toList());
+        if (orderIds.isEmpty() || orderIds.size() > maxBatchInvoices) {
+            return ResponseEntity.status(400).body(Map.of(
+                "success", false,
+                "message", "Số hóa đơn phải từ 1 đến " + maxBatchInvoices
+            ));
+        }
+        StreamingResponseBody body = outputStream ->
+                pdfExportService.writeOrderBatchPdf(orderIds, hoaDonService::getOrdersWithDetails, outputStream);
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"hoa-don-" + orderIds.size() + ".pdf\"")
+                .contentType(MediaType.APPLICATION_PDF)
+                .body(body);
+    }
+
     /**
      * Convert HoaDon entity to DTO for admin
      */
@@ -0,0 +1,35 @@
+package org.example.graduationproject.controllers.api;
+
+import org.example.graduationproject.security.UserDetailsServiceProxy;
+import org.example.graduationproject.services.cache.ReferenceDataCache;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/admin/cache")
+@CrossOrigin(origins = "http://localhost:5173")
+public class CacheStatsApiController {
+
+    @Autowired
+    private ReferenceDataCache referenceDataCache;
+
+    @Autowired
+    private UserDetailsServiceProxy userDetailsServiceProxy;
+
+    /**
+     * Thống kê hit / miss / hit rate của cache dữ liệu danh mục và cache user details
+     */
+    @GetMapping("/stats")
+    public ResponseEntity<Map<String, Object>> getStats() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("referenceData", referenceDataCache.getStats());
+        response.put("userDetails", userDetailsServiceProxy.getCacheStats());
+        response.put("loginAttempts", userDetailsServiceProxy.getLoginAttemptStats());
+        return ResponseEntity.ok(response);
+    }
+}
@@ -4,7 +4,7 @@ import org.example.graduationproject.dto.ColorDTO;
 import org.example.graduationproject.models.MauSac;
 import org.example.graduationproject.models.Loai;
 import org.example.graduationproject.services.MauSacService;
-import org.example.graduationproject.repositories.LoaiRepository;
+import org.example.graduationproject.services.cache.ReferenceDataCache;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
@@ -29,7 +29,7 @@ public class ColorApiController {
     private MauSacService mauSacService;
 
     @Autowired
-    private LoaiRepository loaiRepository;
+    private ReferenceDataCache referenceDataCache;
 
     @GetMapping
     public ResponseEntity<Map<String, Object>> getAllColors(
@@ -68,7 +68,7 @@ public class ColorApiController {
     @GetMapping("/form-data")
     public ResponseEntity<Map<String, Object>> getFormData() {
         try {
-            List<Loai> categories = loaiRepository.findAll();
+            List<Loai> categories = referenceDataCache.getAllLoai();
             List<Map<String, Object>> categoryList = categories.stream()
                     .map(cat -> {
                         Map<String, Object> map = new HashMap<>();
@@ -178,7 +178,7 @@ public class ColorApiController {
         color.setId(dto.getId());
         color.setMaMau(dto.getMaMau());
         if (dto.getLoaiId() != null) {
-            Loai loai = loaiRepository.findById(dto.getLoaiId()).orElse(null);
+            Loai loai = referenceDataCache.getLoai(dto.getLoaiId()).orElse(null);
             color.setLoai(loai);
         }
         return color;
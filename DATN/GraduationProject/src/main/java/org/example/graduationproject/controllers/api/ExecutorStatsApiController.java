@@ -0,0 +1,29 @@
+package org.example.graduationproject.controllers.api;
+
+import org.example.graduationproject.config.ExecutorRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/admin/executors")
+@CrossOrigin(origins = "http://localhost:5173")
+public class ExecutorStatsApiController {
+
+    @Autowired
+    private ExecutorRegistry executorRegistry;
+
+    /**
+     * Chế độ thread và số task đang chạy / chờ permit của từng executor
+     */
+    @GetMapping("/stats")
+    public ResponseEntity<Map<String, Object>> getStats() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("executors", executorRegistry.stats());
+        return ResponseEntity.ok(response);
+    }
+}
@@ -0,0 +1,81 @@
+package org.example.graduationproject.controllers.api;
+
+import org.example.graduationproject.services.export.ExportJob;
+import org.example.graduationproject.services.export.ExportJobManager;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+@RestController
+@RequestMapping("/api/admin/exports")
+@CrossOrigin(origins = "http://localhost:5173")
+public class ExportJobApiController {
+
+    @Autowired
+    private ExportJobManager exportJobManager;
+
+    /**
+     * Thống kê job export và cache file kết quả
+     */
+    @GetMapping("/stats")
+    public ResponseEntity<Map<String, Object>> getStats() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("data", exportJobManager.getStats());
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Trạng thái và tiến độ của job export
+     */
+    @GetMapping("/{jobId}")
+    public ResponseEntity<Map<String, Object>> getJob(@PathVariable String jobId) {
+        Optional<ExportJob> job = exportJobManager.getJob(jobId);
+        Map<String, Object> response = new HashMap<>();
+        if (job.isEmpty()) {
+            response.put("success", false);
+            response.put("message", "Không tìm thấy job export hoặc job đã hết hạn");
+            return ResponseEntity.status(404).body(response);
+        }
+        response.put("success", true);
+        response.put("data", job.get().toMap());
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Tải file kết quả khi job đã hoàn thành
+     */
+    @GetMapping("/{jobId}/download")
+    public ResponseEntity<?> download(@PathVariable String jobId) {
+        Optional<ExportJob> found = exportJobManager.getJob(jobId);
+        if (found.isEmpty()) {
+            return ResponseEntity.status(404).body(Map.of(
+                    "success", false,
+                    "message", "Không tìm thấy job export hoặc job đã hết hạn"));
+        }
+        ExportJob job = found.get();
+        if (job.getStatus() != ExportJob.Status.COMPLETED) {
+            return ResponseEntity.status(409).body(Map.of(
+                    "success", false,
+                    "message", "Job export chưa hoàn thành",
+                    "status", job.getStatus().name()));
+        }
+        Resource resource = new FileSystemResource(job.getFile());
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename(job.getFileName(), StandardCharsets.UTF_8).build().toString())
+                .contentType(MediaType.parseMediaType(job.getContentType()))
+                .contentLength(job.getFileSize())
+                .body(resource);
+    }
+}
@@ -1,22 +1,31 @@
 package org.example.graduationproject.controllers.api;
 
+import org.example.graduationproject.dto.CursorPage;
 import org.example.graduationproject.dto.ImportDTO;
 import org.example.graduationproject.dto.ImportRequestDTO;
 import org.example.graduationproject.dto.ImportDetailDTO;
+import org.example.graduationproject.exceptions.BadRequestException;
+import org.example.graduationproject.exceptions.NotFoundException;
+import org.example.graduationproject.exceptions.TooManyRequestsException;
 import org.example.graduationproject.models.PhieuNhapHang;
 import org.example.graduationproject.models.ChiTietPhieuNhapHang;
 import org.example.graduationproject.models.NhaCungCap;
 import org.example.graduationproject.models.SanPhamBienThe;
 import org.example.graduationproject.services.AdminImportService;
-import org.example.graduationproject.repositories.NhaCungCapRepository;
+import org.example.graduationproject.services.export.ExportJob;
 import org.example.graduationproject.repositories.SanPhamBienTheRepository;
+import org.example.graduationproject.utils.SqlStatementCounter;
+import org.example.graduationproject.services.cache.ReferenceDataCache;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import jakarta.validation.Valid;
 import java.math.BigDecimal;
@@ -36,7 +45,7 @@ public class ImportApiController {
     private AdminImportService adminImportService;
 
     @Autowired
-    private NhaCungCapRepository nhaCungCapRepository;
+    private ReferenceDataCache referenceDataCache;
 
     @Autowired
     private SanPhamBienTheRepository sanPhamBienTheRepository;
@@ -45,8 +54,24 @@ public class ImportApiController {
     public ResponseEntity<Map<String, Object>> getAllImports(
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size,
-            @RequestParam(defaultValue = "") String search) {
+            @RequestParam(defaultValue = "") String search,
+            @RequestParam(required = false) String cursor) {
         try {
+            // Có tham số cursor (kể cả rỗng) thì dùng phân trang keyset, không đếm chính xác
+            if (cursor != null) {
+                CursorPage<PhieuNhapHang> cursorPage = adminImportService.getImportsKeyset(search, cursor, size).getData();
+                Map<String, Object> response = new HashMap<>();
+                response.put("content", cursorPage.getContent().stream()
+                        .map(this::convertToDTO)
+                        .collect(Collectors.toList()));
+                response.put("nextCursor", cursorPage.getNextCursor());
+                response.put("hasNext", cursorPage.isHasNext());
+                response.put("size", cursorPage.getSize());
+                response.put("totalElements", cursorPage.getApproximateTotal());
+                response.put("totalIsApproximate", true);
+                return ResponseEntity.ok(response);
+            }
+
             var result = adminImportService.getImportsWithFilters(search, page, size);
             
             if (result.isSuccess()) {
@@ -70,6 +95,10 @@ public class ImportApiController {
                 errorResponse.put("error", result.getMessage());
                 return ResponseEntity.status(500).body(errorResponse);
             }
+        } catch (BadRequestException e) {
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("error", e.getMessage());
+            return ResponseEntity.status(400).body(errorResponse);
         } catch (Exception e) {
             Map<String, Object> errorResponse = new HashMap<>();
             errorResponse.put("error", "Lỗi khi tải danh sách phiếu nhập hàng: " + e.getMessage());
@@ -80,8 +109,9 @@ public class ImportApiController {
     @GetMapping("/form-data")
     public ResponseEntity<Map<String, Object>> getFormData() {
         try {
-            List<NhaCungCap> suppliers = nhaCungCapRepository.findAll();
-            List<SanPhamBienThe> variants = sanPhamBienTheRepository.findAll();
+            List<NhaCungCap> suppliers = referenceDataCache.getAllNhaCungCap();
+            // Một truy vấn fetch join thay vì nạp sản phẩm / màu / size của từng biến thể
+            List<SanPhamBienThe> variants = sanPhamBienTheRepository.findAllForSearchIndex();
             
             List<Map<String, Object>> supplierList = suppliers.stream()
                     .map(supplier -> {
@@ -118,7 +148,8 @@ public class ImportApiController {
     @PostMapping
     public ResponseEntity<Map<String, Object>> createImport(@Valid @RequestBody ImportRequestDTO request) {
         try {
-            var result = adminImportService.createImport(request);
+            var result = SqlStatementCounter.measure("IMPORT_CREATE",
+                    () -> adminImportService.createImport(request));
             
             if (result.isSuccess()) {
                 Map<String, Object> response = new HashMap<>();
@@ -174,6 +205,72 @@ public class ImportApiController {
         }
     }
 
+    /**
+     * Tải file Excel chi tiết phiếu nhập, file được ghi dần vào response trong lúc đọc database
+     */
+    @GetMapping("/{id}/export/excel")
+    public ResponseEntity<StreamingResponseBody> exportExcel(@PathVariable Integer id) {
+        StreamingResponseBody body;
+        try {
+            body = adminImportService.streamImportToExcel(id).getData();
+        } catch (NotFoundException e) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"phieu-nhap-" + id + ".xlsx\"")
+                .contentType(MediaType.parseMediaType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet"))
+                .body(body);
+    }
+
+    /**
+     * Tải file PDF chi tiết phiếu nhập, các trang được ghi thẳng vào response
+     */
+    @GetMapping("/{id}/export/pdf")
+    public ResponseEntity<StreamingResponseBody> exportPdf(@PathVariable Integer id) {
+        StreamingResponseBody body;
+        try {
+            body = adminImportService.streamImportToPdf(id).getData();
+        } catch (NotFoundException e) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"phieu-nhap-" + id + ".pdf\"")
+                .contentType(MediaType.APPLICATION_PDF)
+                .body(body);
+    }
+
+    /**
+     * Tạo job export phiếu nhập (excel / pdf). Bấm nhiều lần khi dữ liệu chưa đổi chỉ nhận lại cùng một job.
+     * Theo dõi tiến độ và tải file qua /api/admin/exports/{jobId}
+     */
+    @PostMapping("/{id}/export-jobs")
+    public ResponseEntity<Map<String, Object>> createExportJob(@PathVariable Integer id,
+                                                               @RequestParam(defaultValue = "excel") String format) {
+        Map<String, Object> response = new HashMap<>();
+        try {
+            ExportJob job = adminImportService.submitImportExport(id, format).getData();
+            response.put("success", true);
+            response.put("data", job.toMap());
+            return ResponseEntity.accepted().body(response);
+        } catch (NotFoundException e) {
+            response.put("success", false);
+            response.put("message", e.getMessage());
+            return ResponseEntity.status(404).body(response);
+        } catch (BadRequestException e) {
+            response.put("success", false);
+            response.put("message", e.getMessage());
+            return ResponseEntity.status(400).body(response);
+        } catch (TooManyRequestsException e) {
+            response.put("success", false);
+            response.put("message", e.getMessage());
+            return ResponseEntity.status(429).body(response);
+        } catch (Exception e) {
+            response.put("success", false);
+            response.put("message", "Lỗi khi tạo job export: " + e.getMessage());
+            return ResponseEntity.status(500).body(response);
+        }
+    }
+
     @DeleteMapping("/{id}")
     public ResponseEntity<Map<String, Object>> deleteImport(@PathVariable Integer id) {
         try {
@@ -0,0 +1,63 @@
+package org.example.graduationproject.controllers.api;
+
+import org.example.graduationproject.models.NotificationDeadLetter;
+import org.example.graduationproject.repositories.NotificationDeadLetterRepository;
+import org.example.graduationproject.services.notification.dispatch.NotificationDispatcher;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/admin/notifications")
+@CrossOrigin(origins = "http://localhost:5173")
+public class NotificationDispatchApiController {
+
+    @Autowired
+    private NotificationDispatcher notificationDispatcher;
+
+    @Autowired
+    private NotificationDeadLetterRepository deadLetterRepository;
+
+    /**
+     * Hàng đợi, số thông báo đã gộp / gửi / thử lại / dead letter của từng kênh
+     */
+    @GetMapping("/stats")
+    public ResponseEntity<Map<String, Object>> getStats() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("channels", notificationDispatcher.getStats());
+        return ResponseEntity.ok(response);
+    }
+
+    @GetMapping("/dead-letters")
+    public ResponseEntity<Map<String, Object>> getDeadLetters(
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size) {
+        Page<NotificationDeadLetter> result = deadLetterRepository.findAllByOrderByNgayTaoDesc(
+                PageRequest.of(Math.max(page, 0), Math.min(Math.max(size, 1), 100)));
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("data", result.getContent());
+        response.put("totalElements", result.getTotalElements());
+        response.put("totalPages", result.getTotalPages());
+        return ResponseEntity.ok(response);
+    }
+
+    @PostMapping("/dead-letters/{id}/retry")
+    public ResponseEntity<Map<String, Object>> retryDeadLetter(@PathVariable Long id) {
+        Map<String, Object> response = new HashMap<>();
+        if (!notificationDispatcher.retryDeadLetter(id)) {
+            response.put("success", false);
+            response.put("message", "Không tìm thấy thông báo");
+            return ResponseEntity.status(404).body(response);
+        }
+        response.put("success", true);
+        response.put("message", "Đã đưa thông báo vào hàng đợi gửi lại");
+        return ResponseEntity.ok(response);
+    }
+}
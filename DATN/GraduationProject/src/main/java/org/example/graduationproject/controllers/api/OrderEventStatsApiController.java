@@ -0,0 +1,34 @@
+package org.example.graduationproject.controllers.api;
+
+import org.example.graduationproject.events.bus.OrderEventBus;
+import org.example.graduationproject.events.outbox.OrderOutboxRelay;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/admin/events")
+@CrossOrigin(origins = "http://localhost:5173")
+public class OrderEventStatsApiController {
+
+    @Autowired
+    private OrderEventBus orderEventBus;
+
+    @Autowired
+    private OrderOutboxRelay orderOutboxRelay;
+
+    /**
+     * Số event đã publish / bị từ chối và backlog, độ trễ của từng observer; số dòng outbox đang chờ
+     */
+    @GetMapping("/stats")
+    public ResponseEntity<Map<String, Object>> getStats() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("orderEvents", orderEventBus.getStats());
+        response.put("outbox", orderOutboxRelay.getStats());
+        return ResponseEntity.ok(response);
+    }
+}
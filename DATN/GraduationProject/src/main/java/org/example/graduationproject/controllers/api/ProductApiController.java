@@ -1,21 +1,25 @@
 package org.example.graduationproject.controllers.api;
 
 import jakarta.validation.Valid;
+import org.example.graduationproject.dto.CursorPage;
 import org.example.graduationproject.dto.ProductDTO;
+import org.example.graduationproject.exceptions.BadRequestException;
+import org.example.graduationproject.exceptions.TooManyRequestsException;
 import org.example.graduationproject.models.SanPham;
 import org.example.graduationproject.services.SanPhamService;
 import org.example.graduationproject.services.AdminProductService;
-import org.example.graduationproject.repositories.LoaiRepository;
-import org.example.graduationproject.repositories.NhanHieuRepository;
-import org.example.graduationproject.repositories.NhaCungCapRepository;
+import org.example.graduationproject.services.CatalogImportService;
+import org.example.graduationproject.services.export.ExportJob;
 import org.example.graduationproject.repositories.SanPhamRepository;
 import org.example.graduationproject.repositories.ImageSanPhamRepository;
+import org.example.graduationproject.services.cache.ReferenceDataCache;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
 
 import java.util.HashMap;
 import java.util.List;
@@ -35,13 +39,10 @@ public class ProductApiController {
     private AdminProductService adminProductService;
     
     @Autowired
-    private LoaiRepository loaiRepository;
-    
-    @Autowired
-    private NhanHieuRepository nhanHieuRepository;
-    
+    private ReferenceDataCache referenceDataCache;
+
     @Autowired
-    private NhaCungCapRepository nhaCungCapRepository;
+    private CatalogImportService catalogImportService;
     
     @Autowired
     private SanPhamRepository sanPhamRepository;
@@ -55,10 +56,27 @@ public class ProductApiController {
             @RequestParam(defaultValue = "10") int size,
             @RequestParam(defaultValue = "") String search,
             @RequestParam(required = false) Integer categoryId,
-            @RequestParam(required = false) Integer gender) {
+            @RequestParam(required = false) Integer gender,
+            @RequestParam(required = false) String cursor) {
         try {
             // Use real data from database with filters
             String genderStr = gender != null ? gender.toString() : null;
+
+            // Có tham số cursor (kể cả rỗng) thì dùng phân trang keyset, không đếm chính xác
+            if (cursor != null) {
+                CursorPage<SanPham> cursorPage = sanPhamService.getProductsWithFiltersKeyset(
+                    search, categoryId, genderStr, cursor, size);
+                Map<String, Object> response = new HashMap<>();
+                response.put("content", cursorPage.getContent().stream()
+                        .map(this::convertToDTO)
+                        .collect(Collectors.toList()));
+                response.put("nextCursor", cursorPage.getNextCursor());
+                response.put("hasNext", cursorPage.isHasNext());
+                response.put("size", cursorPage.getSize());
+                response.put("totalElements", cursorPage.getApproximateTotal());
+                response.put("totalIsApproximate", true);
+                return new ResponseEntity<>(response, HttpStatus.OK);
+            }
             Page<SanPham> productPage = sanPhamService.getProductsWithFilters(
                 search, categoryId, genderStr, page, size);
             
@@ -79,6 +97,10 @@ public class ProductApiController {
             response.put("empty", productPage.isEmpty());
 
             return new ResponseEntity<>(response, HttpStatus.OK);
+        } catch (BadRequestException e) {
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("error", e.getMessage());
+            return new ResponseEntity<>(errorResponse, HttpStatus.BAD_REQUEST);
         } catch (Exception e) {
             e.printStackTrace();
             Map<String, Object> errorResponse = new HashMap<>();
@@ -108,19 +130,19 @@ public class ProductApiController {
             Map<String, Object> formData = new HashMap<>();
             
             // Load categories (loais) - only id and name to avoid circular reference
-            var categories = loaiRepository.findAll().stream()
+            var categories = referenceDataCache.getAllLoai().stream()
                 .map(loai -> Map.of("id", loai.getId(), "ten", loai.getTen()))
                 .collect(Collectors.toList());
             formData.put("loais", categories);
             
             // Load brands (nhanHieus) - only id and name to avoid circular reference
-            var brands = nhanHieuRepository.findAll().stream()
+            var brands = referenceDataCache.getAllNhanHieu().stream()
                 .map(nhanHieu -> Map.of("id", nhanHieu.getId(), "ten", nhanHieu.getTen()))
                 .collect(Collectors.toList());
             formData.put("nhanHieus", brands);
             
             // Load suppliers (nhaCungCaps) - only id and name to avoid circular reference
-            var suppliers = nhaCungCapRepository.findAll().stream()
+            var suppliers = referenceDataCache.getAllNhaCungCap().stream()
                 .map(nhaCungCap -> Map.of("id", nhaCungCap.getId(), "ten", nhaCungCap.getTen()))
                 .collect(Collectors.toList());
             formData.put("nhaCungCaps", suppliers);
@@ -157,6 +179,33 @@ public class ProductApiController {
         }
     }
 
+    /**
+     * Import sản phẩm + biến thể từ .xlsx / .csv, chạy nền.
+     * Theo dõi qua /api/admin/exports/{jobId}, file tải về là báo cáo các dòng lỗi.
+     */
+    @PostMapping("/import")
+    public ResponseEntity<Map<String, Object>> importCatalog(@RequestParam("file") MultipartFile file) {
+        Map<String, Object> response = new HashMap<>();
+        try {
+            ExportJob job = catalogImportService.submitCatalogImport(file);
+            response.put("success", true);
+            response.put("data", job.toMap());
+            return ResponseEntity.accepted().body(response);
+        } catch (BadRequestException e) {
+            response.put("success", false);
+            response.put("message", e.getMessage());
+            return ResponseEntity.status(400).body(response);
+        } catch (TooManyRequestsException e) {
+            response.put("success", false);
+            response.put("message", e.getMessage());
+            return ResponseEntity.status(429).body(response);
+        } catch (Exception e) {
+            response.put("success", false);
+            response.put("message", "Lỗi khi tạo job import: " + e.getMessage());
+            return ResponseEntity.status(500).body(response);
+        }
+    }
+
     @PutMapping("/{id}")
     public ResponseEntity<Map<String, String>> updateProduct(
             @PathVariable Integer id, 
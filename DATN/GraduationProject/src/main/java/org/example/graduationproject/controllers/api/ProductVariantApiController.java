@@ -1,14 +1,15 @@
 package org.example.graduationproject.controllers.api;
 
+import org.example.graduationproject.dto.BulkProductVariantDTO;
 import org.example.graduationproject.dto.ProductVariantDTO;
+import org.example.graduationproject.exceptions.InsufficientStockException;
 import org.example.graduationproject.models.SanPhamBienThe;
 import org.example.graduationproject.models.SanPham;
 import org.example.graduationproject.models.MauSac;
 import org.example.graduationproject.models.Size;
 import org.example.graduationproject.services.SanPhamBienTheService;
 import org.example.graduationproject.repositories.SanPhamRepository;
-import org.example.graduationproject.repositories.MauSacRepository;
-import org.example.graduationproject.repositories.SizeRepository;
+import org.example.graduationproject.services.cache.ReferenceDataCache;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
@@ -36,10 +37,7 @@ public class ProductVariantApiController {
     private SanPhamRepository sanPhamRepository;
 
     @Autowired
-    private MauSacRepository mauSacRepository;
-
-    @Autowired
-    private SizeRepository sizeRepository;
+    private ReferenceDataCache referenceDataCache;
 
     @GetMapping
     public ResponseEntity<Map<String, Object>> getAllVariants(
@@ -79,8 +77,8 @@ public class ProductVariantApiController {
     public ResponseEntity<Map<String, Object>> getFormData() {
         try {
             List<SanPham> products = sanPhamRepository.findAll();
-            List<MauSac> colors = mauSacRepository.findAll();
-            List<Size> sizes = sizeRepository.findAll();
+            List<MauSac> colors = referenceDataCache.getAllMauSac();
+            List<Size> sizes = referenceDataCache.getAllSize();
             
             List<Map<String, Object>> productList = products.stream()
                     .map(product -> {
@@ -133,8 +131,7 @@ public class ProductVariantApiController {
                 return ResponseEntity.status(400).body(response);
             }
             
-            SanPhamBienThe variant = convertToEntity(variantDTO);
-            SanPhamBienThe savedVariant = sanPhamBienTheService.saveSanPhamBienThe(variant);
+            SanPhamBienThe savedVariant = sanPhamBienTheService.createProductVariant(variantDTO);
             
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
@@ -142,6 +139,8 @@ public class ProductVariantApiController {
             response.put("data", convertToDTO(savedVariant));
             
             return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            return errorResponse(400, e.getMessage());
         } catch (Exception e) {
             Map<String, Object> response = new HashMap<>();
             response.put("success", false);
@@ -150,6 +149,49 @@ public class ProductVariantApiController {
         }
     }
 
+    /**
+     * Tạo mọi tổ hợp màu × size còn thiếu của một sản phẩm
+     */
+    @PostMapping("/bulk")
+    public ResponseEntity<Map<String, Object>> createBulkVariants(@RequestBody BulkProductVariantDTO bulkDTO) {
+        try {
+            return bulkResponse(sanPhamBienTheService.createBulkProductVariantsWithResult(bulkDTO));
+        } catch (IllegalArgumentException e) {
+            return errorResponse(400, e.getMessage());
+        } catch (Exception e) {
+            return errorResponse(500, "Lỗi khi tạo biến thể hàng loạt: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Tạo biến thể hàng loạt cho nhiều sản phẩm trong một lần (ra mắt bộ sưu tập theo mùa)
+     */
+    @PostMapping("/bulk/products")
+    public ResponseEntity<Map<String, Object>> createBulkVariantsForProducts(@RequestBody List<BulkProductVariantDTO> bulkDTOs) {
+        try {
+            return bulkResponse(sanPhamBienTheService.createBulkProductVariantsForProducts(bulkDTOs));
+        } catch (IllegalArgumentException e) {
+            return errorResponse(400, e.getMessage());
+        } catch (Exception e) {
+            return errorResponse(500, "Lỗi khi tạo biến thể hàng loạt: " + e.getMessage());
+        }
+    }
+
+    private ResponseEntity<Map<String, Object>> bulkResponse(BulkProductVariantDTO.BulkCreateResult result) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("message", result.getMessage());
+        response.put("data", result);
+        return ResponseEntity.ok(response);
+    }
+
+    private ResponseEntity<Map<String, Object>> errorResponse(int status, String message) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", false);
+        response.put("message", message);
+        return ResponseEntity.status(status).body(response);
+    }
+
     @PutMapping("/{id}")
     public ResponseEntity<Map<String, Object>> updateVariant(@PathVariable Integer id, @Valid @RequestBody ProductVariantDTO variantDTO) {
         try {
@@ -161,8 +203,8 @@ public class ProductVariantApiController {
             }
             
             variantDTO.setId(id);
-            SanPhamBienThe variant = convertToEntity(variantDTO);
-            SanPhamBienThe savedVariant = sanPhamBienTheService.saveSanPhamBienThe(variant);
+            // Sửa trên entity đang quản lý, tồn kho qua sổ cái nên số lượng đang giữ của đơn chờ duyệt được giữ nguyên
+            SanPhamBienThe savedVariant = sanPhamBienTheService.updateProductVariant(variantDTO);
             
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
@@ -170,6 +212,10 @@ public class ProductVariantApiController {
             response.put("data", convertToDTO(savedVariant));
             
             return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            return errorResponse(400, e.getMessage());
+        } catch (InsufficientStockException e) {
+            return errorResponse(409, e.getMessage());
         } catch (Exception e) {
             Map<String, Object> response = new HashMap<>();
             response.put("success", false);
@@ -207,6 +253,8 @@ public class ProductVariantApiController {
         ProductVariantDTO dto = new ProductVariantDTO();
         dto.setId(variant.getId());
         dto.setSoLuongTon(variant.getSoLuongTon());
+        dto.setSoLuongDaGiu(variant.getSoLuongDaGiu() != null ? variant.getSoLuongDaGiu() : 0);
+        dto.setSoLuongCoTheBan(variant.getSoLuongCoTheBan());
         
         if (variant.getSanPham() != null) {
             dto.setSanPhamId(variant.getSanPham().getId());
@@ -225,27 +273,4 @@ public class ProductVariantApiController {
         
         return dto;
     }
-
-    private SanPhamBienThe convertToEntity(ProductVariantDTO dto) {
-        SanPhamBienThe variant = new SanPhamBienThe();
-        variant.setId(dto.getId());
-        variant.setSoLuongTon(dto.getSoLuongTon());
-        
-        if (dto.getSanPhamId() != null) {
-            SanPham sanPham = sanPhamRepository.findById(dto.getSanPhamId()).orElse(null);
-            variant.setSanPham(sanPham);
-        }
-        
-        if (dto.getMauSacId() != null) {
-            MauSac mauSac = mauSacRepository.findById(dto.getMauSacId()).orElse(null);
-            variant.setMauSac(mauSac);
-        }
-        
-        if (dto.getSizeId() != null) {
-            Size size = sizeRepository.findById(dto.getSizeId()).orElse(null);
-            variant.setSize(size);
-        }
-        
-        return variant;
-    }
 }
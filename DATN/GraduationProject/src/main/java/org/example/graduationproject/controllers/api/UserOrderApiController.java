@@ -7,6 +7,7 @@ import org.example.graduationproject.models.HoaDon;
 import org.example.graduationproject.models.User;
 import org.example.graduationproject.repositories.UserRepository;
 import org.example.graduationproject.services.HoaDonService;
+import org.example.graduationproject.utils.SqlStatementCounter;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
@@ -43,7 +44,8 @@ public class UserOrderApiController {
             }
 
             // Tạo đơn hàng từ checkout data
-            HoaDon order = hoaDonService.createOrderFromCheckout(currentUser, checkoutRequestDTO);
+            HoaDon order = SqlStatementCounter.measure("ORDER_CREATE_FROM_CHECKOUT",
+                    () -> hoaDonService.createOrderFromCheckout(currentUser, checkoutRequestDTO));
 
             // Trả về thông tin đơn hàng
             Map<String, Object> response = new HashMap<>();
@@ -1,14 +1,19 @@
 package org.example.graduationproject.controllers.api;
 
 import org.example.graduationproject.dto.ServiceResult;
-import org.example.graduationproject.services.SanPhamService;
 import org.example.graduationproject.services.UserProductService;
+import org.example.graduationproject.services.catalog.HomePageMaterializer;
+import org.example.graduationproject.services.catalog.HomePagePayload;
+import org.example.graduationproject.services.catalog.ProductCatalog;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.HashMap;
 import java.util.Map;
@@ -19,10 +24,29 @@ import java.util.Map;
 public class UserProductApiController {
 
     @Autowired
-    private SanPhamService sanPhamService;
+    private UserProductService userProductService;
 
     @Autowired
-    private UserProductService userProductService;
+    private ProductCatalog productCatalog;
+
+    @Autowired
+    private HomePageMaterializer homePageMaterializer;
+
+    /**
+     * Dữ liệu trang chủ dựng sẵn trong bộ nhớ, trả 304 nếu client đã có đúng phiên bản (ETag)
+     */
+    @GetMapping("/products/home")
+    public ResponseEntity<byte[]> getHomePage(WebRequest request) {
+        HomePagePayload payload = homePageMaterializer.getPayload();
+        if (request.checkNotModified(payload.getEtag())) {
+            return null;
+        }
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .eTag(payload.getEtag())
+                .cacheControl(CacheControl.noCache())
+                .body(payload.getJson());
+    }
 
     /**
      * Lấy danh sách sản phẩm cho người dùng với phân trang và lọc
@@ -39,14 +63,12 @@ public class UserProductApiController {
             @RequestParam(required = false) String sortOrder) {
         try {
             Pageable pageable = PageRequest.of(page, size);
-            // Convert Integer gender to String for service method
-            String genderStr = gender != null ? gender.toString() : null;
-            Page<org.example.graduationproject.models.SanPham> productPage = 
-                sanPhamService.getProductsWithFilters(search, categoryId, genderStr, page, size);
+            // Đọc từ catalog trong bộ nhớ, không truy vấn database
+            Page<Map<String, Object>> productPage =
+                productCatalog.getProducts(search, categoryId, gender, brandId, page, size);
 
-            // Convert to DTO format for frontend
             Map<String, Object> result = new HashMap<>();
-            result.put("content", productPage.getContent().stream().map(this::convertToUserProductDTO).toList());
+            result.put("content", productPage.getContent());
             result.put("totalPages", productPage.getTotalPages());
             result.put("totalElements", productPage.getTotalElements());
             result.put("currentPage", page);
@@ -97,11 +119,11 @@ public class UserProductApiController {
             @RequestParam(defaultValue = "8") int size) {
         try {
             Pageable pageable = PageRequest.of(page, size);
-            Page<org.example.graduationproject.models.SanPham> productPage = 
-                sanPhamService.getProductsWithFilters("", null, null, page, size);
+            Page<Map<String, Object>> productPage =
+                productCatalog.getProducts("", null, null, null, page, size);
 
             Map<String, Object> result = new HashMap<>();
-            result.put("content", productPage.getContent().stream().map(this::convertToUserProductDTO).toList());
+            result.put("content", productPage.getContent());
             result.put("totalPages", productPage.getTotalPages());
             result.put("totalElements", productPage.getTotalElements());
             result.put("currentPage", page);
@@ -125,11 +147,11 @@ public class UserProductApiController {
             @RequestParam(defaultValue = "8") int size) {
         try {
             Pageable pageable = PageRequest.of(page, size);
-            Page<org.example.graduationproject.models.SanPham> productPage = 
-                sanPhamService.getProductsWithFilters("", null, null, page, size);
+            Page<Map<String, Object>> productPage =
+                productCatalog.getProducts("", null, null, null, page, size);
 
             Map<String, Object> result = new HashMap<>();
-            result.put("content", productPage.getContent().stream().map(this::convertToUserProductDTO).toList());
+            result.put("content", productPage.getContent());
             result.put("totalPages", productPage.getTotalPages());
             result.put("totalElements", productPage.getTotalElements());
             result.put("currentPage", page);
@@ -154,11 +176,11 @@ public class UserProductApiController {
             @RequestParam(defaultValue = "12") int size) {
         try {
             Pageable pageable = PageRequest.of(page, size);
-            Page<org.example.graduationproject.models.SanPham> productPage = 
-                sanPhamService.getProductsWithFilters("", categoryId, null, page, size);
+            Page<Map<String, Object>> productPage =
+                productCatalog.getProducts("", categoryId, null, null, page, size);
 
             Map<String, Object> result = new HashMap<>();
-            result.put("content", productPage.getContent().stream().map(this::convertToUserProductDTO).toList());
+            result.put("content", productPage.getContent());
             result.put("totalPages", productPage.getTotalPages());
             result.put("totalElements", productPage.getTotalElements());
             result.put("currentPage", page);
@@ -172,47 +194,4 @@ public class UserProductApiController {
             return ResponseEntity.status(500).body(error);
         }
     }
-
-    /**
-     * Convert SanPham entity to user-friendly DTO
-     */
-    private Map<String, Object> convertToUserProductDTO(org.example.graduationproject.models.SanPham product) {
-        Map<String, Object> dto = new HashMap<>();
-        dto.put("id", product.getId());
-        dto.put("ten", product.getTen());
-        dto.put("giaBan", product.getGiaBan());
-        dto.put("khuyenMai", product.getKhuyenMai());
-        dto.put("moTa", product.getMoTa());
-        dto.put("trangThai", product.getTrangThaiHoatDong());
-        dto.put("gioiTinh", product.getGioiTinh());
-        
-        // Category info
-        if (product.getLoai() != null) {
-            Map<String, Object> category = new HashMap<>();
-            category.put("id", product.getLoai().getId());
-            category.put("ten", product.getLoai().getTen());
-            dto.put("loai", category);
-        }
-        
-        // Brand info
-        if (product.getNhanHieu() != null) {
-            Map<String, Object> brand = new HashMap<>();
-            brand.put("id", product.getNhanHieu().getId());
-            brand.put("ten", product.getNhanHieu().getTen());
-            dto.put("nhanHieu", brand);
-        }
-        
-        // Images
-        if (product.getImages() != null && !product.getImages().isEmpty()) {
-            dto.put("hinhAnh", product.getImages().get(0).getImageName());
-            dto.put("imageUrls", product.getImages().stream()
-                .map(img -> img.getImageName())
-                .toArray(String[]::new));
-        } else {
-            dto.put("hinhAnh", null);
-            dto.put("imageUrls", new String[0]);
-        }
-        
-        return dto;
-    }
 }
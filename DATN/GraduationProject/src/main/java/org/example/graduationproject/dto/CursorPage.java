@@ -0,0 +1,19 @@
+package org.example.graduationproject.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * Một trang kết quả phân trang theo keyset (không có số trang, không đếm chính xác)
+ */
+@Getter
+@AllArgsConstructor
+public class CursorPage<T> {
+    private List<T> content;
+    private String nextCursor;   // null khi đã tới trang cuối
+    private boolean hasNext;
+    private int size;
+    private long approximateTotal;
+}
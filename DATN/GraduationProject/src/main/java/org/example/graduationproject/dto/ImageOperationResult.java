@@ -0,0 +1,23 @@
+package org.example.graduationproject.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Kết quả upload / xóa của từng file trong một lần thao tác nhiều ảnh
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImageOperationResult {
+    // Tên file gốc (upload) hoặc URL (xóa)
+    private String source;
+    private boolean success;
+    private String url;
+    private String error;
+    private int attempts;
+    private long durationMs;
+}
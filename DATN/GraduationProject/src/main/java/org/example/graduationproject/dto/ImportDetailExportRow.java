@@ -0,0 +1,20 @@
+package org.example.graduationproject.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+
+/**
+ * Một dòng chi tiết phiếu nhập cho export dạng stream (projection, không nạp entity)
+ */
+@Getter
+@AllArgsConstructor
+public class ImportDetailExportRow {
+    private Integer id;
+    private String tenSanPham;
+    private String maMau;
+    private String tenSize;
+    private Integer soLuongNhap;
+    private BigDecimal thanhTienNhap;
+}
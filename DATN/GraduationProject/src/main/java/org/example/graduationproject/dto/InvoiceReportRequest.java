@@ -0,0 +1,28 @@
+package org.example.graduationproject.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.time.LocalDate;
+
+/**
+ * Tham số báo cáo hóa đơn: khoảng ngày tạo (tính cả hai đầu), lọc trạng thái / loại thanh toán, định dạng xlsx | csv
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class InvoiceReportRequest {
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+    private LocalDate fromDate;
+
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+    private LocalDate toDate;
+
+    private String trangThai;
+    private String loaiThanhToan;
+    private String format;
+}
@@ -0,0 +1,30 @@
+package org.example.graduationproject.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Một dòng báo cáo: thông tin hóa đơn kèm một dòng chi tiết (projection, không nạp entity)
+ */
+@Getter
+@AllArgsConstructor
+public class InvoiceReportRow {
+    private Integer hoaDonId;
+    private LocalDateTime ngayTao;
+    private String trangThai;
+    private String loaiThanhToan;
+    private String daLayTien;
+    private String tenNguoiNhan;
+    private String soDienThoaiGiaoHang;
+    private String email;
+    private BigDecimal tongTien;
+    private Integer chiTietId;
+    private String tenSanPham;
+    private String maMau;
+    private String tenSize;
+    private Integer soLuong;
+    private BigDecimal thanhTien;
+}
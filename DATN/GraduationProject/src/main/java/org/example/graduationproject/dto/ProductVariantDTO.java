@@ -29,4 +29,8 @@ public class ProductVariantDTO {
     @NotNull(message = "Kích cỡ không được để trống")
     private Integer sizeId;
     private String sizeTen;
+    
+    // Chỉ đọc: số lượng đang giữ cho đơn chờ duyệt và số lượng có thể bán
+    private Integer soLuongDaGiu;
+    private Integer soLuongCoTheBan;
 } 
\ No newline at end of file
@@ -0,0 +1,17 @@
+package org.example.graduationproject.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Khóa tổng hợp để xác định một biến thể: (sản phẩm, tên size, mã màu)
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class VariantKey {
+    private Integer productId;
+    private String sizeName;
+    private String colorCode;
+}
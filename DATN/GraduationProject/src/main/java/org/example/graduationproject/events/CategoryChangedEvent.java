@@ -0,0 +1,23 @@
+package org.example.graduationproject.events;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CategoryChangedEvent {
+
+    private Integer loaiId;
+    private String changeType; // "SAVED", "DELETED"
+    private LocalDateTime timestamp;
+
+    public boolean isDeleted() {
+        return "DELETED".equals(changeType);
+    }
+}
@@ -1,16 +1,27 @@
 package org.example.graduationproject.events;
 
 import lombok.extern.slf4j.Slf4j;
+import org.example.graduationproject.events.outbox.OrderOutboxRelay;
+import org.example.graduationproject.models.OrderEventOutbox;
+import org.example.graduationproject.repositories.OrderEventOutboxRepository;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+/**
+ * Ghi event vào OrderEventOutbox trong transaction hiện tại của hóa đơn:
+ * rollback thì event biến mất cùng hóa đơn, commit thì OrderOutboxRelay chắc chắn sẽ giao event.
+ */
 @Component
 @Slf4j
 public class OrderEventPublisher {
     
     @Autowired
-    private ApplicationEventPublisher eventPublisher;
+    private OrderEventOutboxRepository outboxRepository;
+
+    @Autowired
+    private OrderOutboxRelay orderOutboxRelay;
     
     /**
      * Publish event khi order status thay đổi
@@ -18,7 +29,19 @@ public class OrderEventPublisher {
     public void publishOrderStatusChanged(OrderStatusChangedEvent event) {
         log.info("Publishing OrderStatusChangedEvent: Order #{} from {} to {}", 
                 event.getOrderId(), event.getOldStatus(), event.getNewStatus());
-        eventPublisher.publishEvent(event);
+        outboxRepository.save(toOutbox(event));
+
+        // Đánh thức relay sau commit thay vì chờ lần quét kế tiếp
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    orderOutboxRelay.wakeUp();
+                }
+            });
+        } else {
+            orderOutboxRelay.wakeUp();
+        }
     }
     
     /**
@@ -33,6 +56,18 @@ public class OrderEventPublisher {
                 .build();
         publishOrderStatusChanged(event);
     }
-}
-
 
+    private OrderEventOutbox toOutbox(OrderStatusChangedEvent event) {
+        OrderEventOutbox row = new OrderEventOutbox();
+        row.setHoaDonId(event.getOrderId());
+        row.setTrangThaiCu(event.getOldStatus());
+        row.setTrangThaiMoi(event.getNewStatus());
+        row.setEmail(event.getCustomerEmail());
+        row.setTenKhachHang(event.getCustomerName());
+        row.setSoDienThoai(event.getCustomerPhone());
+        row.setTongTien(event.getOrderTotal());
+        row.setLyDo(event.getChangeReason());
+        row.setNgayTao(event.getTimestamp() != null ? event.getTimestamp() : java.time.LocalDateTime.now());
+        return row;
+    }
+}
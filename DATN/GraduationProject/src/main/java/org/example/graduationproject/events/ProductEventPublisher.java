@@ -0,0 +1,102 @@
+package org.example.graduationproject.events;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+@Component
+@Slf4j
+public class ProductEventPublisher {
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    /**
+     * Publish event khi sản phẩm được thêm mới / cập nhật
+     */
+    public void publishProductSaved(Integer productId) {
+        publish(productId, "SAVED");
+    }
+
+    /**
+     * Publish event khi sản phẩm bị xóa
+     */
+    public void publishProductDeleted(Integer productId) {
+        publish(productId, "DELETED");
+    }
+
+    /**
+     * Publish event khi biến thể được thêm mới / cập nhật
+     */
+    public void publishVariantsSaved(List<Integer> variantIds) {
+        publishVariants(variantIds, "SAVED");
+    }
+
+    /**
+     * Publish event khi biến thể bị xóa
+     */
+    public void publishVariantDeleted(Integer variantId) {
+        if (variantId != null) {
+            publishVariants(List.of(variantId), "DELETED");
+        }
+    }
+
+    /**
+     * Publish event khi loại sản phẩm được thêm mới / cập nhật / xóa
+     */
+    public void publishCategoryChanged(Integer loaiId, boolean deleted) {
+        if (loaiId == null) {
+            return;
+        }
+        String changeType = deleted ? "DELETED" : "SAVED";
+        log.debug("Publishing CategoryChangedEvent: Loai #{} {}", loaiId, changeType);
+        eventPublisher.publishEvent(CategoryChangedEvent.builder()
+                .loaiId(loaiId)
+                .changeType(changeType)
+                .timestamp(java.time.LocalDateTime.now())
+                .build());
+    }
+
+    /**
+     * Publish event khi nhãn hiệu được thêm mới / cập nhật / xóa
+     */
+    public void publishBrandChanged(Integer nhanHieuId, boolean deleted) {
+        if (nhanHieuId == null) {
+            return;
+        }
+        String changeType = deleted ? "DELETED" : "SAVED";
+        log.debug("Publishing BrandChangedEvent: NhanHieu #{} {}", nhanHieuId, changeType);
+        eventPublisher.publishEvent(BrandChangedEvent.builder()
+                .nhanHieuId(nhanHieuId)
+                .changeType(changeType)
+                .timestamp(java.time.LocalDateTime.now())
+                .build());
+    }
+
+    private void publishVariants(List<Integer> variantIds, String changeType) {
+        if (variantIds == null || variantIds.isEmpty()) {
+            return;
+        }
+        log.debug("Publishing VariantChangedEvent: {} variant(s) {}", variantIds.size(), changeType);
+        eventPublisher.publishEvent(VariantChangedEvent.builder()
+                .variantIds(variantIds)
+                .changeType(changeType)
+                .timestamp(java.time.LocalDateTime.now())
+                .build());
+    }
+
+    private void publish(Integer productId, String changeType) {
+        if (productId == null) {
+            return;
+        }
+        log.debug("Publishing ProductChangedEvent: Product #{} {}", productId, changeType);
+        eventPublisher.publishEvent(ProductChangedEvent.builder()
+                .productId(productId)
+                .changeType(changeType)
+                .timestamp(java.time.LocalDateTime.now())
+                .build());
+    }
+}
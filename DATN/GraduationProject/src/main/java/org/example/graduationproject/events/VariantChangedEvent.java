@@ -0,0 +1,24 @@
+package org.example.graduationproject.events;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class VariantChangedEvent {
+
+    private List<Integer> variantIds;
+    private String changeType; // "SAVED", "DELETED"
+    private LocalDateTime timestamp;
+
+    public boolean isDeleted() {
+        return "DELETED".equals(changeType);
+    }
+}
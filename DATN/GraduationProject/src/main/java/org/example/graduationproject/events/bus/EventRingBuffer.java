@@ -0,0 +1,153 @@
+package org.example.graduationproject.events.bus;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Ring buffer có giới hạn, một dãy sequence tăng dần dùng chung cho mọi consumer.
+ * Mỗi consumer có cursor riêng (nhiều worker của cùng consumer tranh nhau cursor bằng CAS),
+ * slot chỉ được ghi đè khi consumer chậm nhất đã lấy qua nó; đầy thì publisher chờ (backpressure).
+ */
+public class EventRingBuffer<T> {
+
+    private final int capacity;
+    private final int mask;
+    private final AtomicReferenceArray<Envelope<T>> slots;
+    private final List<Cursor> cursors = new CopyOnWriteArrayList<>();
+
+    // Chỉ publisher (giữ khóa this) đọc / ghi
+    private long nextSequence;
+
+    private volatile long publishedSequence = -1;
+
+    private final Object notEmpty = new Object();
+
+    public EventRingBuffer(int requestedCapacity) {
+        int size = Integer.highestOneBit(Math.max(requestedCapacity, 2) - 1) << 1;
+        this.capacity = size;
+        this.mask = size - 1;
+        this.slots = new AtomicReferenceArray<>(size);
+    }
+
+    /**
+     * Đăng ký consumer, chỉ nhận các event publish sau thời điểm đăng ký
+     */
+    public Cursor addConsumer() {
+        Cursor cursor = new Cursor(publishedSequence + 1);
+        cursors.add(cursor);
+        return cursor;
+    }
+
+    /**
+     * Ghi event vào buffer, chờ tối đa timeoutMs nếu buffer đầy. Trả về false khi hết thời gian chờ.
+     */
+    public boolean publish(T event, long timeoutMs) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        synchronized (this) {
+            long sequence = nextSequence;
+            while (sequence - minimumCursor() >= capacity) {
+                if (System.nanoTime() >= deadline) {
+                    return false;
+                }
+                LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(200));
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+            }
+            slots.set((int) (sequence & mask), new Envelope<>(sequence, event, System.currentTimeMillis()));
+            nextSequence = sequence + 1;
+            publishedSequence = sequence;
+        }
+        synchronized (notEmpty) {
+            notEmpty.notifyAll();
+        }
+        return true;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public long getPublishedCount() {
+        return publishedSequence + 1;
+    }
+
+    private long minimumCursor() {
+        long minimum = Long.MAX_VALUE;
+        for (Cursor cursor : cursors) {
+            minimum = Math.min(minimum, cursor.next.get());
+        }
+        return minimum == Long.MAX_VALUE ? nextSequence : minimum;
+    }
+
+    public class Cursor {
+
+        private final AtomicLong next;
+
+        private Cursor(long start) {
+            this.next = new AtomicLong(start);
+        }
+
+        /**
+         * Lấy event tiếp theo của consumer, chờ tối đa waitMs; null nếu không có event mới
+         */
+        public Envelope<T> poll(long waitMs) throws InterruptedException {
+            long deadline = System.currentTimeMillis() + waitMs;
+            while (true) {
+                long sequence = next.get();
+                if (sequence > publishedSequence) {
+                    long remaining = deadline - System.currentTimeMillis();
+                    if (remaining <= 0) {
+                        return null;
+                    }
+                    synchronized (notEmpty) {
+                        if (sequence > publishedSequence) {
+                            notEmpty.wait(remaining);
+                        }
+                    }
+                    continue;
+                }
+                // Đọc slot trước khi CAS: publisher chưa thể ghi đè slot này khi cursor còn đứng ở sequence
+                Envelope<T> envelope = slots.get((int) (sequence & mask));
+                if (next.compareAndSet(sequence, sequence + 1)) {
+                    return envelope;
+                }
+            }
+        }
+
+        /**
+         * Số event đã publish mà consumer chưa lấy
+         */
+        public long backlog() {
+            return Math.max(publishedSequence + 1 - next.get(), 0);
+        }
+    }
+
+    public static final class Envelope<T> {
+        private final long sequence;
+        private final T event;
+        private final long publishedAt;
+
+        private Envelope(long sequence, T event, long publishedAt) {
+            this.sequence = sequence;
+            this.event = event;
+            this.publishedAt = publishedAt;
+        }
+
+        public long getSequence() {
+            return sequence;
+        }
+
+        public T getEvent() {
+            return event;
+        }
+
+        public long getPublishedAt() {
+            return publishedAt;
+        }
+    }
+}
@@ -0,0 +1,245 @@
+package org.example.graduationproject.events.bus;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.example.graduationproject.events.OrderStatusChangedEvent;
+import org.example.graduationproject.events.outbox.OrderEventConsumptionRegistry;
+import org.example.graduationproject.observers.OrderStatusObserver;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Event bus cho thay đổi trạng thái đơn hàng.
+ * Event được OrderOutboxRelay đọc từ outbox (đã commit) rồi đưa vào ring buffer,
+ * mỗi observer có cursor và nhóm worker riêng nên observer chậm (gửi email / SMS) không chặn request
+ * hay các observer khác. Buffer đầy thì luồng publish chờ tối đa order.events.publish-timeout-ms.
+ * Event có thể bị giao lại được kiểm tra theo (observer, orderId, newStatus) trước khi xử lý.
+ */
+@Component
+@Slf4j
+public class OrderEventBus {
+
+    @Autowired
+    private List<OrderStatusObserver> observers;
+
+    @Autowired
+    private OrderEventConsumptionRegistry consumptionRegistry;
+
+    @Value("${order.events.buffer-size:8192}")
+    private int bufferSize;
+
+    @Value("${order.events.publish-timeout-ms:1000}")
+    private long publishTimeoutMs;
+
+    @Value("${order.events.shutdown-timeout-ms:10000}")
+    private long shutdownTimeoutMs;
+
+    private EventRingBuffer<Delivery> ringBuffer;
+    private final List<ObserverWorkers> workerGroups = new ArrayList<>();
+    private final LongAdder rejected = new LongAdder();
+    private volatile boolean running;
+
+    @PostConstruct
+    public void start() {
+        ringBuffer = new EventRingBuffer<>(bufferSize);
+        running = true;
+        for (OrderStatusObserver observer : observers) {
+            ObserverWorkers group = new ObserverWorkers(observer, ringBuffer.addConsumer());
+            group.start();
+            workerGroups.add(group);
+        }
+        log.info("OrderEventBus: Started with {} observers, buffer size {}", workerGroups.size(), ringBuffer.getCapacity());
+    }
+
+    @PreDestroy
+    public void stop() {
+        // Workers xử lý nốt phần còn trong buffer rồi mới dừng
+        running = false;
+        long deadline = System.currentTimeMillis() + shutdownTimeoutMs;
+        for (ObserverWorkers group : workerGroups) {
+            group.join(deadline);
+        }
+    }
+
+    /**
+     * Kết quả giao một event: allSucceeded = false nếu có observer ném lỗi
+     * (observer đã xử lý thành công được ghi trong OrderEventConsumptionRegistry và sẽ bỏ qua khi giao lại)
+     */
+    @FunctionalInterface
+    public interface CompletionListener {
+        void onComplete(boolean allSucceeded);
+    }
+
+    /**
+     * Đưa event vào buffer cho mọi observer, false nếu buffer vẫn đầy sau thời gian chờ.
+     * onComplete chạy một lần khi observer cuối cùng xử lý xong (thành công hay lỗi).
+     */
+    public boolean dispatch(OrderStatusChangedEvent event, boolean possibleDuplicate, CompletionListener onComplete) {
+        Delivery delivery = new Delivery(event, possibleDuplicate, workerGroups.size(), onComplete);
+        try {
+            if (ringBuffer.publish(delivery, publishTimeoutMs)) {
+                return true;
+            }
+            rejected.increment();
+            log.error("OrderEventBus: Buffer full, dropped event for order #{} ({} -> {})",
+                    event.getOrderId(), event.getOldStatus(), event.getNewStatus());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            rejected.increment();
+        }
+        return false;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("capacity", ringBuffer.getCapacity());
+        stats.put("published", ringBuffer.getPublishedCount());
+        stats.put("rejected", rejected.sum());
+        List<Map<String, Object>> observerStats = new ArrayList<>();
+        for (ObserverWorkers group : workerGroups) {
+            observerStats.add(group.stats());
+        }
+        stats.put("observers", observerStats);
+        return stats;
+    }
+
+    /**
+     * Event kèm số observer còn phải xử lý và cờ lỗi của lần giao này
+     */
+    private static final class Delivery {
+        private final OrderStatusChangedEvent event;
+        private final boolean possibleDuplicate;
+        private final AtomicInteger remaining;
+        private final AtomicBoolean failed = new AtomicBoolean();
+        private final CompletionListener onComplete;
+
+        private Delivery(OrderStatusChangedEvent event, boolean possibleDuplicate, int observers,
+                         CompletionListener onComplete) {
+            this.event = event;
+            this.possibleDuplicate = possibleDuplicate;
+            this.remaining = new AtomicInteger(observers);
+            this.onComplete = onComplete;
+        }
+
+        private void done(boolean success) {
+            if (!success) {
+                failed.set(true);
+            }
+            if (remaining.decrementAndGet() == 0 && onComplete != null) {
+                onComplete.onComplete(!failed.get());
+            }
+        }
+    }
+
+    /**
+     * Nhóm worker của một observer cùng số liệu độ trễ (từ lúc publish đến lúc xử lý xong)
+     */
+    private class ObserverWorkers {
+        private final OrderStatusObserver observer;
+        private final EventRingBuffer<Delivery>.Cursor cursor;
+        private final List<Thread> threads = new ArrayList<>();
+
+        private final LongAdder processed = new LongAdder();
+        private final LongAdder failed = new LongAdder();
+        private final LongAdder duplicates = new LongAdder();
+        private final LongAdder totalLagMs = new LongAdder();
+        private final AtomicLong maxLagMs = new AtomicLong();
+        private volatile long lastLagMs;
+
+        private ObserverWorkers(OrderStatusObserver observer, EventRingBuffer<Delivery>.Cursor cursor) {
+            this.observer = observer;
+            this.cursor = cursor;
+        }
+
+        private void start() {
+            int concurrency = Math.max(observer.getConcurrency(), 1);
+            for (int i = 0; i < concurrency; i++) {
+                Thread thread = new Thread(this::run, "OrderEvents-" + observer.getObserverName() + "-" + i);
+                thread.setDaemon(true);
+                thread.start();
+                threads.add(thread);
+            }
+        }
+
+        private void run() {
+            while (running || cursor.backlog() > 0) {
+                EventRingBuffer.Envelope<Delivery> envelope;
+                try {
+                    envelope = cursor.poll(200);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                if (envelope == null) {
+                    continue;
+                }
+                Delivery delivery = envelope.getEvent();
+                OrderStatusChangedEvent event = delivery.event;
+                String name = observer.getObserverName();
+                boolean success = true;
+                try {
+                    if (delivery.possibleDuplicate
+                            && consumptionRegistry.isProcessed(name, event.getOrderId(), event.getNewStatus())) {
+                        duplicates.increment();
+                    } else {
+                        observer.handleOrderStatusChanged(event);
+                        consumptionRegistry.record(name, event.getOrderId(), event.getNewStatus());
+                        processed.increment();
+                    }
+                } catch (Exception e) {
+                    success = false;
+                    failed.increment();
+                    log.error("OrderEventBus: {} failed for order #{}: {}", name,
+                            event.getOrderId(), e.getMessage(), e);
+                } finally {
+                    delivery.done(success);
+                }
+                long lag = System.currentTimeMillis() - envelope.getPublishedAt();
+                lastLagMs = lag;
+                totalLagMs.add(lag);
+                maxLagMs.accumulateAndGet(lag, Math::max);
+            }
+        }
+
+        private void join(long deadline) {
+            for (Thread thread : threads) {
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    return;
+                }
+                try {
+                    thread.join(remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+
+        private Map<String, Object> stats() {
+            long done = processed.sum() + failed.sum();
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("name", observer.getObserverName());
+            stats.put("workers", threads.size());
+            stats.put("backlog", cursor.backlog());
+            stats.put("processed", processed.sum());
+            stats.put("failed", failed.sum());
+            stats.put("duplicatesSkipped", duplicates.sum());
+            stats.put("lastLagMs", lastLagMs);
+            stats.put("maxLagMs", maxLagMs.get());
+            stats.put("avgLagMs", done > 0 ? totalLagMs.sum() / done : 0);
+            return stats;
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package org.example.graduationproject.events.outbox;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.graduationproject.models.OrderEventConsumption;
+import org.example.graduationproject.repositories.OrderEventConsumptionRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Ghi nhận observer nào đã xử lý event (hoaDonId, trangThaiMoi) để consumer idempotent khi outbox giao lại.
+ * Bản ghi được gom trong bộ nhớ và relay ghi theo lô; máy sập trước khi ghi thì event có thể được xử lý
+ * lại một lần (at-least-once). Chỉ event có thể bị trùng (giao lại sau khởi động / quét lại) mới phải tra database.
+ */
+@Component
+@Slf4j
+public class OrderEventConsumptionRegistry {
+
+    @Autowired
+    private OrderEventConsumptionRepository consumptionRepository;
+
+    private final ConcurrentLinkedQueue<OrderEventConsumption> pending = new ConcurrentLinkedQueue<>();
+
+    public boolean isProcessed(String consumer, Integer hoaDonId, String trangThai) {
+        return consumptionRepository.existsByConsumerAndHoaDonIdAndTrangThai(consumer, hoaDonId, trangThai);
+    }
+
+    public void record(String consumer, Integer hoaDonId, String trangThai) {
+        OrderEventConsumption consumption = new OrderEventConsumption();
+        consumption.setConsumer(consumer);
+        consumption.setHoaDonId(hoaDonId);
+        consumption.setTrangThai(trangThai);
+        consumption.setNgayXuLy(LocalDateTime.now());
+        pending.add(consumption);
+    }
+
+    /**
+     * Ghi các bản ghi đang chờ theo lô, trả về số dòng đã ghi
+     */
+    public int flush() {
+        List<OrderEventConsumption> batch = new ArrayList<>();
+        OrderEventConsumption next;
+        while ((next = pending.poll()) != null) {
+            batch.add(next);
+        }
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        try {
+            consumptionRepository.saveAll(batch);
+            return batch.size();
+        } catch (DataIntegrityViolationException e) {
+            // Có dòng trùng khóa (event giao lại đã được ghi), ghi từng dòng và bỏ qua dòng trùng
+            int saved = 0;
+            for (OrderEventConsumption consumption : batch) {
+                consumption.setId(null);
+                try {
+                    consumptionRepository.save(consumption);
+                    saved++;
+                } catch (DataIntegrityViolationException duplicate) {
+                    log.debug("OrderEventConsumptionRegistry: Duplicate consumption {} #{} {}",
+                            consumption.getConsumer(), consumption.getHoaDonId(), consumption.getTrangThai());
+                }
+            }
+            return saved;
+        } catch (RuntimeException e) {
+            // Database lỗi: giữ lại để lần sau ghi tiếp
+            for (OrderEventConsumption consumption : batch) {
+                consumption.setId(null);
+            }
+            pending.addAll(batch);
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,357 @@
+package org.example.graduationproject.events.outbox;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.example.graduationproject.events.OrderStatusChangedEvent;
+import org.example.graduationproject.events.bus.OrderEventBus;
+import org.example.graduationproject.models.OrderEventOutbox;
+import org.example.graduationproject.repositories.OrderEventConsumptionRepository;
+import org.example.graduationproject.repositories.OrderEventOutboxRepository;
+import org.example.graduationproject.utils.LoggerManager;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Đọc OrderEventOutbox theo lô và đưa vào OrderEventBus (at-least-once).
+ * Một dòng chỉ được đánh dấu đã xử lý khi mọi observer đã xử lý thành công; observer ném lỗi thì dòng
+ * vẫn chưa xử lý và được giao lại sau order.outbox.retry-base-ms (tăng gấp đôi mỗi lần, tối đa retry-max-ms).
+ * Máy sập giữa chừng thì dòng được giao lại lúc khởi động. Khi giao lại, observer đã xử lý thành công
+ * bỏ qua event nhờ OrderEventConsumptionRegistry nên chỉ observer lỗi chạy lại.
+ * Relay chạy trên một thread riêng, được đánh thức ngay sau mỗi commit có event và tự quét
+ * mỗi order.outbox.poll-interval-ms.
+ */
+@Component
+@Slf4j
+public class OrderOutboxRelay {
+
+    // SQL Server giới hạn 2100 tham số mỗi câu lệnh
+    private static final int MARK_CHUNK_SIZE = 1000;
+
+    @Autowired
+    private OrderEventOutboxRepository outboxRepository;
+
+    @Autowired
+    private OrderEventConsumptionRepository consumptionRepository;
+
+    @Autowired
+    private OrderEventConsumptionRegistry consumptionRegistry;
+
+    @Autowired
+    private OrderEventBus orderEventBus;
+
+    @Value("${order.outbox.batch-size:500}")
+    private int batchSize;
+
+    @Value("${order.outbox.poll-interval-ms:1000}")
+    private long pollIntervalMs;
+
+    // Dòng chưa xử lý cũ hơn mốc này được quét lại (id cấp trước nhưng commit sau lần đọc)
+    @Value("${order.outbox.rescan-interval-ms:60000}")
+    private long rescanIntervalMs;
+
+    @Value("${order.outbox.retention-hours:72}")
+    private long retentionHours;
+
+    @Value("${order.outbox.retry-base-ms:1000}")
+    private long retryBaseMs;
+
+    @Value("${order.outbox.retry-max-ms:300000}")
+    private long retryMaxMs;
+
+    private final Object signal = new Object();
+    private boolean wakeUpRequested;
+    private volatile boolean running;
+    private Thread relayThread;
+
+    // Chỉ thread relay đọc / ghi
+    private long lastReadId;
+    private boolean firstPass = true;
+    private long lastRescanAt;
+    private long lastCleanupAt;
+
+    private final Set<Long> inFlight = ConcurrentHashMap.newKeySet();
+    private final ConcurrentLinkedQueue<Long> completed = new ConcurrentLinkedQueue<>();
+    // Dòng có observer lỗi: chờ relay xếp lịch giao lại, vẫn nằm trong inFlight tới lúc giao lại
+    private final ConcurrentLinkedQueue<Long> failedDeliveries = new ConcurrentLinkedQueue<>();
+    private final Map<Long, Integer> attempts = new ConcurrentHashMap<>();
+    private final Map<Long, Long> retryDueAt = new ConcurrentHashMap<>();
+
+    private final LongAdder dispatched = new LongAdder();
+    private final LongAdder processed = new LongAdder();
+    private final LongAdder retried = new LongAdder();
+    private final LongAdder totalLagMs = new LongAdder();
+    private final AtomicLong maxLagMs = new AtomicLong();
+    private volatile long lastLagMs;
+    private volatile int lastBatchSize;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        running = true;
+        relayThread = new Thread(this::run, "OrderOutboxRelay");
+        relayThread.setDaemon(true);
+        relayThread.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        wakeUp();
+        if (relayThread != null) {
+            try {
+                relayThread.join(pollIntervalMs * 2);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        // Ghi nốt các dòng đã xử lý xong, phần còn lại sẽ được giao lại lần khởi động sau
+        try {
+            consumptionRegistry.flush();
+            markCompleted();
+        } catch (Exception e) {
+            log.warn("OrderOutboxRelay: Error flushing on shutdown: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Đánh thức relay (gọi sau khi transaction ghi outbox commit)
+     */
+    public void wakeUp() {
+        synchronized (signal) {
+            wakeUpRequested = true;
+            signal.notifyAll();
+        }
+    }
+
+    private void run() {
+        while (running) {
+            boolean moreWork = false;
+            try {
+                moreWork = relayOnce();
+            } catch (Exception e) {
+                log.error("OrderOutboxRelay: Error relaying outbox events: {}", e.getMessage(), e);
+            }
+            if (moreWork) {
+                continue;
+            }
+            synchronized (signal) {
+                if (!wakeUpRequested && running) {
+                    try {
+                        signal.wait(pollIntervalMs);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+                wakeUpRequested = false;
+            }
+        }
+    }
+
+    /**
+     * Một vòng relay, trả về true nếu còn dòng chưa đọc hết
+     */
+    private boolean relayOnce() {
+        long start = System.currentTimeMillis();
+        // Ghi bản ghi consumption trước khi đánh dấu outbox để lần giao lại (nếu có) bị bỏ qua
+        consumptionRegistry.flush();
+        markCompleted();
+        cleanupIfDue(start);
+        scheduleRetries(start);
+        int retriedNow = dispatchDueRetries(start);
+
+        List<OrderEventOutbox> rows = outboxRepository.findPendingAfter(lastReadId, PageRequest.of(0, batchSize));
+        boolean possibleDuplicate = firstPass;
+        boolean fullBatch = rows.size() >= batchSize;
+        int fresh = dispatchRows(rows, possibleDuplicate, true);
+        int sent = fresh + retriedNow;
+
+        if (start - lastRescanAt >= rescanIntervalMs) {
+            lastRescanAt = start;
+            LocalDateTime before = LocalDateTime.now().minus(Duration.ofMillis(rescanIntervalMs));
+            List<OrderEventOutbox> stragglers = outboxRepository.findPendingBefore(before, PageRequest.of(0, batchSize));
+            sent += dispatchRows(stragglers, true, false);
+        }
+        if (!fullBatch) {
+            firstPass = false;
+        }
+
+        lastBatchSize = sent;
+        if (sent > 0) {
+            LoggerManager.getInstance().logPerformance("ORDER_OUTBOX_RELAY", System.currentTimeMillis() - start,
+                    "dispatched=" + sent + ", inFlight=" + inFlight.size());
+        }
+        return fullBatch && fresh == rows.size();
+    }
+
+    private int dispatchRows(List<OrderEventOutbox> rows, boolean possibleDuplicate, boolean advanceCursor) {
+        int sent = 0;
+        for (OrderEventOutbox row : rows) {
+            Long id = row.getId();
+            if (!inFlight.add(id)) {
+                continue;
+            }
+            long createdAt = row.getNgayTao() != null
+                    ? row.getNgayTao().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli()
+                    : System.currentTimeMillis();
+            boolean accepted = orderEventBus.dispatch(toEvent(row), possibleDuplicate,
+                    allSucceeded -> onDelivered(id, createdAt, allSucceeded));
+            if (!accepted) {
+                // Buffer đầy: dừng vòng này, các dòng còn lại được đọc lại lần sau
+                inFlight.remove(id);
+                break;
+            }
+            if (advanceCursor) {
+                lastReadId = Math.max(lastReadId, id);
+            }
+            dispatched.increment();
+            sent++;
+        }
+        return sent;
+    }
+
+    private void onDelivered(Long id, long createdAt, boolean allSucceeded) {
+        if (!allSucceeded) {
+            failedDeliveries.add(id);
+            wakeUp();
+            return;
+        }
+        completed.add(id);
+        long lag = System.currentTimeMillis() - createdAt;
+        lastLagMs = lag;
+        totalLagMs.add(lag);
+        maxLagMs.accumulateAndGet(lag, Math::max);
+        processed.increment();
+    }
+
+    private void markCompleted() {
+        List<Long> ids = new ArrayList<>();
+        Long id;
+        while ((id = completed.poll()) != null) {
+            ids.add(id);
+        }
+        if (ids.isEmpty()) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        for (int from = 0; from < ids.size(); from += MARK_CHUNK_SIZE) {
+            List<Long> chunk = ids.subList(from, Math.min(from + MARK_CHUNK_SIZE, ids.size()));
+            try {
+                outboxRepository.markProcessed(chunk, now);
+            } catch (RuntimeException e) {
+                // Đánh dấu lại ở vòng sau
+                completed.addAll(ids.subList(from, ids.size()));
+                throw e;
+            }
+            inFlight.removeAll(chunk);
+            chunk.forEach(attempts::remove);
+        }
+    }
+
+    private void scheduleRetries(long now) {
+        Long id;
+        while ((id = failedDeliveries.poll()) != null) {
+            int attempt = attempts.merge(id, 1, Integer::sum);
+            long delay = Math.min(retryMaxMs, retryBaseMs << Math.min(attempt - 1, 20));
+            retryDueAt.put(id, now + delay);
+            log.warn("OrderOutboxRelay: Outbox row {} failed in an observer (attempt {}), retrying in {}ms",
+                    id, attempt, delay);
+        }
+    }
+
+    /**
+     * Giao lại các dòng tới hạn thử lại, trả về số dòng đã đưa vào bus
+     */
+    private int dispatchDueRetries(long now) {
+        List<Long> due = new ArrayList<>();
+        for (Map.Entry<Long, Long> entry : retryDueAt.entrySet()) {
+            if (entry.getValue() <= now) {
+                due.add(entry.getKey());
+            }
+        }
+        if (due.isEmpty()) {
+            return 0;
+        }
+        due.forEach(retryDueAt::remove);
+        inFlight.removeAll(due);
+        List<OrderEventOutbox> rows = new ArrayList<>();
+        for (OrderEventOutbox row : outboxRepository.findAllById(due)) {
+            if (row.getNgayXuLy() == null) {
+                rows.add(row);
+            } else {
+                attempts.remove(row.getId());
+            }
+        }
+        int sent = dispatchRows(rows, true, false);
+        for (OrderEventOutbox row : rows) {
+            // Buffer đầy: giữ lịch thử lại cho vòng sau, không để quét lại giao trùng
+            if (inFlight.add(row.getId())) {
+                retryDueAt.put(row.getId(), now + pollIntervalMs);
+            }
+        }
+        retried.add(sent);
+        return sent;
+    }
+
+    private void cleanupIfDue(long now) {
+        if (now - lastCleanupAt < Duration.ofHours(1).toMillis()) {
+            return;
+        }
+        lastCleanupAt = now;
+        LocalDateTime before = LocalDateTime.now().minusHours(retentionHours);
+        int outboxRows = outboxRepository.deleteProcessedBefore(before);
+        int consumptionRows = consumptionRepository.deleteProcessedBefore(before);
+        if (outboxRows > 0 || consumptionRows > 0) {
+            log.info("OrderOutboxRelay: Removed {} outbox rows and {} consumption rows older than {}h",
+                    outboxRows, consumptionRows, retentionHours);
+        }
+    }
+
+    private OrderStatusChangedEvent toEvent(OrderEventOutbox row) {
+        return OrderStatusChangedEvent.builder()
+                .orderId(row.getHoaDonId())
+                .oldStatus(row.getTrangThaiCu())
+                .newStatus(row.getTrangThaiMoi())
+                .customerEmail(row.getEmail())
+                .customerName(row.getTenKhachHang())
+                .customerPhone(row.getSoDienThoai())
+                .orderTotal(row.getTongTien())
+                .timestamp(row.getNgayTao())
+                .changeReason(row.getLyDo())
+                .build();
+    }
+
+    public Map<String, Object> getStats() {
+        long done = processed.sum();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("pending", outboxRepository.countByNgayXuLyIsNull());
+        LocalDateTime oldest = outboxRepository.findOldestPendingNgayTao();
+        stats.put("oldestPendingAgeMs", oldest != null ? Duration.between(oldest, LocalDateTime.now()).toMillis() : 0);
+        stats.put("inFlight", inFlight.size());
+        stats.put("dispatched", dispatched.sum());
+        stats.put("processed", done);
+        stats.put("retried", retried.sum());
+        stats.put("awaitingRetry", retryDueAt.size());
+        stats.put("lastBatchSize", lastBatchSize);
+        stats.put("lastLagMs", lastLagMs);
+        stats.put("maxLagMs", maxLagMs.get());
+        stats.put("avgLagMs", done > 0 ? totalLagMs.sum() / done : 0);
+        return stats;
+    }
+}
@@ -0,0 +1,32 @@
+package org.example.graduationproject.exceptions;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * Exception khi không đủ tồn kho để giữ / trừ hàng cho một hoặc nhiều dòng
+ */
+@Getter
+public class InsufficientStockException extends RuntimeException {
+
+    private final List<Shortage> shortages;
+
+    public InsufficientStockException(String message, List<Shortage> shortages) {
+        super(message);
+        this.shortages = shortages;
+    }
+
+    /**
+     * Một dòng bị thiếu hàng: biến thể, số lượng cần, số lượng còn
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class Shortage {
+        private Integer variantId;
+        private String description;
+        private int requested;
+        private int available;
+    }
+}
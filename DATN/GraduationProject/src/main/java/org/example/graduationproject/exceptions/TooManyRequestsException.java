@@ -0,0 +1,7 @@
+package org.example.graduationproject.exceptions;
+//429 quá nhiều yêu cầu, thử lại sau
+public class TooManyRequestsException extends RuntimeException {
+    public TooManyRequestsException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,46 @@
+package org.example.graduationproject.models;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+/**
+ * Phiếu giữ hàng cho một biến thể của đơn chờ duyệt, hết hạn sau hanGiu
+ */
+@Entity
+@Table(name = "GiuTonKho", indexes = {
+        @Index(name = "IX_GiuTonKho_TrangThai_HanGiu", columnList = "trangThai, hanGiu"),
+        @Index(name = "IX_GiuTonKho_HoaDon", columnList = "Id_HoaDon")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class GiuTonKho {
+    // Sequence cấp id theo khối để Hibernate batch được các INSERT phiếu giữ
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "giuTonKhoSeq")
+    @SequenceGenerator(name = "giuTonKhoSeq", sequenceName = "GiuTonKho_SEQ", allocationSize = 50)
+    private Integer id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "Id_HoaDon")
+    private HoaDon hoaDon;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "Id_SanPhamBienThe")
+    private SanPhamBienThe sanPhamBienThe;
+
+    private Integer soLuong;
+
+    private LocalDateTime ngayTao;
+
+    private LocalDateTime hanGiu;
+
+    @Column(columnDefinition = "NVARCHAR(20)")
+    private String trangThai; // HELD, COMMITTED, RELEASED
+}
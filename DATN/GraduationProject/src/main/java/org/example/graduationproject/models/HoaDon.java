@@ -11,7 +11,9 @@ import java.time.LocalDateTime;
 import java.util.List;
 
 @Entity
-@Table(name = "HoaDon")
+@Table(name = "HoaDon", indexes = {
+        @Index(name = "IX_HoaDon_NgayTao_Id", columnList = "ngayTao, id")
+})
 @Getter
 @Setter
 @NoArgsConstructor
@@ -0,0 +1,57 @@
+package org.example.graduationproject.models;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+/**
+ * Thông báo gửi thất bại sau khi đã thử hết số lần cho phép (hoặc bị từ chối khi hàng đợi đầy),
+ * giữ lại để admin xem và gửi lại
+ */
+@Entity
+@Table(name = "NotificationDeadLetter", indexes = {
+        @Index(name = "IX_NotificationDeadLetter_NgayTao", columnList = "ngayTao")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class NotificationDeadLetter {
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "notificationDeadLetterSeq")
+    @SequenceGenerator(name = "notificationDeadLetterSeq", sequenceName = "NotificationDeadLetter_SEQ", allocationSize = 50)
+    private Long id;
+
+    // BASIC / EMAIL / SMS / PUSH
+    @Column(columnDefinition = "NVARCHAR(20)")
+    private String kenh;
+
+    @Column(columnDefinition = "NVARCHAR(255)")
+    private String nguoiNhan;
+
+    @Column(columnDefinition = "NVARCHAR(255)")
+    private String email;
+
+    @Column(columnDefinition = "NVARCHAR(50)")
+    private String soDienThoai;
+
+    @Column(columnDefinition = "NVARCHAR(255)")
+    private String tieuDe;
+
+    @Column(columnDefinition = "NVARCHAR(MAX)")
+    private String noiDung;
+
+    @Column(columnDefinition = "NVARCHAR(255)")
+    private String maDonHang;
+
+    private Integer soLanThu;
+
+    @Column(columnDefinition = "NVARCHAR(1000)")
+    private String loiCuoi;
+
+    private LocalDateTime ngayTao;
+}
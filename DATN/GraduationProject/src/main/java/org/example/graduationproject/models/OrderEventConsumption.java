@@ -0,0 +1,37 @@
+package org.example.graduationproject.models;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+/**
+ * Observer đã xử lý event (hoaDonId, trangThai); dùng để bỏ qua event bị giao lại từ outbox
+ */
+@Entity
+@Table(name = "OrderEventConsumption", uniqueConstraints = {
+        @UniqueConstraint(name = "UX_OrderEventConsumption_Key", columnNames = {"consumer", "hoaDonId", "trangThai"})
+})
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderEventConsumption {
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "orderEventConsumptionSeq")
+    @SequenceGenerator(name = "orderEventConsumptionSeq", sequenceName = "OrderEventConsumption_SEQ", allocationSize = 50)
+    private Long id;
+
+    @Column(columnDefinition = "NVARCHAR(100)")
+    private String consumer;
+
+    private Integer hoaDonId;
+
+    @Column(columnDefinition = "NVARCHAR(50)")
+    private String trangThai;
+
+    private LocalDateTime ngayXuLy;
+}
@@ -0,0 +1,57 @@
+package org.example.graduationproject.models;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Outbox cho OrderStatusChangedEvent: ghi cùng transaction với hóa đơn,
+ * relay đọc theo lô và đặt ngayXuLy khi mọi observer đã xử lý xong
+ */
+@Entity
+@Table(name = "OrderEventOutbox", indexes = {
+        @Index(name = "IX_OrderEventOutbox_NgayXuLy_Id", columnList = "ngayXuLy, id")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderEventOutbox {
+    // Sequence cấp id theo khối; relay đọc theo thứ tự id
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "orderEventOutboxSeq")
+    @SequenceGenerator(name = "orderEventOutboxSeq", sequenceName = "OrderEventOutbox_SEQ", allocationSize = 50)
+    private Long id;
+
+    private Integer hoaDonId;
+
+    @Column(columnDefinition = "NVARCHAR(50)")
+    private String trangThaiCu;
+
+    @Column(columnDefinition = "NVARCHAR(50)")
+    private String trangThaiMoi;
+
+    @Column(columnDefinition = "NVARCHAR(255)")
+    private String email;
+
+    @Column(columnDefinition = "NVARCHAR(255)")
+    private String tenKhachHang;
+
+    @Column(columnDefinition = "NVARCHAR(50)")
+    private String soDienThoai;
+
+    private BigDecimal tongTien;
+
+    @Column(columnDefinition = "NVARCHAR(50)")
+    private String lyDo;
+
+    private LocalDateTime ngayTao;
+
+    // null = chưa xử lý xong
+    private LocalDateTime ngayXuLy;
+}
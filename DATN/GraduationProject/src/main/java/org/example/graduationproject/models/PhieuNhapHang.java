@@ -11,7 +11,9 @@ import java.time.LocalDateTime;
 import java.util.List;
 
 @Entity
-@Table(name = "PhieuNhapHang")
+@Table(name = "PhieuNhapHang", indexes = {
+        @Index(name = "IX_PhieuNhapHang_NgayTao_Id", columnList = "ngayTao, id")
+})
 @Getter
 @Setter
 @NoArgsConstructor
@@ -11,7 +11,9 @@ import java.time.LocalDateTime;
 import java.util.List;
 
 @Entity
-@Table(name = "SanPham")
+@Table(name = "SanPham", indexes = {
+        @Index(name = "IX_SanPham_Ten_Id", columnList = "ten, id")
+})
 @Getter
 @Setter
 @NoArgsConstructor
@@ -7,7 +7,9 @@ import lombok.NoArgsConstructor;
 import lombok.Setter;
 
 @Entity
-@Table(name = "SanPhamBienThe")
+@Table(name = "SanPhamBienThe", indexes = {
+        @Index(name = "IX_SanPhamBienThe_SanPham_Mau_Size", columnList = "Id_SanPham, Id_Mau, SizeId")
+})
 @Getter
 @Setter
 @NoArgsConstructor
@@ -17,8 +19,14 @@ public class SanPhamBienThe {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Integer id;
 
+    // Chỉ ghi khi tạo mới; sau đó mọi thay đổi đi qua StockLedgerService để lưu entity không ghi đè giá trị cũ
+    @Column(updatable = false)
     private Integer soLuongTon;
 
+    // Số lượng đang giữ cho các đơn chờ duyệt, chỉ StockLedgerService ghi cột này
+    @Column(insertable = false, updatable = false)
+    private Integer soLuongDaGiu;
+
     @ManyToOne
     @JoinColumn(name = "Id_SanPham")
     private SanPham sanPham;
@@ -30,4 +38,12 @@ public class SanPhamBienThe {
     @ManyToOne
     @JoinColumn(name = "SizeId")
     private Size size;
+
+    // Số lượng có thể bán = tồn kho - đang giữ
+    @Transient
+    public int getSoLuongCoTheBan() {
+        int onHand = soLuongTon != null ? soLuongTon : 0;
+        int held = soLuongDaGiu != null ? soLuongDaGiu : 0;
+        return Math.max(onHand - held, 0);
+    }
 }
@@ -6,12 +6,11 @@ import org.example.graduationproject.services.notification.NotificationManager;
 import org.example.graduationproject.dto.NotificationRequest;
 import org.example.graduationproject.enums.NotificationType;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Component;
 
 @Component
 @Slf4j
-public class AdminNotificationObserver {
+public class AdminNotificationObserver implements OrderStatusObserver {
     
     @Autowired
     private NotificationManager notificationManager;
@@ -20,25 +19,19 @@ public class AdminNotificationObserver {
      * Xử lý event khi order status thay đổi
      * Gửi thông báo cho admin và cập nhật dashboard
      */
-    @EventListener
+    @Override
     public void handleOrderStatusChanged(OrderStatusChangedEvent event) {
         log.info("AdminNotificationObserver: Processing order status change for order #{}", event.getOrderId());
         
-        try {
-            // Gửi thông báo cho admin nếu cần
-            if (shouldNotifyAdmin(event)) {
-                sendAdminNotification(event);
-            }
-            
-            // Cập nhật admin dashboard (có thể implement sau)
-            updateAdminDashboard(event);
-            
-            log.info("AdminNotificationObserver: Successfully processed event for order #{}", event.getOrderId());
-            
-        } catch (Exception e) {
-            log.error("AdminNotificationObserver: Error processing event for order #{}: {}", 
-                    event.getOrderId(), e.getMessage(), e);
+        // Gửi thông báo cho admin nếu cần
+        if (shouldNotifyAdmin(event)) {
+            sendAdminNotification(event);
         }
+        
+        // Cập nhật admin dashboard (có thể implement sau)
+        updateAdminDashboard(event);
+        
+        log.info("AdminNotificationObserver: Successfully processed event for order #{}", event.getOrderId());
     }
     
     /**
@@ -62,12 +55,13 @@ public class AdminNotificationObserver {
                 .message(message)
                 .title(title)
                 .recipient("Admin")
+                .orderId(String.valueOf(event.getOrderId()))
                 .type(NotificationType.COMBINED)
                 .build();
         
-        notificationManager.sendCombinedNotification(request);
+        notificationManager.enqueueNotification(request);
         
-        log.info("AdminNotificationObserver: Sent admin notification for order #{}", event.getOrderId());
+        log.info("AdminNotificationObserver: Queued admin notification for order #{}", event.getOrderId());
     }
     
     /**
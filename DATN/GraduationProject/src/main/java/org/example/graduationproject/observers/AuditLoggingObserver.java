@@ -3,12 +3,11 @@ package org.example.graduationproject.observers;
 import lombok.extern.slf4j.Slf4j;
 import org.example.graduationproject.events.OrderStatusChangedEvent;
 import org.example.graduationproject.utils.LoggerManager;
-import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Component;
 
 @Component
 @Slf4j
-public class AuditLoggingObserver {
+public class AuditLoggingObserver implements OrderStatusObserver {
     
     private final LoggerManager loggerManager = LoggerManager.getInstance();
     
@@ -16,28 +15,22 @@ public class AuditLoggingObserver {
      * Xử lý event khi order status thay đổi
      * Ghi log audit trail cho mọi thay đổi
      */
-    @EventListener
+    @Override
     public void handleOrderStatusChanged(OrderStatusChangedEvent event) {
         log.info("AuditLoggingObserver: Processing order status change for order #{}", event.getOrderId());
         
-        try {
-            // Ghi business event log
-            logBusinessEvent(event);
-            
-            // Ghi security event log nếu cần
-            if (isSecurityRelevant(event)) {
-                logSecurityEvent(event);
-            }
-            
-            // Ghi performance log
-            logPerformanceEvent(event);
-            
-            log.info("AuditLoggingObserver: Successfully logged event for order #{}", event.getOrderId());
-            
-        } catch (Exception e) {
-            log.error("AuditLoggingObserver: Error logging event for order #{}: {}", 
-                    event.getOrderId(), e.getMessage(), e);
+        // Ghi business event log
+        logBusinessEvent(event);
+        
+        // Ghi security event log nếu cần
+        if (isSecurityRelevant(event)) {
+            logSecurityEvent(event);
         }
+        
+        // Ghi performance log
+        logPerformanceEvent(event);
+        
+        log.info("AuditLoggingObserver: Successfully logged event for order #{}", event.getOrderId());
     }
     
     /**
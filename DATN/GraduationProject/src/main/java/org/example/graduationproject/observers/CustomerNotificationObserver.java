@@ -6,12 +6,11 @@ import org.example.graduationproject.services.notification.NotificationManager;
 import org.example.graduationproject.dto.NotificationRequest;
 import org.example.graduationproject.enums.NotificationType;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Component;
 
 @Component
 @Slf4j
-public class CustomerNotificationObserver {
+public class CustomerNotificationObserver implements OrderStatusObserver {
     
     @Autowired
     private NotificationManager notificationManager;
@@ -20,23 +19,17 @@ public class CustomerNotificationObserver {
      * Xử lý event khi order status thay đổi
      * Gửi thông báo cho customer
      */
-    @EventListener
+    @Override
     public void handleOrderStatusChanged(OrderStatusChangedEvent event) {
         log.info("CustomerNotificationObserver: Processing order status change for order #{}", event.getOrderId());
         
-        try {
-            // Tạo notification request
-            NotificationRequest request = createNotificationRequest(event);
-            
-            // Gửi thông báo
-            notificationManager.sendCombinedNotification(request);
-            
-            log.info("CustomerNotificationObserver: Successfully sent notification for order #{}", event.getOrderId());
-            
-        } catch (Exception e) {
-            log.error("CustomerNotificationObserver: Error sending notification for order #{}: {}", 
-                    event.getOrderId(), e.getMessage(), e);
-        }
+        // Tạo notification request
+        NotificationRequest request = createNotificationRequest(event);
+        
+        // Đưa vào hàng đợi gửi thông báo
+        notificationManager.enqueueNotification(request);
+        
+        log.info("CustomerNotificationObserver: Queued notification for order #{}", event.getOrderId());
     }
     
     /**
@@ -52,6 +45,7 @@ public class CustomerNotificationObserver {
                 .recipient(event.getCustomerName() != null ? event.getCustomerName() : "Khách hàng")
                 .recipientEmail(event.getCustomerEmail())
                 .recipientPhone(event.getCustomerPhone())
+                .orderId(String.valueOf(event.getOrderId()))
                 .type(NotificationType.COMBINED)
                 .build();
     }
@@ -6,12 +6,11 @@ import org.example.graduationproject.services.notification.NotificationManager;
 import org.example.graduationproject.dto.NotificationRequest;
 import org.example.graduationproject.enums.NotificationType;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Component;
 
 @Component
 @Slf4j
-public class InventoryObserver {
+public class InventoryObserver implements OrderStatusObserver {
     
     @Autowired
     private NotificationManager notificationManager;
@@ -20,25 +19,19 @@ public class InventoryObserver {
      * Xử lý event khi order status thay đổi
      * Cập nhật inventory và gửi thông báo nếu cần
      */
-    @EventListener
+    @Override
     public void handleOrderStatusChanged(OrderStatusChangedEvent event) {
         log.info("InventoryObserver: Processing order status change for order #{}", event.getOrderId());
         
-        try {
-            // Xử lý inventory dựa trên status change
-            processInventoryUpdate(event);
-            
-            // Gửi thông báo inventory nếu cần
-            if (shouldSendInventoryNotification(event)) {
-                sendInventoryNotification(event);
-            }
-            
-            log.info("InventoryObserver: Successfully processed event for order #{}", event.getOrderId());
-            
-        } catch (Exception e) {
-            log.error("InventoryObserver: Error processing event for order #{}: {}", 
-                    event.getOrderId(), e.getMessage(), e);
+        // Xử lý inventory dựa trên status change
+        processInventoryUpdate(event);
+        
+        // Gửi thông báo inventory nếu cần
+        if (shouldSendInventoryNotification(event)) {
+            sendInventoryNotification(event);
         }
+        
+        log.info("InventoryObserver: Successfully processed event for order #{}", event.getOrderId());
     }
     
     /**
@@ -46,7 +39,8 @@ public class InventoryObserver {
      */
     private void processInventoryUpdate(OrderStatusChangedEvent event) {
         String newStatus = event.getNewStatus().toUpperCase();
-        String oldStatus = event.getOldStatus().toUpperCase();
+        // Đơn mới có thể không có trạng thái cũ; lỗi ở đây sẽ bị giao lại mãi
+        String oldStatus = event.getOldStatus() != null ? event.getOldStatus().toUpperCase() : "";
         
         switch (newStatus) {
             case "CONFIRMED":
@@ -93,12 +87,13 @@ public class InventoryObserver {
                 .message(message)
                 .title(title)
                 .recipient("Inventory Manager")
+                .orderId(String.valueOf(event.getOrderId()))
                 .type(NotificationType.COMBINED)
                 .build();
         
-        notificationManager.sendCombinedNotification(request);
+        notificationManager.enqueueNotification(request);
         
-        log.info("InventoryObserver: Sent inventory notification for order #{}", event.getOrderId());
+        log.info("InventoryObserver: Queued inventory notification for order #{}", event.getOrderId());
     }
     
     /**
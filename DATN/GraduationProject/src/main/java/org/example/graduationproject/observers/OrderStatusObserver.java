@@ -0,0 +1,24 @@
+package org.example.graduationproject.observers;
+
+import org.example.graduationproject.events.OrderStatusChangedEvent;
+
+/**
+ * Observer nhận OrderStatusChangedEvent qua OrderEventBus, chạy trên worker riêng sau khi transaction commit.
+ * Lỗi phải được ném ra, không tự bắt và bỏ qua: OrderEventBus báo lỗi cho OrderOutboxRelay để dòng outbox
+ * được giao lại, observer đã xử lý thành công sẽ bỏ qua lần giao lại đó.
+ */
+public interface OrderStatusObserver {
+
+    void handleOrderStatusChanged(OrderStatusChangedEvent event);
+
+    default String getObserverName() {
+        return getClass().getSimpleName();
+    }
+
+    /**
+     * Số worker xử lý song song; 1 thì các event của observer được xử lý đúng thứ tự publish
+     */
+    default int getConcurrency() {
+        return 1;
+    }
+}
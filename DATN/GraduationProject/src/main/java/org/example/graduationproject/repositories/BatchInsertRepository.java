@@ -0,0 +1,153 @@
+package org.example.graduationproject.repositories;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.example.graduationproject.models.ChiTietHoaDon;
+import org.example.graduationproject.models.ChiTietPhieuNhapHang;
+import org.example.graduationproject.models.SanPham;
+import org.example.graduationproject.models.SanPhamBienThe;
+import org.example.graduationproject.utils.SqlStatementCounter;
+import org.hibernate.Session;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.persister.entity.AbstractEntityPersister;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Ghi dòng chi tiết (hóa đơn, phiếu nhập), biến thể và sản phẩm tạo hàng loạt bằng một JDBC batch thay vì từng INSERT.
+ * Các bảng này dùng IDENTITY nên Hibernate không batch được; tên bảng / cột
+ * lấy từ metamodel của Hibernate để không phụ thuộc naming strategy.
+ * Entity ghi qua đây không được gán id và không nằm trong persistence context.
+ */
+@Repository
+public class BatchInsertRepository {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${app.jpa.batch-size:50}")
+    private int batchSize;
+
+    private final Map<Class<?>, String> insertSqlCache = new ConcurrentHashMap<>();
+
+    public void insertChiTietHoaDons(List<ChiTietHoaDon> chiTietHoaDons) {
+        insertAll(ChiTietHoaDon.class,
+                new String[]{"hoaDon", "sanPhamBienThe", "soLuong", "thanhTien"},
+                chiTietHoaDons,
+                cthd -> new Object[]{
+                        cthd.getHoaDon().getId(),
+                        cthd.getSanPhamBienThe().getId(),
+                        cthd.getSoLuong(),
+                        cthd.getThanhTien()
+                });
+    }
+
+    public void insertChiTietPhieuNhapHangs(List<ChiTietPhieuNhapHang> chiTietPhieuNhaps) {
+        insertAll(ChiTietPhieuNhapHang.class,
+                new String[]{"phieuNhapHang", "sanPhamBienThe", "soLuongNhap", "thanhTienNhap"},
+                chiTietPhieuNhaps,
+                ct -> new Object[]{
+                        ct.getPhieuNhapHang().getId(),
+                        ct.getSanPhamBienThe().getId(),
+                        ct.getSoLuongNhap(),
+                        ct.getThanhTienNhap()
+                });
+    }
+
+    public void insertSanPhamBienThes(List<SanPhamBienThe> variants) {
+        insertAll(SanPhamBienThe.class,
+                new String[]{"sanPham", "mauSac", "size", "soLuongTon"},
+                variants,
+                spbt -> new Object[]{
+                        spbt.getSanPham().getId(),
+                        spbt.getMauSac().getId(),
+                        spbt.getSize().getId(),
+                        spbt.getSoLuongTon()
+                });
+    }
+
+    public void insertSanPhams(List<SanPham> sanPhams) {
+        insertAll(SanPham.class,
+                new String[]{"ten", "moTa", "giaBan", "giaNhap", "khuyenMai", "tag", "huongDan", "thanhPhan",
+                        "ngayCapNhat", "ngayTao", "trangThaiSanPham", "trangThaiHoatDong", "gioiTinh",
+                        "loai", "nhanHieu", "nhaCungCap"},
+                sanPhams,
+                sp -> new Object[]{
+                        sp.getTen(),
+                        sp.getMoTa(),
+                        sp.getGiaBan(),
+                        sp.getGiaNhap(),
+                        sp.getKhuyenMai(),
+                        sp.getTag(),
+                        sp.getHuongDan(),
+                        sp.getThanhPhan(),
+                        sp.getNgayCapNhat(),
+                        sp.getNgayTao(),
+                        sp.getTrangThaiSanPham(),
+                        sp.getTrangThaiHoatDong(),
+                        sp.getGioiTinh(),
+                        sp.getLoai().getId(),
+                        sp.getNhanHieu().getId(),
+                        sp.getNhaCungCap().getId()
+                });
+    }
+
+    private <T> void insertAll(Class<T> entityClass, String[] properties, List<T> rows, Function<T, Object[]> values) {
+        if (rows == null || rows.isEmpty()) {
+            return;
+        }
+        Session session = entityManager.unwrap(Session.class);
+        // Đẩy các INSERT đang chờ (hóa đơn / phiếu nhập cha) xuống trước
+        session.flush();
+
+        String sql = insertSqlCache.computeIfAbsent(entityClass, cls -> buildInsertSql(session, cls, properties));
+        session.doWork(connection -> {
+            try (PreparedStatement ps = connection.prepareStatement(sql)) {
+                int pending = 0;
+                for (T row : rows) {
+                    Object[] params = values.apply(row);
+                    for (int i = 0; i < params.length; i++) {
+                        ps.setObject(i + 1, params[i]);
+                    }
+                    ps.addBatch();
+                    if (++pending == batchSize) {
+                        ps.executeBatch();
+                        SqlStatementCounter.record(1);
+                        pending = 0;
+                    }
+                }
+                if (pending > 0) {
+                    ps.executeBatch();
+                    SqlStatementCounter.record(1);
+                }
+            }
+        });
+    }
+
+    private String buildInsertSql(Session session, Class<?> entityClass, String[] properties) {
+        AbstractEntityPersister persister = (AbstractEntityPersister) session.getSessionFactory()
+                .unwrap(SessionFactoryImplementor.class)
+                .getMappingMetamodel()
+                .getEntityDescriptor(entityClass);
+
+        StringBuilder columns = new StringBuilder();
+        StringBuilder placeholders = new StringBuilder();
+        for (String property : properties) {
+            for (String column : persister.getPropertyColumnNames(property)) {
+                if (columns.length() > 0) {
+                    columns.append(", ");
+                    placeholders.append(", ");
+                }
+                columns.append(column);
+                placeholders.append('?');
+            }
+        }
+        return "INSERT INTO " + persister.getTableName() + " (" + columns + ") VALUES (" + placeholders + ")";
+    }
+}
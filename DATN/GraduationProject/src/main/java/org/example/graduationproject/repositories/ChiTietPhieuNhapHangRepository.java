@@ -1,11 +1,35 @@
 package org.example.graduationproject.repositories;
 
+import org.example.graduationproject.dto.ImportDetailExportRow;
 import org.example.graduationproject.models.ChiTietPhieuNhapHang;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import java.util.List;
 
 @Repository
 public interface ChiTietPhieuNhapHangRepository extends JpaRepository<ChiTietPhieuNhapHang, Integer> {
     List<ChiTietPhieuNhapHang> findByPhieuNhapHang_Id(Integer phieuNhapHangId);
-} 
\ No newline at end of file
+
+    // Export dạng stream: đọc từng khúc theo id (keyset), chỉ lấy các cột được ghi ra file
+    @Query("SELECT new org.example.graduationproject.dto.ImportDetailExportRow(" +
+           "ct.id, sp.ten, ms.maMau, sz.tenSize, ct.soLuongNhap, ct.thanhTienNhap) " +
+           "FROM ChiTietPhieuNhapHang ct LEFT JOIN ct.sanPhamBienThe v LEFT JOIN v.sanPham sp " +
+           "LEFT JOIN v.mauSac ms LEFT JOIN v.size sz " +
+           "WHERE ct.phieuNhapHang.id = :phieuId AND ct.id > :afterId ORDER BY ct.id")
+    List<ImportDetailExportRow> findExportChunk(@Param("phieuId") Integer phieuId,
+                                                @Param("afterId") Integer afterId,
+                                                Pageable limit);
+
+    // Mọi cột được in ra file export của phiếu (đầu phiếu, nhà cung cấp, từng dòng chi tiết) để tính dấu vân tay dữ liệu.
+    // Phiếu không có chi tiết vẫn trả một dòng, các cột chi tiết null
+    @Query("SELECT p.soChungTu, p.ngayTao, p.nguoiLapPhieu, p.ghiChu, p.tongTien, " +
+           "ncc.ten, ncc.email, ncc.sdt, ncc.diaChi, " +
+           "ct.id, sp.ten, ms.maMau, sz.tenSize, ct.soLuongNhap, ct.thanhTienNhap " +
+           "FROM PhieuNhapHang p LEFT JOIN p.nhaCungCap ncc LEFT JOIN p.chiTietPhieuNhaps ct " +
+           "LEFT JOIN ct.sanPhamBienThe v LEFT JOIN v.sanPham sp LEFT JOIN v.mauSac ms LEFT JOIN v.size sz " +
+           "WHERE p.id = :phieuId ORDER BY ct.id")
+    List<Object[]> findExportColumns(@Param("phieuId") Integer phieuId);
+}
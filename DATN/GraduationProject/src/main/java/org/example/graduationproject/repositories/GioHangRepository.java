@@ -3,12 +3,42 @@ package org.example.graduationproject.repositories;
 import org.example.graduationproject.models.GioHang;
 import org.example.graduationproject.models.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface GioHangRepository extends JpaRepository<GioHang, Integer> {
     Optional<GioHang> findByUserAndTrangThai(User user, String trangThai);
     Optional<GioHang> findByUserIdAndTrangThai(Long userId, String trangThai);
+
+    // Nạp giỏ hàng active kèm các dòng và biến thể (sản phẩm, màu, size) trong một truy vấn
+    @Query("SELECT DISTINCT g FROM GioHang g " +
+           "LEFT JOIN FETCH g.chiTietGioHangs c " +
+           "LEFT JOIN FETCH c.sanPhamBienThe v " +
+           "LEFT JOIN FETCH v.sanPham " +
+           "LEFT JOIN FETCH v.mauSac " +
+           "LEFT JOIN FETCH v.size " +
+           "WHERE g.user.id = :userId AND g.trangThai = 'active' " +
+           "ORDER BY g.ngayCapNhat DESC")
+    List<GioHang> findActiveWithItemsByUserId(@Param("userId") Long userId);
+
+    // Nạp nhiều giỏ hàng kèm các dòng để ghi gộp
+    @Query("SELECT DISTINCT g FROM GioHang g " +
+           "LEFT JOIN FETCH g.chiTietGioHangs " +
+           "WHERE g.id IN :ids")
+    List<GioHang> findAllWithItemsByIdIn(@Param("ids") Collection<Integer> ids);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE GioHang g SET g.trangThai = :trangThai, g.ngayCapNhat = :ngayCapNhat WHERE g.id = :id")
+    int updateTrangThai(@Param("id") Integer id, @Param("trangThai") String trangThai,
+                        @Param("ngayCapNhat") LocalDateTime ngayCapNhat);
 }
@@ -0,0 +1,34 @@
+package org.example.graduationproject.repositories;
+
+import jakarta.persistence.LockModeType;
+import org.example.graduationproject.models.GiuTonKho;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface GiuTonKhoRepository extends JpaRepository<GiuTonKho, Integer> {
+
+    // Khóa các phiếu giữ của đơn để duyệt / hủy không chạy song song với bộ quét hết hạn
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT g FROM GiuTonKho g WHERE g.hoaDon.id = :hoaDonId AND g.trangThai = :trangThai")
+    List<GiuTonKho> findForUpdateByHoaDonId(@Param("hoaDonId") Integer hoaDonId,
+                                            @Param("trangThai") String trangThai);
+
+    // Lấy một lô phiếu giữ đã hết hạn (cũ nhất trước)
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT g FROM GiuTonKho g WHERE g.trangThai = 'HELD' AND g.hanGiu < :now ORDER BY g.hanGiu")
+    List<GiuTonKho> findExpiredForUpdate(@Param("now") LocalDateTime now, Pageable pageable);
+
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE GiuTonKho g SET g.trangThai = :trangThai WHERE g.id IN :ids")
+    int updateTrangThai(@Param("ids") Collection<Integer> ids, @Param("trangThai") String trangThai);
+}
@@ -1,11 +1,23 @@
 package org.example.graduationproject.repositories;
 
+import org.example.graduationproject.dto.InvoiceReportRow;
 import org.example.graduationproject.models.HoaDon;
 import org.example.graduationproject.models.User;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import jakarta.persistence.QueryHint;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface HoaDonRepository extends JpaRepository<HoaDon, Integer> {
@@ -18,4 +30,79 @@ public interface HoaDonRepository extends JpaRepository<HoaDon, Integer> {
     
     // Tìm hóa đơn của user theo trạng thái
     List<HoaDon> findByUserAndTrangThaiOrderByNgayTaoDesc(User user, String trangThai);
+
+    // Phân trang keyset theo (ngayTao, id) giảm dần: trang đầu
+    @Query("SELECT h FROM HoaDon h ORDER BY h.ngayTao DESC, h.id DESC")
+    List<HoaDon> findKeysetFirstPage(Pageable limit);
+
+    // Phân trang keyset: các dòng đứng sau cursor (ngayTao, id)
+    @Query("SELECT h FROM HoaDon h WHERE h.ngayTao < :ngayTao OR (h.ngayTao = :ngayTao AND h.id < :id) " +
+           "ORDER BY h.ngayTao DESC, h.id DESC")
+    List<HoaDon> findKeysetAfter(@Param("ngayTao") LocalDateTime ngayTao, @Param("id") Integer id, Pageable limit);
+
+    // Trang id hóa đơn (sort lấy từ Pageable), chi tiết nạp riêng bằng findAllWithDetailsByIdIn
+    @Query(value = "SELECT h.id FROM HoaDon h", countQuery = "SELECT COUNT(h) FROM HoaDon h")
+    Page<Integer> findIdPage(Pageable pageable);
+
+    // Nạp hóa đơn kèm user, chi tiết và biến thể (sản phẩm, màu, size) trong một truy vấn
+    @Query("SELECT DISTINCT h FROM HoaDon h " +
+           "LEFT JOIN FETCH h.user " +
+           "LEFT JOIN FETCH h.chiTietHoaDons c " +
+           "LEFT JOIN FETCH c.sanPhamBienThe v " +
+           "LEFT JOIN FETCH v.sanPham " +
+           "LEFT JOIN FETCH v.mauSac " +
+           "LEFT JOIN FETCH v.size " +
+           "WHERE h.id IN :ids")
+    List<HoaDon> findAllWithDetailsByIdIn(@Param("ids") Collection<Integer> ids);
+
+    @Query("SELECT DISTINCT h FROM HoaDon h " +
+           "LEFT JOIN FETCH h.user " +
+           "LEFT JOIN FETCH h.chiTietHoaDons c " +
+           "LEFT JOIN FETCH c.sanPhamBienThe v " +
+           "LEFT JOIN FETCH v.sanPham " +
+           "LEFT JOIN FETCH v.mauSac " +
+           "LEFT JOIN FETCH v.size " +
+           "WHERE h.id = :id")
+    Optional<HoaDon> findByIdWithDetails(@Param("id") Integer id);
+
+    // Đơn hàng của user kèm chi tiết, thay cho findByUserOrderByNgayTaoDesc khi cần hiển thị
+    @Query("SELECT DISTINCT h FROM HoaDon h " +
+           "LEFT JOIN FETCH h.user " +
+           "LEFT JOIN FETCH h.chiTietHoaDons c " +
+           "LEFT JOIN FETCH c.sanPhamBienThe v " +
+           "LEFT JOIN FETCH v.sanPham " +
+           "LEFT JOIN FETCH v.mauSac " +
+           "LEFT JOIN FETCH v.size " +
+           "WHERE h.user = :user ORDER BY h.ngayTao DESC")
+    List<HoaDon> findByUserWithDetails(@Param("user") User user);
+
+    // Báo cáo hóa đơn: đọc một chiều theo (ngayTao, id), mỗi dòng là một chi tiết (hóa đơn không có chi tiết vẫn có một dòng).
+    // Phải gọi trong transaction và đóng Stream; JDBC đọc dần theo fetch size nên bộ nhớ không phụ thuộc số dòng
+    @QueryHints({
+            @QueryHint(name = org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = org.hibernate.jpa.HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT new org.example.graduationproject.dto.InvoiceReportRow(" +
+           "h.id, h.ngayTao, h.trangThai, h.loaiThanhToan, h.daLayTien, h.tenNguoiNhan, h.soDienThoaiGiaoHang, " +
+           "u.email, h.tongTien, ct.id, sp.ten, ms.maMau, sz.tenSize, ct.soLuong, ct.thanhTien) " +
+           "FROM HoaDon h LEFT JOIN h.user u LEFT JOIN h.chiTietHoaDons ct LEFT JOIN ct.sanPhamBienThe v " +
+           "LEFT JOIN v.sanPham sp LEFT JOIN v.mauSac ms LEFT JOIN v.size sz " +
+           "WHERE h.ngayTao >= :from AND h.ngayTao < :to " +
+           "AND (:trangThai IS NULL OR h.trangThai = :trangThai) " +
+           "AND (:loaiThanhToan IS NULL OR h.loaiThanhToan = :loaiThanhToan) " +
+           "ORDER BY h.ngayTao, h.id, ct.id")
+    Stream<InvoiceReportRow> streamReportRows(@Param("from") LocalDateTime from,
+                                              @Param("to") LocalDateTime to,
+                                              @Param("trangThai") String trangThai,
+                                              @Param("loaiThanhToan") String loaiThanhToan);
+
+    // Số dòng báo cáo (để tính tiến độ)
+    @Query("SELECT COUNT(h) FROM HoaDon h LEFT JOIN h.chiTietHoaDons ct " +
+           "WHERE h.ngayTao >= :from AND h.ngayTao < :to " +
+           "AND (:trangThai IS NULL OR h.trangThai = :trangThai) " +
+           "AND (:loaiThanhToan IS NULL OR h.loaiThanhToan = :loaiThanhToan)")
+    long countReportRows(@Param("from") LocalDateTime from,
+                         @Param("to") LocalDateTime to,
+                         @Param("trangThai") String trangThai,
+                         @Param("loaiThanhToan") String loaiThanhToan);
 }
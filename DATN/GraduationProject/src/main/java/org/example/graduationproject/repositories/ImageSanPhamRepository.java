@@ -7,4 +7,6 @@ import org.springframework.stereotype.Repository;
 @Repository
 public interface ImageSanPhamRepository extends JpaRepository<ImageSanPham, Integer> {
     java.util.List<ImageSanPham> findAllBySanPham_Id(Integer sanPhamId);
+
+    boolean existsByImageName(String imageName);
 } 
\ No newline at end of file
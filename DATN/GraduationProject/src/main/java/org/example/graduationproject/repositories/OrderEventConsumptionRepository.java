@@ -0,0 +1,22 @@
+package org.example.graduationproject.repositories;
+
+import org.example.graduationproject.models.OrderEventConsumption;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface OrderEventConsumptionRepository extends JpaRepository<OrderEventConsumption, Long> {
+
+    boolean existsByConsumerAndHoaDonIdAndTrangThai(String consumer, Integer hoaDonId, String trangThai);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM OrderEventConsumption c WHERE c.ngayXuLy < :before")
+    int deleteProcessedBefore(@Param("before") LocalDateTime before);
+}
@@ -0,0 +1,41 @@
+package org.example.graduationproject.repositories;
+
+import org.example.graduationproject.models.OrderEventOutbox;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface OrderEventOutboxRepository extends JpaRepository<OrderEventOutbox, Long> {
+
+    // Lô event chưa xử lý đứng sau id đã đọc
+    @Query("SELECT o FROM OrderEventOutbox o WHERE o.ngayXuLy IS NULL AND o.id > :afterId ORDER BY o.id")
+    List<OrderEventOutbox> findPendingAfter(@Param("afterId") Long afterId, Pageable limit);
+
+    // Event chưa xử lý tạo trước mốc thời gian (quét lại các dòng bị bỏ sót)
+    @Query("SELECT o FROM OrderEventOutbox o WHERE o.ngayXuLy IS NULL AND o.ngayTao < :before ORDER BY o.id")
+    List<OrderEventOutbox> findPendingBefore(@Param("before") LocalDateTime before, Pageable limit);
+
+    @Query("SELECT MIN(o.ngayTao) FROM OrderEventOutbox o WHERE o.ngayXuLy IS NULL")
+    LocalDateTime findOldestPendingNgayTao();
+
+    long countByNgayXuLyIsNull();
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE OrderEventOutbox o SET o.ngayXuLy = :ngayXuLy WHERE o.id IN :ids")
+    int markProcessed(@Param("ids") Collection<Long> ids, @Param("ngayXuLy") LocalDateTime ngayXuLy);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM OrderEventOutbox o WHERE o.ngayXuLy < :before")
+    int deleteProcessedBefore(@Param("before") LocalDateTime before);
+}
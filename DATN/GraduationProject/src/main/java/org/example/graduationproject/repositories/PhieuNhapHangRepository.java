@@ -4,8 +4,13 @@ import org.example.graduationproject.models.PhieuNhapHang;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.List;
+
 @Repository
 public interface PhieuNhapHangRepository extends JpaRepository<PhieuNhapHang, Integer> {
     // Tìm kiếm theo số chứng từ
@@ -13,4 +18,24 @@ public interface PhieuNhapHangRepository extends JpaRepository<PhieuNhapHang, In
     
     // Tìm kiếm theo tên nhà cung cấp
     Page<PhieuNhapHang> findByNhaCungCap_TenContainingIgnoreCase(String tenNhaCungCap, Pageable pageable);
-} 
\ No newline at end of file
+
+    // Phân trang keyset theo (ngayTao, id) giảm dần, keyword null = không lọc: trang đầu
+    @Query("SELECT p FROM PhieuNhapHang p LEFT JOIN FETCH p.nhaCungCap n " +
+           "WHERE (:keyword IS NULL OR LOWER(p.soChungTu) LIKE :keyword OR LOWER(n.ten) LIKE :keyword) " +
+           "ORDER BY p.ngayTao DESC, p.id DESC")
+    List<PhieuNhapHang> findKeysetFirstPage(@Param("keyword") String keyword, Pageable limit);
+
+    // Phân trang keyset: các dòng đứng sau cursor (ngayTao, id)
+    @Query("SELECT p FROM PhieuNhapHang p LEFT JOIN FETCH p.nhaCungCap n " +
+           "WHERE (:keyword IS NULL OR LOWER(p.soChungTu) LIKE :keyword OR LOWER(n.ten) LIKE :keyword) " +
+           "AND (p.ngayTao < :ngayTao OR (p.ngayTao = :ngayTao AND p.id < :id)) " +
+           "ORDER BY p.ngayTao DESC, p.id DESC")
+    List<PhieuNhapHang> findKeysetAfter(@Param("keyword") String keyword,
+                                        @Param("ngayTao") LocalDateTime ngayTao,
+                                        @Param("id") Integer id,
+                                        Pageable limit);
+
+    @Query("SELECT COUNT(p) FROM PhieuNhapHang p LEFT JOIN p.nhaCungCap n " +
+           "WHERE LOWER(p.soChungTu) LIKE :keyword OR LOWER(n.ten) LIKE :keyword")
+    long countByKeyword(@Param("keyword") String keyword);
+}
@@ -8,6 +8,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -44,6 +45,73 @@ public interface SanPhamBienTheRepository extends JpaRepository<SanPhamBienThe,
            "WHERE spbt.sanPham.ten LIKE %:search% OR spbt.mauSac.maMau LIKE %:search% OR spbt.size.tenSize LIKE %:search% OR spbt.sanPham.loai.ten LIKE %:search%")
     Page<SanPhamBienThe> searchByKeywordWithDetails(@Param("search") String search, Pageable pageable);
     
+    // Nạp biến thể cùng sản phẩm, danh mục, màu, size để đánh chỉ mục tìm kiếm
+    @Query("SELECT spbt FROM SanPhamBienThe spbt " +
+           "LEFT JOIN FETCH spbt.sanPham s " +
+           "LEFT JOIN FETCH s.loai " +
+           "LEFT JOIN FETCH spbt.mauSac m " +
+           "LEFT JOIN FETCH spbt.size sz")
+    List<SanPhamBienThe> findAllForSearchIndex();
+
+    @Query("SELECT spbt FROM SanPhamBienThe spbt " +
+           "LEFT JOIN FETCH spbt.sanPham s " +
+           "LEFT JOIN FETCH s.loai " +
+           "LEFT JOIN FETCH spbt.mauSac m " +
+           "LEFT JOIN FETCH m.loai " +
+           "LEFT JOIN FETCH spbt.size sz " +
+           "LEFT JOIN FETCH sz.loai " +
+           "WHERE spbt.id IN :ids")
+    List<SanPhamBienThe> findAllByIdInWithDetails(@Param("ids") Collection<Integer> ids);
+
+    @Query("SELECT spbt FROM SanPhamBienThe spbt " +
+           "LEFT JOIN FETCH spbt.sanPham s " +
+           "LEFT JOIN FETCH s.loai " +
+           "LEFT JOIN FETCH spbt.mauSac m " +
+           "LEFT JOIN FETCH spbt.size sz " +
+           "WHERE s.id = :sanPhamId")
+    List<SanPhamBienThe> findBySanPhamIdForSearchIndex(@Param("sanPhamId") Integer sanPhamId);
+
+    @Query("SELECT spbt FROM SanPhamBienThe spbt " +
+           "LEFT JOIN FETCH spbt.sanPham s " +
+           "LEFT JOIN FETCH s.loai l " +
+           "LEFT JOIN FETCH spbt.mauSac m " +
+           "LEFT JOIN FETCH spbt.size sz " +
+           "WHERE l.id = :loaiId")
+    List<SanPhamBienThe> findByLoaiIdForSearchIndex(@Param("loaiId") Integer loaiId);
+
+    // Đọc số lượng tồn hiện tại: [id, soLuongTon, soLuongDaGiu]
+    @Query("SELECT spbt.id, spbt.soLuongTon, spbt.soLuongDaGiu FROM SanPhamBienThe spbt WHERE spbt.id IN :ids")
+    List<Object[]> findStockLevels(@Param("ids") Collection<Integer> ids);
+
+    // Id các biến thể còn tồn tại trong danh sách, dùng trước khi ghi dòng giỏ hàng
+    @Query("SELECT spbt.id FROM SanPhamBienThe spbt WHERE spbt.id IN :ids")
+    List<Integer> findExistingIds(@Param("ids") Collection<Integer> ids);
+
+    // Tìm biến thể theo (sản phẩm, tên size, mã màu) - dùng cho checkout
+    @Query("SELECT spbt FROM SanPhamBienThe spbt " +
+           "JOIN FETCH spbt.sanPham s " +
+           "JOIN FETCH spbt.mauSac m " +
+           "JOIN FETCH spbt.size sz " +
+           "WHERE s.id = :sanPhamId AND sz.tenSize = :tenSize AND m.maMau = :maMau")
+    List<SanPhamBienThe> findByCompositeKey(@Param("sanPhamId") Integer sanPhamId,
+                                           @Param("tenSize") String tenSize,
+                                           @Param("maMau") String maMau);
+
+    // Lấy ứng viên cho nhiều khóa trong 1 lần truy vấn, khớp chính xác từng khóa ở tầng service
+    @Query("SELECT spbt FROM SanPhamBienThe spbt " +
+           "JOIN FETCH spbt.sanPham s " +
+           "JOIN FETCH spbt.mauSac m " +
+           "JOIN FETCH spbt.size sz " +
+           "WHERE s.id IN :sanPhamIds AND sz.tenSize IN :tenSizes AND m.maMau IN :maMaus")
+    List<SanPhamBienThe> findByCompositeKeys(@Param("sanPhamIds") Collection<Integer> sanPhamIds,
+                                            @Param("tenSizes") Collection<String> tenSizes,
+                                            @Param("maMaus") Collection<String> maMaus);
+
+    // Các tổ hợp đã có của nhiều sản phẩm, không nạp entity: [id, sanPhamId, mauSacId, sizeId]
+    @Query("SELECT spbt.id, spbt.sanPham.id, spbt.mauSac.id, spbt.size.id FROM SanPhamBienThe spbt " +
+           "WHERE spbt.sanPham.id IN :sanPhamIds")
+    List<Object[]> findVariantCombinations(@Param("sanPhamIds") Collection<Integer> sanPhamIds);
+
     // Phương thức mới để kiểm tra biến thể đã tồn tại
     boolean existsBySanPhamIdAndMauSacIdAndSizeId(Integer sanPhamId, Integer mauSacId, Integer sizeId);
 }
\ No newline at end of file
@@ -8,6 +8,7 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -36,6 +37,35 @@ public interface SanPhamRepository extends JpaRepository<SanPham, Integer> {
     // Search by name and filter by category and gender
     Page<SanPham> findByTenContainingIgnoreCaseAndLoai_IdAndGioiTinh(String ten, Integer loaiId, Integer gioiTinh, Pageable pageable);
 
+    // Nạp sản phẩm đang hoạt động cùng danh mục, nhãn hiệu và ảnh cho catalog trong bộ nhớ
+    @Query("select distinct s from SanPham s"
+            + " left join fetch s.loai"
+            + " left join fetch s.nhanHieu"
+            + " left join fetch s.images"
+            + " where s.trangThaiHoatDong = true")
+    List<SanPham> findAllActiveForCatalog();
+
+    @Query("select s from SanPham s"
+            + " left join fetch s.loai"
+            + " left join fetch s.nhanHieu"
+            + " left join fetch s.images"
+            + " where s.id = :id")
+    Optional<SanPham> findByIdForCatalog(@Param("id") Integer id);
+
+    // Nạp lại một trang sản phẩm theo id kèm các quan hệ mà ProductDTO cần, một truy vấn cho cả trang
+    @Query("select distinct s from SanPham s"
+            + " left join fetch s.loai"
+            + " left join fetch s.nhanHieu"
+            + " left join fetch s.nhaCungCap"
+            + " left join fetch s.images"
+            + " where s.id in :ids")
+    List<SanPham> findAllWithDetailsByIdIn(@Param("ids") Collection<Integer> ids);
+
+    // Khóa nhận diện sản phẩm khi import: [id, ten, nhanHieuId], id nhỏ nhất đứng trước nếu trùng tên
+    @Query("select s.id, s.ten, s.nhanHieu.id from SanPham s"
+            + " where s.ten in :tens order by s.id")
+    List<Object[]> findCatalogKeys(@Param("tens") Collection<String> tens);
+
     //constructor expression
     @Query("select new org.example.graduationproject.dto.ProductDTO("
             + " s.id, s.ten, s.moTa, s.giaBan, s.giaNhap, s.khuyenMai, s.tag, s.huongDan, s.thanhPhan,"
@@ -0,0 +1,119 @@
+package org.example.graduationproject.security;
+
+import org.example.graduationproject.utils.LoggerManager;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Đếm số lần đăng nhập sai theo cửa sổ trượt.
+ * Chỉ giữ tối đa maxAttempts mốc thời gian gần nhất cho mỗi username; tài khoản bị khóa khi có
+ * đủ maxAttempts lần sai trong windowMs và tự mở khi các lần sai cũ trượt ra khỏi cửa sổ.
+ * Số username theo dõi có giới hạn (LRU) để username rác từ credential stuffing không làm phình bộ nhớ.
+ */
+@Component
+public class LoginAttemptTracker {
+
+    private final LoggerManager loggerManager = LoggerManager.getInstance();
+
+    @Value("${security.login.max-attempts:5}")
+    private int maxAttempts;
+
+    @Value("${security.login.failure-window-ms:900000}")
+    private long windowMs;
+
+    @Value("${security.login.tracker-max-entries:10000}")
+    private int maxEntries;
+
+    private final LinkedHashMap<String, ArrayDeque<Long>> failures = new LinkedHashMap<>(16, 0.75f, true);
+
+    private final LongAdder recordedFailures = new LongAdder();
+    private final LongAdder lockouts = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public void recordFailure(String username) {
+        if (username == null) return;
+        long now = System.currentTimeMillis();
+        int count;
+        synchronized (this) {
+            ArrayDeque<Long> window = failures.computeIfAbsent(username, k -> new ArrayDeque<>(maxAttempts));
+            prune(window, now);
+            window.addLast(now);
+            while (window.size() > maxAttempts) {
+                window.removeFirst();
+            }
+            count = window.size();
+            evictOverflow();
+        }
+        recordedFailures.increment();
+
+        loggerManager.logSecurityEvent("LOGIN_ATTEMPT_TRACKED", "User", username,
+            "Failed attempt " + count + "/" + maxAttempts);
+        if (count >= maxAttempts) {
+            lockouts.increment();
+            loggerManager.logSecurityEvent("ACCOUNT_LOCKED", "User", username,
+                "Account locked after " + count + " failed attempts");
+        }
+    }
+
+    public synchronized void reset(String username) {
+        failures.remove(username);
+    }
+
+    public boolean isLocked(String username) {
+        return getFailures(username) >= maxAttempts;
+    }
+
+    /**
+     * Số lần sai còn nằm trong cửa sổ
+     */
+    public synchronized int getFailures(String username) {
+        ArrayDeque<Long> window = failures.get(username);
+        if (window == null) {
+            return 0;
+        }
+        prune(window, System.currentTimeMillis());
+        if (window.isEmpty()) {
+            failures.remove(username);
+            return 0;
+        }
+        return window.size();
+    }
+
+    public long getWindowMinutes() {
+        return Math.max(windowMs / 60000, 1);
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        synchronized (this) {
+            stats.put("tracked", failures.size());
+        }
+        stats.put("maxEntries", maxEntries);
+        stats.put("failures", recordedFailures.sum());
+        stats.put("lockouts", lockouts.sum());
+        stats.put("evictions", evictions.sum());
+        return stats;
+    }
+
+    private void prune(ArrayDeque<Long> window, long now) {
+        long cutoff = now - windowMs;
+        while (!window.isEmpty() && window.peekFirst() <= cutoff) {
+            window.removeFirst();
+        }
+    }
+
+    private void evictOverflow() {
+        Iterator<Map.Entry<String, ArrayDeque<Long>>> iterator = failures.entrySet().iterator();
+        while (failures.size() > maxEntries && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+            evictions.increment();
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package org.example.graduationproject.security.jwt;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bảng thu hồi token theo username, dùng khi xác thực JWT không còn tra database.
+ * Token mang claim "ver" là số thứ tự toàn cục lúc phát hành; thu hồi = ghi cho user một số thứ tự mới lớn hơn
+ * mọi "ver" đã phát, token có ver nhỏ hơn số đó bị từ chối.
+ * Một dòng chỉ cần giữ đến khi mọi token phát trước lần thu hồi đã hết hạn (security.jwt.expiration-seconds),
+ * sau đó được dọn đi; vì số thứ tự là toàn cục nên lần thu hồi sau vẫn lớn hơn các token đã phát.
+ * Bảng nằm trong bộ nhớ: sau khi khởi động lại, token đã thu hồi còn hạn sẽ dùng lại được đến khi hết hạn.
+ */
+@Component
+public class TokenRevocationRegistry {
+
+    public static final String VERSION_CLAIM = "ver";
+
+    @Value("${security.jwt.expiration-seconds:3600}")
+    private long expirationSeconds = 3600;
+
+    private final AtomicInteger sequence = new AtomicInteger();
+
+    private final ConcurrentHashMap<String, Revocation> revocations = new ConcurrentHashMap<>();
+
+    private record Revocation(int version, long revokedAtMillis) {
+    }
+
+    /**
+     * Giá trị "ver" cho token sắp phát
+     */
+    public int currentVersion(String username) {
+        return sequence.get();
+    }
+
+    /**
+     * Thu hồi tất cả token đã phát cho user, trả về phiên bản mới
+     */
+    public int revokeAll(String username) {
+        int version = sequence.incrementAndGet();
+        revocations.put(username, new Revocation(version, System.currentTimeMillis()));
+        return version;
+    }
+
+    public boolean isCurrent(String username, int version) {
+        Revocation revocation = revocations.get(username);
+        return revocation == null || version >= revocation.version();
+    }
+
+    /**
+     * Bỏ các dòng mà mọi token phát trước lần thu hồi đều đã hết hạn, trả về số dòng đã bỏ
+     */
+    @Scheduled(fixedDelayString = "${security.jwt.revocation-prune-interval-ms:600000}")
+    public int pruneExpired() {
+        return pruneExpired(System.currentTimeMillis());
+    }
+
+    int pruneExpired(long nowMillis) {
+        long cutoff = nowMillis - expirationSeconds * 1000;
+        int before = revocations.size();
+        revocations.values().removeIf(revocation -> revocation.revokedAtMillis() < cutoff);
+        return before - revocations.size();
+    }
+
+    public int size() {
+        return revocations.size();
+    }
+}
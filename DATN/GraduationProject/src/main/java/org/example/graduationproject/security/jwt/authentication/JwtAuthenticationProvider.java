@@ -1,35 +1,66 @@
 package org.example.graduationproject.security.jwt.authentication;
 
 import org.example.graduationproject.security.jwt.TokenProvider;
+import org.example.graduationproject.security.jwt.TokenRevocationRegistry;
 import org.springframework.security.authentication.AuthenticationProvider;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 
 public class JwtAuthenticationProvider implements AuthenticationProvider {
     private final TokenProvider tokenProvider;
     private final UserDetailsService userDetailsService;
+    private final TokenRevocationRegistry revocationRegistry;
+    private final boolean stateless;
 
-    public JwtAuthenticationProvider(TokenProvider tokenProvider, UserDetailsService userDetailsService) {
+    public JwtAuthenticationProvider(TokenProvider tokenProvider, UserDetailsService userDetailsService,
+                                     TokenRevocationRegistry revocationRegistry, boolean stateless) {
         this.tokenProvider = tokenProvider;
         this.userDetailsService = userDetailsService;
+        this.revocationRegistry = revocationRegistry;
+        this.stateless = stateless;
     }
 
     @Override
     public Authentication authenticate(Authentication authentication) throws AuthenticationException {
         String token = (String) authentication.getCredentials();
-        boolean isValidToken = tokenProvider.validateToken(token);
-        if (!isValidToken)
-            return null;
+        // Xác minh chữ ký / hạn một lần, payload rỗng nghĩa là token không hợp lệ
         Map<String, Object> payload = tokenProvider.getPayload(token);
+        if (payload.isEmpty() || payload.get("username") == null)
+            return null;
         String principle = payload.get("username").toString();
+
+        // Token mới mang roles + ver: dựng authentication từ claim, không tra database
+        Object version = payload.get(TokenRevocationRegistry.VERSION_CLAIM);
+        if (stateless && version instanceof Number && payload.get("roles") != null) {
+            if (!revocationRegistry.isCurrent(principle, ((Number) version).intValue()))
+                return null;
+            return new JwtAuthenticationToken(parseRoles(payload.get("roles").toString()), principle, token);
+        }
+
+        // Token cũ (chưa có ver) hoặc tắt chế độ stateless: nạp quyền từ UserDetailsService
         UserDetails userDetails = userDetailsService.loadUserByUsername(principle);
         return new JwtAuthenticationToken(userDetails.getAuthorities(), principle, token);
     }
 
+    private List<GrantedAuthority> parseRoles(String roles) {
+        List<GrantedAuthority> authorities = new ArrayList<>();
+        for (String role : roles.split(",")) {
+            String trimmed = role.trim();
+            if (!trimmed.isEmpty()) {
+                authorities.add(new SimpleGrantedAuthority(trimmed));
+            }
+        }
+        return authorities;
+    }
+
     @Override
     public boolean supports(Class<?> authentication) {
         return JwtAuthenticationToken.class.isAssignableFrom(authentication);
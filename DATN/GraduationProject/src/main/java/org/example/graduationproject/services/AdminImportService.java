@@ -1,7 +1,11 @@
 package org.example.graduationproject.services;
 
+import org.example.graduationproject.dto.CursorPage;
 import org.example.graduationproject.dto.ImportRequestDTO;
 import org.example.graduationproject.dto.ServiceResult;
+import org.example.graduationproject.models.PhieuNhapHang;
+import org.example.graduationproject.services.export.ExportJob;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.Map;
 
@@ -12,6 +16,11 @@ public interface AdminImportService {
      */
     ServiceResult<Map<String, Object>> getImportsWithFilters(String search, int page, int size);
     
+    /**
+     * Lấy danh sách phiếu nhập hàng theo keyset (ngayTao, id), cursor rỗng là trang đầu
+     */
+    ServiceResult<CursorPage<PhieuNhapHang>> getImportsKeyset(String search, String cursor, int size);
+    
     /**
      * Tạo phiếu nhập hàng
      */
@@ -32,6 +41,22 @@ public interface AdminImportService {
      */
     ServiceResult<byte[]> exportImportToExcel(Integer importId);
     
+    /**
+     * Export phiếu nhập hàng ra Excel dạng stream (SXSSF, đọc chi tiết theo khúc), ghi thẳng vào response
+     */
+    ServiceResult<StreamingResponseBody> streamImportToExcel(Integer importId);
+    
+    /**
+     * Export phiếu nhập hàng ra PDF dạng stream, trang nào xong được ghi thẳng vào response
+     */
+    ServiceResult<StreamingResponseBody> streamImportToPdf(Integer importId);
+    
+    /**
+     * Tạo job export phiếu nhập (excel / pdf) chạy nền. Yêu cầu trùng phiếu, trùng định dạng
+     * khi dữ liệu chưa đổi dùng chung một job và file kết quả đã cache
+     */
+    ServiceResult<ExportJob> submitImportExport(Integer importId, String format);
+    
     /**
      * Export phiếu nhập hàng ra PDF
      */
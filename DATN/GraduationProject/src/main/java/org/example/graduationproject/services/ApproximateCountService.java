@@ -0,0 +1,16 @@
+package org.example.graduationproject.services;
+
+import java.util.function.Supplier;
+
+public interface ApproximateCountService {
+
+    /**
+     * Số dòng xấp xỉ của cả bảng (metadata của SQL Server), được cache theo TTL
+     */
+    long approximateCount(Class<?> entityClass);
+
+    /**
+     * Kết quả đếm có lọc được cache theo key trong TTL, chỉ gọi counter khi hết hạn
+     */
+    long cachedCount(String key, Supplier<Long> counter);
+}
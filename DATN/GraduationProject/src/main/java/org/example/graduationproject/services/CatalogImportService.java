@@ -0,0 +1,13 @@
+package org.example.graduationproject.services;
+
+import org.example.graduationproject.services.export.ExportJob;
+import org.springframework.web.multipart.MultipartFile;
+
+public interface CatalogImportService {
+
+    /**
+     * Tạo job import sản phẩm + biến thể từ file .xlsx / .csv, chạy nền.
+     * File kết quả của job là báo cáo CSV các dòng lỗi, số liệu tổng nằm trong summary của job.
+     */
+    ExportJob submitCatalogImport(MultipartFile file);
+}
@@ -1,13 +1,22 @@
 package org.example.graduationproject.services;
 
 import org.apache.poi.ss.usermodel.*;
+import org.apache.poi.xssf.streaming.SXSSFSheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
 import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.example.graduationproject.dto.ImportDetailExportRow;
 import org.example.graduationproject.models.PhieuNhapHang;
 import org.example.graduationproject.models.ChiTietPhieuNhapHang;
+import org.example.graduationproject.repositories.ChiTietPhieuNhapHangRepository;
+import org.example.graduationproject.utils.LoggerManager;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.math.BigDecimal;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -15,15 +24,23 @@ import java.nio.file.Paths;
 import java.nio.file.StandardOpenOption;
 import java.time.format.DateTimeFormatter;
 import java.util.List;
-import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.Executor;
-import java.util.concurrent.Executors;
 
 @Service
 public class ExcelExportService {
     
-    // Thread pool cho async operations
-    private final Executor executor = Executors.newFixedThreadPool(4);
+    @Autowired
+    private ChiTietPhieuNhapHangRepository chiTietPhieuNhapHangRepository;
+
+    // Số dòng SXSSF giữ trong bộ nhớ, dòng cũ hơn được ghi ra file tạm
+    @Value("${export.excel.row-window:500}")
+    private int rowWindow;
+
+    // Số dòng đọc từ database mỗi lần
+    @Value("${export.excel.fetch-size:1000}")
+    private int fetchSize;
+
+    // Độ rộng cột cố định (ký tự) cho export dạng stream, thay cho autoSizeColumn
+    private static final int[] STREAM_COLUMN_WIDTHS = {8, 45, 25, 12, 20};
     
     // Thư mục temp cho file processing
     private static final Path TEMP_DIR = Paths.get("temp/excel");
@@ -73,19 +90,6 @@ public class ExcelExportService {
         }
     }
     
-    /**
-     * Export với NIO Files - Asynchronous version
-     */
-    public CompletableFuture<byte[]> exportImportDetailToExcelAsync(PhieuNhapHang phieu, List<ChiTietPhieuNhapHang> details) {
-        return CompletableFuture.supplyAsync(() -> {
-            try {
-                return exportImportDetailToExcel(phieu, details);
-            } catch (IOException e) {
-                throw new RuntimeException("Lỗi export Excel: " + e.getMessage(), e);
-            }
-        }, executor);
-    }
-    
     /**
      * Export với streaming - cho file lớn
      */
@@ -112,51 +116,91 @@ public class ExcelExportService {
     }
     
     /**
-     * Export với batch processing - cho data lớn
+     * Export dạng stream cho phiếu nhập lớn: SXSSF chỉ giữ rowWindow dòng trong heap,
+     * chi tiết được đọc từng khúc fetchSize dòng theo id và file ghi thẳng vào out (response),
+     * không dựng workbook đầy đủ, không autoSizeColumn, không đọc lại file tạm vào byte[].
+     * Trả về số dòng chi tiết đã ghi.
      */
-    public CompletableFuture<byte[]> exportImportDetailToExcelBatch(PhieuNhapHang phieu, List<ChiTietPhieuNhapHang> details) {
-        return CompletableFuture.supplyAsync(() -> {
-            try {
-                Path tempFile = Files.createTempFile(TEMP_DIR, "export_batch_", ".xlsx");
-                
-                try (Workbook workbook = new XSSFWorkbook()) {
-                    Sheet sheet = workbook.createSheet("Chi tiết phiếu nhập");
-                    
-                    // Tạo styles
-                    CellStyle headerStyle = createHeaderStyle(workbook);
-                    CellStyle titleStyle = createTitleStyle(workbook);
-                    CellStyle dataStyle = createDataStyle(workbook);
-                    
-                    // Process data in batches
-                    int batchSize = 1000;
-                    int totalRows = details.size();
-                    
-                    for (int i = 0; i < totalRows; i += batchSize) {
-                        int endIndex = Math.min(i + batchSize, totalRows);
-                        List<ChiTietPhieuNhapHang> batch = details.subList(i, endIndex);
-                        
-                        // Tạo content cho batch
-                        createExcelContentBatch(sheet, phieu, batch, headerStyle, titleStyle, dataStyle, i);
+    public long writeImportDetailStreaming(PhieuNhapHang phieu, OutputStream out) throws IOException {
+        long start = System.currentTimeMillis();
+        long rowCount = 0;
+        SXSSFWorkbook workbook = new SXSSFWorkbook(rowWindow);
+        workbook.setCompressTempFiles(true);
+        try {
+            SXSSFSheet sheet = workbook.createSheet("Chi tiết phiếu nhập");
+            for (int i = 0; i < STREAM_COLUMN_WIDTHS.length; i++) {
+                sheet.setColumnWidth(i, STREAM_COLUMN_WIDTHS[i] * 256);
+            }
+
+            CellStyle headerStyle = createHeaderStyle(workbook);
+            CellStyle titleStyle = createTitleStyle(workbook);
+            CellStyle dataStyle = createDataStyle(workbook);
+
+            int rowNum = 0;
+            Row titleRow = sheet.createRow(rowNum++);
+            Cell titleCell = titleRow.createCell(0);
+            titleCell.setCellValue("CHI TIẾT PHIẾU NHẬP HÀNG");
+            titleCell.setCellStyle(titleStyle);
+            sheet.addMergedRegion(new org.apache.poi.ss.util.CellRangeAddress(0, 0, 0, 4));
+
+            rowNum = createImportInfoSection(sheet, phieu, headerStyle, dataStyle, rowNum);
+            rowNum = createSupplierInfoSection(sheet, phieu, headerStyle, dataStyle, rowNum);
+
+            Row headerRow = sheet.createRow(rowNum++);
+            String[] headers = {"STT", "Sản phẩm", "Biến thể", "Số lượng", "Thành tiền (VNĐ)"};
+            for (int i = 0; i < headers.length; i++) {
+                Cell cell = headerRow.createCell(i);
+                cell.setCellValue(headers[i]);
+                cell.setCellStyle(headerStyle);
+            }
+
+            Integer afterId = 0;
+            while (true) {
+                List<ImportDetailExportRow> chunk = chiTietPhieuNhapHangRepository.findExportChunk(
+                        phieu.getId(), afterId, PageRequest.of(0, fetchSize));
+                for (ImportDetailExportRow detail : chunk) {
+                    Row dataRow = sheet.createRow(rowNum++);
+                    rowCount++;
+                    dataRow.createCell(0).setCellValue(rowCount);
+                    dataRow.createCell(1).setCellValue(detail.getTenSanPham() != null ? detail.getTenSanPham() : "N/A");
+
+                    // Biến thể (màu sắc + size)
+                    String variant = "";
+                    if (detail.getMaMau() != null) {
+                        variant += detail.getMaMau();
                     }
-                    
-                    // Ghi workbook vào file
-                    try (var outputStream = Files.newOutputStream(tempFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
-                        workbook.write(outputStream);
+                    if (detail.getTenSize() != null) {
+                        variant += " - " + detail.getTenSize();
+                    }
+                    dataRow.createCell(2).setCellValue(variant.isEmpty() ? "N/A" : variant);
+                    dataRow.createCell(3).setCellValue(detail.getSoLuongNhap() != null ? detail.getSoLuongNhap() : 0);
+                    dataRow.createCell(4).setCellValue(detail.getThanhTienNhap() != null ?
+                        detail.getThanhTienNhap().toString() : "0");
+
+                    for (int j = 0; j < 5; j++) {
+                        dataRow.getCell(j).setCellStyle(dataStyle);
                     }
                 }
-                
-                // Đọc file vào byte array
-                byte[] content = Files.readAllBytes(tempFile);
-                return content;
-                
-            } catch (IOException e) {
-                throw new RuntimeException("Lỗi export Excel batch: " + e.getMessage(), e);
-            } finally {
-                // Cleanup sẽ được xử lý bởi try-with-resources
+                if (chunk.size() < fetchSize) {
+                    break;
+                }
+                afterId = chunk.get(chunk.size() - 1).getId();
             }
-        }, executor);
+
+            createSummarySection(sheet, phieu, headerStyle, dataStyle, rowNum);
+
+            workbook.write(out);
+            out.flush();
+        } finally {
+            // Xóa file tạm của SXSSF
+            workbook.dispose();
+            workbook.close();
+        }
+        LoggerManager.getInstance().logPerformance("EXCEL_STREAM_EXPORT", System.currentTimeMillis() - start,
+                "importId=" + phieu.getId() + ", rows=" + rowCount);
+        return rowCount;
     }
-    
+
     /**
      * Tạo content cho Excel với NIO optimization
      */
@@ -189,90 +233,6 @@ public class ExcelExportService {
         }
     }
     
-    /**
-     * Tạo content cho batch processing
-     */
-    private void createExcelContentBatch(Sheet sheet, PhieuNhapHang phieu, List<ChiTietPhieuNhapHang> batch,
-                                       CellStyle headerStyle, CellStyle titleStyle, CellStyle dataStyle, int startIndex) {
-        int rowNum = startIndex;
-        
-        // Chỉ tạo header cho batch đầu tiên
-        if (startIndex == 0) {
-            // Tiêu đề chính
-            Row titleRow = sheet.createRow(rowNum++);
-            Cell titleCell = titleRow.createCell(0);
-            titleCell.setCellValue("CHI TIẾT PHIẾU NHẬP HÀNG");
-            titleCell.setCellStyle(titleStyle);
-            sheet.addMergedRegion(new org.apache.poi.ss.util.CellRangeAddress(0, 0, 0, 4));
-            
-            // Thông tin phiếu
-            rowNum = createImportInfoSection(sheet, phieu, headerStyle, dataStyle, rowNum);
-            
-            // Thông tin nhà cung cấp
-            rowNum = createSupplierInfoSection(sheet, phieu, headerStyle, dataStyle, rowNum);
-            
-            // Header bảng chi tiết
-            Row headerRow = sheet.createRow(rowNum++);
-            String[] headers = {"STT", "Sản phẩm", "Biến thể", "Số lượng", "Thành tiền (VNĐ)"};
-            for (int i = 0; i < headers.length; i++) {
-                Cell cell = headerRow.createCell(i);
-                cell.setCellValue(headers[i]);
-                cell.setCellStyle(headerStyle);
-            }
-        }
-        
-        // Dữ liệu chi tiết cho batch
-        for (ChiTietPhieuNhapHang detail : batch) {
-            Row dataRow = sheet.createRow(rowNum++);
-            
-            dataRow.createCell(0).setCellValue(startIndex + batch.indexOf(detail) + 1);
-            dataRow.createCell(1).setCellValue(detail.getSanPhamBienThe() != null && 
-                detail.getSanPhamBienThe().getSanPham() != null ? 
-                detail.getSanPhamBienThe().getSanPham().getTen() : "N/A");
-            
-            // Biến thể (màu sắc + size)
-            String variant = "";
-            if (detail.getSanPhamBienThe() != null) {
-                if (detail.getSanPhamBienThe().getMauSac() != null) {
-                    variant += detail.getSanPhamBienThe().getMauSac().getMaMau();
-                }
-                if (detail.getSanPhamBienThe().getSize() != null) {
-                    variant += " - " + detail.getSanPhamBienThe().getSize().getTenSize();
-                }
-            }
-            dataRow.createCell(2).setCellValue(variant.isEmpty() ? "N/A" : variant);
-            
-            dataRow.createCell(3).setCellValue(detail.getSoLuongNhap() != null ? detail.getSoLuongNhap() : 0);
-            dataRow.createCell(4).setCellValue(detail.getThanhTienNhap() != null ? 
-                detail.getThanhTienNhap().toString() : "0");
-            
-            // Áp dụng style cho các ô dữ liệu
-            for (int j = 0; j < 5; j++) {
-                dataRow.getCell(j).setCellStyle(dataStyle);
-            }
-        }
-    }
-    
-    /**
-     * Cleanup temp files
-     */
-    public void cleanupTempFiles() {
-        try {
-            Files.list(TEMP_DIR)
-                .filter(Files::isRegularFile)
-                .filter(path -> path.toString().endsWith(".xlsx"))
-                .forEach(path -> {
-                    try {
-                        Files.delete(path);
-                    } catch (IOException e) {
-                        System.err.println("Không thể xóa file temp: " + path);
-                    }
-                });
-        } catch (IOException e) {
-            System.err.println("Lỗi cleanup temp files: " + e.getMessage());
-        }
-    }
-
     /**
      * Method cũ để backup - sử dụng ByteArrayOutputStream
      */
@@ -20,5 +20,7 @@ public interface GioHangService {
     boolean updateCartItemQuantity(User user, Integer cartItemId, Integer quantity);
     boolean removeFromCart(User user, Integer cartItemId);
     GioHang getActiveCart(User user);
+    // Ghi ngay các thay đổi giỏ hàng đang nằm trong bộ nhớ xuống database
+    void flushActiveCart(User user);
     boolean updateCartStatus(GioHang gioHang);
 }
@@ -2,6 +2,7 @@ package org.example.graduationproject.services;
 
 import org.example.graduationproject.dto.CheckoutDTO;
 import org.example.graduationproject.dto.CheckoutRequestDTO;
+import org.example.graduationproject.dto.CursorPage;
 import org.example.graduationproject.models.GioHang;
 import org.example.graduationproject.models.HoaDon;
 import org.example.graduationproject.models.User;
@@ -23,10 +24,16 @@ public interface HoaDonService {
     
     // Lấy tất cả hóa đơn với phân trang (cho admin)
     Page<HoaDon> getAllInvoices(Pageable pageable);
+
+    // Phân trang keyset theo (ngayTao, id) giảm dần, tổng số là xấp xỉ (cho admin)
+    CursorPage<HoaDon> getInvoicesKeyset(String cursor, int size);
     
     // Lấy hóa đơn theo ID
     HoaDon getOrderById(Integer orderId);
     
+    // Lấy nhiều hóa đơn kèm chi tiết theo danh sách ID (giữ thứ tự, bỏ qua ID không tồn tại)
+    List<HoaDon> getOrdersWithDetails(List<Integer> orderIds);
+    
     // Lấy hóa đơn của user theo ID
     HoaDon getUserOrderById(User user, Integer orderId);
     
@@ -1,5 +1,6 @@
 package org.example.graduationproject.services;
 
+import org.example.graduationproject.dto.ImageOperationResult;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.util.List;
@@ -19,13 +20,21 @@ public interface ImageService {
     String uploadImage(MultipartFile file, String folder);
 
     /**
-     * Upload nhiều images
+     * Upload nhiều images song song, lỗi một file thì xóa các file đã upload và ném exception
      * @param files danh sách files cần upload
      * @param folder thư mục lưu trữ
-     * @return danh sách URLs của images đã upload
+     * @return danh sách URLs của images đã upload (cùng thứ tự với files)
      */
     List<String> uploadMultipleImages(List<MultipartFile> files, String folder);
 
+    /**
+     * Upload nhiều images song song, không dừng khi một file lỗi
+     * @param files danh sách files cần upload
+     * @param folder thư mục lưu trữ
+     * @return kết quả từng file (cùng thứ tự với files)
+     */
+    List<ImageOperationResult> uploadImages(List<MultipartFile> files, String folder);
+
     /**
      * Xóa image theo URL
      * @param imageUrl URL của image cần xóa
@@ -40,6 +49,13 @@ public interface ImageService {
      */
     boolean deleteMultipleImages(List<String> imageUrls);
 
+    /**
+     * Xóa nhiều images song song
+     * @param imageUrls danh sách URLs cần xóa
+     * @return kết quả từng URL (cùng thứ tự với imageUrls)
+     */
+    List<ImageOperationResult> deleteImages(List<String> imageUrls);
+
     /**
      * Lấy provider name
      * @return tên của image provider
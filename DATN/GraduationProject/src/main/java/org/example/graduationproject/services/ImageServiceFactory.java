@@ -1,9 +1,15 @@
 package org.example.graduationproject.services;
 
+import jakarta.annotation.PostConstruct;
+import org.example.graduationproject.services.adapters.DerivativeImageAdapter;
+import org.example.graduationproject.services.image.ImageDerivativeCache;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import java.util.concurrent.Executor;
+
 /**
  * Factory để tạo ImageService instance
  * Cho phép dễ dàng switch giữa các providers
@@ -15,14 +21,39 @@ public class ImageServiceFactory {
     @Qualifier("cloudinaryImageService")
     private ImageService cloudinaryImageService;
 
+    @Autowired
+    @Qualifier("localImageService")
+    private ImageService localImageService;
+
+    @Autowired
+    private ImageDerivativeCache imageDerivativeCache;
+
+    @Autowired
+    @Qualifier("imageTaskExecutor")
+    private Executor imageTaskExecutor;
+
+    // cloudinary | local
+    @Value("${image.provider:cloudinary}")
+    private String provider;
+
+    // Tạo ảnh phái sinh (thumbnail / card / detail) ngay khi upload
+    @Value("${image.derivatives.enabled:true}")
+    private boolean derivativesEnabled;
+
+    private ImageService defaultImageService;
 
+    @PostConstruct
+    public void init() {
+        ImageService providerService = "local".equalsIgnoreCase(provider) ? localImageService : cloudinaryImageService;
+        defaultImageService = derivativesEnabled
+                ? new DerivativeImageAdapter(providerService, imageDerivativeCache, imageTaskExecutor)
+                : providerService;
+    }
 
     /**
-     * Lấy ImageService mặc định
+     * Lấy ImageService mặc định (theo image.provider, có tạo ảnh phái sinh nếu image.derivatives.enabled)
      */
     public ImageService getDefaultImageService() {
-        return cloudinaryImageService;
+        return defaultImageService;
     }
-
-
 }
@@ -0,0 +1,12 @@
+package org.example.graduationproject.services;
+
+import org.example.graduationproject.dto.InvoiceReportRequest;
+import org.example.graduationproject.services.export.ExportJob;
+
+public interface InvoiceReportService {
+
+    /**
+     * Tạo job xuất báo cáo hóa đơn (HoaDon + ChiTietHoaDon) theo khoảng ngày, chạy nền
+     */
+    ExportJob submitInvoiceReport(InvoiceReportRequest request);
+}
@@ -1,9 +1,13 @@
 package org.example.graduationproject.services;
 
+import com.itextpdf.kernel.events.PdfDocumentEvent;
+import com.itextpdf.kernel.geom.PageSize;
 import com.itextpdf.kernel.pdf.PdfDocument;
 import com.itextpdf.kernel.pdf.PdfWriter;
+import com.itextpdf.kernel.pdf.WriterProperties;
 import com.itextpdf.layout.Document;
 import com.itextpdf.layout.element.*;
+import com.itextpdf.layout.properties.AreaBreakType;
 import com.itextpdf.layout.properties.TextAlignment;
 import com.itextpdf.layout.properties.UnitValue;
 import com.itextpdf.layout.element.Cell;
@@ -12,122 +16,177 @@ import com.itextpdf.layout.element.Paragraph;
 import com.itextpdf.layout.element.Div;
 import com.itextpdf.kernel.colors.ColorConstants;
 import com.itextpdf.kernel.colors.DeviceRgb;
-import com.itextpdf.io.font.constants.StandardFonts;
 import com.itextpdf.kernel.font.PdfFont;
-import com.itextpdf.kernel.font.PdfFontFactory;
 import org.example.graduationproject.models.PhieuNhapHang;
 import org.example.graduationproject.models.ChiTietPhieuNhapHang;
 import org.example.graduationproject.models.HoaDon;
 import org.example.graduationproject.models.ChiTietHoaDon;
+import org.example.graduationproject.services.pdf.PdfFontRegistry;
+import org.example.graduationproject.services.pdf.PdfFonts;
+import org.example.graduationproject.services.pdf.PdfPageTemplate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.math.BigDecimal;
+import java.io.OutputStream;
 import java.time.format.DateTimeFormatter;
 import java.util.List;
+import java.util.function.Function;
 
 @Service
 public class PdfExportService {
 
-    public byte[] exportImportDetailToPdf(PhieuNhapHang phieu, List<ChiTietPhieuNhapHang> details) throws IOException {
-        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-        PdfWriter writer = new PdfWriter(outputStream);
-        PdfDocument pdf = new PdfDocument(writer);
-        Document document = new Document(pdf);
-
-        try {
-            // Tạo font với fallback
-            PdfFont font;
-            PdfFont boldFont;
-            try {
-                // Sử dụng font Times-Roman hỗ trợ tốt cho tiếng Việt
-                font = PdfFontFactory.createFont(StandardFonts.TIMES_ROMAN);
-                boldFont = PdfFontFactory.createFont(StandardFonts.TIMES_BOLD);
-            } catch (Exception e) {
-                // Fallback về font cơ bản
-                font = PdfFontFactory.createFont(StandardFonts.COURIER);
-                boldFont = PdfFontFactory.createFont(StandardFonts.COURIER_BOLD);
-            }
+    private static final DeviceRgb HEADER_COLOR = new DeviceRgb(59, 130, 246);
+    private static final DateTimeFormatter DATE_TIME = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm");
+    // Bảng chi tiết là large table: mỗi ngần này dòng được đẩy xuống trang và giải phóng khỏi bộ nhớ
+    private static final int TABLE_FLUSH_ROWS = 50;
 
-            // Tiêu đề chính
-            Paragraph title = new Paragraph("CHI TIẾT PHIẾU NHẬP HÀNG")
-                    .setFont(boldFont)
-                    .setFontSize(20)
-                    .setTextAlignment(TextAlignment.CENTER)
-                    .setMarginBottom(20);
-            document.add(title);
+    @Autowired
+    private PdfFontRegistry pdfFontRegistry;
 
-            // Thông tin phiếu
-            document.add(createImportInfoSection(phieu, font, boldFont));
-            document.add(new Paragraph("").setMarginBottom(15));
+    @Value("${pdf.header.title:CỬA HÀNG THỜI TRANG}")
+    private String headerTitle;
 
-            // Thông tin nhà cung cấp
-            document.add(createSupplierInfoSection(phieu, font, boldFont));
-            document.add(new Paragraph("").setMarginBottom(15));
+    // Số hóa đơn nạp từ database mỗi lần ở chế độ batch
+    @Value("${pdf.batch.fetch-size:50}")
+    private int batchFetchSize;
 
-            // Bảng chi tiết sản phẩm
-            document.add(createProductDetailsTable(details, font, boldFont));
-            document.add(new Paragraph("").setMarginBottom(15));
-
-            // Tổng kết
-            document.add(createSummarySection(phieu, font, boldFont));
+    public byte[] exportImportDetailToPdf(PhieuNhapHang phieu, List<ChiTietPhieuNhapHang> details) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        writeImportDetailPdf(phieu, details, outputStream);
+        return outputStream.toByteArray();
+    }
 
+    /**
+     * Ghi PDF phiếu nhập thẳng vào out, trang nào xong được đẩy xuống ngay thay vì giữ cả file trong bộ nhớ
+     */
+    public void writeImportDetailPdf(PhieuNhapHang phieu, List<ChiTietPhieuNhapHang> details, OutputStream out) throws IOException {
+        PdfFonts fonts = pdfFontRegistry.createFonts();
+        Document document = openDocument(out, fonts);
+        try {
+            addImportContent(document, phieu, details, fonts.getRegular(), fonts.getBold());
         } finally {
             document.close();
         }
-
-        return outputStream.toByteArray();
     }
 
     public byte[] exportOrderDetailToPdf(HoaDon hoaDon, List<ChiTietHoaDon> details) throws IOException {
         ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-        PdfWriter writer = new PdfWriter(outputStream);
-        PdfDocument pdf = new PdfDocument(writer);
-        Document document = new Document(pdf);
+        writeOrderDetailPdf(hoaDon, details, outputStream);
+        return outputStream.toByteArray();
+    }
+
+    /**
+     * Ghi PDF hóa đơn thẳng vào out
+     */
+    public void writeOrderDetailPdf(HoaDon hoaDon, List<ChiTietHoaDon> details, OutputStream out) throws IOException {
+        PdfFonts fonts = pdfFontRegistry.createFonts();
+        Document document = openDocument(out, fonts);
+        try {
+            addOrderContent(document, hoaDon, details, fonts.getRegular(), fonts.getBold());
+        } finally {
+            document.close();
+        }
+    }
 
+    /**
+     * Ghi nhiều hóa đơn vào một PDF, mỗi hóa đơn bắt đầu trang mới. Hóa đơn được nạp qua loader
+     * từng khúc pdf.batch.fetch-size id, font và header/footer chỉ tạo một lần cho cả file.
+     * Id không tìm thấy bị bỏ qua, trả về số hóa đơn đã ghi.
+     */
+    public int writeOrderBatchPdf(List<Integer> orderIds, Function<List<Integer>, List<HoaDon>> loader,
+                                  OutputStream out) throws IOException {
+        PdfFonts fonts = pdfFontRegistry.createFonts();
+        Document document = openDocument(out, fonts);
+        int rendered = 0;
         try {
-            // Tạo font với fallback
-            PdfFont font;
-            PdfFont boldFont;
-            try {
-                // Sử dụng font Times-Roman hỗ trợ tốt cho tiếng Việt
-                font = PdfFontFactory.createFont(StandardFonts.TIMES_ROMAN);
-                boldFont = PdfFontFactory.createFont(StandardFonts.TIMES_BOLD);
-            } catch (Exception e) {
-                // Fallback về font cơ bản
-                font = PdfFontFactory.createFont(StandardFonts.COURIER);
-                boldFont = PdfFontFactory.createFont(StandardFonts.COURIER_BOLD);
+            for (int from = 0; from < orderIds.size(); from += batchFetchSize) {
+                List<HoaDon> chunk = loader.apply(orderIds.subList(from, Math.min(from + batchFetchSize, orderIds.size())));
+                for (HoaDon hoaDon : chunk) {
+                    if (rendered > 0) {
+                        document.add(new AreaBreak(AreaBreakType.NEXT_PAGE));
+                    }
+                    List<ChiTietHoaDon> details = hoaDon.getChiTietHoaDons() != null ? hoaDon.getChiTietHoaDons() : List.of();
+                    addOrderContent(document, hoaDon, details, fonts.getRegular(), fonts.getBold());
+                    rendered++;
+                }
             }
+            if (rendered == 0) {
+                // PDF phải có ít nhất một trang
+                document.add(new Paragraph("Không có hóa đơn nào").setFont(fonts.getRegular()));
+            }
+        } finally {
+            document.close();
+        }
+        return rendered;
+    }
 
-            // Tiêu đề chính
-            Paragraph title = new Paragraph("CHI TIẾT ĐƠN HÀNG")
-                    .setFont(boldFont)
-                    .setFontSize(20)
-                    .setTextAlignment(TextAlignment.CENTER)
-                    .setMarginBottom(20);
-            document.add(title);
+    private Document openDocument(OutputStream out, PdfFonts fonts) {
+        PdfWriter writer = new PdfWriter(out, new WriterProperties().setFullCompressionMode(true));
+        // out là response / file của caller, caller tự đóng
+        writer.setCloseStream(false);
+        PdfDocument pdf = new PdfDocument(writer);
+        pdf.setDefaultPageSize(PageSize.A4);
+        pdf.addEventHandler(PdfDocumentEvent.END_PAGE, new PdfPageTemplate(fonts, headerTitle, HEADER_COLOR));
+        // immediateFlush: trang đã layout xong được ghi ra writer ngay
+        Document document = new Document(pdf, PageSize.A4, true);
+        document.setMargins(PdfPageTemplate.HEADER_HEIGHT + 20, PdfPageTemplate.MARGIN_X,
+                PdfPageTemplate.FOOTER_HEIGHT + 20, PdfPageTemplate.MARGIN_X);
+        return document;
+    }
 
-            // Thông tin đơn hàng
-            document.add(createOrderInfoSection(hoaDon, font, boldFont));
-            document.add(new Paragraph("").setMarginBottom(15));
+    private void addImportContent(Document document, PhieuNhapHang phieu, List<ChiTietPhieuNhapHang> details,
+                                  PdfFont font, PdfFont boldFont) {
+        // Tiêu đề chính
+        Paragraph title = new Paragraph("CHI TIẾT PHIẾU NHẬP HÀNG")
+                .setFont(boldFont)
+                .setFontSize(20)
+                .setTextAlignment(TextAlignment.CENTER)
+                .setMarginBottom(20);
+        document.add(title);
 
-            // Thông tin khách hàng
-            document.add(createCustomerInfoSection(hoaDon, font, boldFont));
-            document.add(new Paragraph("").setMarginBottom(15));
+        // Thông tin phiếu
+        document.add(createImportInfoSection(phieu, font, boldFont));
+        document.add(new Paragraph("").setMarginBottom(15));
 
-            // Bảng chi tiết sản phẩm
-            document.add(createOrderProductDetailsTable(details, font, boldFont));
-            document.add(new Paragraph("").setMarginBottom(15));
+        // Thông tin nhà cung cấp
+        document.add(createSupplierInfoSection(phieu, font, boldFont));
+        document.add(new Paragraph("").setMarginBottom(15));
 
-            // Tổng kết
-            document.add(createOrderSummarySection(hoaDon, font, boldFont));
+        // Bảng chi tiết sản phẩm
+        addProductDetailsTable(document, details, font, boldFont);
+        document.add(new Paragraph("").setMarginBottom(15));
 
-        } finally {
-            document.close();
-        }
+        // Tổng kết
+        document.add(createSummarySection(phieu, font, boldFont));
+    }
 
-        return outputStream.toByteArray();
+    private void addOrderContent(Document document, HoaDon hoaDon, List<ChiTietHoaDon> details,
+                                 PdfFont font, PdfFont boldFont) {
+        // Tiêu đề chính
+        Paragraph title = new Paragraph("CHI TIẾT ĐƠN HÀNG")
+                .setFont(boldFont)
+                .setFontSize(20)
+                .setTextAlignment(TextAlignment.CENTER)
+                .setMarginBottom(20);
+        document.add(title);
+
+        // Thông tin đơn hàng
+        document.add(createOrderInfoSection(hoaDon, font, boldFont));
+        document.add(new Paragraph("").setMarginBottom(15));
+
+        // Thông tin khách hàng
+        document.add(createCustomerInfoSection(hoaDon, font, boldFont));
+        document.add(new Paragraph("").setMarginBottom(15));
+
+        // Bảng chi tiết sản phẩm
+        addOrderProductDetailsTable(document, details, font, boldFont);
+        document.add(new Paragraph("").setMarginBottom(15));
+
+        // Tổng kết
+        document.add(createOrderSummarySection(hoaDon, font, boldFont));
     }
 
     private Div createImportInfoSection(PhieuNhapHang phieu, PdfFont font, PdfFont boldFont) {
@@ -137,7 +196,7 @@ public class PdfExportService {
         Paragraph header = new Paragraph("THÔNG TIN PHIẾU NHẬP")
                 .setFont(boldFont)
                 .setFontSize(14)
-                .setBackgroundColor(new DeviceRgb(59, 130, 246))
+                .setBackgroundColor(HEADER_COLOR)
                 .setFontColor(ColorConstants.WHITE)
                 .setPadding(8)
                 .setMarginBottom(10);
@@ -153,7 +212,7 @@ public class PdfExportService {
         table.addCell(createCell(phieu.getSoChungTu() != null ? phieu.getSoChungTu() : "", font, boldFont, false));
         table.addCell(createCell("Ngày tạo:", font, boldFont, true));
         table.addCell(createCell(phieu.getNgayTao() != null ? 
-            phieu.getNgayTao().format(DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm")) : "", font, boldFont, false));
+            phieu.getNgayTao().format(DATE_TIME) : "", font, boldFont, false));
 
         // Dòng 2
         table.addCell(createCell("Người lập:", font, boldFont, true));
@@ -172,7 +231,7 @@ public class PdfExportService {
         Paragraph header = new Paragraph("THÔNG TIN NHÀ CUNG CẤP")
                 .setFont(boldFont)
                 .setFontSize(14)
-                .setBackgroundColor(new DeviceRgb(59, 130, 246))
+                .setBackgroundColor(HEADER_COLOR)
                 .setFontColor(ColorConstants.WHITE)
                 .setPadding(8)
                 .setMarginBottom(10);
@@ -203,21 +262,19 @@ public class PdfExportService {
         return section;
     }
 
-    private Div createProductDetailsTable(List<ChiTietPhieuNhapHang> details, PdfFont font, PdfFont boldFont) {
-        Div section = new Div();
-        
+    private void addProductDetailsTable(Document document, List<ChiTietPhieuNhapHang> details, PdfFont font, PdfFont boldFont) {
         // Header
         Paragraph header = new Paragraph("CHI TIẾT SẢN PHẨM NHẬP")
                 .setFont(boldFont)
                 .setFontSize(14)
-                .setBackgroundColor(new DeviceRgb(59, 130, 246))
+                .setBackgroundColor(HEADER_COLOR)
                 .setFontColor(ColorConstants.WHITE)
                 .setPadding(8)
                 .setMarginBottom(10);
-        section.add(header);
+        document.add(header);
 
-        // Bảng chi tiết
-        Table table = new Table(UnitValue.createPercentArray(new float[]{10, 30, 25, 15, 20}));
+        // Bảng chi tiết (large table, ghi dần xuống trang)
+        Table table = new Table(UnitValue.createPercentArray(new float[]{10, 30, 25, 15, 20}), true);
         table.setWidth(UnitValue.createPercentValue(100));
         table.setMarginBottom(10);
 
@@ -225,13 +282,15 @@ public class PdfExportService {
         String[] headers = {"STT", "Sản phẩm", "Biến thể", "Số lượng", "Thành tiền (VNĐ)"};
         for (String headerText : headers) {
             Cell cell = new Cell().add(new Paragraph(headerText).setFont(boldFont));
-            cell.setBackgroundColor(new DeviceRgb(59, 130, 246));
+            cell.setBackgroundColor(HEADER_COLOR);
             cell.setFontColor(ColorConstants.WHITE);
             cell.setTextAlignment(TextAlignment.CENTER);
             cell.setPadding(8);
             table.addHeaderCell(cell);
         }
 
+        document.add(table);
+
         // Dữ liệu chi tiết
         for (int i = 0; i < details.size(); i++) {
             ChiTietPhieuNhapHang detail = details.get(i);
@@ -278,10 +337,13 @@ public class PdfExportService {
             amountCell.setTextAlignment(TextAlignment.RIGHT);
             amountCell.setPadding(5);
             table.addCell(amountCell);
+
+            if ((i + 1) % TABLE_FLUSH_ROWS == 0) {
+                table.flush();
+            }
         }
 
-        section.add(table);
-        return section;
+        table.complete();
     }
 
     private Div createSummarySection(PhieuNhapHang phieu, PdfFont font, PdfFont boldFont) {
@@ -291,7 +353,7 @@ public class PdfExportService {
         Paragraph header = new Paragraph("TỔNG KẾT")
                 .setFont(boldFont)
                 .setFontSize(14)
-                .setBackgroundColor(new DeviceRgb(59, 130, 246))
+                .setBackgroundColor(HEADER_COLOR)
                 .setFontColor(ColorConstants.WHITE)
                 .setPadding(8)
                 .setMarginBottom(10);
@@ -346,7 +408,7 @@ public class PdfExportService {
         Paragraph header = new Paragraph("THÔNG TIN ĐƠN HÀNG")
                 .setFont(boldFont)
                 .setFontSize(14)
-                .setBackgroundColor(new DeviceRgb(59, 130, 246))
+                .setBackgroundColor(HEADER_COLOR)
                 .setFontColor(ColorConstants.WHITE)
                 .setPadding(8)
                 .setMarginBottom(10);
@@ -362,7 +424,7 @@ public class PdfExportService {
         table.addCell(createCell(hoaDon.getId() != null ? "#" + hoaDon.getId().toString() : "", font, boldFont, false));
         table.addCell(createCell("Ngày đặt:", font, boldFont, true));
         table.addCell(createCell(hoaDon.getNgayTao() != null ? 
-            hoaDon.getNgayTao().format(DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm")) : "", font, boldFont, false));
+            hoaDon.getNgayTao().format(DATE_TIME) : "", font, boldFont, false));
 
         // Dòng 2
         table.addCell(createCell("Trạng thái:", font, boldFont, true));
@@ -381,7 +443,7 @@ public class PdfExportService {
         Paragraph header = new Paragraph("THÔNG TIN KHÁCH HÀNG")
                 .setFont(boldFont)
                 .setFontSize(14)
-                .setBackgroundColor(new DeviceRgb(59, 130, 246))
+                .setBackgroundColor(HEADER_COLOR)
                 .setFontColor(ColorConstants.WHITE)
                 .setPadding(8)
                 .setMarginBottom(10);
@@ -412,21 +474,19 @@ public class PdfExportService {
         return section;
     }
 
-    private Div createOrderProductDetailsTable(List<ChiTietHoaDon> details, PdfFont font, PdfFont boldFont) {
-        Div section = new Div();
-        
+    private void addOrderProductDetailsTable(Document document, List<ChiTietHoaDon> details, PdfFont font, PdfFont boldFont) {
         // Header
         Paragraph header = new Paragraph("CHI TIẾT SẢN PHẨM")
                 .setFont(boldFont)
                 .setFontSize(14)
-                .setBackgroundColor(new DeviceRgb(59, 130, 246))
+                .setBackgroundColor(HEADER_COLOR)
                 .setFontColor(ColorConstants.WHITE)
                 .setPadding(8)
                 .setMarginBottom(10);
-        section.add(header);
+        document.add(header);
 
-        // Bảng chi tiết
-        Table table = new Table(UnitValue.createPercentArray(new float[]{10, 30, 25, 15, 20}));
+        // Bảng chi tiết (large table, ghi dần xuống trang)
+        Table table = new Table(UnitValue.createPercentArray(new float[]{10, 30, 25, 15, 20}), true);
         table.setWidth(UnitValue.createPercentValue(100));
         table.setMarginBottom(10);
 
@@ -434,13 +494,15 @@ public class PdfExportService {
         String[] headers = {"STT", "Sản phẩm", "Biến thể", "Số lượng", "Thành tiền (VNĐ)"};
         for (String headerText : headers) {
             Cell cell = new Cell().add(new Paragraph(headerText).setFont(boldFont));
-            cell.setBackgroundColor(new DeviceRgb(59, 130, 246));
+            cell.setBackgroundColor(HEADER_COLOR);
             cell.setFontColor(ColorConstants.WHITE);
             cell.setTextAlignment(TextAlignment.CENTER);
             cell.setPadding(8);
             table.addHeaderCell(cell);
         }
 
+        document.add(table);
+
         // Dữ liệu chi tiết
         for (int i = 0; i < details.size(); i++) {
             ChiTietHoaDon detail = details.get(i);
@@ -487,10 +549,13 @@ public class PdfExportService {
             amountCell.setTextAlignment(TextAlignment.RIGHT);
             amountCell.setPadding(5);
             table.addCell(amountCell);
+
+            if ((i + 1) % TABLE_FLUSH_ROWS == 0) {
+                table.flush();
+            }
         }
 
-        section.add(table);
-        return section;
+        table.complete();
     }
 
     private Div createOrderSummarySection(HoaDon hoaDon, PdfFont font, PdfFont boldFont) {
@@ -500,7 +565,7 @@ public class PdfExportService {
         Paragraph header = new Paragraph("TỔNG KẾT")
                 .setFont(boldFont)
                 .setFontSize(14)
-                .setBackgroundColor(new DeviceRgb(59, 130, 246))
+                .setBackgroundColor(HEADER_COLOR)
                 .setFontColor(ColorConstants.WHITE)
                 .setPadding(8)
                 .setMarginBottom(10);
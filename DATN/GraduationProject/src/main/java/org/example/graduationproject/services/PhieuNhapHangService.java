@@ -3,6 +3,7 @@ package org.example.graduationproject.services;
 import org.example.graduationproject.models.PhieuNhapHang;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -16,4 +17,8 @@ public interface PhieuNhapHangService {
     Page<PhieuNhapHang> getAllPaging(Pageable pageable);
     Page<PhieuNhapHang> searchBySoChungTuContainingIgnoreCase(String soChungTu, Pageable pageable);
     Page<PhieuNhapHang> searchByNhaCungCapTenContainingIgnoreCase(String tenNhaCungCap, Pageable pageable);
+
+    // Phân trang keyset theo (ngayTao, id) giảm dần, ngayTao / id null là trang đầu
+    List<PhieuNhapHang> findKeyset(String keyword, LocalDateTime ngayTao, Integer id, int limit);
+    long countByKeyword(String keyword);
 } 
\ No newline at end of file
@@ -2,11 +2,14 @@ package org.example.graduationproject.services;
 
 import org.example.graduationproject.dto.BulkProductVariantDTO;
 import org.example.graduationproject.dto.ProductVariantDTO;
+import org.example.graduationproject.dto.VariantKey;
 import org.example.graduationproject.models.SanPhamBienThe;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 public interface SanPhamBienTheService {
@@ -18,6 +21,9 @@ public interface SanPhamBienTheService {
     Page<SanPhamBienThe> getAllPagingWithDetails(Pageable pageable);
     
     Optional<SanPhamBienThe> getSanPhamBienTheById(Integer id);
+
+    // Lấy nhiều biến thể trong một truy vấn IN, id không tồn tại bị bỏ qua
+    Map<Integer, SanPhamBienThe> findAllByIds(Collection<Integer> ids);
     
     SanPhamBienThe saveSanPhamBienThe(SanPhamBienThe sanPhamBienThe);
     
@@ -44,10 +50,19 @@ public interface SanPhamBienTheService {
     
     // Phương thức mới để tạo biến thể hàng loạt và trả về kết quả chi tiết
     BulkProductVariantDTO.BulkCreateResult createBulkProductVariantsWithResult(BulkProductVariantDTO bulkDTO);
+
+    // Tạo biến thể hàng loạt cho nhiều sản phẩm trong một lần ghi (ra mắt bộ sưu tập theo mùa)
+    BulkProductVariantDTO.BulkCreateResult createBulkProductVariantsForProducts(List<BulkProductVariantDTO> bulkDTOs);
     
     // Phương thức để kiểm tra biến thể đã tồn tại
     boolean existsProductVariant(Integer sanPhamId, Integer mauSacId, Integer sizeId);
     
     // Phương thức mới để lấy màu sắc và size phù hợp với sản phẩm
     BulkProductVariantDTO getAvailableColorsAndSizesForProduct(Integer sanPhamId);
-} 
\ No newline at end of file
+    
+    // Tìm biến thể theo (sản phẩm, tên size, mã màu)
+    Optional<SanPhamBienThe> findVariant(Integer sanPhamId, String tenSize, String maMau);
+    
+    // Tìm nhiều biến thể trong 1 lần truy vấn, khóa không tìm thấy sẽ không có trong map
+    Map<VariantKey, SanPhamBienThe> resolveVariants(Collection<VariantKey> keys);
+}
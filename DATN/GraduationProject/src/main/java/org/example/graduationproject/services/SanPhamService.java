@@ -1,6 +1,7 @@
 package org.example.graduationproject.services;
 
 import org.example.graduationproject.models.SanPham;
+import org.example.graduationproject.dto.CursorPage;
 import org.example.graduationproject.dto.ProductDTO;
 import org.springframework.data.domain.Page;
 import org.springframework.web.multipart.MultipartFile;
@@ -37,6 +38,9 @@ public interface SanPhamService {
     
     // Các method mới để xử lý business logic
     Page<SanPham> getProductsWithFilters(String search, Integer categoryId, String gender, int page, int size);
+
+    // Phân trang keyset theo (ten, id), cursor rỗng là trang đầu; không chạy COUNT mỗi lần
+    CursorPage<SanPham> getProductsWithFiltersKeyset(String search, Integer categoryId, String gender, String cursor, int size);
     
     Optional<ProductDTO> getProductDTOById(Integer id);
     
@@ -0,0 +1,49 @@
+package org.example.graduationproject.services;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.graduationproject.utils.LoggerManager;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Định kỳ nhả hàng giữ của các đơn chờ duyệt đã quá hạn.
+ * Mỗi lô chạy trong một transaction riêng để không khóa quá nhiều dòng cùng lúc.
+ */
+@Component
+@Slf4j
+public class StockHoldSweeper {
+
+    @Autowired
+    private StockReservationService stockReservationService;
+
+    @Value("${inventory.hold.sweep-batch-size:500}")
+    private int batchSize;
+
+    // Giới hạn số lô mỗi lần quét, phần còn lại để lần sau
+    @Value("${inventory.hold.sweep-max-batches:50}")
+    private int maxBatches;
+
+    @Scheduled(fixedDelayString = "${inventory.hold.sweep-interval-ms:60000}",
+               initialDelayString = "${inventory.hold.sweep-initial-delay-ms:60000}")
+    public void sweepExpiredHolds() {
+        long start = System.currentTimeMillis();
+        int total = 0;
+        try {
+            for (int batch = 0; batch < maxBatches; batch++) {
+                int released = stockReservationService.expireHoldsBatch(batchSize);
+                total += released;
+                if (released < batchSize) {
+                    break;
+                }
+            }
+        } catch (Exception e) {
+            log.error("StockHoldSweeper: Error releasing expired holds: {}", e.getMessage(), e);
+        }
+        if (total > 0) {
+            LoggerManager.getInstance().logPerformance("STOCK_HOLD_SWEEP", System.currentTimeMillis() - start,
+                    "released=" + total);
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package org.example.graduationproject.services;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Sổ cái tồn kho: mọi thay đổi soLuongTon / soLuongDaGiu đều đi qua đây bằng câu lệnh UPDATE có điều kiện,
+ * không đọc - sửa - ghi lại entity nên không bị bán vượt tồn khi đặt / duyệt đơn đồng thời.
+ * Tham số là map variantId -> số lượng.
+ * Số lượng có thể bán = soLuongTon - soLuongDaGiu.
+ */
+public interface StockLedgerService {
+
+    /**
+     * Trừ tồn kho (trong phần có thể bán) cho tất cả các dòng hoặc không trừ dòng nào.
+     * Ném InsufficientStockException kèm danh sách dòng thiếu hàng.
+     */
+    void reserve(Map<Integer, Integer> quantities);
+
+    /**
+     * Giữ hàng cho đơn chờ duyệt: tăng soLuongDaGiu nếu còn đủ số lượng có thể bán.
+     * Ném InsufficientStockException kèm danh sách dòng thiếu hàng.
+     */
+    void hold(Map<Integer, Integer> quantities);
+
+    /**
+     * Chuyển hàng đang giữ thành đã bán: trừ cả soLuongTon và soLuongDaGiu
+     */
+    void commitHold(Map<Integer, Integer> quantities);
+
+    /**
+     * Nhả hàng đang giữ (đơn bị hủy hoặc hết hạn giữ)
+     */
+    void releaseHold(Map<Integer, Integer> quantities);
+
+    /**
+     * Hoàn lại tồn kho đã trừ (hủy đơn đã duyệt)
+     */
+    void release(Map<Integer, Integer> quantities);
+
+    /**
+     * Cộng tồn kho khi nhập hàng
+     */
+    void receive(Map<Integer, Integer> quantities);
+
+    /**
+     * Trừ lại số lượng đã nhập khi xóa phiếu nhập (không âm)
+     */
+    void reverseReceipt(Map<Integer, Integer> quantities);
+
+    /**
+     * Đặt lại tồn kho thực tế (import / kiểm kê): chỉ ghi soLuongTon, không đụng soLuongDaGiu.
+     * Không cho đặt thấp hơn số lượng đang giữ cho đơn chờ duyệt, ném InsufficientStockException
+     * kèm các dòng vi phạm và không đổi dòng nào.
+     */
+    void setOnHand(Map<Integer, Integer> quantities);
+
+    /**
+     * Số lượng có thể bán theo từng biến thể
+     */
+    Map<Integer, Integer> getAvailableToSell(Collection<Integer> variantIds);
+}
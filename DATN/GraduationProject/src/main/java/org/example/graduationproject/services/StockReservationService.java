@@ -0,0 +1,32 @@
+package org.example.graduationproject.services;
+
+import org.example.graduationproject.models.ChiTietHoaDon;
+import org.example.graduationproject.models.HoaDon;
+
+import java.util.List;
+
+/**
+ * Giữ hàng khi đặt đơn, chuyển thành đã bán khi duyệt, nhả khi hủy hoặc hết hạn
+ */
+public interface StockReservationService {
+
+    /**
+     * Giữ hàng cho tất cả các dòng của đơn mới, thiếu hàng sẽ ném InsufficientStockException
+     */
+    void holdForOrder(HoaDon hoaDon, List<ChiTietHoaDon> chiTietHoaDons);
+
+    /**
+     * Duyệt đơn: dùng hàng đang giữ, dòng nào đã hết hạn giữ thì trừ trực tiếp từ số lượng có thể bán
+     */
+    void commitForOrder(HoaDon hoaDon, List<ChiTietHoaDon> chiTietHoaDons);
+
+    /**
+     * Nhả hàng đang giữ của đơn (hủy đơn chờ duyệt)
+     */
+    void releaseForOrder(HoaDon hoaDon);
+
+    /**
+     * Nhả một lô phiếu giữ đã hết hạn, trả về số phiếu đã xử lý
+     */
+    int expireHoldsBatch(int batchSize);
+}
@@ -6,6 +6,7 @@ import org.example.graduationproject.models.UserRole;
 import org.example.graduationproject.repositories.RoleRepository;
 import org.example.graduationproject.repositories.UserRepository;
 import org.example.graduationproject.repositories.UserRoleRepository;
+import org.example.graduationproject.security.UserDetailsServiceProxy;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
@@ -27,6 +28,9 @@ public class UserRegistrationService {
     @Autowired
     private PasswordEncoder passwordEncoder;
 
+    @Autowired
+    private UserDetailsServiceProxy userDetailsServiceProxy;
+
     public RegistrationResult registerUser(String username, String email, String password) {
         if (userRepository.findByUsername(username).isPresent()) {
             return new RegistrationResult(false, "Username already exists!");
@@ -60,6 +64,9 @@ public class UserRegistrationService {
             userRoleEntity.setRole(userRole);
             userRoleRepository.save(userRoleEntity);
 
+            // Bỏ cache âm nếu username này từng được thử đăng nhập trước khi đăng ký
+            userDetailsServiceProxy.clearUserCache(username);
+
             return new RegistrationResult(true, "Registration successful! Please login.");
         } catch (Exception e) {
             return new RegistrationResult(false, "An error occurred while registering: " + e.getMessage());
@@ -0,0 +1,243 @@
+package org.example.graduationproject.services.adapters;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.graduationproject.dto.ImageOperationResult;
+import org.example.graduationproject.services.ImageService;
+import org.example.graduationproject.utils.LoggerManager;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+
+/**
+ * Phần chung của các adapter (Template Method): provider chỉ cài đặt doUpload / doDelete cho một file,
+ * lớp này lo thử lại lỗi tạm thời và chạy nhiều file song song.
+ * - Mỗi file chạy trên executor "image", số request tới provider cùng lúc không vượt
+ *   app.executors.image.max-concurrency nên 10 ảnh mất xấp xỉ thời gian của một ảnh
+ * - Lỗi tạm thời (mất kết nối, timeout, 429 / 5xx) được thử lại tối đa image.upload.max-attempts lần
+ *   với exponential backoff có jitter, lỗi khác (file hỏng, 4xx) dừng ngay
+ */
+@Slf4j
+public abstract class AbstractImageService implements ImageService {
+
+    @Autowired
+    @Qualifier("imageTaskExecutor")
+    private Executor imageTaskExecutor;
+
+    @Value("${image.upload.max-attempts:3}")
+    private int maxAttempts;
+
+    @Value("${image.upload.retry-base-ms:200}")
+    private long retryBaseMs;
+
+    @Value("${image.upload.retry-max-ms:2000}")
+    private long retryMaxMs;
+
+    // Thời gian chờ tối đa cho cả một lần thao tác nhiều file
+    @Value("${image.upload.batch-timeout-ms:120000}")
+    private long batchTimeoutMs;
+
+    /**
+     * Upload một file lên provider, trả về URL
+     */
+    protected abstract String doUpload(MultipartFile file, String folder) throws Exception;
+
+    /**
+     * Xóa một file, trả về false nếu provider không tìm thấy file
+     */
+    protected abstract boolean doDelete(String imageUrl) throws Exception;
+
+    @FunctionalInterface
+    private interface ImageCall<T> {
+        T call() throws Exception;
+    }
+
+    @Override
+    public String uploadImage(MultipartFile file, String folder) {
+        try {
+            return withRetry(() -> doUpload(file, folder), new int[1]);
+        } catch (Exception e) {
+            throw new RuntimeException("Lỗi upload file lên " + getProviderName() + ": " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public boolean deleteImage(String imageUrl) {
+        try {
+            return withRetry(() -> doDelete(imageUrl), new int[1]);
+        } catch (Exception e) {
+            log.warn("{}: Could not delete {}: {}", getProviderName(), imageUrl, e.getMessage());
+            return false;
+        }
+    }
+
+    @Override
+    public List<ImageOperationResult> uploadImages(List<MultipartFile> files, String folder) {
+        return runAll(files, MultipartFile::getOriginalFilename, file -> doUpload(file, folder), "IMAGE_UPLOAD_BATCH");
+    }
+
+    @Override
+    public List<ImageOperationResult> deleteImages(List<String> imageUrls) {
+        return runAll(imageUrls, url -> url, url -> {
+            if (!doDelete(url)) {
+                throw new IllegalStateException("Không tìm thấy ảnh");
+            }
+            return url;
+        }, "IMAGE_DELETE_BATCH");
+    }
+
+    @Override
+    public List<String> uploadMultipleImages(List<MultipartFile> files, String folder) {
+        List<ImageOperationResult> results = uploadImages(files, folder);
+        List<String> urls = new ArrayList<>(results.size());
+        List<String> errors = new ArrayList<>();
+        for (ImageOperationResult result : results) {
+            if (result.isSuccess()) {
+                urls.add(result.getUrl());
+            } else {
+                errors.add(result.getSource() + ": " + result.getError());
+            }
+        }
+        if (!errors.isEmpty()) {
+            // Không để lại ảnh mồ côi khi cả lô thất bại
+            if (!urls.isEmpty()) {
+                deleteImages(urls);
+            }
+            throw new RuntimeException("Lỗi upload " + errors.size() + "/" + files.size() + " file: " + String.join("; ", errors));
+        }
+        return urls;
+    }
+
+    @Override
+    public boolean deleteMultipleImages(List<String> imageUrls) {
+        return deleteImages(imageUrls).stream().allMatch(ImageOperationResult::isSuccess);
+    }
+
+    /**
+     * Chạy operation cho từng phần tử song song trên executor "image", giữ thứ tự kết quả
+     */
+    private <T> List<ImageOperationResult> runAll(List<T> items, Function<T, String> describe,
+                                                  ImageOperation<T> operation, String metric) {
+        long start = System.currentTimeMillis();
+        List<CompletableFuture<ImageOperationResult>> futures = new ArrayList<>(items.size());
+        for (T item : items) {
+            futures.add(CompletableFuture.supplyAsync(() -> runOne(item, describe.apply(item), operation), imageTaskExecutor));
+        }
+
+        long deadline = start + batchTimeoutMs;
+        List<ImageOperationResult> results = new ArrayList<>(items.size());
+        int failed = 0;
+        for (int i = 0; i < futures.size(); i++) {
+            ImageOperationResult result;
+            try {
+                result = futures.get(i).get(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                result = failure(describe.apply(items.get(i)), "Quá thời gian chờ", 0, start);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                result = failure(describe.apply(items.get(i)), "Bị gián đoạn", 0, start);
+            } catch (ExecutionException e) {
+                result = failure(describe.apply(items.get(i)), messageOf(e.getCause()), 0, start);
+            }
+            if (!result.isSuccess()) {
+                failed++;
+            }
+            results.add(result);
+        }
+        LoggerManager.getInstance().logPerformance(metric, System.currentTimeMillis() - start,
+                "provider=" + getProviderName() + ", items=" + items.size() + ", failed=" + failed);
+        return results;
+    }
+
+    private <T> ImageOperationResult runOne(T item, String source, ImageOperation<T> operation) {
+        long start = System.currentTimeMillis();
+        int[] attempts = new int[1];
+        try {
+            String url = withRetry(() -> operation.apply(item), attempts);
+            return ImageOperationResult.builder()
+                    .source(source)
+                    .success(true)
+                    .url(url)
+                    .attempts(attempts[0])
+                    .durationMs(System.currentTimeMillis() - start)
+                    .build();
+        } catch (Exception e) {
+            return failure(source, messageOf(e), attempts[0], start);
+        }
+    }
+
+    private <T> T withRetry(ImageCall<T> call, int[] attempts) throws Exception {
+        while (true) {
+            attempts[0]++;
+            try {
+                return call.call();
+            } catch (Exception e) {
+                if (attempts[0] >= maxAttempts || !isTransient(e)) {
+                    throw e;
+                }
+                long delay = backoffMs(attempts[0]);
+                log.debug("{}: Attempt {} failed ({}), retrying in {}ms", getProviderName(), attempts[0], e.getMessage(), delay);
+                Thread.sleep(delay);
+            }
+        }
+    }
+
+    /**
+     * Lỗi đáng thử lại: lỗi I/O trong chuỗi cause, timeout, rate limit hoặc lỗi 5xx của provider
+     */
+    protected boolean isTransient(Exception e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof IOException) {
+                return true;
+            }
+            String message = t.getMessage();
+            if (message != null) {
+                String lower = message.toLowerCase();
+                if (lower.contains("timed out") || lower.contains("timeout") || lower.contains("429")
+                        || lower.contains("status code - 5") || lower.contains("service unavailable")) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Exponential backoff có jitter: nửa cố định, nửa ngẫu nhiên để các lần thử lại không dồn cùng lúc
+     */
+    private long backoffMs(int attempt) {
+        long exp = Math.min(retryMaxMs, retryBaseMs << Math.min(attempt - 1, 20));
+        long half = exp / 2;
+        return half + ThreadLocalRandom.current().nextLong(exp - half + 1);
+    }
+
+    private ImageOperationResult failure(String source, String error, int attempts, long start) {
+        return ImageOperationResult.builder()
+                .source(source)
+                .success(false)
+                .error(error)
+                .attempts(attempts)
+                .durationMs(System.currentTimeMillis() - start)
+                .build();
+    }
+
+    private String messageOf(Throwable e) {
+        return e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+    }
+
+    @FunctionalInterface
+    private interface ImageOperation<T> {
+        String apply(T item) throws Exception;
+    }
+}
@@ -2,66 +2,58 @@ package org.example.graduationproject.services.adapters;
 
 import com.cloudinary.Cloudinary;
 import com.cloudinary.utils.ObjectUtils;
-import org.example.graduationproject.services.ImageService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
-import java.util.List;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.util.Map;
 
 /**
  * Adapter cho Cloudinary - Adaptee
- * Chuyển đổi từ ImageService interface sang Cloudinary API
+ * Chuyển đổi từ ImageService interface sang Cloudinary API.
+ * File upload được chép từ InputStream của multipart ra file tạm rồi gửi dạng File
+ * (HTTP client đọc dần từ đĩa) thay vì file.getBytes() chép cả file vào heap; file tạm giữ lại
+ * giữa các lần thử lại và bị xóa khi xong.
  */
 @Service("cloudinaryImageService")
-public class CloudinaryAdapter implements ImageService {
+public class CloudinaryAdapter extends AbstractImageService {
 
     @Autowired
     private Cloudinary cloudinary;
 
     @Override
-    public String uploadImage(MultipartFile file, String folder) {
+    protected String doUpload(MultipartFile file, String folder) throws IOException {
+        Map<String, Object> params = ObjectUtils.asMap(
+            "folder", folder,
+            "resource_type", "auto",
+            "public_id", generatePublicId(file.getOriginalFilename())
+        );
+
+        Path tempFile = Files.createTempFile("cloudinary_", ".upload");
         try {
-            Map<String, Object> params = ObjectUtils.asMap(
-                "folder", folder,
-                "resource_type", "auto",
-                "public_id", generatePublicId(file.getOriginalFilename())
-            );
-
-            Map<?, ?> result = cloudinary.uploader().upload(file.getBytes(), params);
+            try (InputStream in = file.getInputStream()) {
+                Files.copy(in, tempFile, StandardCopyOption.REPLACE_EXISTING);
+            }
+            Map<?, ?> result = cloudinary.uploader().upload(tempFile.toFile(), params);
             return (String) result.get("secure_url");
-        } catch (IOException e) {
-            throw new RuntimeException("Lỗi upload file lên Cloudinary: " + e.getMessage());
+        } finally {
+            Files.deleteIfExists(tempFile);
         }
     }
 
     @Override
-    public List<String> uploadMultipleImages(List<MultipartFile> files, String folder) {
-        return files.stream()
-            .map(file -> uploadImage(file, folder))
-            .toList();
-    }
-
-    @Override
-    public boolean deleteImage(String imageUrl) {
-        try {
-            String publicId = getPublicIdFromUrl(imageUrl);
-            if (publicId != null) {
-                Map<?, ?> result = cloudinary.uploader().destroy(publicId, ObjectUtils.emptyMap());
-                return "ok".equals(result.get("result"));
-            }
-            return false;
-        } catch (IOException e) {
+    protected boolean doDelete(String imageUrl) throws IOException {
+        String publicId = getPublicIdFromUrl(imageUrl);
+        if (publicId == null) {
             return false;
         }
-    }
-
-    @Override
-    public boolean deleteMultipleImages(List<String> imageUrls) {
-        return imageUrls.stream()
-            .allMatch(this::deleteImage);
+        Map<?, ?> result = cloudinary.uploader().destroy(publicId, ObjectUtils.emptyMap());
+        return "ok".equals(result.get("result"));
     }
 
     @Override
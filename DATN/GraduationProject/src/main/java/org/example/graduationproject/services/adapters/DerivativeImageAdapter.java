@@ -0,0 +1,113 @@
+package org.example.graduationproject.services.adapters;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.graduationproject.dto.ImageOperationResult;
+import org.example.graduationproject.services.ImageService;
+import org.example.graduationproject.services.image.ImageDerivativeCache;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Decorator quanh provider thật (Cloudinary / local): upload xong thì tạo luôn ảnh phái sinh
+ * (thumbnail / card / detail) trong ImageDerivativeCache để trang danh sách không phải tải ảnh gốc.
+ * Lỗi tạo ảnh phái sinh không làm hỏng upload, ảnh sẽ được tạo lại ở lần truy cập đầu tiên.
+ */
+@Slf4j
+public class DerivativeImageAdapter implements ImageService {
+
+    private final ImageService delegate;
+    private final ImageDerivativeCache derivativeCache;
+    private final Executor imageTaskExecutor;
+
+    public DerivativeImageAdapter(ImageService delegate, ImageDerivativeCache derivativeCache, Executor imageTaskExecutor) {
+        this.delegate = delegate;
+        this.derivativeCache = derivativeCache;
+        this.imageTaskExecutor = imageTaskExecutor;
+    }
+
+    @Override
+    public String uploadImage(MultipartFile file, String folder) {
+        String url = delegate.uploadImage(file, folder);
+        createDerivatives(file, url);
+        return url;
+    }
+
+    @Override
+    public List<String> uploadMultipleImages(List<MultipartFile> files, String folder) {
+        List<String> urls = delegate.uploadMultipleImages(files, folder);
+        createDerivatives(files, urls);
+        return urls;
+    }
+
+    @Override
+    public List<ImageOperationResult> uploadImages(List<MultipartFile> files, String folder) {
+        List<ImageOperationResult> results = delegate.uploadImages(files, folder);
+        List<MultipartFile> uploadedFiles = new ArrayList<>();
+        List<String> urls = new ArrayList<>();
+        for (int i = 0; i < results.size(); i++) {
+            if (results.get(i).isSuccess()) {
+                uploadedFiles.add(files.get(i));
+                urls.add(results.get(i).getUrl());
+            }
+        }
+        createDerivatives(uploadedFiles, urls);
+        return results;
+    }
+
+    @Override
+    public boolean deleteImage(String imageUrl) {
+        boolean deleted = delegate.deleteImage(imageUrl);
+        if (deleted) {
+            derivativeCache.removeSource(imageUrl);
+        }
+        return deleted;
+    }
+
+    @Override
+    public boolean deleteMultipleImages(List<String> imageUrls) {
+        return deleteImages(imageUrls).stream().allMatch(ImageOperationResult::isSuccess);
+    }
+
+    @Override
+    public List<ImageOperationResult> deleteImages(List<String> imageUrls) {
+        List<ImageOperationResult> results = delegate.deleteImages(imageUrls);
+        for (ImageOperationResult result : results) {
+            if (result.isSuccess()) {
+                derivativeCache.removeSource(result.getUrl());
+            }
+        }
+        return results;
+    }
+
+    @Override
+    public String getProviderName() {
+        return delegate.getProviderName();
+    }
+
+    // Resize là việc CPU, chạy song song trên executor "image" giống bước upload
+    private void createDerivatives(List<MultipartFile> files, List<String> urls) {
+        if (urls.size() == 1) {
+            createDerivatives(files.get(0), urls.get(0));
+            return;
+        }
+        List<CompletableFuture<Void>> futures = new ArrayList<>(urls.size());
+        for (int i = 0; i < urls.size(); i++) {
+            MultipartFile file = files.get(i);
+            String url = urls.get(i);
+            futures.add(CompletableFuture.runAsync(() -> createDerivatives(file, url), imageTaskExecutor));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).join();
+    }
+
+    private void createDerivatives(MultipartFile file, String url) {
+        try {
+            derivativeCache.store(file.getBytes(), url);
+        } catch (Exception e) {
+            log.warn("DerivativeImageAdapter: Could not create derivatives for {}: {}", url, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package org.example.graduationproject.services.adapters;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Adapter lưu ảnh trên ổ đĩa (image.local.dir), URL trả về dạng {image.local.base-url}/{folder}/{file}.
+ * Dùng khi chạy không có Cloudinary và để thử pipeline upload không cần mạng:
+ * image.local.simulated-latency-ms giả lập độ trễ mỗi request, image.local.failure-rate giả lập lỗi tạm thời.
+ */
+@Service("localImageService")
+public class LocalFileSystemAdapter extends AbstractImageService {
+
+    @Value("${image.local.dir:data/images}")
+    private String storageDir;
+
+    @Value("${image.local.base-url:/api/images/files}")
+    private String baseUrl;
+
+    @Value("${image.local.simulated-latency-ms:0}")
+    private long simulatedLatencyMs;
+
+    @Value("${image.local.failure-rate:0}")
+    private double failureRate;
+
+    private Path root;
+
+    @PostConstruct
+    public void init() throws IOException {
+        root = Paths.get(storageDir).toAbsolutePath().normalize();
+        Files.createDirectories(root);
+    }
+
+    @Override
+    protected String doUpload(MultipartFile file, String folder) throws Exception {
+        simulateNetwork();
+        String relative = sanitizeFolder(folder) + "/" + generateFileName(file.getOriginalFilename());
+        Path target = resolve(relative);
+        Files.createDirectories(target.getParent());
+        try (InputStream in = file.getInputStream()) {
+            Files.copy(in, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+        return baseUrl + "/" + relative;
+    }
+
+    @Override
+    protected boolean doDelete(String imageUrl) throws Exception {
+        if (imageUrl == null || !imageUrl.startsWith(baseUrl + "/")) {
+            return false;
+        }
+        simulateNetwork();
+        return Files.deleteIfExists(resolve(imageUrl.substring(baseUrl.length() + 1)));
+    }
+
+    @Override
+    public String getProviderName() {
+        return "LocalFileSystem";
+    }
+
+    /**
+     * Đường dẫn thật của ảnh theo phần sau base-url, không cho thoát ra ngoài thư mục gốc
+     */
+    public Path resolve(String relativePath) {
+        Path path = root.resolve(relativePath).normalize();
+        if (!path.startsWith(root)) {
+            throw new IllegalArgumentException("Đường dẫn ảnh không hợp lệ");
+        }
+        return path;
+    }
+
+    private void simulateNetwork() throws IOException, InterruptedException {
+        if (simulatedLatencyMs > 0) {
+            Thread.sleep(simulatedLatencyMs);
+        }
+        if (failureRate > 0 && ThreadLocalRandom.current().nextDouble() < failureRate) {
+            throw new IOException("Simulated transient failure");
+        }
+    }
+
+    private String sanitizeFolder(String folder) {
+        String cleaned = folder == null ? "" : folder.replace('\\', '/').replaceAll("\\.\\.", "").replaceAll("^/+|/+$", "");
+        return cleaned.isEmpty() ? "images" : cleaned;
+    }
+
+    private String generateFileName(String originalFilename) {
+        String extension = "";
+        String name = "file";
+        if (originalFilename != null && !originalFilename.isEmpty()) {
+            String baseName = Paths.get(originalFilename).getFileName().toString();
+            int lastDotIndex = baseName.lastIndexOf('.');
+            name = lastDotIndex > 0 ? baseName.substring(0, lastDotIndex) : baseName;
+            extension = lastDotIndex > 0 ? baseName.substring(lastDotIndex).toLowerCase() : "";
+        }
+        name = name.replaceAll("[^A-Za-z0-9_-]", "_");
+        return name + "_" + UUID.randomUUID().toString().substring(0, 8) + extension;
+    }
+}
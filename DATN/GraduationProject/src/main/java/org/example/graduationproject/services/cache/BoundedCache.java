@@ -0,0 +1,180 @@
+package org.example.graduationproject.services.cache;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Cache đọc xuyên (read-through) có giới hạn số phần tử, loại bỏ theo LRU và hết hạn theo TTL.
+ * Loader chạy ngoài khóa; hai luồng cùng miss một key có thể cùng nạp, kết quả sau ghi đè kết quả trước.
+ * Giá trị null chỉ được cache khi bật negativeTtlMs (cache âm, TTL riêng, thường ngắn hơn).
+ * Bật refreshAheadMs thì phần tử sắp hết hạn vẫn được trả ngay và được nạp lại nền trên refreshExecutor.
+ */
+public class BoundedCache<K, V> {
+
+    private final String name;
+    private final int maxEntries;
+    private final long ttlMs;
+    private final long negativeTtlMs;
+    private final long refreshAheadMs;
+    private final Executor refreshExecutor;
+    private final LinkedHashMap<K, Entry<V>> entries;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder negativeHits = new LongAdder();
+    private final LongAdder refreshes = new LongAdder();
+
+    // Tăng mỗi lần invalidate để bỏ kết quả của loader đã bắt đầu trước đó
+    private long generation;
+
+    public BoundedCache(String name, int maxEntries, long ttlMs) {
+        this(name, maxEntries, ttlMs, 0, 0, null);
+    }
+
+    public BoundedCache(String name, int maxEntries, long ttlMs, long negativeTtlMs,
+                        long refreshAheadMs, Executor refreshExecutor) {
+        this.name = name;
+        this.maxEntries = maxEntries;
+        this.ttlMs = ttlMs;
+        this.negativeTtlMs = negativeTtlMs;
+        this.refreshAheadMs = refreshExecutor != null ? refreshAheadMs : 0;
+        this.refreshExecutor = refreshExecutor;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    public V get(K key, Function<K, V> loader) {
+        long startGeneration;
+        boolean refresh = false;
+        V cached = null;
+        synchronized (this) {
+            long now = System.currentTimeMillis();
+            Entry<V> entry = entries.get(key);
+            if (entry != null && entry.expiresAt > now) {
+                hits.increment();
+                if (entry.value == null) {
+                    negativeHits.increment();
+                    return null;
+                }
+                if (refreshAheadMs <= 0 || entry.refreshing || entry.expiresAt - now > refreshAheadMs) {
+                    return entry.value;
+                }
+                // Sắp hết hạn: trả giá trị hiện tại, một luồng nền nạp lại
+                entry.refreshing = true;
+                refresh = true;
+                cached = entry.value;
+            } else if (entry != null) {
+                entries.remove(key);
+            }
+            if (!refresh) {
+                misses.increment();
+            }
+            startGeneration = generation;
+        }
+
+        if (refresh) {
+            scheduleRefresh(key, loader, startGeneration);
+            return cached;
+        }
+
+        V value = loader.apply(key);
+        store(key, value, startGeneration);
+        return value;
+    }
+
+    public synchronized void invalidate(K key) {
+        generation++;
+        entries.remove(key);
+    }
+
+    public synchronized void invalidateAll() {
+        generation++;
+        entries.clear();
+    }
+
+    private void scheduleRefresh(K key, Function<K, V> loader, long startGeneration) {
+        try {
+            refreshExecutor.execute(() -> {
+                try {
+                    store(key, loader.apply(key), startGeneration);
+                    refreshes.increment();
+                } catch (RuntimeException e) {
+                    // Giữ giá trị cũ đến khi hết hạn, lần đọc sau sẽ thử lại
+                    clearRefreshing(key);
+                }
+            });
+        } catch (RuntimeException e) {
+            clearRefreshing(key);
+        }
+    }
+
+    private synchronized void store(K key, V value, long startGeneration) {
+        if (startGeneration != generation) {
+            return;
+        }
+        if (value == null) {
+            if (negativeTtlMs <= 0) {
+                entries.remove(key);
+                return;
+            }
+            entries.put(key, new Entry<>(null, System.currentTimeMillis() + negativeTtlMs));
+        } else {
+            entries.put(key, new Entry<>(value, System.currentTimeMillis() + ttlMs));
+        }
+        evictOverflow();
+    }
+
+    private synchronized void clearRefreshing(K key) {
+        Entry<V> entry = entries.get(key);
+        if (entry != null) {
+            entry.refreshing = false;
+        }
+    }
+
+    public Map<String, Object> stats() {
+        long hitCount = hits.sum();
+        long missCount = misses.sum();
+        long total = hitCount + missCount;
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("name", name);
+        synchronized (this) {
+            stats.put("size", entries.size());
+        }
+        stats.put("maxEntries", maxEntries);
+        stats.put("hits", hitCount);
+        stats.put("misses", missCount);
+        stats.put("evictions", evictions.sum());
+        if (negativeTtlMs > 0) {
+            stats.put("negativeHits", negativeHits.sum());
+        }
+        if (refreshAheadMs > 0) {
+            stats.put("refreshes", refreshes.sum());
+        }
+        stats.put("hitRate", total > 0 ? (double) hitCount / total : 0.0);
+        return stats;
+    }
+
+    private void evictOverflow() {
+        Iterator<Map.Entry<K, Entry<V>>> iterator = entries.entrySet().iterator();
+        while (entries.size() > maxEntries && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+            evictions.increment();
+        }
+    }
+
+    private static final class Entry<V> {
+        private final V value;
+        private final long expiresAt;
+        private boolean refreshing;
+
+        private Entry(V value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package org.example.graduationproject.services.cache;
+
+import org.example.graduationproject.models.Loai;
+import org.example.graduationproject.models.MauSac;
+import org.example.graduationproject.models.NhaCungCap;
+import org.example.graduationproject.models.NhanHieu;
+import org.example.graduationproject.models.Size;
+import org.example.graduationproject.repositories.LoaiRepository;
+import org.example.graduationproject.repositories.MauSacRepository;
+import org.example.graduationproject.repositories.NhaCungCapRepository;
+import org.example.graduationproject.repositories.NhanHieuRepository;
+import org.example.graduationproject.repositories.SizeRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Cache chỉ đọc cho dữ liệu danh mục (loại, nhãn hiệu, nhà cung cấp, màu, size).
+ * Các bảng này đổi vài lần mỗi ngày nhưng được đọc liên tục khi mở form / lưu sản phẩm.
+ * Service của từng bảng gọi invalidate sau khi thêm / sửa / xóa; TTL chỉ là lưới an toàn
+ * cho thay đổi ngoài ứng dụng. Entity trả về là bản detached dùng chung, không được sửa trực tiếp.
+ */
+@Component
+public class ReferenceDataCache {
+
+    private static final String ALL = "all";
+
+    @Autowired
+    private LoaiRepository loaiRepository;
+
+    @Autowired
+    private NhanHieuRepository nhanHieuRepository;
+
+    @Autowired
+    private NhaCungCapRepository nhaCungCapRepository;
+
+    @Autowired
+    private MauSacRepository mauSacRepository;
+
+    @Autowired
+    private SizeRepository sizeRepository;
+
+    @Value("${app.reference-cache.max-entries:1000}")
+    private int maxEntries;
+
+    @Value("${app.reference-cache.ttl-ms:600000}")
+    private long ttlMs;
+
+    private Table<Loai> loais;
+    private Table<NhanHieu> nhanHieus;
+    private Table<NhaCungCap> nhaCungCaps;
+    private Table<MauSac> mauSacs;
+    private Table<Size> sizes;
+
+    @PostConstruct
+    void init() {
+        loais = new Table<>("loai");
+        nhanHieus = new Table<>("nhanHieu");
+        nhaCungCaps = new Table<>("nhaCungCap");
+        mauSacs = new Table<>("mauSac");
+        sizes = new Table<>("size");
+    }
+
+    // ===== Loai =====
+
+    public List<Loai> getAllLoai() {
+        return loais.list(ALL, key -> loaiRepository.findAll());
+    }
+
+    public Optional<Loai> getLoai(Integer id) {
+        return loais.byId(id, key -> loaiRepository.findById(key).orElse(null));
+    }
+
+    public void invalidateLoai() {
+        // Màu và size giữ tham chiếu tới loại nên cũng phải nạp lại
+        loais.invalidateAll();
+        mauSacs.invalidateAll();
+        sizes.invalidateAll();
+    }
+
+    // ===== NhanHieu =====
+
+    public List<NhanHieu> getAllNhanHieu() {
+        return nhanHieus.list(ALL, key -> nhanHieuRepository.findAll());
+    }
+
+    public Optional<NhanHieu> getNhanHieu(Integer id) {
+        return nhanHieus.byId(id, key -> nhanHieuRepository.findById(key).orElse(null));
+    }
+
+    public void invalidateNhanHieu() {
+        nhanHieus.invalidateAll();
+    }
+
+    // ===== NhaCungCap =====
+
+    public List<NhaCungCap> getAllNhaCungCap() {
+        return nhaCungCaps.list(ALL, key -> nhaCungCapRepository.findAll());
+    }
+
+    public Optional<NhaCungCap> getNhaCungCap(Integer id) {
+        return nhaCungCaps.byId(id, key -> nhaCungCapRepository.findById(key).orElse(null));
+    }
+
+    public void invalidateNhaCungCap() {
+        nhaCungCaps.invalidateAll();
+    }
+
+    // ===== MauSac =====
+
+    public List<MauSac> getAllMauSac() {
+        return mauSacs.list(ALL, key -> mauSacRepository.findAllWithCategory());
+    }
+
+    public List<MauSac> getMauSacByLoai(Integer loaiId) {
+        return mauSacs.list("loai:" + loaiId, key -> mauSacRepository.findByLoaiId(loaiId));
+    }
+
+    public Optional<MauSac> getMauSac(Integer id) {
+        return mauSacs.byId(id, key -> mauSacRepository.findById(key).orElse(null));
+    }
+
+    public void invalidateMauSac() {
+        mauSacs.invalidateAll();
+    }
+
+    // ===== Size =====
+
+    public List<Size> getAllSize() {
+        return sizes.list(ALL, key -> sizeRepository.findAllWithCategory());
+    }
+
+    public List<Size> getSizeByLoai(Integer loaiId) {
+        return sizes.list("loai:" + loaiId, key -> sizeRepository.findByLoaiId(loaiId));
+    }
+
+    public Optional<Size> getSize(Integer id) {
+        return sizes.byId(id, key -> sizeRepository.findById(key).orElse(null));
+    }
+
+    public void invalidateSize() {
+        sizes.invalidateAll();
+    }
+
+    /**
+     * Số hit / miss / eviction và tỷ lệ hit của từng cache
+     */
+    public List<Map<String, Object>> getStats() {
+        List<Map<String, Object>> stats = new ArrayList<>();
+        for (Table<?> table : List.of(loais, nhanHieus, nhaCungCaps, mauSacs, sizes)) {
+            stats.add(table.byId.stats());
+            stats.add(table.lists.stats());
+        }
+        return stats;
+    }
+
+    /**
+     * Cache theo id và cache danh sách của một bảng
+     */
+    private final class Table<T> {
+        private final BoundedCache<Integer, T> byId;
+        private final BoundedCache<String, List<T>> lists;
+
+        private Table(String name) {
+            this.byId = new BoundedCache<>(name + ".byId", maxEntries, ttlMs);
+            this.lists = new BoundedCache<>(name + ".lists", Math.max(16, maxEntries / 10), ttlMs);
+        }
+
+        Optional<T> byId(Integer id, Function<Integer, T> loader) {
+            if (id == null) {
+                return Optional.empty();
+            }
+            return Optional.ofNullable(byId.get(id, loader));
+        }
+
+        List<T> list(String key, Function<String, List<T>> loader) {
+            return lists.get(key, k -> Collections.unmodifiableList(new ArrayList<>(loader.apply(k))));
+        }
+
+        void invalidateAll() {
+            byId.invalidateAll();
+            lists.invalidateAll();
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package org.example.graduationproject.services.cart;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Kết quả ghi một giỏ hàng: id giỏ, id các dòng theo biến thể,
+ * closed = true khi giỏ trong database không còn active (đã đặt hàng / bị hủy),
+ * droppedVariantIds là các dòng không được ghi vì biến thể đã bị xóa
+ */
+@Getter
+@AllArgsConstructor
+public class CartFlushResult {
+
+    private final Integer cartId;
+    private final Map<Integer, Integer> lineIds;
+    private final boolean closed;
+    private final Set<Integer> droppedVariantIds;
+
+    public CartFlushResult(Integer cartId, Map<Integer, Integer> lineIds, boolean closed) {
+        this(cartId, lineIds, closed, Set.of());
+    }
+}
@@ -0,0 +1,191 @@
+package org.example.graduationproject.services.cart;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Nhật ký append-only cho các thay đổi giỏ hàng chưa ghi xuống database.
+ * Mỗi bản ghi lưu giá trị cuối cùng của dòng (không phải delta) nên phát lại nhiều lần vẫn cho cùng kết quả:
+ *   SET|userId|variantId|soLuong|giaBan
+ *   DEL|userId|variantId
+ *   CLR|userId
+ * Trước mỗi lần ghi gộp, file hiện tại được đổi tên thành *.flushing; ghi thành công thì xóa,
+ * thất bại thì giữ lại và gộp với lần sau. Khi khởi động phát lại *.flushing rồi đến file hiện tại.
+ */
+@Component
+@Slf4j
+public class CartJournal {
+
+    static final String SET = "SET";
+    static final String DEL = "DEL";
+    static final String CLR = "CLR";
+
+    @Value("${cart.journal.path:data/cart-journal.log}")
+    private String journalPath;
+
+    // Tắt fsync thì nhanh hơn nhưng có thể mất vài thay đổi cuối khi máy sập
+    @Value("${cart.journal.fsync:true}")
+    private boolean fsync;
+
+    private Path activePath;
+    private Path flushingPath;
+    private FileChannel channel;
+
+    @PostConstruct
+    public void open() throws IOException {
+        activePath = Paths.get(journalPath).toAbsolutePath();
+        flushingPath = activePath.resolveSibling(activePath.getFileName() + ".flushing");
+        if (activePath.getParent() != null) {
+            Files.createDirectories(activePath.getParent());
+        }
+        channel = openChannel();
+    }
+
+    @PreDestroy
+    public synchronized void close() {
+        try {
+            if (channel != null) {
+                channel.close();
+            }
+        } catch (IOException e) {
+            log.warn("CartJournal: Error closing journal: {}", e.getMessage());
+        }
+    }
+
+    public void appendSet(Long userId, Integer variantId, int soLuong, BigDecimal giaBan) throws IOException {
+        append(SET + "|" + userId + "|" + variantId + "|" + soLuong + "|" + (giaBan != null ? giaBan.toPlainString() : ""));
+    }
+
+    public void appendDelete(Long userId, Integer variantId) throws IOException {
+        append(DEL + "|" + userId + "|" + variantId);
+    }
+
+    public void appendClear(Long userId) throws IOException {
+        append(CLR + "|" + userId);
+    }
+
+    private synchronized void append(String record) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap((record + "\n").getBytes(StandardCharsets.UTF_8));
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        if (fsync) {
+            channel.force(false);
+        }
+    }
+
+    /**
+     * Chuyển các bản ghi hiện có sang file *.flushing và mở file mới cho các thay đổi tiếp theo
+     */
+    synchronized void rotate() throws IOException {
+        channel.force(false);
+        channel.close();
+        try {
+            if (Files.exists(flushingPath)) {
+                // Lần ghi trước thất bại: nối tiếp vào file đang chờ để giữ đúng thứ tự
+                try (FileChannel target = FileChannel.open(flushingPath, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+                     FileChannel source = FileChannel.open(activePath, StandardOpenOption.READ)) {
+                    long position = 0;
+                    long size = source.size();
+                    while (position < size) {
+                        position += source.transferTo(position, size - position, target);
+                    }
+                    target.force(false);
+                }
+                Files.delete(activePath);
+            } else {
+                Files.move(activePath, flushingPath, StandardCopyOption.ATOMIC_MOVE);
+            }
+        } finally {
+            channel = openChannel();
+        }
+    }
+
+    /**
+     * Các bản ghi trong *.flushing đã nằm trong database, xóa đi
+     */
+    synchronized void discardFlushed() {
+        try {
+            Files.deleteIfExists(flushingPath);
+        } catch (IOException e) {
+            log.warn("CartJournal: Error deleting flushed journal: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Đọc toàn bộ bản ghi chưa ghi xuống database theo đúng thứ tự
+     */
+    synchronized List<String[]> readPending() throws IOException {
+        List<String[]> records = new ArrayList<>();
+        readInto(flushingPath, records);
+        readInto(activePath, records);
+        return records;
+    }
+
+    private void readInto(Path path, List<String[]> records) throws IOException {
+        if (!Files.exists(path)) {
+            return;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) continue;
+                String[] parts = line.split("\\|", -1);
+                if (isValid(parts)) {
+                    records.add(parts);
+                } else {
+                    // Dòng cuối bị cắt ngang khi máy sập
+                    log.warn("CartJournal: Skipping malformed record in {}: {}", path.getFileName(), line);
+                }
+            }
+        }
+    }
+
+    private boolean isValid(String[] parts) {
+        try {
+            switch (parts[0]) {
+                case SET:
+                    if (parts.length != 5) return false;
+                    Long.parseLong(parts[1]);
+                    Integer.parseInt(parts[2]);
+                    Integer.parseInt(parts[3]);
+                    if (!parts[4].isEmpty()) new BigDecimal(parts[4]);
+                    return true;
+                case DEL:
+                    if (parts.length != 3) return false;
+                    Long.parseLong(parts[1]);
+                    Integer.parseInt(parts[2]);
+                    return true;
+                case CLR:
+                    if (parts.length != 2) return false;
+                    Long.parseLong(parts[1]);
+                    return true;
+                default:
+                    return false;
+            }
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    private FileChannel openChannel() throws IOException {
+        return FileChannel.open(activePath, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+}
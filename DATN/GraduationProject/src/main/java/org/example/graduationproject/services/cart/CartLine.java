@@ -0,0 +1,40 @@
+package org.example.graduationproject.services.cart;
+
+import org.example.graduationproject.models.SanPhamBienThe;
+
+import java.math.BigDecimal;
+
+/**
+ * Một dòng giỏ hàng trong bộ nhớ, khóa theo biến thể.
+ * dbId là id ChiTietGioHang, null khi dòng chưa được ghi xuống database.
+ */
+final class CartLine {
+
+    final Integer variantId;
+    Integer dbId;
+    SanPhamBienThe variant;
+    int soLuong;
+    BigDecimal giaBan;
+
+    CartLine(Integer variantId, SanPhamBienThe variant, int soLuong, BigDecimal giaBan) {
+        this.variantId = variantId;
+        this.variant = variant;
+        this.soLuong = soLuong;
+        this.giaBan = giaBan;
+    }
+
+    /**
+     * Id trả ra cho client: id database nếu đã ghi, ngược lại là -variantId
+     */
+    Integer itemId() {
+        return dbId != null ? dbId : -variantId;
+    }
+
+    boolean matches(Integer itemId) {
+        return itemId != null && (itemId.equals(dbId) || itemId.equals(-variantId));
+    }
+
+    BigDecimal thanhTien() {
+        return giaBan != null ? giaBan.multiply(BigDecimal.valueOf(soLuong)) : BigDecimal.ZERO;
+    }
+}
@@ -0,0 +1,167 @@
+package org.example.graduationproject.services.cart;
+
+import org.example.graduationproject.models.ChiTietGioHang;
+import org.example.graduationproject.models.GioHang;
+import org.example.graduationproject.repositories.ChiTietGioHangRepository;
+import org.example.graduationproject.repositories.GioHangRepository;
+import org.example.graduationproject.repositories.SanPhamBienTheRepository;
+import org.example.graduationproject.repositories.UserRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Ghi một lô giỏ hàng từ bộ nhớ xuống GioHang / ChiTietGioHang.
+ * Trạng thái trong bộ nhớ là chuẩn: so sánh với các dòng hiện có rồi chỉ insert / update / delete phần khác biệt.
+ * Dòng của biến thể đã bị xóa được bỏ qua (như khi phát lại nhật ký), để một dòng hỏng không làm lỗi cả lô mãi mãi.
+ * Chạy trong transaction riêng để giỏ hàng đã ghi không bị rollback theo transaction của đơn hàng.
+ */
+@Component
+public class CartPersister {
+
+    @Autowired
+    private GioHangRepository gioHangRepository;
+
+    @Autowired
+    private ChiTietGioHangRepository chiTietGioHangRepository;
+
+    @Autowired
+    private SanPhamBienTheRepository sanPhamBienTheRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public Map<Long, CartFlushResult> persist(List<CartSnapshot> snapshots) {
+        Map<Long, CartFlushResult> results = new HashMap<>();
+        if (snapshots.isEmpty()) {
+            return results;
+        }
+
+        // Nạp tất cả giỏ đã có trong một truy vấn
+        List<Integer> cartIds = new ArrayList<>();
+        for (CartSnapshot snapshot : snapshots) {
+            if (snapshot.getCartId() != null) {
+                cartIds.add(snapshot.getCartId());
+            }
+        }
+        Map<Integer, GioHang> existingCarts = new HashMap<>();
+        if (!cartIds.isEmpty()) {
+            for (GioHang cart : gioHangRepository.findAllWithItemsByIdIn(cartIds)) {
+                existingCarts.put(cart.getId(), cart);
+            }
+        }
+
+        // Biến thể còn tồn tại, kiểm tra một lần cho cả lô
+        Set<Integer> variantIds = new HashSet<>();
+        for (CartSnapshot snapshot : snapshots) {
+            for (CartSnapshot.Line line : snapshot.getLines()) {
+                variantIds.add(line.getVariantId());
+            }
+        }
+        Set<Integer> existingVariants = variantIds.isEmpty()
+                ? Set.of() : new HashSet<>(sanPhamBienTheRepository.findExistingIds(variantIds));
+
+        Map<Long, List<ChiTietGioHang>> linesByUser = new HashMap<>();
+        Map<Long, GioHang> cartsByUser = new HashMap<>();
+        Map<Long, Set<Integer>> droppedByUser = new HashMap<>();
+        List<ChiTietGioHang> toInsert = new ArrayList<>();
+        List<ChiTietGioHang> toDelete = new ArrayList<>();
+
+        for (CartSnapshot snapshot : snapshots) {
+            GioHang cart;
+            if (snapshot.getCartId() != null) {
+                cart = existingCarts.get(snapshot.getCartId());
+                if (cart == null || !"active".equals(cart.getTrangThai())) {
+                    results.put(snapshot.getUserId(), new CartFlushResult(snapshot.getCartId(), Map.of(), true));
+                    continue;
+                }
+            } else {
+                cart = new GioHang();
+                cart.setUser(userRepository.getReferenceById(snapshot.getUserId()));
+                cart.setTrangThai("active");
+                cart.setNgayTao(snapshot.getNgayTao());
+                cart.setChiTietGioHangs(new ArrayList<>());
+                cart = gioHangRepository.save(cart);
+            }
+            cart.setNgayCapNhat(snapshot.getNgayCapNhat());
+            if (cart.getChiTietGioHangs() == null) {
+                cart.setChiTietGioHangs(new ArrayList<>());
+            }
+
+            // Dòng hiện có theo biến thể, dòng trùng biến thể thì xóa bớt
+            Map<Integer, ChiTietGioHang> existingLines = new HashMap<>();
+            for (ChiTietGioHang item : cart.getChiTietGioHangs()) {
+                Integer variantId = item.getSanPhamBienThe() != null ? item.getSanPhamBienThe().getId() : null;
+                if (variantId == null || existingLines.putIfAbsent(variantId, item) != null) {
+                    toDelete.add(item);
+                }
+            }
+
+            List<ChiTietGioHang> cartLines = new ArrayList<>();
+            Set<Integer> dropped = new HashSet<>();
+            for (CartSnapshot.Line line : snapshot.getLines()) {
+                if (!existingVariants.contains(line.getVariantId())) {
+                    // Biến thể đã bị xóa: không ghi, dòng cũ (nếu có) bị xóa cùng các dòng thừa
+                    dropped.add(line.getVariantId());
+                    continue;
+                }
+                BigDecimal thanhTien = line.getGiaBan() != null
+                        ? line.getGiaBan().multiply(BigDecimal.valueOf(line.getSoLuong()))
+                        : BigDecimal.ZERO;
+                ChiTietGioHang item = existingLines.remove(line.getVariantId());
+                if (item == null) {
+                    item = new ChiTietGioHang();
+                    item.setGioHang(cart);
+                    item.setSanPhamBienThe(sanPhamBienTheRepository.getReferenceById(line.getVariantId()));
+                    item.setSoLuong(line.getSoLuong());
+                    item.setGiaBan(line.getGiaBan());
+                    item.setThanhTien(thanhTien);
+                    cart.getChiTietGioHangs().add(item);
+                    toInsert.add(item);
+                } else if (!Objects.equals(item.getSoLuong(), line.getSoLuong())
+                        || !Objects.equals(item.getGiaBan(), line.getGiaBan())) {
+                    // Chỉ đánh dấu thay đổi, Hibernate gộp các UPDATE khi commit
+                    item.setSoLuong(line.getSoLuong());
+                    item.setGiaBan(line.getGiaBan());
+                    item.setThanhTien(thanhTien);
+                }
+                cartLines.add(item);
+            }
+            toDelete.addAll(existingLines.values());
+            cart.getChiTietGioHangs().removeAll(toDelete);
+
+            linesByUser.put(snapshot.getUserId(), cartLines);
+            cartsByUser.put(snapshot.getUserId(), cart);
+            droppedByUser.put(snapshot.getUserId(), dropped);
+        }
+
+        if (!toDelete.isEmpty()) {
+            chiTietGioHangRepository.deleteAll(toDelete);
+        }
+        if (!toInsert.isEmpty()) {
+            chiTietGioHangRepository.saveAll(toInsert);
+        }
+        gioHangRepository.flush();
+
+        for (Map.Entry<Long, GioHang> entry : cartsByUser.entrySet()) {
+            Map<Integer, Integer> lineIds = new HashMap<>();
+            for (ChiTietGioHang item : linesByUser.get(entry.getKey())) {
+                lineIds.put(item.getSanPhamBienThe().getId(), item.getId());
+            }
+            results.put(entry.getKey(), new CartFlushResult(entry.getValue().getId(), lineIds, false,
+                    droppedByUser.get(entry.getKey())));
+        }
+        return results;
+    }
+}
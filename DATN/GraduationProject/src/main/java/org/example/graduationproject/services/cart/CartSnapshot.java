@@ -0,0 +1,31 @@
+package org.example.graduationproject.services.cart;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Bản chụp của một giỏ hàng tại thời điểm ghi xuống database
+ */
+@Getter
+@AllArgsConstructor
+public class CartSnapshot {
+
+    private final Long userId;
+    private final Integer cartId;
+    private final long version;
+    private final LocalDateTime ngayTao;
+    private final LocalDateTime ngayCapNhat;
+    private final List<Line> lines;
+
+    @Getter
+    @AllArgsConstructor
+    public static class Line {
+        private final Integer variantId;
+        private final int soLuong;
+        private final BigDecimal giaBan;
+    }
+}
@@ -0,0 +1,66 @@
+package org.example.graduationproject.services.cart;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Giỏ hàng active của một user trong bộ nhớ.
+ * Mọi truy cập đều phải giữ khóa trên chính đối tượng này.
+ */
+final class CartState {
+
+    final Long userId;
+    Integer cartId;
+    LocalDateTime ngayTao;
+    LocalDateTime ngayCapNhat;
+    final Map<Integer, CartLine> lines = new LinkedHashMap<>();
+
+    // version tăng sau mỗi thay đổi, flushedVersion là version đã ghi xuống database
+    long version;
+    long flushedVersion;
+
+    // Đã bị đẩy khỏi store, thao tác đang chờ khóa phải lấy lại state mới
+    boolean evicted;
+
+    volatile long lastAccess = System.currentTimeMillis();
+
+    CartState(Long userId) {
+        this.userId = userId;
+    }
+
+    boolean isDirty() {
+        return version != flushedVersion;
+    }
+
+    void markChanged() {
+        version++;
+        ngayCapNhat = LocalDateTime.now();
+    }
+
+    void touch() {
+        lastAccess = System.currentTimeMillis();
+    }
+
+    CartLine findByItemId(Integer itemId) {
+        for (CartLine line : lines.values()) {
+            if (line.matches(itemId)) {
+                return line;
+            }
+        }
+        return null;
+    }
+
+    CartSnapshot snapshot() {
+        List<CartSnapshot.Line> snapshotLines = new ArrayList<>(lines.size());
+        for (CartLine line : lines.values()) {
+            snapshotLines.add(new CartSnapshot.Line(line.variantId, line.soLuong, line.giaBan));
+        }
+        return new CartSnapshot(userId, cartId, version,
+                ngayTao != null ? ngayTao : LocalDateTime.now(),
+                ngayCapNhat != null ? ngayCapNhat : LocalDateTime.now(),
+                snapshotLines);
+    }
+}
@@ -0,0 +1,563 @@
+package org.example.graduationproject.services.cart;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.example.graduationproject.models.ChiTietGioHang;
+import org.example.graduationproject.models.GioHang;
+import org.example.graduationproject.models.SanPhamBienThe;
+import org.example.graduationproject.models.User;
+import org.example.graduationproject.repositories.GioHangRepository;
+import org.example.graduationproject.repositories.SanPhamBienTheRepository;
+import org.example.graduationproject.utils.LoggerManager;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Giỏ hàng active giữ trong bộ nhớ theo user id, thay đổi được áp dụng tại chỗ (write-behind).
+ * Mỗi thay đổi được ghi vào CartJournal (fsync) trước khi trả kết quả, sau đó được gộp và ghi xuống
+ * GioHang / ChiTietGioHang theo lô mỗi cart.flush-interval-ms, khi thanh toán và khi tắt ứng dụng.
+ * Store giới hạn cart.store.max-carts giỏ; giỏ đã ghi xong và lâu không dùng sẽ bị đẩy ra, lần sau nạp lại từ database.
+ * Thiết kế cho một instance ứng dụng: nhiều instance dùng chung database sẽ ghi đè giỏ của nhau.
+ */
+@Component
+@Slf4j
+public class CartStore implements SmartInitializingSingleton {
+
+    @Autowired
+    private CartJournal cartJournal;
+
+    @Autowired
+    private CartPersister cartPersister;
+
+    @Autowired
+    private GioHangRepository gioHangRepository;
+
+    @Autowired
+    private SanPhamBienTheRepository sanPhamBienTheRepository;
+
+    @Value("${cart.store.max-carts:10000}")
+    private int maxCarts;
+
+    // Giỏ đã ghi xong, không truy cập quá thời gian này sẽ bị đẩy khỏi bộ nhớ
+    @Value("${cart.store.idle-ms:1800000}")
+    private long idleMillis;
+
+    @Value("${cart.flush-batch-size:200}")
+    private int flushBatchSize;
+
+    private final ConcurrentHashMap<Long, CartState> carts = new ConcurrentHashMap<>();
+
+    // Chỉ một lần ghi tại một thời điểm, tránh hai transaction cùng tạo giỏ / dòng cho một user
+    private final Object flushLock = new Object();
+
+    @FunctionalInterface
+    private interface CartMutation {
+        boolean apply(CartState state) throws IOException;
+    }
+
+    /**
+     * Phát lại nhật ký trước khi web server nhận request, rồi ghi xuống database
+     */
+    @Override
+    public void afterSingletonsInstantiated() {
+        try {
+            recover();
+        } catch (Exception e) {
+            log.error("CartStore: Error replaying cart journal: {}", e.getMessage(), e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flushDirty();
+    }
+
+    /**
+     * Bản sao giỏ hàng active để đọc (không phải entity được quản lý), null nếu user chưa có giỏ.
+     * Biến thể được đọc lại từ database mỗi lần để tên, giá hiển thị và giá khi đặt hàng là giá hiện tại.
+     */
+    public GioHang getCart(User user, boolean createIfMissing) {
+        Long userId = user.getId();
+        while (true) {
+            CartState state = stateFor(userId);
+            Set<Integer> variantIds;
+            synchronized (state) {
+                if (state.evicted) {
+                    continue;
+                }
+                state.touch();
+                if (!createIfMissing && state.cartId == null && state.lines.isEmpty()) {
+                    return null;
+                }
+                variantIds = new HashSet<>(state.lines.keySet());
+            }
+
+            // Truy vấn ngoài khóa, các thay đổi xen giữa được giữ nguyên
+            Map<Integer, SanPhamBienThe> current = new LinkedHashMap<>();
+            if (!variantIds.isEmpty()) {
+                for (SanPhamBienThe variant : sanPhamBienTheRepository.findAllByIdInWithDetails(variantIds)) {
+                    current.put(variant.getId(), variant);
+                }
+            }
+
+            synchronized (state) {
+                if (state.evicted) {
+                    continue;
+                }
+                try {
+                    refreshLines(state, variantIds, current);
+                } catch (IOException e) {
+                    log.error("CartStore: Error writing cart journal for user {}: {}", userId, e.getMessage(), e);
+                }
+                return toView(user, state);
+            }
+        }
+    }
+
+    public int countItems(User user) {
+        CartState state = stateFor(user.getId());
+        synchronized (state) {
+            state.touch();
+            return state.lines.size();
+        }
+    }
+
+    public boolean addItem(User user, SanPhamBienThe variant, int quantity) {
+        if (quantity <= 0) {
+            return false;
+        }
+        Long userId = user.getId();
+        return mutate(userId, state -> {
+            CartLine line = state.lines.get(variant.getId());
+            int soLuong = (line != null ? line.soLuong : 0) + quantity;
+            BigDecimal giaBan = line != null ? line.giaBan : variant.getSanPham().getGiaBan();
+            cartJournal.appendSet(userId, variant.getId(), soLuong, giaBan);
+            if (line == null) {
+                state.lines.put(variant.getId(), new CartLine(variant.getId(), variant, soLuong, giaBan));
+            } else {
+                line.soLuong = soLuong;
+            }
+            state.markChanged();
+            return true;
+        });
+    }
+
+    /**
+     * Số lượng phải lớn hơn 0, xóa dòng thì dùng removeItem
+     */
+    public boolean updateQuantity(User user, Integer itemId, int quantity) {
+        if (quantity <= 0) {
+            return false;
+        }
+        Long userId = user.getId();
+        return mutate(userId, state -> {
+            CartLine line = state.findByItemId(itemId);
+            if (line == null) {
+                return false;
+            }
+            if (line.soLuong == quantity) {
+                return true;
+            }
+            cartJournal.appendSet(userId, line.variantId, quantity, line.giaBan);
+            line.soLuong = quantity;
+            state.markChanged();
+            return true;
+        });
+    }
+
+    public boolean removeItem(User user, Integer itemId) {
+        Long userId = user.getId();
+        return mutate(userId, state -> {
+            CartLine line = state.findByItemId(itemId);
+            if (line == null) {
+                return false;
+            }
+            cartJournal.appendDelete(userId, line.variantId);
+            state.lines.remove(line.variantId);
+            state.markChanged();
+            return true;
+        });
+    }
+
+    /**
+     * Ghi ngay giỏ của user xuống database (dùng trước khi tạo đơn), lỗi sẽ ném ra cho caller
+     */
+    public void flush(Long userId) {
+        CartState state = carts.get(userId);
+        if (state == null) {
+            return;
+        }
+        synchronized (flushLock) {
+            flushStates(List.of(state));
+        }
+    }
+
+    /**
+     * Giỏ đã chuyển sang trạng thái khác "active": bỏ khỏi store sau khi transaction hiện tại commit
+     */
+    public void closeCart(Long userId) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evictClosed(userId);
+                }
+            });
+        } else {
+            evictClosed(userId);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${cart.flush-interval-ms:5000}",
+               initialDelayString = "${cart.flush-interval-ms:5000}")
+    public void flushDirty() {
+        synchronized (flushLock) {
+            long start = System.currentTimeMillis();
+            try {
+                cartJournal.rotate();
+            } catch (IOException e) {
+                log.error("CartStore: Error rotating cart journal: {}", e.getMessage(), e);
+                return;
+            }
+
+            List<CartState> dirty = new ArrayList<>();
+            for (CartState state : carts.values()) {
+                synchronized (state) {
+                    if (!state.evicted && state.isDirty()) {
+                        dirty.add(state);
+                    }
+                }
+            }
+
+            boolean allFlushed = true;
+            int flushed = 0;
+            for (int from = 0; from < dirty.size(); from += flushBatchSize) {
+                List<CartState> batch = dirty.subList(from, Math.min(from + flushBatchSize, dirty.size()));
+                try {
+                    flushed += flushStates(batch);
+                } catch (Exception batchError) {
+                    // Một giỏ lỗi không được chặn các giỏ còn lại: ghi lại từng giỏ
+                    log.warn("CartStore: Batch flush failed, retrying per cart: {}", batchError.getMessage());
+                    for (CartState state : batch) {
+                        try {
+                            flushed += flushStates(List.of(state));
+                        } catch (Exception e) {
+                            allFlushed = false;
+                            log.error("CartStore: Error flushing cart of user {}: {}", state.userId, e.getMessage(), e);
+                        }
+                    }
+                }
+            }
+
+            // Nhật ký chỉ được xóa khi mọi thay đổi trước lúc xoay file đã nằm trong database
+            if (allFlushed) {
+                cartJournal.discardFlushed();
+            }
+            evictIdle();
+
+            if (flushed > 0) {
+                LoggerManager.getInstance().logPerformance("CART_FLUSH", System.currentTimeMillis() - start,
+                        "carts=" + flushed + ", cached=" + carts.size() + ", complete=" + allFlushed);
+            }
+        }
+    }
+
+    private boolean mutate(Long userId, CartMutation mutation) {
+        while (true) {
+            CartState state = stateFor(userId);
+            synchronized (state) {
+                if (state.evicted) {
+                    continue;
+                }
+                state.touch();
+                try {
+                    return mutation.apply(state);
+                } catch (IOException e) {
+                    // Không ghi được nhật ký thì không áp dụng thay đổi
+                    log.error("CartStore: Error writing cart journal for user {}: {}", userId, e.getMessage(), e);
+                    return false;
+                }
+            }
+        }
+    }
+
+    private CartState stateFor(Long userId) {
+        CartState state = carts.get(userId);
+        if (state != null) {
+            return state;
+        }
+        CartState loaded = load(userId);
+        CartState existing = carts.putIfAbsent(userId, loaded);
+        if (existing != null) {
+            return existing;
+        }
+        if (carts.size() > maxCarts) {
+            evictLeastRecent();
+        }
+        return loaded;
+    }
+
+    private CartState load(Long userId) {
+        CartState state = new CartState(userId);
+        List<GioHang> activeCarts = gioHangRepository.findActiveWithItemsByUserId(userId);
+        if (activeCarts.isEmpty()) {
+            return state;
+        }
+        GioHang cart = activeCarts.get(0);
+        state.cartId = cart.getId();
+        state.ngayTao = cart.getNgayTao();
+        state.ngayCapNhat = cart.getNgayCapNhat();
+        if (cart.getChiTietGioHangs() != null) {
+            for (ChiTietGioHang item : cart.getChiTietGioHangs()) {
+                SanPhamBienThe variant = item.getSanPhamBienThe();
+                if (variant == null || state.lines.containsKey(variant.getId())) continue;
+                CartLine line = new CartLine(variant.getId(), variant,
+                        item.getSoLuong() != null ? item.getSoLuong() : 0, item.getGiaBan());
+                line.dbId = item.getId();
+                state.lines.put(variant.getId(), line);
+            }
+        }
+        return state;
+    }
+
+    /**
+     * Ghi một nhóm giỏ trong một transaction, trả về số giỏ đã ghi
+     */
+    private int flushStates(List<CartState> states) {
+        Map<Long, CartState> byUser = new LinkedHashMap<>();
+        Map<Long, CartSnapshot> snapshots = new LinkedHashMap<>();
+        for (CartState state : states) {
+            synchronized (state) {
+                if (!state.evicted && state.isDirty()) {
+                    byUser.put(state.userId, state);
+                    snapshots.put(state.userId, state.snapshot());
+                }
+            }
+        }
+        if (snapshots.isEmpty()) {
+            return 0;
+        }
+
+        Map<Long, CartFlushResult> results = cartPersister.persist(new ArrayList<>(snapshots.values()));
+
+        for (Map.Entry<Long, CartFlushResult> entry : results.entrySet()) {
+            CartState state = byUser.get(entry.getKey());
+            CartFlushResult result = entry.getValue();
+            synchronized (state) {
+                if (result.isClosed()) {
+                    // Giỏ trong database đã được đặt hàng / hủy: lần sau nạp lại từ database
+                    state.evicted = true;
+                    carts.remove(state.userId, state);
+                    continue;
+                }
+                state.cartId = result.getCartId();
+                // Biến thể đã bị xóa: database không còn dòng này, bỏ luôn khỏi bộ nhớ
+                for (Integer variantId : result.getDroppedVariantIds()) {
+                    state.lines.remove(variantId);
+                }
+                for (CartLine line : state.lines.values()) {
+                    Integer dbId = result.getLineIds().get(line.variantId);
+                    if (dbId != null) {
+                        line.dbId = dbId;
+                    }
+                }
+                state.flushedVersion = Math.max(state.flushedVersion, snapshots.get(state.userId).getVersion());
+            }
+        }
+        return snapshots.size();
+    }
+
+    private void evictClosed(Long userId) {
+        CartState state = carts.get(userId);
+        try {
+            if (state == null) {
+                cartJournal.appendClear(userId);
+                return;
+            }
+            synchronized (state) {
+                cartJournal.appendClear(userId);
+                state.evicted = true;
+                carts.remove(userId, state);
+            }
+        } catch (IOException e) {
+            log.error("CartStore: Error writing cart journal for user {}: {}", userId, e.getMessage(), e);
+        }
+    }
+
+    private void evictIdle() {
+        long cutoff = System.currentTimeMillis() - idleMillis;
+        for (CartState state : carts.values()) {
+            if (state.lastAccess < cutoff) {
+                tryEvict(state);
+            }
+        }
+    }
+
+    /**
+     * Vượt giới hạn: đẩy ra khoảng 10% số giỏ sạch ít dùng nhất để không phải quét lại ở mỗi lần nạp
+     */
+    private void evictLeastRecent() {
+        int target = Math.max(maxCarts - maxCarts / 10, 0);
+        List<CartState> candidates = new ArrayList<>(carts.values());
+        candidates.sort(Comparator.comparingLong(state -> state.lastAccess));
+        for (CartState state : candidates) {
+            if (carts.size() <= target) {
+                break;
+            }
+            tryEvict(state);
+        }
+    }
+
+    private void tryEvict(CartState state) {
+        synchronized (state) {
+            // Giỏ chưa ghi xuống database phải đợi lần flush sau
+            if (!state.evicted && !state.isDirty()) {
+                state.evicted = true;
+                carts.remove(state.userId, state);
+            }
+        }
+    }
+
+    private void recover() throws IOException {
+        List<String[]> records = cartJournal.readPending();
+        if (records.isEmpty()) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+
+        Map<Long, List<String[]>> recordsByUser = new LinkedHashMap<>();
+        Set<Integer> variantIds = new HashSet<>();
+        for (String[] record : records) {
+            recordsByUser.computeIfAbsent(Long.parseLong(record[1]), k -> new ArrayList<>()).add(record);
+            if (CartJournal.SET.equals(record[0])) {
+                variantIds.add(Integer.parseInt(record[2]));
+            }
+        }
+        Map<Integer, SanPhamBienThe> variants = new LinkedHashMap<>();
+        if (!variantIds.isEmpty()) {
+            for (SanPhamBienThe variant : sanPhamBienTheRepository.findAllByIdInWithDetails(variantIds)) {
+                variants.put(variant.getId(), variant);
+            }
+        }
+
+        for (Map.Entry<Long, List<String[]>> entry : recordsByUser.entrySet()) {
+            Long userId = entry.getKey();
+            CartState state = load(userId);
+            // Chỉ các bản ghi sau CLR cuối cùng mới làm giỏ thay đổi
+            boolean changed = false;
+            for (String[] record : entry.getValue()) {
+                switch (record[0]) {
+                    case CartJournal.SET: {
+                        Integer variantId = Integer.parseInt(record[2]);
+                        SanPhamBienThe variant = variants.get(variantId);
+                        changed = true;
+                        if (variant == null) {
+                            // Biến thể đã bị xóa
+                            state.lines.remove(variantId);
+                            break;
+                        }
+                        int soLuong = Integer.parseInt(record[3]);
+                        BigDecimal giaBan = record[4].isEmpty() ? null : new BigDecimal(record[4]);
+                        CartLine line = state.lines.get(variantId);
+                        if (line == null) {
+                            state.lines.put(variantId, new CartLine(variantId, variant, soLuong, giaBan));
+                        } else {
+                            line.soLuong = soLuong;
+                            line.giaBan = giaBan;
+                        }
+                        break;
+                    }
+                    case CartJournal.DEL:
+                        state.lines.remove(Integer.parseInt(record[2]));
+                        changed = true;
+                        break;
+                    case CartJournal.CLR:
+                        // Giỏ đã được đặt hàng, các bản ghi trước đó không còn hiệu lực
+                        state = load(userId);
+                        changed = false;
+                        break;
+                    default:
+                        break;
+                }
+            }
+            // Không có giỏ trong database và không còn dòng nào: không tạo giỏ rỗng
+            if (changed && (state.cartId != null || !state.lines.isEmpty())) {
+                state.markChanged();
+                carts.put(userId, state);
+            }
+        }
+
+        log.info("CartStore: Replayed {} journal records for {} carts", records.size(), recordsByUser.size());
+        flushDirty();
+        LoggerManager.getInstance().logPerformance("CART_JOURNAL_REPLAY", System.currentTimeMillis() - start,
+                "records=" + records.size() + ", carts=" + recordsByUser.size());
+    }
+
+    /**
+     * Gắn biến thể vừa đọc vào các dòng: biến thể đã bị xóa thì bỏ dòng, giá bán đổi thì cập nhật giá của dòng.
+     * Mỗi thay đổi được ghi nhật ký như thao tác của user.
+     */
+    private void refreshLines(CartState state, Set<Integer> loadedIds, Map<Integer, SanPhamBienThe> current)
+            throws IOException {
+        List<CartLine> lines = new ArrayList<>(state.lines.values());
+        for (CartLine line : lines) {
+            if (!loadedIds.contains(line.variantId)) {
+                // Dòng được thêm sau lúc truy vấn, biến thể của nó vừa được đọc khi thêm
+                continue;
+            }
+            SanPhamBienThe variant = current.get(line.variantId);
+            if (variant == null) {
+                cartJournal.appendDelete(state.userId, line.variantId);
+                state.lines.remove(line.variantId);
+                state.markChanged();
+                continue;
+            }
+            line.variant = variant;
+            BigDecimal giaBan = variant.getSanPham() != null ? variant.getSanPham().getGiaBan() : null;
+            if (giaBan != null && (line.giaBan == null || giaBan.compareTo(line.giaBan) != 0)) {
+                cartJournal.appendSet(state.userId, line.variantId, line.soLuong, giaBan);
+                line.giaBan = giaBan;
+                state.markChanged();
+            }
+        }
+    }
+
+    private GioHang toView(User user, CartState state) {
+        GioHang cart = new GioHang();
+        cart.setId(state.cartId);
+        cart.setUser(user);
+        cart.setTrangThai("active");
+        cart.setNgayTao(state.ngayTao != null ? state.ngayTao : LocalDateTime.now());
+        cart.setNgayCapNhat(state.ngayCapNhat != null ? state.ngayCapNhat : cart.getNgayTao());
+        List<ChiTietGioHang> items = new ArrayList<>(state.lines.size());
+        for (CartLine line : state.lines.values()) {
+            ChiTietGioHang item = new ChiTietGioHang();
+            item.setId(line.itemId());
+            item.setGioHang(cart);
+            item.setSanPhamBienThe(line.variant);
+            item.setSoLuong(line.soLuong);
+            item.setGiaBan(line.giaBan);
+            item.setThanhTien(line.thanhTien());
+            items.add(item);
+        }
+        cart.setChiTietGioHangs(items);
+        return cart;
+    }
+}
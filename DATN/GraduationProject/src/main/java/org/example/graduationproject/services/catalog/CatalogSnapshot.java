@@ -0,0 +1,280 @@
+package org.example.graduationproject.services.catalog;
+
+import org.example.graduationproject.models.ImageSanPham;
+import org.example.graduationproject.models.SanPham;
+import org.example.graduationproject.services.image.ImageVariant;
+
+import java.math.BigDecimal;
+import java.text.Collator;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Ảnh chụp bất biến của danh mục sản phẩm đang hoạt động.
+ * Dữ liệu được lưu theo cột (mảng song song, đã sắp xếp theo tên) và chia shard theo danh mục
+ * để lọc / phân trang / đếm hoàn toàn trong bộ nhớ. Mỗi lần thay đổi tạo ra một snapshot mới.
+ */
+public final class CatalogSnapshot {
+
+    static final int NONE = Integer.MIN_VALUE;
+
+    public static final CatalogSnapshot EMPTY = new CatalogSnapshot(new Entry[0]);
+
+    private final int[] ids;
+    private final String[] tens;
+    private final String[] moTas;
+    private final BigDecimal[] giaBans;
+    private final BigDecimal[] khuyenMais;
+    private final int[] gioiTinhs;
+    private final int[] loaiIds;
+    private final String[] loaiTens;
+    private final int[] nhanHieuIds;
+    private final String[] nhanHieuTens;
+    private final String[][] imageUrls;
+    // Đường dẫn ảnh phái sinh của ảnh đầu tiên, tính sẵn một lần cho mỗi sản phẩm
+    private final String[] thumbnailPaths;
+    private final String[] cardImagePaths;
+
+    // Shard theo danh mục: loaiId -> vị trí (tăng dần) trong các mảng ở trên
+    private final Map<Integer, int[]> loaiShards;
+    private final Map<Integer, Integer> positionById;
+
+    private CatalogSnapshot(Entry[] sortedEntries) {
+        int n = sortedEntries.length;
+        ids = new int[n];
+        tens = new String[n];
+        moTas = new String[n];
+        giaBans = new BigDecimal[n];
+        khuyenMais = new BigDecimal[n];
+        gioiTinhs = new int[n];
+        loaiIds = new int[n];
+        loaiTens = new String[n];
+        nhanHieuIds = new int[n];
+        nhanHieuTens = new String[n];
+        imageUrls = new String[n][];
+        thumbnailPaths = new String[n];
+        cardImagePaths = new String[n];
+        positionById = new HashMap<>(n * 2);
+
+        Map<Integer, List<Integer>> shardBuilder = new HashMap<>();
+        for (int i = 0; i < n; i++) {
+            Entry e = sortedEntries[i];
+            ids[i] = e.id;
+            tens[i] = e.ten;
+            moTas[i] = e.moTa;
+            giaBans[i] = e.giaBan;
+            khuyenMais[i] = e.khuyenMai;
+            gioiTinhs[i] = e.gioiTinh;
+            loaiIds[i] = e.loaiId;
+            loaiTens[i] = e.loaiTen;
+            nhanHieuIds[i] = e.nhanHieuId;
+            nhanHieuTens[i] = e.nhanHieuTen;
+            imageUrls[i] = e.imageUrls;
+            if (e.imageUrls.length > 0 && e.imageUrls[0] != null) {
+                thumbnailPaths[i] = ImageVariant.THUMBNAIL.pathFor(e.imageUrls[0]);
+                cardImagePaths[i] = ImageVariant.CARD.pathFor(e.imageUrls[0]);
+            }
+            positionById.put(e.id, i);
+            if (e.loaiId != NONE) {
+                shardBuilder.computeIfAbsent(e.loaiId, k -> new ArrayList<>()).add(i);
+            }
+        }
+
+        Map<Integer, int[]> shards = new HashMap<>();
+        for (Map.Entry<Integer, List<Integer>> shard : shardBuilder.entrySet()) {
+            shards.put(shard.getKey(), shard.getValue().stream().mapToInt(Integer::intValue).toArray());
+        }
+        loaiShards = Collections.unmodifiableMap(shards);
+    }
+
+    /**
+     * Tạo snapshot từ danh sách sản phẩm (chỉ giữ sản phẩm đang hoạt động)
+     */
+    public static CatalogSnapshot of(Collection<SanPham> products) {
+        List<Entry> entries = new ArrayList<>(products.size());
+        for (SanPham product : products) {
+            if (Boolean.TRUE.equals(product.getTrangThaiHoatDong())) {
+                entries.add(Entry.from(product));
+            }
+        }
+        return build(entries);
+    }
+
+    /**
+     * Snapshot mới với sản phẩm được thêm / thay thế (hoặc bị gỡ nếu không còn hoạt động).
+     * Các dòng còn lại vẫn giữ thứ tự tên nên chỉ cần tìm nhị phân vị trí chèn, không sắp xếp lại
+     */
+    public CatalogSnapshot withProduct(SanPham product) {
+        List<Entry> entries = entriesExcept(product.getId());
+        if (Boolean.TRUE.equals(product.getTrangThaiHoatDong())) {
+            Entry entry = Entry.from(product);
+            int index = Collections.binarySearch(entries, entry, nameOrder());
+            entries.add(index < 0 ? -index - 1 : index, entry);
+        }
+        return new CatalogSnapshot(entries.toArray(new Entry[0]));
+    }
+
+    /**
+     * Snapshot mới không còn sản phẩm có id tương ứng
+     */
+    public CatalogSnapshot withoutProduct(Integer productId) {
+        if (!positionById.containsKey(productId)) {
+            return this;
+        }
+        return new CatalogSnapshot(entriesExcept(productId).toArray(new Entry[0]));
+    }
+
+    public int size() {
+        return ids.length;
+    }
+
+    /**
+     * Lọc theo danh mục / giới tính / nhãn hiệu, trả về các vị trí khớp theo thứ tự tên
+     */
+    public int[] filter(Integer loaiId, Integer gioiTinh, Integer nhanHieuId) {
+        int[] candidates = loaiId != null ? loaiShards.getOrDefault(loaiId, new int[0]) : null;
+        int total = candidates != null ? candidates.length : ids.length;
+        int[] matches = new int[total];
+        int count = 0;
+        for (int k = 0; k < total; k++) {
+            int i = candidates != null ? candidates[k] : k;
+            if (gioiTinh != null && gioiTinhs[i] != gioiTinh) continue;
+            if (nhanHieuId != null && nhanHieuIds[i] != nhanHieuId) continue;
+            matches[count++] = i;
+        }
+        return Arrays.copyOf(matches, count);
+    }
+
+    /**
+     * Lọc danh sách sản phẩm đã xếp hạng (từ chỉ mục tìm kiếm), giữ nguyên thứ tự xếp hạng
+     */
+    public int[] filterRanked(int[] rankedIds, Integer loaiId, Integer gioiTinh, Integer nhanHieuId) {
+        int[] matches = new int[rankedIds.length];
+        int count = 0;
+        for (int rankedId : rankedIds) {
+            Integer position = positionById.get(rankedId);
+            if (position == null) continue;
+            int i = position;
+            if (loaiId != null && loaiIds[i] != loaiId) continue;
+            if (gioiTinh != null && gioiTinhs[i] != gioiTinh) continue;
+            if (nhanHieuId != null && nhanHieuIds[i] != nhanHieuId) continue;
+            matches[count++] = i;
+        }
+        return Arrays.copyOf(matches, count);
+    }
+
+    /**
+     * Chuyển sản phẩm tại vị trí thành DTO cho trang người dùng
+     */
+    public Map<String, Object> toUserProductDTO(int position) {
+        Map<String, Object> dto = new HashMap<>();
+        dto.put("id", ids[position]);
+        dto.put("ten", tens[position]);
+        dto.put("giaBan", giaBans[position]);
+        dto.put("khuyenMai", khuyenMais[position]);
+        dto.put("moTa", moTas[position]);
+        dto.put("trangThai", true);
+        dto.put("gioiTinh", gioiTinhs[position] != NONE ? gioiTinhs[position] : null);
+
+        if (loaiIds[position] != NONE) {
+            Map<String, Object> category = new HashMap<>();
+            category.put("id", loaiIds[position]);
+            category.put("ten", loaiTens[position]);
+            dto.put("loai", category);
+        }
+
+        if (nhanHieuIds[position] != NONE) {
+            Map<String, Object> brand = new HashMap<>();
+            brand.put("id", nhanHieuIds[position]);
+            brand.put("ten", nhanHieuTens[position]);
+            dto.put("nhanHieu", brand);
+        }
+
+        String[] urls = imageUrls[position];
+        dto.put("hinhAnh", urls.length > 0 ? urls[0] : null);
+        dto.put("imageUrls", urls.clone());
+        dto.put("thumbnailUrl", thumbnailPaths[position]);
+        dto.put("cardImageUrl", cardImagePaths[position]);
+        return dto;
+    }
+
+    private List<Entry> entriesExcept(Integer productId) {
+        List<Entry> entries = new ArrayList<>(ids.length + 1);
+        for (int i = 0; i < ids.length; i++) {
+            if (productId != null && ids[i] == productId) continue;
+            entries.add(new Entry(ids[i], tens[i], moTas[i], giaBans[i], khuyenMais[i], gioiTinhs[i],
+                    loaiIds[i], loaiTens[i], nhanHieuIds[i], nhanHieuTens[i], imageUrls[i]));
+        }
+        return entries;
+    }
+
+    private static CatalogSnapshot build(List<Entry> entries) {
+        Entry[] sorted = entries.toArray(new Entry[0]);
+        Arrays.sort(sorted, nameOrder());
+        return new CatalogSnapshot(sorted);
+    }
+
+    // Sắp xếp theo tên sản phẩm giống thứ tự của truy vấn cũ; Collator không thread-safe nên tạo mới mỗi lần
+    private static Comparator<Entry> nameOrder() {
+        Collator collator = Collator.getInstance(Locale.of("vi", "VN"));
+        return Comparator.comparing((Entry e) -> e.ten != null ? e.ten : "", collator)
+                .thenComparingInt(e -> e.id);
+    }
+
+    /**
+     * Một dòng của catalog trước khi được xếp vào các mảng cột
+     */
+    private static final class Entry {
+        final int id;
+        final String ten;
+        final String moTa;
+        final BigDecimal giaBan;
+        final BigDecimal khuyenMai;
+        final int gioiTinh;
+        final int loaiId;
+        final String loaiTen;
+        final int nhanHieuId;
+        final String nhanHieuTen;
+        final String[] imageUrls;
+
+        Entry(int id, String ten, String moTa, BigDecimal giaBan, BigDecimal khuyenMai, int gioiTinh,
+              int loaiId, String loaiTen, int nhanHieuId, String nhanHieuTen, String[] imageUrls) {
+            this.id = id;
+            this.ten = ten;
+            this.moTa = moTa;
+            this.giaBan = giaBan;
+            this.khuyenMai = khuyenMai;
+            this.gioiTinh = gioiTinh;
+            this.loaiId = loaiId;
+            this.loaiTen = loaiTen;
+            this.nhanHieuId = nhanHieuId;
+            this.nhanHieuTen = nhanHieuTen;
+            this.imageUrls = imageUrls;
+        }
+
+        static Entry from(SanPham product) {
+            String[] urls = product.getImages() != null
+                    ? product.getImages().stream().map(ImageSanPham::getImageName).toArray(String[]::new)
+                    : new String[0];
+            return new Entry(
+                    product.getId(),
+                    product.getTen(),
+                    product.getMoTa(),
+                    product.getGiaBan(),
+                    product.getKhuyenMai(),
+                    product.getGioiTinh() != null ? product.getGioiTinh() : NONE,
+                    product.getLoai() != null ? product.getLoai().getId() : NONE,
+                    product.getLoai() != null ? product.getLoai().getTen() : null,
+                    product.getNhanHieu() != null ? product.getNhanHieu().getId() : NONE,
+                    product.getNhanHieu() != null ? product.getNhanHieu().getTen() : null,
+                    urls);
+        }
+    }
+}
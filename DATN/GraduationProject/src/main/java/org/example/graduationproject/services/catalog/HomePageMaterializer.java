@@ -0,0 +1,150 @@
+package org.example.graduationproject.services.catalog;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.example.graduationproject.dto.ServiceResult;
+import org.example.graduationproject.events.BrandChangedEvent;
+import org.example.graduationproject.events.CategoryChangedEvent;
+import org.example.graduationproject.events.ProductChangedEvent;
+import org.example.graduationproject.services.HomeService;
+import org.example.graduationproject.utils.LoggerManager;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Dựng sẵn dữ liệu trang chủ thành JSON bytes và giữ trong bộ nhớ.
+ * Request chỉ đọc payload hiện tại, không truy vấn database; payload được dựng lại
+ * bất đồng bộ khi sản phẩm / loại thay đổi và định kỳ theo home.page.refresh-interval-ms.
+ */
+@Component
+@Slf4j
+public class HomePageMaterializer {
+
+    @Autowired
+    private HomeService homeService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    @Qualifier("generalTaskExecutor")
+    private Executor generalTaskExecutor;
+
+    private volatile HomePagePayload payload;
+
+    // Gom nhiều sự kiện liên tiếp thành một lần dựng lại
+    private final AtomicBoolean refreshQueued = new AtomicBoolean(false);
+
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        try {
+            refresh();
+        } catch (Exception e) {
+            log.error("HomePageMaterializer: Error building home page payload: {}", e.getMessage(), e);
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        requestRefresh();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCategoryChanged(CategoryChangedEvent event) {
+        requestRefresh();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBrandChanged(BrandChangedEvent event) {
+        requestRefresh();
+    }
+
+    @Scheduled(fixedDelayString = "${home.page.refresh-interval-ms:300000}",
+               initialDelayString = "${home.page.refresh-interval-ms:300000}")
+    public void scheduledRefresh() {
+        try {
+            refresh();
+        } catch (Exception e) {
+            log.error("HomePageMaterializer: Scheduled refresh failed: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Payload hiện tại; chỉ dựng đồng bộ nếu chưa có (request đến trước khi ứng dụng sẵn sàng)
+     */
+    public HomePagePayload getPayload() {
+        HomePagePayload current = payload;
+        if (current == null) {
+            synchronized (this) {
+                if (payload == null) {
+                    refresh();
+                }
+                current = payload;
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Xếp lịch dựng lại trên generalTaskExecutor, bỏ qua nếu đã có một lần đang chờ
+     */
+    public void requestRefresh() {
+        if (!refreshQueued.compareAndSet(false, true)) {
+            return;
+        }
+        generalTaskExecutor.execute(() -> {
+            // Hạ cờ trước khi dựng để thay đổi xảy ra trong lúc dựng vẫn được xếp lịch lại
+            refreshQueued.set(false);
+            try {
+                refresh();
+            } catch (Exception e) {
+                log.error("HomePageMaterializer: Async refresh failed: {}", e.getMessage(), e);
+            }
+        });
+    }
+
+    public synchronized void refresh() {
+        long start = System.currentTimeMillis();
+        ServiceResult<Map<String, Object>> data = homeService.getHomePageData();
+        byte[] json;
+        try {
+            json = objectMapper.writeValueAsBytes(data);
+        } catch (Exception e) {
+            throw new IllegalStateException("Không thể serialize dữ liệu trang chủ", e);
+        }
+
+        String etag = "\"" + sha256(json) + "\"";
+        HomePagePayload previous = payload;
+        if (previous == null || !previous.getEtag().equals(etag)) {
+            payload = new HomePagePayload(json, etag, LocalDateTime.now());
+        }
+        LoggerManager.getInstance().logPerformance("HOME_PAGE_REBUILD", System.currentTimeMillis() - start,
+                "bytes=" + json.length + ", etag=" + etag);
+    }
+
+    private static String sha256(byte[] content) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(content);
+            // 16 byte đầu là đủ để phân biệt phiên bản
+            return HexFormat.of().formatHex(digest, 0, 16);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
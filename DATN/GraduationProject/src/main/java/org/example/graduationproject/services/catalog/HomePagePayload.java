@@ -0,0 +1,18 @@
+package org.example.graduationproject.services.catalog;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+
+/**
+ * Dữ liệu trang chủ đã serialize sẵn thành JSON, kèm ETag tính từ nội dung
+ */
+@Getter
+@AllArgsConstructor
+public class HomePagePayload {
+
+    private final byte[] json;
+    private final String etag;
+    private final LocalDateTime generatedAt;
+}
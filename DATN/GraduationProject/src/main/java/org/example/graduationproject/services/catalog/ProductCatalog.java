@@ -0,0 +1,185 @@
+package org.example.graduationproject.services.catalog;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.graduationproject.events.BrandChangedEvent;
+import org.example.graduationproject.events.CategoryChangedEvent;
+import org.example.graduationproject.events.ProductChangedEvent;
+import org.example.graduationproject.models.SanPham;
+import org.example.graduationproject.repositories.SanPhamRepository;
+import org.example.graduationproject.services.search.InvertedIndex;
+import org.example.graduationproject.utils.LoggerManager;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Read model của danh mục sản phẩm cho trang người dùng.
+ * Luồng đọc chỉ dùng snapshot trong bộ nhớ; snapshot được nạp toàn bộ khi ứng dụng khởi động
+ * và cập nhật từng sản phẩm khi nhận ProductChangedEvent.
+ * Tìm kiếm theo từ khóa dùng chỉ mục đảo ngược (BM25) cập nhật cùng lúc với snapshot.
+ */
+@Component
+@Slf4j
+public class ProductCatalog {
+
+    @Autowired
+    private SanPhamRepository sanPhamRepository;
+
+    private volatile InvertedIndex searchIndex = new InvertedIndex();
+
+    private volatile CatalogSnapshot snapshot = CatalogSnapshot.EMPTY;
+    private volatile boolean loaded = false;
+
+    // Nạp trước các read model dựng trên catalog (trang chủ)
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        try {
+            rebuildAll();
+        } catch (Exception e) {
+            log.error("ProductCatalog: Error loading catalog snapshot: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Cập nhật snapshot sau khi sản phẩm thay đổi (sau commit nếu đang trong transaction)
+     */
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        try {
+            applyChange(event.getProductId(), event.isDeleted());
+        } catch (Exception e) {
+            // Không cập nhật được từng phần thì lần đọc sau sẽ nạp lại toàn bộ
+            loaded = false;
+            log.error("ProductCatalog: Error applying change for product #{}: {}",
+                    event.getProductId(), e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Tên loại được chép vào từng sản phẩm nên đổi / xóa loại thì nạp lại toàn bộ (hiếm khi xảy ra)
+     */
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCategoryChanged(CategoryChangedEvent event) {
+        try {
+            rebuildAll();
+        } catch (Exception e) {
+            loaded = false;
+            log.error("ProductCatalog: Error reloading after category #{} changed: {}",
+                    event.getLoaiId(), e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Tên nhãn hiệu cũng được chép vào từng sản phẩm nên xử lý giống loại
+     */
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBrandChanged(BrandChangedEvent event) {
+        try {
+            rebuildAll();
+        } catch (Exception e) {
+            loaded = false;
+            log.error("ProductCatalog: Error reloading after brand #{} changed: {}",
+                    event.getNhanHieuId(), e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Lọc, phân trang và đếm sản phẩm đang hoạt động hoàn toàn trong bộ nhớ
+     */
+    public Page<Map<String, Object>> getProducts(String search, Integer categoryId, Integer gender,
+                                                 Integer brandId, int page, int size) {
+        CatalogSnapshot current = currentSnapshot();
+        int[] matches;
+        if (search != null && !search.trim().isEmpty()) {
+            // Có từ khóa: sắp xếp theo độ liên quan
+            matches = current.filterRanked(searchIndex.search(search), categoryId, gender, brandId);
+        } else {
+            matches = current.filter(categoryId, gender, brandId);
+        }
+        return toPage(current, matches, page, size);
+    }
+
+    /**
+     * Nạp lại toàn bộ snapshot từ database
+     */
+    public synchronized void rebuildAll() {
+        long start = System.currentTimeMillis();
+        List<SanPham> products = sanPhamRepository.findAllActiveForCatalog();
+        InvertedIndex index = new InvertedIndex();
+        for (SanPham product : products) {
+            index.index(product.getId(), toSearchDocument(product));
+        }
+        searchIndex = index;
+        snapshot = CatalogSnapshot.of(products);
+        loaded = true;
+        LoggerManager.getInstance().logPerformance("CATALOG_REBUILD", System.currentTimeMillis() - start,
+                "products=" + snapshot.size());
+    }
+
+    public CatalogSnapshot currentSnapshot() {
+        if (!loaded) {
+            synchronized (this) {
+                if (!loaded) {
+                    rebuildAll();
+                }
+            }
+        }
+        return snapshot;
+    }
+
+    private synchronized void applyChange(Integer productId, boolean deleted) {
+        if (productId == null || !loaded) {
+            return;
+        }
+        SanPham product = deleted ? null : sanPhamRepository.findByIdForCatalog(productId).orElse(null);
+        if (product == null) {
+            searchIndex.remove(productId);
+            snapshot = snapshot.withoutProduct(productId);
+            return;
+        }
+
+        if (Boolean.TRUE.equals(product.getTrangThaiHoatDong())) {
+            searchIndex.index(productId, toSearchDocument(product));
+        } else {
+            searchIndex.remove(productId);
+        }
+        snapshot = snapshot.withProduct(product);
+    }
+
+    /**
+     * Tên sản phẩm có trọng số cao nhất, sau đó tới tag, danh mục và mô tả
+     */
+    private static InvertedIndex.Document toSearchDocument(SanPham product) {
+        return new InvertedIndex.Document()
+                .field(product.getTen(), 3.0f)
+                .field(product.getTag(), 2.0f)
+                .field(product.getLoai() != null ? product.getLoai().getTen() : null, 1.5f)
+                .field(product.getMoTa(), 1.0f);
+    }
+
+    static Page<Map<String, Object>> toPage(CatalogSnapshot current, int[] positions, int page, int size) {
+        PageRequest pageable = PageRequest.of(page, size);
+        int from = (int) Math.min(pageable.getOffset(), positions.length);
+        int to = Math.min(from + size, positions.length);
+        List<Map<String, Object>> content = new ArrayList<>(to - from);
+        for (int k = from; k < to; k++) {
+            content.add(current.toUserProductDTO(positions[k]));
+        }
+        return new PageImpl<>(content, pageable, positions.length);
+    }
+}
@@ -0,0 +1,58 @@
+package org.example.graduationproject.services.catalogimport;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.example.graduationproject.models.Loai;
+import org.example.graduationproject.models.MauSac;
+import org.example.graduationproject.models.NhaCungCap;
+import org.example.graduationproject.models.NhanHieu;
+import org.example.graduationproject.models.Size;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Một dòng import đã kiểm tra hợp lệ, danh mục đã được đổi sang entity trong ReferenceDataCache.
+ * Dòng không có màu / size chỉ cập nhật thông tin sản phẩm.
+ */
+@Getter
+@Setter
+public class CatalogImportRow {
+
+    private long rowNumber;
+    // Giữ lại giá trị gốc để ghi vào báo cáo lỗi nếu lô chứa dòng này ghi thất bại
+    private List<String> cells;
+
+    private String ten;
+    private String moTa;
+    private BigDecimal giaBan;
+    private BigDecimal giaNhap;
+    private BigDecimal khuyenMai;
+    private String tag;
+    private String huongDan;
+    private String thanhPhan;
+    private Integer gioiTinh;
+    private Loai loai;
+    private NhanHieu nhanHieu;
+    private NhaCungCap nhaCungCap;
+
+    private MauSac mauSac;
+    private Size size;
+    private Integer soLuongTon;
+
+    /**
+     * Sản phẩm được nhận diện theo tên (không phân biệt hoa thường) + nhãn hiệu
+     */
+    public String getProductKey() {
+        return productKey(ten, nhanHieu.getId());
+    }
+
+    public boolean hasVariant() {
+        return mauSac != null && size != null;
+    }
+
+    public static String productKey(String ten, Integer nhanHieuId) {
+        return ten.trim().toLowerCase(Locale.ROOT) + "|" + nhanHieuId;
+    }
+}
@@ -0,0 +1,211 @@
+package org.example.graduationproject.services.catalogimport;
+
+import lombok.Getter;
+import org.example.graduationproject.builders.SanPhamBuilder;
+import org.example.graduationproject.models.SanPham;
+import org.example.graduationproject.models.SanPhamBienThe;
+import org.example.graduationproject.repositories.BatchInsertRepository;
+import org.example.graduationproject.repositories.SanPhamBienTheRepository;
+import org.example.graduationproject.repositories.SanPhamRepository;
+import org.example.graduationproject.services.StockLedgerService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Ghi một lô dòng import trong một transaction:
+ * - Sản phẩm: khớp theo tên + nhãn hiệu, có rồi thì cập nhật các cột có giá trị, chưa có thì tạo mới
+ * - Biến thể: khớp theo (sản phẩm, màu, size), có rồi thì đặt lại số lượng tồn qua StockLedgerService, chưa có thì tạo mới
+ * Mỗi bước là một truy vấn tra cứu + một JDBC batch, không lưu từng entity.
+ * Lô lỗi được rollback toàn bộ, các lô trước đó vẫn giữ nguyên.
+ */
+@Component
+public class CatalogImportWriter {
+
+    @Autowired
+    private SanPhamRepository sanPhamRepository;
+
+    @Autowired
+    private SanPhamBienTheRepository sanPhamBienTheRepository;
+
+    @Autowired
+    private BatchInsertRepository batchInsertRepository;
+
+    @Autowired
+    private StockLedgerService stockLedgerService;
+
+    @Transactional
+    public BatchResult write(List<CatalogImportRow> rows) {
+        BatchResult result = new BatchResult();
+        Map<String, Integer> productIds = writeProducts(rows, result);
+        writeVariants(rows, productIds, result);
+        return result;
+    }
+
+    private Map<String, Integer> writeProducts(List<CatalogImportRow> rows, BatchResult result) {
+        // Cùng một sản phẩm xuất hiện ở nhiều dòng (mỗi dòng một biến thể): dòng đầu quyết định thông tin sản phẩm
+        Map<String, CatalogImportRow> productRows = new LinkedHashMap<>();
+        for (CatalogImportRow row : rows) {
+            productRows.putIfAbsent(row.getProductKey(), row);
+        }
+        Set<String> tens = new HashSet<>();
+        for (CatalogImportRow row : productRows.values()) {
+            tens.add(row.getTen());
+        }
+
+        Map<String, Integer> productIds = findProductIds(tens);
+        Map<Integer, CatalogImportRow> updates = new HashMap<>();
+        List<SanPham> inserts = new ArrayList<>();
+        for (Map.Entry<String, CatalogImportRow> entry : productRows.entrySet()) {
+            Integer id = productIds.get(entry.getKey());
+            if (id != null) {
+                updates.put(id, entry.getValue());
+            } else {
+                inserts.add(newProduct(entry.getValue()));
+            }
+        }
+
+        if (!updates.isEmpty()) {
+            LocalDateTime now = LocalDateTime.now();
+            for (SanPham sanPham : sanPhamRepository.findAllById(updates.keySet())) {
+                applyRow(sanPham, updates.get(sanPham.getId()), now);
+            }
+            result.productsUpdated = updates.size();
+        }
+        if (!inserts.isEmpty()) {
+            // Insert qua JDBC không trả id, tra lại theo tên để lấy id cho bước biến thể
+            batchInsertRepository.insertSanPhams(inserts);
+            productIds = findProductIds(tens);
+            result.productsCreated = inserts.size();
+        }
+        return productIds;
+    }
+
+    private void writeVariants(List<CatalogImportRow> rows, Map<String, Integer> productIds, BatchResult result) {
+        // Dòng sau cùng của một ô quyết định số lượng tồn
+        Map<String, CatalogImportRow> variantRows = new LinkedHashMap<>();
+        Map<String, Integer> cellProductIds = new HashMap<>();
+        Set<Integer> variantProductIds = new HashSet<>();
+        for (CatalogImportRow row : rows) {
+            if (!row.hasVariant()) {
+                continue;
+            }
+            Integer productId = productIds.get(row.getProductKey());
+            String cell = cellKey(productId, row.getMauSac().getId(), row.getSize().getId());
+            variantRows.put(cell, row);
+            cellProductIds.put(cell, productId);
+            variantProductIds.add(productId);
+        }
+        if (variantRows.isEmpty()) {
+            return;
+        }
+
+        Map<String, Integer> existing = new HashMap<>();
+        for (Object[] combination : sanPhamBienTheRepository.findVariantCombinations(variantProductIds)) {
+            existing.putIfAbsent(cellKey((Integer) combination[1], (Integer) combination[2], (Integer) combination[3]),
+                    (Integer) combination[0]);
+        }
+
+        Map<Integer, Integer> stockUpdates = new HashMap<>();
+        List<SanPhamBienThe> inserts = new ArrayList<>();
+        for (Map.Entry<String, CatalogImportRow> entry : variantRows.entrySet()) {
+            CatalogImportRow row = entry.getValue();
+            Integer variantId = existing.get(entry.getKey());
+            if (variantId != null) {
+                if (row.getSoLuongTon() != null) {
+                    stockUpdates.put(variantId, row.getSoLuongTon());
+                }
+                continue;
+            }
+            SanPhamBienThe variant = new SanPhamBienThe();
+            variant.setSanPham(sanPhamRepository.getReferenceById(cellProductIds.get(entry.getKey())));
+            variant.setMauSac(row.getMauSac());
+            variant.setSize(row.getSize());
+            variant.setSoLuongTon(row.getSoLuongTon() != null ? row.getSoLuongTon() : 0);
+            inserts.add(variant);
+        }
+
+        if (!stockUpdates.isEmpty()) {
+            // Qua sổ cái tồn kho: chỉ ghi soLuongTon, giữ nguyên số lượng đang giữ cho đơn chờ duyệt
+            stockLedgerService.setOnHand(stockUpdates);
+            result.variantsUpdated = stockUpdates.size();
+        }
+        if (!inserts.isEmpty()) {
+            batchInsertRepository.insertSanPhamBienThes(inserts);
+            result.variantsCreated = inserts.size();
+        }
+    }
+
+    // Khóa tên + nhãn hiệu -> id; SQL Server so sánh tên không phân biệt hoa thường giống khóa
+    private Map<String, Integer> findProductIds(Set<String> tens) {
+        Map<String, Integer> ids = new HashMap<>();
+        for (Object[] key : sanPhamRepository.findCatalogKeys(tens)) {
+            if (key[1] != null && key[2] != null) {
+                ids.putIfAbsent(CatalogImportRow.productKey((String) key[1], (Integer) key[2]), (Integer) key[0]);
+            }
+        }
+        return ids;
+    }
+
+    private SanPham newProduct(CatalogImportRow row) {
+        return SanPhamBuilder.newBuilder()
+                .withBasicInfo(row.getTen(), row.getMoTa())
+                .withPricing(row.getGiaBan(), row.getGiaNhap(), row.getKhuyenMai())
+                .withDetails(row.getTag(), row.getHuongDan(), row.getThanhPhan())
+                .withStatus("new", true)
+                .withClassification(row.getGioiTinh() != null ? row.getGioiTinh() : 0,
+                        row.getLoai(), row.getNhanHieu(), row.getNhaCungCap())
+                .withTimestamps()
+                .build();
+    }
+
+    // Cột để trống trong file không ghi đè giá trị đang có
+    private void applyRow(SanPham sanPham, CatalogImportRow row, LocalDateTime now) {
+        sanPham.setGiaBan(row.getGiaBan());
+        sanPham.setLoai(row.getLoai());
+        sanPham.setNhaCungCap(row.getNhaCungCap());
+        if (row.getMoTa() != null) {
+            sanPham.setMoTa(row.getMoTa());
+        }
+        if (row.getGiaNhap() != null) {
+            sanPham.setGiaNhap(row.getGiaNhap());
+        }
+        if (row.getKhuyenMai() != null) {
+            sanPham.setKhuyenMai(row.getKhuyenMai());
+        }
+        if (row.getTag() != null) {
+            sanPham.setTag(row.getTag());
+        }
+        if (row.getHuongDan() != null) {
+            sanPham.setHuongDan(row.getHuongDan());
+        }
+        if (row.getThanhPhan() != null) {
+            sanPham.setThanhPhan(row.getThanhPhan());
+        }
+        if (row.getGioiTinh() != null) {
+            sanPham.setGioiTinh(row.getGioiTinh());
+        }
+        sanPham.setNgayCapNhat(now);
+    }
+
+    private static String cellKey(Integer sanPhamId, Integer mauSacId, Integer sizeId) {
+        return sanPhamId + ":" + mauSacId + ":" + sizeId;
+    }
+
+    @Getter
+    public static class BatchResult {
+        private int productsCreated;
+        private int productsUpdated;
+        private int variantsCreated;
+        private int variantsUpdated;
+    }
+}
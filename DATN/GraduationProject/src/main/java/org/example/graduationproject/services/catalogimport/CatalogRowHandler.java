@@ -0,0 +1,21 @@
+package org.example.graduationproject.services.catalogimport;
+
+import java.util.List;
+
+/**
+ * Nhận từng dòng của file import theo thứ tự, dòng đầu tiên là tiêu đề
+ */
+public interface CatalogRowHandler {
+
+    /**
+     * Tổng số dòng (kể cả tiêu đề) nếu đọc được trước khi duyệt, gọi tối đa một lần
+     */
+    default void onTotalRows(long totalRows) {
+    }
+
+    /**
+     * @param rowNumber số dòng như trong Excel (tiêu đề là dòng 1)
+     * @param cells giá trị dạng text theo cột, ô trống là chuỗi rỗng; danh sách được dùng lại cho dòng sau
+     */
+    void onRow(long rowNumber, List<String> cells) throws Exception;
+}
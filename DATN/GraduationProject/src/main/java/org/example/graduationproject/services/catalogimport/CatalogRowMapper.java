@@ -0,0 +1,299 @@
+package org.example.graduationproject.services.catalogimport;
+
+import org.example.graduationproject.models.Loai;
+import org.example.graduationproject.models.MauSac;
+import org.example.graduationproject.models.NhaCungCap;
+import org.example.graduationproject.models.NhanHieu;
+import org.example.graduationproject.models.Size;
+import org.example.graduationproject.services.cache.ReferenceDataCache;
+
+import java.math.BigDecimal;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Đổi một dòng text sang CatalogImportRow cho một lần import.
+ * Tiêu đề cột không phân biệt hoa thường / dấu / khoảng trắng ("Tên sản phẩm", "ten", "TEN_SAN_PHAM").
+ * Loại, nhãn hiệu, nhà cung cấp, màu, size nhận theo id hoặc tên; bảng tra dựng một lần từ
+ * ReferenceDataCache khi bắt đầu import nên mỗi dòng chỉ tra HashMap, không truy vấn DB.
+ */
+public class CatalogRowMapper {
+
+    private static final int MAX_TEN_LENGTH = 255;
+    private static final int MAX_TAG_LENGTH = 255;
+
+    private enum Column {
+        TEN(true, "ten", "tensanpham"),
+        MO_TA(false, "mota"),
+        GIA_BAN(true, "giaban"),
+        GIA_NHAP(false, "gianhap"),
+        KHUYEN_MAI(false, "khuyenmai"),
+        TAG(false, "tag"),
+        HUONG_DAN(false, "huongdan"),
+        THANH_PHAN(false, "thanhphan"),
+        GIOI_TINH(false, "gioitinh"),
+        LOAI(true, "loai", "danhmuc"),
+        NHAN_HIEU(true, "nhanhieu", "thuonghieu"),
+        NHA_CUNG_CAP(true, "nhacungcap"),
+        MAU_SAC(false, "mausac", "mau", "mamau"),
+        SIZE(false, "size", "kichthuoc", "tensize"),
+        SO_LUONG_TON(false, "soluongton", "soluong", "tonkho");
+
+        private final boolean required;
+        private final String[] aliases;
+
+        Column(boolean required, String... aliases) {
+            this.required = required;
+            this.aliases = aliases;
+        }
+    }
+
+    private final Map<Column, Integer> columnIndexes = new LinkedHashMap<>();
+
+    private final Lookup<Loai> loais;
+    private final Lookup<NhanHieu> nhanHieus;
+    private final Lookup<NhaCungCap> nhaCungCaps;
+    private final Lookup<MauSac> mauSacs;
+    private final Lookup<Size> sizes;
+
+    public CatalogRowMapper(List<String> header, ReferenceDataCache referenceDataCache) {
+        Map<String, Column> byAlias = new HashMap<>();
+        for (Column column : Column.values()) {
+            for (String alias : column.aliases) {
+                byAlias.put(alias, column);
+            }
+        }
+        for (int i = 0; i < header.size(); i++) {
+            Column column = byAlias.get(normalizeHeader(header.get(i)));
+            if (column != null) {
+                columnIndexes.putIfAbsent(column, i);
+            }
+        }
+        List<String> missing = new ArrayList<>();
+        for (Column column : Column.values()) {
+            if (column.required && !columnIndexes.containsKey(column)) {
+                missing.add(column.aliases[0]);
+            }
+        }
+        if (columnIndexes.containsKey(Column.MAU_SAC) != columnIndexes.containsKey(Column.SIZE)) {
+            missing.add(columnIndexes.containsKey(Column.MAU_SAC) ? "size" : "mauSac");
+        }
+        if (!missing.isEmpty()) {
+            throw new IllegalArgumentException("Thiếu cột bắt buộc: " + String.join(", ", missing));
+        }
+
+        loais = new Lookup<>(referenceDataCache.getAllLoai(), Loai::getId, Loai::getTen, l -> null);
+        nhanHieus = new Lookup<>(referenceDataCache.getAllNhanHieu(), NhanHieu::getId, NhanHieu::getTen, n -> null);
+        nhaCungCaps = new Lookup<>(referenceDataCache.getAllNhaCungCap(), NhaCungCap::getId, NhaCungCap::getTen, n -> null);
+        mauSacs = new Lookup<>(referenceDataCache.getAllMauSac(), MauSac::getId, MauSac::getMaMau,
+                m -> m.getLoai() != null ? m.getLoai().getId() : null);
+        sizes = new Lookup<>(referenceDataCache.getAllSize(), Size::getId, Size::getTenSize,
+                s -> s.getLoai() != null ? s.getLoai().getId() : null);
+    }
+
+    /**
+     * @throws IllegalArgumentException với tất cả lỗi của dòng, nối bằng "; "
+     */
+    public CatalogImportRow map(long rowNumber, List<String> cells) {
+        List<String> errors = new ArrayList<>();
+        CatalogImportRow row = new CatalogImportRow();
+        row.setRowNumber(rowNumber);
+        row.setCells(List.copyOf(cells));
+
+        String ten = value(cells, Column.TEN);
+        if (ten == null) {
+            errors.add("Tên sản phẩm không được để trống");
+        } else if (ten.length() > MAX_TEN_LENGTH) {
+            errors.add("Tên sản phẩm dài quá " + MAX_TEN_LENGTH + " ký tự");
+        }
+        row.setTen(ten);
+        row.setMoTa(value(cells, Column.MO_TA));
+        String tag = value(cells, Column.TAG);
+        if (tag != null && tag.length() > MAX_TAG_LENGTH) {
+            errors.add("Tag dài quá " + MAX_TAG_LENGTH + " ký tự");
+        }
+        row.setTag(tag);
+        row.setHuongDan(value(cells, Column.HUONG_DAN));
+        row.setThanhPhan(value(cells, Column.THANH_PHAN));
+
+        BigDecimal giaBan = decimal(cells, Column.GIA_BAN, "Giá bán", errors);
+        if (value(cells, Column.GIA_BAN) == null || (giaBan != null && giaBan.signum() <= 0)) {
+            errors.add("Giá bán phải lớn hơn 0");
+        }
+        row.setGiaBan(giaBan);
+        BigDecimal giaNhap = decimal(cells, Column.GIA_NHAP, "Giá nhập", errors);
+        if (giaNhap != null && giaNhap.signum() < 0) {
+            errors.add("Giá nhập không được âm");
+        }
+        row.setGiaNhap(giaNhap);
+        BigDecimal khuyenMai = decimal(cells, Column.KHUYEN_MAI, "Khuyến mãi", errors);
+        if (khuyenMai != null && (khuyenMai.signum() < 0 || khuyenMai.compareTo(BigDecimal.valueOf(100)) > 0)) {
+            errors.add("Khuyến mãi phải từ 0 đến 100");
+        }
+        row.setKhuyenMai(khuyenMai);
+        row.setGioiTinh(gioiTinh(value(cells, Column.GIOI_TINH), errors));
+
+        row.setLoai(required(cells, Column.LOAI, loais, "Loại", errors));
+        row.setNhanHieu(required(cells, Column.NHAN_HIEU, nhanHieus, "Nhãn hiệu", errors));
+        row.setNhaCungCap(required(cells, Column.NHA_CUNG_CAP, nhaCungCaps, "Nhà cung cấp", errors));
+
+        String mau = value(cells, Column.MAU_SAC);
+        String size = value(cells, Column.SIZE);
+        if (mau != null || size != null) {
+            if (mau == null || size == null) {
+                errors.add("Biến thể cần có cả màu sắc và size");
+            } else {
+                Integer loaiId = row.getLoai() != null ? row.getLoai().getId() : null;
+                MauSac mauSac = mauSacs.find(mau, loaiId);
+                Size sizeEntity = sizes.find(size, loaiId);
+                if (mauSac == null) {
+                    errors.add("Không tìm thấy màu sắc: " + mau);
+                }
+                if (sizeEntity == null) {
+                    errors.add("Không tìm thấy size: " + size);
+                }
+                row.setMauSac(mauSac);
+                row.setSize(sizeEntity);
+            }
+            row.setSoLuongTon(soLuong(value(cells, Column.SO_LUONG_TON), errors));
+        } else if (value(cells, Column.SO_LUONG_TON) != null) {
+            errors.add("Số lượng tồn chỉ dùng cho dòng có màu sắc và size");
+        }
+
+        if (!errors.isEmpty()) {
+            throw new IllegalArgumentException(String.join("; ", errors));
+        }
+        return row;
+    }
+
+    private String value(List<String> cells, Column column) {
+        Integer index = columnIndexes.get(column);
+        if (index == null || index >= cells.size()) {
+            return null;
+        }
+        String value = cells.get(index).trim();
+        return value.isEmpty() ? null : value;
+    }
+
+    private BigDecimal decimal(List<String> cells, Column column, String label, List<String> errors) {
+        String value = value(cells, column);
+        if (value == null) {
+            return null;
+        }
+        try {
+            return new BigDecimal(value.replace(" ", ""));
+        } catch (NumberFormatException e) {
+            errors.add(label + " không phải số: " + value);
+            return null;
+        }
+    }
+
+    private <T> T required(List<String> cells, Column column, Lookup<T> lookup, String label, List<String> errors) {
+        String value = value(cells, column);
+        if (value == null) {
+            errors.add(label + " không được để trống");
+            return null;
+        }
+        T entity = lookup.find(value, null);
+        if (entity == null) {
+            errors.add("Không tìm thấy " + label.toLowerCase(Locale.ROOT) + ": " + value);
+        }
+        return entity;
+    }
+
+    // 0: unisex, 1: nam, 2: nữ (giống form sản phẩm); để trống thì giữ giá trị cũ khi cập nhật
+    private Integer gioiTinh(String value, List<String> errors) {
+        if (value == null) {
+            return null;
+        }
+        switch (normalizeHeader(value)) {
+            case "0", "unisex" -> {
+                return 0;
+            }
+            case "1", "nam", "male" -> {
+                return 1;
+            }
+            case "2", "nu", "female" -> {
+                return 2;
+            }
+            default -> {
+                errors.add("Giới tính không hợp lệ: " + value);
+                return null;
+            }
+        }
+    }
+
+    private Integer soLuong(String value, List<String> errors) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            int soLuong = new BigDecimal(value.replace(" ", "")).intValueExact();
+            if (soLuong < 0) {
+                errors.add("Số lượng tồn không được âm");
+                return null;
+            }
+            return soLuong;
+        } catch (NumberFormatException | ArithmeticException e) {
+            errors.add("Số lượng tồn phải là số nguyên: " + value);
+            return null;
+        }
+    }
+
+    // "Tên sản phẩm" -> "tensanpham"
+    static String normalizeHeader(String value) {
+        String stripped = Normalizer.normalize(value.trim().toLowerCase(Locale.ROOT), Normalizer.Form.NFD)
+                .replaceAll("\\p{M}", "")
+                .replace('đ', 'd');
+        return stripped.replaceAll("[^a-z0-9]", "");
+    }
+
+    /**
+     * Tra entity theo id (nếu giá trị là số) hoặc tên không phân biệt hoa thường.
+     * Màu / size cùng tên ở nhiều loại: ưu tiên bản thuộc loại của dòng, sau đó bản đầu tiên.
+     */
+    private static final class Lookup<T> {
+        private final Map<Integer, T> byId = new HashMap<>();
+        private final Map<String, T> byName = new HashMap<>();
+        private final Map<String, T> byScopedName = new HashMap<>();
+
+        Lookup(List<T> entities, Function<T, Integer> id, Function<T, String> name, Function<T, Integer> scope) {
+            for (T entity : entities) {
+                byId.put(id.apply(entity), entity);
+                String key = name.apply(entity) != null ? name.apply(entity).trim().toLowerCase(Locale.ROOT) : null;
+                if (key == null || key.isEmpty()) {
+                    continue;
+                }
+                byName.putIfAbsent(key, entity);
+                Integer scopeId = scope.apply(entity);
+                if (scopeId != null) {
+                    byScopedName.putIfAbsent(scopeId + "|" + key, entity);
+                }
+            }
+        }
+
+        T find(String value, Integer scopeId) {
+            String key = value.toLowerCase(Locale.ROOT);
+            if (scopeId != null) {
+                T scoped = byScopedName.get(scopeId + "|" + key);
+                if (scoped != null) {
+                    return scoped;
+                }
+            }
+            T named = byName.get(key);
+            if (named != null) {
+                return named;
+            }
+            if (value.length() <= 9 && value.chars().allMatch(Character::isDigit)) {
+                return byId.get(Integer.valueOf(value));
+            }
+            return null;
+        }
+    }
+}
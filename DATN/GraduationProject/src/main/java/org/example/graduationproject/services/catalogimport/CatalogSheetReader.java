@@ -0,0 +1,229 @@
+package org.example.graduationproject.services.catalogimport;
+
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.ss.usermodel.DateUtil;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler;
+import org.apache.poi.xssf.model.SharedStrings;
+import org.apache.poi.xssf.model.StylesTable;
+import org.apache.poi.xssf.usermodel.XSSFComment;
+import org.springframework.stereotype.Component;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Đọc file import từng dòng một, không nạp cả file vào bộ nhớ:
+ * - XLSX: SAX trên XML của sheet đầu tiên (XSSF event API), không dựng Workbook / Row / Cell
+ * - CSV: UTF-8 (bỏ BOM), dấu phẩy, hỗ trợ ô trong ngoặc kép có xuống dòng
+ */
+@Component
+public class CatalogSheetReader {
+
+    public void readXlsx(Path file, CatalogRowHandler handler) throws Exception {
+        try (OPCPackage pkg = OPCPackage.open(file.toFile(), PackageAccess.READ)) {
+            XSSFReader reader = new XSSFReader(pkg);
+            // Bảng chuỗi dùng chung chỉ đọc, không dựng CTRst cho từng chuỗi như SharedStringsTable
+            ReadOnlySharedStringsTable strings = new ReadOnlySharedStringsTable(pkg, false);
+            StylesTable styles = reader.getStylesTable();
+            Iterator<InputStream> sheets = reader.getSheetsData();
+            if (!sheets.hasNext()) {
+                throw new IllegalArgumentException("File không có sheet nào");
+            }
+            try (InputStream sheet = sheets.next()) {
+                RowCollector collector = new RowCollector(handler);
+                XMLReader parser = XMLHelper.newXMLReader();
+                parser.setContentHandler(new DimensionAwareHandler(styles, strings, collector, handler));
+                try {
+                    parser.parse(new InputSource(sheet));
+                } catch (HandlerFailure e) {
+                    throw e.cause;
+                }
+            }
+        }
+    }
+
+    public void readCsv(Path file, CatalogRowHandler handler) throws Exception {
+        handler.onTotalRows(countLines(file));
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            reader.mark(1);
+            if (reader.read() != '\uFEFF') {
+                reader.reset();
+            }
+            List<String> cells = new ArrayList<>();
+            StringBuilder value = new StringBuilder();
+            long rowNumber = 1;
+            boolean quoted = false;
+            boolean rowHasContent = false;
+            int c;
+            while ((c = reader.read()) != -1) {
+                if (quoted) {
+                    if (c == '"') {
+                        reader.mark(1);
+                        if (reader.read() == '"') {
+                            value.append('"');
+                        } else {
+                            reader.reset();
+                            quoted = false;
+                        }
+                    } else {
+                        value.append((char) c);
+                    }
+                } else if (c == '"') {
+                    quoted = true;
+                    rowHasContent = true;
+                } else if (c == ',') {
+                    cells.add(value.toString());
+                    value.setLength(0);
+                    rowHasContent = true;
+                } else if (c == '\n' || c == '\r') {
+                    if (c == '\r') {
+                        reader.mark(1);
+                        if (reader.read() != '\n') {
+                            reader.reset();
+                        }
+                    }
+                    if (rowHasContent || value.length() > 0) {
+                        cells.add(value.toString());
+                        handler.onRow(rowNumber, cells);
+                    }
+                    rowNumber++;
+                    cells.clear();
+                    value.setLength(0);
+                    rowHasContent = false;
+                } else {
+                    value.append((char) c);
+                }
+            }
+            if (rowHasContent || value.length() > 0) {
+                cells.add(value.toString());
+                handler.onRow(rowNumber, cells);
+            }
+        }
+    }
+
+    // Ước lượng số dòng để báo tiến độ (ô có xuống dòng làm số này lớn hơn thực tế một chút)
+    private long countLines(Path file) throws IOException {
+        long lines = 0;
+        boolean trailing = false;
+        byte[] buffer = new byte[64 * 1024];
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(file))) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                for (int i = 0; i < read; i++) {
+                    if (buffer[i] == '\n') {
+                        lines++;
+                    }
+                }
+                trailing = read > 0 && buffer[read - 1] != '\n';
+            }
+        }
+        return trailing ? lines + 1 : lines;
+    }
+
+    /**
+     * Gom các ô của một dòng theo vị trí cột (ô trống không có trong XML nên phải điền khoảng trống)
+     */
+    private static final class RowCollector implements XSSFSheetXMLHandler.SheetContentsHandler {
+        private final CatalogRowHandler handler;
+        private final List<String> cells = new ArrayList<>();
+
+        RowCollector(CatalogRowHandler handler) {
+            this.handler = handler;
+        }
+
+        @Override
+        public void startRow(int rowNum) {
+            cells.clear();
+        }
+
+        @Override
+        public void endRow(int rowNum) {
+            if (cells.isEmpty()) {
+                return;
+            }
+            try {
+                handler.onRow(rowNum + 1L, cells);
+            } catch (Exception e) {
+                throw new HandlerFailure(e);
+            }
+        }
+
+        @Override
+        public void cell(String cellReference, String formattedValue, XSSFComment comment) {
+            int column = cellReference != null ? new CellReference(cellReference).getCol() : cells.size();
+            while (cells.size() < column) {
+                cells.add("");
+            }
+            cells.add(formattedValue != null ? formattedValue : "");
+        }
+    }
+
+    /**
+     * Đọc thẻ dimension ở đầu sheet để biết tổng số dòng trước khi duyệt
+     */
+    private static final class DimensionAwareHandler extends XSSFSheetXMLHandler {
+        private final CatalogRowHandler handler;
+        private boolean dimensionSeen;
+
+        DimensionAwareHandler(StylesTable styles, SharedStrings strings, SheetContentsHandler contents,
+                              CatalogRowHandler handler) {
+            super(styles, strings, contents, new RawNumberFormatter(), false);
+            this.handler = handler;
+        }
+
+        @Override
+        public void startElement(String uri, String localName, String qName, Attributes attributes) throws SAXException {
+            if (!dimensionSeen && "dimension".equals(localName)) {
+                dimensionSeen = true;
+                String ref = attributes.getValue("ref");
+                if (ref != null) {
+                    String last = ref.contains(":") ? ref.substring(ref.indexOf(':') + 1) : ref;
+                    handler.onTotalRows(new CellReference(last).getRow() + 1L);
+                }
+            }
+            super.startElement(uri, localName, qName, attributes);
+        }
+    }
+
+    /**
+     * Số giữ nguyên giá trị (không theo định dạng hiển thị "1,200,000 ₫"), ngày vẫn theo định dạng của ô
+     */
+    private static final class RawNumberFormatter extends DataFormatter {
+        @Override
+        public String formatRawCellContents(double value, int formatIndex, String formatString) {
+            if (DateUtil.isADateFormat(formatIndex, formatString)) {
+                return super.formatRawCellContents(value, formatIndex, formatString);
+            }
+            return BigDecimal.valueOf(value).stripTrailingZeros().toPlainString();
+        }
+    }
+
+    // Chuyển exception của handler qua parser SAX
+    private static final class HandlerFailure extends RuntimeException {
+        private final Exception cause;
+
+        HandlerFailure(Exception cause) {
+            super(cause);
+            this.cause = cause;
+        }
+    }
+}
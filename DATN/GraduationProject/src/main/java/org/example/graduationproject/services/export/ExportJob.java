@@ -0,0 +1,122 @@
+package org.example.graduationproject.services.export;
+
+import lombok.Getter;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Một lần export chạy nền: trạng thái, tiến độ và file kết quả trên đĩa
+ */
+@Getter
+public class ExportJob {
+
+    public enum Status { QUEUED, RUNNING, COMPLETED, FAILED }
+
+    private final String id;
+    // Khóa gộp các yêu cầu giống nhau (null = không gộp)
+    private final String dedupeKey;
+    private final String type;
+    private final String fileName;
+    private final String contentType;
+    private final LocalDateTime createdAt = LocalDateTime.now();
+
+    private volatile Status status = Status.QUEUED;
+    // -1 = chưa biết tổng
+    private volatile long totalRows = -1;
+    private volatile long rowsWritten;
+    private volatile String error;
+    // Kết quả tóm tắt do task ghi (vd. số dòng import thành công / lỗi), null nếu không có
+    private volatile Map<String, Object> summary;
+    private volatile LocalDateTime startedAt;
+    private volatile LocalDateTime finishedAt;
+    private volatile Path file;
+    private volatile long fileSize;
+    private volatile long lastAccessedAt = System.currentTimeMillis();
+    // Số lần submit được gộp vào job này (kể cả lần đầu)
+    private final AtomicInteger requestCount = new AtomicInteger(1);
+
+    ExportJob(String id, String dedupeKey, String type, String fileName, String contentType) {
+        this.id = id;
+        this.dedupeKey = dedupeKey;
+        this.type = type;
+        this.fileName = fileName;
+        this.contentType = contentType;
+    }
+
+    public void setTotalRows(long totalRows) {
+        this.totalRows = totalRows;
+    }
+
+    public void setRowsWritten(long rowsWritten) {
+        this.rowsWritten = rowsWritten;
+    }
+
+    public void setSummary(Map<String, Object> summary) {
+        this.summary = summary;
+    }
+
+    public int getProgressPercent() {
+        if (status == Status.COMPLETED) {
+            return 100;
+        }
+        long total = totalRows;
+        if (total <= 0) {
+            return 0;
+        }
+        return (int) Math.min(99, rowsWritten * 100 / total);
+    }
+
+    public boolean isFinished() {
+        return status == Status.COMPLETED || status == Status.FAILED;
+    }
+
+    void touch() {
+        lastAccessedAt = System.currentTimeMillis();
+    }
+
+    void addRequest() {
+        requestCount.incrementAndGet();
+        touch();
+    }
+
+    void markRunning() {
+        startedAt = LocalDateTime.now();
+        status = Status.RUNNING;
+    }
+
+    void markCompleted(Path file, long fileSize) {
+        this.file = file;
+        this.fileSize = fileSize;
+        finishedAt = LocalDateTime.now();
+        status = Status.COMPLETED;
+    }
+
+    void markFailed(String error) {
+        this.error = error;
+        finishedAt = LocalDateTime.now();
+        status = Status.FAILED;
+    }
+
+    public Map<String, Object> toMap() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("jobId", id);
+        map.put("type", type);
+        map.put("status", status.name());
+        map.put("progress", getProgressPercent());
+        map.put("rowsWritten", rowsWritten);
+        map.put("totalRows", totalRows);
+        map.put("fileName", fileName);
+        map.put("fileSize", fileSize);
+        map.put("createdAt", createdAt);
+        map.put("startedAt", startedAt);
+        map.put("finishedAt", finishedAt);
+        map.put("error", error);
+        map.put("summary", summary);
+        map.put("requestCount", requestCount.get());
+        return map;
+    }
+}
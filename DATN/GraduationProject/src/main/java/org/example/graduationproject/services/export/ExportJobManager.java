@@ -0,0 +1,252 @@
+package org.example.graduationproject.services.export;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.example.graduationproject.exceptions.TooManyRequestsException;
+import org.example.graduationproject.utils.LoggerManager;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * Chạy export nền trên executor "export" và giữ file kết quả trong export.jobs.dir.
+ * Client nhận jobId, hỏi tiến độ rồi tải file khi xong.
+ * - Job có dedupeKey: các yêu cầu cùng khóa (cùng dữ liệu, cùng định dạng) dùng chung một job,
+ *   đang chạy thì chờ job đó, đã xong thì trả ngay file có sẵn
+ * - File kết quả là cache trên đĩa: tổng dung lượng vượt export.jobs.cache-max-bytes thì xóa file
+ *   ít được dùng gần đây nhất (LRU), không ai truy cập quá export.jobs.retention-ms cũng bị xóa
+ * - Tối đa export.jobs.max-pending job chờ / đang chạy, vượt quá thì từ chối (429)
+ */
+@Component
+@Slf4j
+public class ExportJobManager {
+
+    private static final String PART_SUFFIX = ".part";
+
+    @Autowired
+    @Qualifier("exportTaskExecutor")
+    private Executor exportTaskExecutor;
+
+    @Value("${export.jobs.dir:data/exports}")
+    private String jobsDir;
+
+    @Value("${export.jobs.retention-ms:3600000}")
+    private long retentionMs;
+
+    @Value("${export.jobs.cache-max-bytes:536870912}")
+    private long cacheMaxBytes;
+
+    @Value("${export.jobs.max-pending:20}")
+    private int maxPending;
+
+    private Path directory;
+    private final Map<String, ExportJob> jobs = new ConcurrentHashMap<>();
+
+    // Các field dưới đây được bảo vệ bởi this
+    private final Map<String, ExportJob> jobsByKey = new HashMap<>();
+    // accessOrder = true: phần tử đầu là file ít được dùng gần đây nhất
+    private final LinkedHashMap<String, ExportJob> cachedFiles = new LinkedHashMap<>(16, 0.75f, true);
+    private long cachedBytes;
+
+    private final AtomicInteger pending = new AtomicInteger();
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder deduplicated = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder evicted = new LongAdder();
+
+    @PostConstruct
+    public void init() throws IOException {
+        directory = Paths.get(jobsDir).toAbsolutePath();
+        Files.createDirectories(directory);
+        // Job chỉ nằm trong bộ nhớ nên file của lần chạy trước không còn ai tải được
+        try (Stream<Path> files = Files.list(directory)) {
+            files.filter(Files::isRegularFile).forEach(this::deleteQuietly);
+        }
+    }
+
+    /**
+     * Tạo job không gộp và xếp vào executor, trả về ngay
+     */
+    public ExportJob submit(String type, String fileName, String contentType, ExportTask task) {
+        return submit(null, type, fileName, contentType, task);
+    }
+
+    /**
+     * Tạo job và xếp vào executor, trả về ngay. Nếu đã có job cùng dedupeKey chưa lỗi
+     * (đang chờ, đang chạy hoặc còn file) thì trả về job đó thay vì export lại.
+     */
+    public ExportJob submit(String dedupeKey, String type, String fileName, String contentType, ExportTask task) {
+        ExportJob job;
+        synchronized (this) {
+            if (dedupeKey != null) {
+                ExportJob existing = jobsByKey.get(dedupeKey);
+                if (existing != null && existing.getStatus() != ExportJob.Status.FAILED) {
+                    existing.addRequest();
+                    cachedFiles.get(existing.getId());
+                    deduplicated.increment();
+                    return existing;
+                }
+            }
+            if (pending.get() >= maxPending) {
+                rejected.increment();
+                throw new TooManyRequestsException("Đang có quá nhiều yêu cầu export, vui lòng thử lại sau");
+            }
+            job = new ExportJob(UUID.randomUUID().toString(), dedupeKey, type, fileName, contentType);
+            jobs.put(job.getId(), job);
+            if (dedupeKey != null) {
+                jobsByKey.put(dedupeKey, job);
+            }
+            pending.incrementAndGet();
+        }
+        submitted.increment();
+        exportTaskExecutor.execute(() -> run(job, task));
+        return job;
+    }
+
+    public Optional<ExportJob> getJob(String jobId) {
+        ExportJob job = jobs.get(jobId);
+        if (job != null) {
+            job.touch();
+            synchronized (this) {
+                cachedFiles.get(jobId);
+            }
+        }
+        return Optional.ofNullable(job);
+    }
+
+    private void run(ExportJob job, ExportTask task) {
+        long start = System.currentTimeMillis();
+        job.markRunning();
+        Path partFile = directory.resolve(job.getId() + PART_SUFFIX);
+        try {
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(partFile), 64 * 1024)) {
+                task.write(out, job);
+            }
+            Path file = directory.resolve(job.getId() + extensionOf(job.getFileName()));
+            Files.move(partFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            job.markCompleted(file, Files.size(file));
+            onCompleted(job);
+            LoggerManager.getInstance().logPerformance("EXPORT_JOB_" + job.getType(), System.currentTimeMillis() - start,
+                    "jobId=" + job.getId() + ", rows=" + job.getRowsWritten() + ", bytes=" + job.getFileSize());
+        } catch (Exception e) {
+            deleteQuietly(partFile);
+            job.markFailed(e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName());
+            onFailed(job);
+            log.error("ExportJobManager: Job {} ({}) failed: {}", job.getId(), job.getType(), e.getMessage(), e);
+        } finally {
+            pending.decrementAndGet();
+        }
+    }
+
+    private synchronized void onCompleted(ExportJob job) {
+        cachedFiles.put(job.getId(), job);
+        cachedBytes += job.getFileSize();
+        // Luôn giữ file vừa xong để client kịp tải, kể cả khi riêng nó đã vượt giới hạn
+        Iterator<ExportJob> iterator = cachedFiles.values().iterator();
+        while (cachedBytes > cacheMaxBytes && iterator.hasNext()) {
+            ExportJob eldest = iterator.next();
+            if (eldest == job) {
+                continue;
+            }
+            iterator.remove();
+            cachedBytes -= eldest.getFileSize();
+            forget(eldest);
+            evicted.increment();
+        }
+    }
+
+    private synchronized void onFailed(ExportJob job) {
+        // Lần submit sau với cùng khóa sẽ export lại
+        if (job.getDedupeKey() != null) {
+            jobsByKey.remove(job.getDedupeKey(), job);
+        }
+    }
+
+    /**
+     * Xóa job đã xong mà không được truy cập quá export.jobs.retention-ms cùng file kết quả
+     */
+    @Scheduled(fixedDelayString = "${export.jobs.cleanup-interval-ms:300000}")
+    public void cleanupExpired() {
+        long cutoff = System.currentTimeMillis() - retentionMs;
+        List<ExportJob> expired = new ArrayList<>();
+        for (ExportJob job : jobs.values()) {
+            if (job.isFinished() && job.getLastAccessedAt() < cutoff) {
+                expired.add(job);
+            }
+        }
+        if (expired.isEmpty()) {
+            return;
+        }
+        synchronized (this) {
+            for (ExportJob job : expired) {
+                if (cachedFiles.remove(job.getId()) != null) {
+                    cachedBytes -= job.getFileSize();
+                }
+                forget(job);
+            }
+        }
+    }
+
+    // Gọi khi đang giữ lock
+    private void forget(ExportJob job) {
+        jobs.remove(job.getId());
+        if (job.getDedupeKey() != null) {
+            jobsByKey.remove(job.getDedupeKey(), job);
+        }
+        if (job.getFile() != null) {
+            // File đang được tải vẫn đọc tiếp được trên Linux, trên Windows xóa lỗi thì để lần dọn sau
+            deleteQuietly(job.getFile());
+        }
+    }
+
+    public synchronized Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("jobs", jobs.size());
+        stats.put("pending", pending.get());
+        stats.put("maxPending", maxPending);
+        stats.put("cachedFiles", cachedFiles.size());
+        stats.put("cachedBytes", cachedBytes);
+        stats.put("cacheMaxBytes", cacheMaxBytes);
+        stats.put("submitted", submitted.sum());
+        stats.put("deduplicated", deduplicated.sum());
+        stats.put("rejected", rejected.sum());
+        stats.put("evicted", evicted.sum());
+        return stats;
+    }
+
+    private String extensionOf(String fileName) {
+        int dot = fileName.lastIndexOf('.');
+        return dot >= 0 ? fileName.substring(dot) : "";
+    }
+
+    private void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.warn("ExportJobManager: Could not delete {}: {}", path, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package org.example.graduationproject.services.export;
+
+import java.io.OutputStream;
+
+/**
+ * Nội dung một export: ghi file vào out và cập nhật tiến độ qua job
+ */
+@FunctionalInterface
+public interface ExportTask {
+
+    void write(OutputStream out, ExportJob job) throws Exception;
+}
@@ -0,0 +1,648 @@
+package org.example.graduationproject.services.image;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.example.graduationproject.exceptions.NotFoundException;
+import org.example.graduationproject.repositories.ImageSanPhamRepository;
+import org.example.graduationproject.services.adapters.LocalFileSystemAdapter;
+import org.example.graduationproject.utils.LoggerManager;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryNotEmptyException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Cache ảnh phái sinh (thumbnail / card / detail) trên đĩa, đánh địa chỉ theo nội dung:
+ * mỗi ảnh gốc có một thư mục image.derivatives.dir/{sha256 của ảnh gốc}/ chứa đủ các kích thước,
+ * nhiều URL gốc trùng nội dung dùng chung một thư mục.
+ * - Tạo lúc upload; ảnh cũ (hoặc đã bị xóa khỏi cache) được tạo lại ở lần truy cập đầu tiên,
+ *   nhiều request cùng lúc cho một URL chỉ tải / resize một lần
+ * - Ảnh gốc local bị ghi đè (mtime đổi) thì URL đó được tạo lại từ nội dung mới; URL cloud có version
+ *   trong đường dẫn nên nội dung không đổi
+ * - Tổng dung lượng vượt image.derivatives.cache-max-bytes thì xóa thư mục ít được dùng gần đây nhất (LRU)
+ * - Chỉ tải ảnh gốc từ ổ đĩa local, thư mục cloud của mình (cloudinary.cloud-name) trên các host trong
+ *   image.derivatives.allowed-hosts, hoặc URL đã được ImageSanPham tham chiếu; URL có query string bị từ chối
+ */
+@Component
+@Slf4j
+public class ImageDerivativeCache {
+
+    private static final String SOURCES_FILE = "sources.txt";
+    private static final String TMP_MARKER = ".tmp-";
+    private static final Pattern HASH = Pattern.compile("[0-9a-f]{64}");
+    private static final int MAX_SOURCE_URL_LENGTH = 2048;
+
+    @Autowired
+    private LocalFileSystemAdapter localImageService;
+
+    @Autowired
+    private ImageSanPhamRepository imageSanPhamRepository;
+
+    @Value("${cloudinary.cloud-name:}")
+    private String cloudName;
+
+    @Value("${image.local.base-url:/api/images/files}")
+    private String localBaseUrl;
+
+    @Value("${image.derivatives.dir:data/image-derivatives}")
+    private String cacheDir;
+
+    @Value("${image.derivatives.cache-max-bytes:1073741824}")
+    private long cacheMaxBytes;
+
+    @Value("${image.derivatives.allowed-hosts:res.cloudinary.com}")
+    private List<String> allowedHosts;
+
+    @Value("${image.derivatives.max-source-bytes:20971520}")
+    private int maxSourceBytes;
+
+    // Chặn ảnh có kích thước khai báo quá lớn trước khi decode (decompression bomb)
+    @Value("${image.derivatives.max-source-pixels:50000000}")
+    private long maxSourcePixels;
+
+    @Value("${image.derivatives.fetch-timeout-ms:10000}")
+    private long fetchTimeoutMs;
+
+    // Số URL gốc tối đa ghi nhận cho một nội dung ảnh (sources.txt không phình vô hạn)
+    @Value("${image.derivatives.max-sources-per-image:16}")
+    private int maxSourcesPerImage;
+
+    private Path directory;
+    private HttpClient httpClient;
+
+    // Các field dưới đây được bảo vệ bởi this
+    // accessOrder = true: phần tử đầu là ảnh ít được dùng gần đây nhất
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long cachedBytes;
+
+    private final Map<String, String> hashBySource = new ConcurrentHashMap<>();
+    // mtime của ảnh gốc local lúc tải, để nhận ra file đã bị ghi đè
+    private final Map<String, Long> sourceModified = new ConcurrentHashMap<>();
+    private final Map<String, CompletableFuture<String>> inFlight = new ConcurrentHashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder generated = new LongAdder();
+    private final LongAdder fetched = new LongAdder();
+    private final LongAdder evicted = new LongAdder();
+    private final LongAdder stale = new LongAdder();
+
+    private static final class Entry {
+        final long bytes;
+        final Set<String> sources = new HashSet<>();
+
+        Entry(long bytes) {
+            this.bytes = bytes;
+        }
+    }
+
+    @PostConstruct
+    public void init() throws IOException {
+        directory = Paths.get(cacheDir).toAbsolutePath().normalize();
+        Files.createDirectories(directory);
+        httpClient = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofMillis(fetchTimeoutMs))
+                // Không theo redirect để không bị dẫn sang host ngoài danh sách cho phép
+                .followRedirects(HttpClient.Redirect.NEVER)
+                .build();
+        loadExisting();
+    }
+
+    /**
+     * Tạo các ảnh phái sinh cho nội dung ảnh gốc (bỏ qua nếu đã có) và ghi nhận sourceUrl trỏ tới nó.
+     * Trả về hash nội dung.
+     */
+    public String store(byte[] content, String sourceUrl) throws IOException {
+        String hash = sha256(content);
+        synchronized (this) {
+            Entry entry = entries.get(hash);
+            if (entry != null) {
+                addSource(hash, entry, sourceUrl);
+                return hash;
+            }
+        }
+
+        long start = System.currentTimeMillis();
+        Path tmp = directory.resolve(hash + TMP_MARKER + UUID.randomUUID());
+        Files.createDirectories(tmp);
+        try {
+            BufferedImage current = toRgb(readImage(content));
+            long bytes = 0;
+            // Từ lớn tới nhỏ, mỗi kích thước resize từ kết quả của kích thước trước
+            ImageVariant[] variants = ImageVariant.values();
+            for (int i = variants.length - 1; i >= 0; i--) {
+                current = scale(current, variants[i].getMaxSize());
+                Path file = tmp.resolve(variants[i].getFileName());
+                writeJpeg(current, variants[i].getQuality(), file);
+                bytes += Files.size(file);
+            }
+
+            Path target = directory.resolve(hash);
+            try {
+                Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE);
+            } catch (FileAlreadyExistsException | DirectoryNotEmptyException e) {
+                // Luồng khác vừa tạo xong cùng nội dung
+                log.debug("ImageDerivativeCache: {} already generated", hash);
+            }
+
+            synchronized (this) {
+                Entry entry = entries.get(hash);
+                if (entry == null) {
+                    entry = new Entry(bytes);
+                    entries.put(hash, entry);
+                    cachedBytes += bytes;
+                }
+                addSource(hash, entry, sourceUrl);
+                evictOverLimit(hash);
+            }
+            generated.increment();
+            LoggerManager.getInstance().logPerformance("IMAGE_DERIVATIVES", System.currentTimeMillis() - start,
+                    "hash=" + hash.substring(0, 12) + ", sourceBytes=" + content.length + ", derivativeBytes=" + bytes);
+            return hash;
+        } finally {
+            if (Files.exists(tmp)) {
+                deleteTree(tmp);
+            }
+        }
+    }
+
+    /**
+     * File ảnh phái sinh theo hash nội dung, rỗng nếu không có trong cache
+     */
+    public Optional<Path> find(String hash, ImageVariant variant) {
+        if (hash == null || !HASH.matcher(hash).matches()) {
+            return Optional.empty();
+        }
+        synchronized (this) {
+            if (entries.get(hash) == null) {
+                return Optional.empty();
+            }
+        }
+        Path file = directory.resolve(hash).resolve(variant.getFileName());
+        return Files.isRegularFile(file) ? Optional.of(file) : Optional.empty();
+    }
+
+    /**
+     * File ảnh phái sinh của một URL ảnh gốc, tạo nếu chưa có
+     */
+    public Path resolve(String sourceUrl, ImageVariant variant) throws IOException {
+        checkSource(sourceUrl);
+        String hash = hashBySource.get(sourceUrl);
+        if (hash != null && isStale(sourceUrl, hash)) {
+            stale.increment();
+            removeSource(sourceUrl);
+        } else if (hash != null) {
+            Optional<Path> file = find(hash, variant);
+            if (file.isPresent()) {
+                hits.increment();
+                return file.get();
+            }
+        }
+        misses.increment();
+
+        CompletableFuture<String> mine = new CompletableFuture<>();
+        CompletableFuture<String> existing = inFlight.putIfAbsent(sourceUrl, mine);
+        if (existing == null) {
+            try {
+                mine.complete(store(fetchSource(sourceUrl), sourceUrl));
+            } catch (Exception e) {
+                mine.completeExceptionally(e);
+            } finally {
+                inFlight.remove(sourceUrl, mine);
+            }
+        }
+        try {
+            hash = (existing != null ? existing : mine).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof IOException io) {
+                throw io;
+            }
+            if (e.getCause() instanceof RuntimeException re) {
+                throw re;
+            }
+            throw new IOException(e.getCause());
+        }
+        return find(hash, variant).orElseThrow(() -> new IOException("Ảnh phái sinh vừa tạo đã bị xóa khỏi cache"));
+    }
+
+    /**
+     * Bỏ liên kết URL gốc đã bị xóa; thư mục ảnh phái sinh được dọn dần theo LRU
+     */
+    public void removeSource(String sourceUrl) {
+        sourceModified.remove(sourceUrl);
+        String hash = hashBySource.remove(sourceUrl);
+        if (hash == null) {
+            return;
+        }
+        synchronized (this) {
+            Entry entry = entries.get(hash);
+            if (entry != null && entry.sources.remove(sourceUrl)) {
+                writeSources(hash, entry);
+            }
+        }
+    }
+
+    public synchronized Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("images", entries.size());
+        stats.put("sources", hashBySource.size());
+        stats.put("cachedBytes", cachedBytes);
+        stats.put("cacheMaxBytes", cacheMaxBytes);
+        stats.put("hits", hits.sum());
+        stats.put("misses", misses.sum());
+        stats.put("generated", generated.sum());
+        stats.put("fetched", fetched.sum());
+        stats.put("evicted", evicted.sum());
+        stats.put("stale", stale.sum());
+        return stats;
+    }
+
+    private byte[] fetchSource(String sourceUrl) throws IOException {
+        if (sourceUrl.startsWith(localBaseUrl + "/")) {
+            Path file = localImageService.resolve(sourceUrl.substring(localBaseUrl.length() + 1));
+            if (!Files.isRegularFile(file)) {
+                throw new NotFoundException("Không tìm thấy ảnh gốc");
+            }
+            if (Files.size(file) > maxSourceBytes) {
+                throw new IllegalArgumentException("Ảnh gốc quá lớn");
+            }
+            // Đọc mtime trước nội dung: file bị ghi đè giữa chừng thì lần sau vẫn thấy mtime khác và tạo lại
+            long modified = lastModified(file);
+            byte[] content = Files.readAllBytes(file);
+            sourceModified.put(sourceUrl, modified);
+            fetched.increment();
+            return content;
+        }
+
+        URI uri = URI.create(sourceUrl);
+        if (!isAllowed(uri)) {
+            throw new IllegalArgumentException("Nguồn ảnh không được phép");
+        }
+        HttpRequest request = HttpRequest.newBuilder(uri)
+                .timeout(Duration.ofMillis(fetchTimeoutMs))
+                .GET()
+                .build();
+        HttpResponse<InputStream> response;
+        try {
+            response = httpClient.send(request, HttpResponse.BodyHandlers.ofInputStream());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Bị gián đoạn khi tải ảnh gốc", e);
+        }
+        try (InputStream in = response.body()) {
+            if (response.statusCode() == 404) {
+                throw new NotFoundException("Không tìm thấy ảnh gốc");
+            }
+            if (response.statusCode() != 200) {
+                throw new IOException("Tải ảnh gốc lỗi HTTP " + response.statusCode());
+            }
+            byte[] content = in.readNBytes(maxSourceBytes + 1);
+            if (content.length > maxSourceBytes) {
+                throw new IllegalArgumentException("Ảnh gốc quá lớn");
+            }
+            fetched.increment();
+            return content;
+        }
+    }
+
+    /**
+     * Ảnh gốc local có mtime khác lúc tải (bị ghi đè hoặc đã xóa). Sau khởi động lại chưa biết mtime lúc tải
+     * nên so với thời điểm tạo thư mục ảnh phái sinh: ảnh gốc sửa sau đó thì coi là cũ.
+     */
+    private boolean isStale(String sourceUrl, String hash) {
+        if (!sourceUrl.startsWith(localBaseUrl + "/")) {
+            return false;
+        }
+        long modified = lastModified(localImageService.resolve(sourceUrl.substring(localBaseUrl.length() + 1)));
+        Long known = sourceModified.get(sourceUrl);
+        if (known != null) {
+            return modified != known;
+        }
+        if (modified == 0 || modified > lastModified(directory.resolve(hash))) {
+            return true;
+        }
+        sourceModified.put(sourceUrl, modified);
+        return false;
+    }
+
+    /**
+     * Endpoint resolve không cần đăng nhập nên chỉ nhận nguồn của chính hệ thống:
+     * ảnh local, URL đã có trong cache, ảnh dưới thư mục cloud của mình, hoặc URL có trong ImageSanPham.
+     * Query string / fragment bị từ chối để cùng một ảnh không bị tải lại dưới nhiều URL khác nhau.
+     */
+    private void checkSource(String sourceUrl) {
+        if (sourceUrl == null || sourceUrl.isBlank() || sourceUrl.length() > MAX_SOURCE_URL_LENGTH) {
+            throw new IllegalArgumentException("Nguồn ảnh không hợp lệ");
+        }
+        if (sourceUrl.indexOf('?') >= 0 || sourceUrl.indexOf('#') >= 0) {
+            throw new IllegalArgumentException("Nguồn ảnh không được có query string");
+        }
+        if (sourceUrl.startsWith(localBaseUrl + "/") || hashBySource.containsKey(sourceUrl)) {
+            return;
+        }
+        URI uri;
+        try {
+            uri = URI.create(sourceUrl);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Nguồn ảnh không hợp lệ");
+        }
+        if (isAllowed(uri) && isOwnCloudPath(uri)) {
+            return;
+        }
+        if (imageSanPhamRepository.existsByImageName(sourceUrl)) {
+            return;
+        }
+        throw new IllegalArgumentException("Nguồn ảnh không được phép");
+    }
+
+    // https://res.cloudinary.com/{cloud_name}/image/upload/...
+    private boolean isOwnCloudPath(URI uri) {
+        String path = uri.getRawPath();
+        if (cloudName == null || cloudName.isBlank() || path == null) {
+            return false;
+        }
+        String lower = path.toLowerCase();
+        if (lower.contains("..") || lower.contains("%2e") || lower.contains("%2f")) {
+            return false;
+        }
+        return path.startsWith("/" + cloudName.trim() + "/");
+    }
+
+    private boolean isAllowed(URI uri) {
+        String scheme = uri.getScheme();
+        String host = uri.getHost();
+        if (host == null || !("https".equalsIgnoreCase(scheme) || "http".equalsIgnoreCase(scheme))) {
+            return false;
+        }
+        String lower = host.toLowerCase();
+        for (String allowed : allowedHosts) {
+            String candidate = allowed.trim().toLowerCase();
+            if (!candidate.isEmpty() && (lower.equals(candidate) || lower.endsWith("." + candidate))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private BufferedImage readImage(byte[] content) throws IOException {
+        try (ImageInputStream in = ImageIO.createImageInputStream(new ByteArrayInputStream(content))) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+            if (!readers.hasNext()) {
+                throw new IllegalArgumentException("Định dạng ảnh không được hỗ trợ");
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                if ((long) width * height > maxSourcePixels) {
+                    throw new IllegalArgumentException("Ảnh gốc có kích thước quá lớn");
+                }
+                ImageReadParam param = reader.getDefaultReadParam();
+                // Ảnh gốc lớn hơn nhiều bản detail thì decode thưa, vẫn giữ ít nhất gấp đôi kích thước cần
+                int subsampling = Math.max(1, Math.max(width, height) / (2 * ImageVariant.DETAIL.getMaxSize()));
+                param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * Thu nhỏ để cạnh dài nhất không vượt maxSize: giảm một nửa mỗi bước rồi bilinear tới kích thước đích
+     * (nhanh hơn bicubic một bước và không bị răng cưa khi thu nhỏ nhiều)
+     */
+    private BufferedImage scale(BufferedImage source, int maxSize) {
+        int width = source.getWidth();
+        int height = source.getHeight();
+        double ratio = Math.min(1.0, (double) maxSize / Math.max(width, height));
+        int targetWidth = Math.max(1, (int) Math.round(width * ratio));
+        int targetHeight = Math.max(1, (int) Math.round(height * ratio));
+
+        BufferedImage current = source;
+        while (current.getWidth() / 2 >= targetWidth && current.getHeight() / 2 >= targetHeight) {
+            current = resize(current, current.getWidth() / 2, current.getHeight() / 2);
+        }
+        if (current.getWidth() != targetWidth || current.getHeight() != targetHeight) {
+            current = resize(current, targetWidth, targetHeight);
+        }
+        return current;
+    }
+
+    private BufferedImage resize(BufferedImage source, int width, int height) {
+        BufferedImage target = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = target.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            g.drawImage(source, 0, 0, width, height, null);
+        } finally {
+            g.dispose();
+        }
+        return target;
+    }
+
+    // JPEG không có kênh alpha: nền trong suốt thành trắng
+    private BufferedImage toRgb(BufferedImage source) {
+        if (source.getType() == BufferedImage.TYPE_INT_RGB) {
+            return source;
+        }
+        BufferedImage target = new BufferedImage(source.getWidth(), source.getHeight(), BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = target.createGraphics();
+        try {
+            g.setColor(Color.WHITE);
+            g.fillRect(0, 0, source.getWidth(), source.getHeight());
+            g.drawImage(source, 0, 0, null);
+        } finally {
+            g.dispose();
+        }
+        return target;
+    }
+
+    private void writeJpeg(BufferedImage image, float quality, Path file) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        try (ImageOutputStream out = ImageIO.createImageOutputStream(file.toFile())) {
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(quality);
+            // Progressive JPEG: trình duyệt hiện bản mờ trước khi tải xong
+            param.setProgressiveMode(ImageWriteParam.MODE_DEFAULT);
+            writer.setOutput(out);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+    }
+
+    // Gọi khi đang giữ lock
+    private void addSource(String hash, Entry entry, String sourceUrl) {
+        if (sourceUrl == null) {
+            return;
+        }
+        if (!entry.sources.contains(sourceUrl) && entry.sources.size() >= maxSourcesPerImage) {
+            log.debug("ImageDerivativeCache: {} already has {} sources, not recording {}", hash,
+                    entry.sources.size(), sourceUrl);
+            return;
+        }
+        hashBySource.put(sourceUrl, hash);
+        if (entry.sources.add(sourceUrl)) {
+            try {
+                Files.writeString(directory.resolve(hash).resolve(SOURCES_FILE), sourceUrl + "\n",
+                        StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            } catch (IOException e) {
+                log.warn("ImageDerivativeCache: Could not record source for {}: {}", hash, e.getMessage());
+            }
+        }
+    }
+
+    // Gọi khi đang giữ lock
+    private void writeSources(String hash, Entry entry) {
+        try {
+            Files.write(directory.resolve(hash).resolve(SOURCES_FILE), entry.sources, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            log.warn("ImageDerivativeCache: Could not rewrite sources for {}: {}", hash, e.getMessage());
+        }
+    }
+
+    // Gọi khi đang giữ lock. Luôn giữ ảnh vừa tạo
+    private void evictOverLimit(String keep) {
+        Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+        while (cachedBytes > cacheMaxBytes && iterator.hasNext()) {
+            Map.Entry<String, Entry> eldest = iterator.next();
+            if (eldest.getKey().equals(keep)) {
+                continue;
+            }
+            iterator.remove();
+            cachedBytes -= eldest.getValue().bytes;
+            for (String source : eldest.getValue().sources) {
+                if (hashBySource.remove(source, eldest.getKey())) {
+                    sourceModified.remove(source);
+                }
+            }
+            // File đang được gửi vẫn đọc tiếp được trên Linux
+            deleteTree(directory.resolve(eldest.getKey()));
+            evicted.increment();
+        }
+    }
+
+    /**
+     * Nạp lại cache từ đĩa khi khởi động, thư mục sửa đổi gần nhất được coi là dùng gần nhất
+     */
+    private void loadExisting() throws IOException {
+        List<Path> dirs = new ArrayList<>();
+        try (Stream<Path> children = Files.list(directory)) {
+            children.filter(Files::isDirectory).forEach(dir -> {
+                String name = dir.getFileName().toString();
+                if (HASH.matcher(name).matches()) {
+                    dirs.add(dir);
+                } else if (name.contains(TMP_MARKER)) {
+                    // Lần chạy trước dừng giữa chừng
+                    deleteTree(dir);
+                }
+            });
+        }
+        dirs.sort(Comparator.comparingLong(this::lastModified));
+
+        synchronized (this) {
+            for (Path dir : dirs) {
+                String hash = dir.getFileName().toString();
+                long bytes = 0;
+                try (Stream<Path> files = Files.list(dir)) {
+                    for (Path file : (Iterable<Path>) files::iterator) {
+                        if (!file.getFileName().toString().equals(SOURCES_FILE)) {
+                            bytes += Files.size(file);
+                        }
+                    }
+                }
+                Entry entry = new Entry(bytes);
+                Path sources = dir.resolve(SOURCES_FILE);
+                if (Files.isRegularFile(sources)) {
+                    for (String line : Files.readAllLines(sources, StandardCharsets.UTF_8)) {
+                        if (!line.isBlank()) {
+                            entry.sources.add(line.trim());
+                            hashBySource.put(line.trim(), hash);
+                        }
+                    }
+                }
+                entries.put(hash, entry);
+                cachedBytes += bytes;
+            }
+            evictOverLimit(null);
+        }
+        log.info("ImageDerivativeCache: Loaded {} images ({} bytes) from {}", entries.size(), cachedBytes, directory);
+    }
+
+    private long lastModified(Path path) {
+        try {
+            return Files.getLastModifiedTime(path).toMillis();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private void deleteTree(Path dir) {
+        try (Stream<Path> walk = Files.walk(dir)) {
+            for (Path path : (Iterable<Path>) walk.sorted(Comparator.reverseOrder())::iterator) {
+                Files.deleteIfExists(path);
+            }
+        } catch (IOException e) {
+            log.warn("ImageDerivativeCache: Could not delete {}: {}", dir, e.getMessage());
+        }
+    }
+
+    private static String sha256(byte[] content) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package org.example.graduationproject.services.image;
+
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Các kích thước ảnh phái sinh, cạnh dài nhất không vượt maxSize (ảnh nhỏ hơn giữ nguyên kích thước)
+ */
+public enum ImageVariant {
+    THUMBNAIL("thumbnail", 160, 0.75f),
+    CARD("card", 480, 0.8f),
+    DETAIL("detail", 1200, 0.85f);
+
+    public static final String BASE_PATH = "/api/images/derivatives";
+
+    private final String key;
+    private final int maxSize;
+    private final float quality;
+
+    ImageVariant(String key, int maxSize, float quality) {
+        this.key = key;
+        this.maxSize = maxSize;
+        this.quality = quality;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public float getQuality() {
+        return quality;
+    }
+
+    public String getFileName() {
+        return key + ".jpg";
+    }
+
+    /**
+     * Đường dẫn (tương đối với host của API) tới ảnh phái sinh của một URL ảnh gốc
+     */
+    public String pathFor(String sourceUrl) {
+        return BASE_PATH + "/" + key + "?src=" + URLEncoder.encode(sourceUrl, StandardCharsets.UTF_8);
+    }
+
+    public static ImageVariant fromKey(String key) {
+        for (ImageVariant variant : values()) {
+            if (variant.key.equalsIgnoreCase(key)) {
+                return variant;
+            }
+        }
+        return null;
+    }
+}
@@ -1,5 +1,6 @@
 package org.example.graduationproject.services.impl;
 
+import org.example.graduationproject.dto.CursorPage;
 import org.example.graduationproject.dto.ImportRequestDTO;
 import org.example.graduationproject.dto.ServiceResult;
 import org.example.graduationproject.exceptions.BadRequestException;
@@ -8,7 +9,12 @@ import org.example.graduationproject.models.ChiTietPhieuNhapHang;
 import org.example.graduationproject.models.NhaCungCap;
 import org.example.graduationproject.models.PhieuNhapHang;
 import org.example.graduationproject.models.SanPhamBienThe;
+import org.example.graduationproject.repositories.BatchInsertRepository;
+import org.example.graduationproject.repositories.ChiTietPhieuNhapHangRepository;
 import org.example.graduationproject.services.*;
+import org.example.graduationproject.services.export.ExportJob;
+import org.example.graduationproject.services.export.ExportJobManager;
+import org.example.graduationproject.utils.KeysetCursor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
@@ -16,21 +22,27 @@ import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
-
-import jakarta.annotation.PreDestroy;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HexFormat;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 
 @Service
 public class AdminImportServiceImpl implements AdminImportService {
 
+    // Vị trí cột ct.id trong kết quả ChiTietPhieuNhapHangRepository.findExportColumns
+    private static final int EXPORT_DETAIL_ID_COLUMN = 9;
+
     @Autowired
     private NhaCungCapService nhaCungCapService;
     
@@ -46,11 +58,26 @@ public class AdminImportServiceImpl implements AdminImportService {
     @Autowired
     private ChiTietPhieuNhapHangService chiTietPhieuNhapHangService;
     
+    @Autowired
+    private StockLedgerService stockLedgerService;
+    
+    @Autowired
+    private BatchInsertRepository batchInsertRepository;
+    
+    @Autowired
+    private ApproximateCountService approximateCountService;
+    
     @Autowired
     private ExcelExportService excelExportService;
     
     @Autowired
     private PdfExportService pdfExportService;
+    
+    @Autowired
+    private ExportJobManager exportJobManager;
+    
+    @Autowired
+    private ChiTietPhieuNhapHangRepository chiTietPhieuNhapHangRepository;
 
     @Override
     public ServiceResult<Map<String, Object>> getImportsWithFilters(String search, int page, int size) {
@@ -87,6 +114,31 @@ public class AdminImportServiceImpl implements AdminImportService {
         return ServiceResult.ok("Lấy danh sách phiếu nhập hàng thành công", result);
     }
 
+    @Override
+    public ServiceResult<CursorPage<PhieuNhapHang>> getImportsKeyset(String search, String cursor, int size) {
+        size = KeysetCursor.pageSize(size);
+        KeysetCursor after = KeysetCursor.decode(cursor);
+        List<PhieuNhapHang> rows = after == null
+                ? phieuNhapHangService.findKeyset(search, null, null, size + 1)
+                : phieuNhapHangService.findKeyset(search, after.getSortValueAsDateTime(), after.getId(), size + 1);
+
+        boolean hasNext = rows.size() > size;
+        List<PhieuNhapHang> content = hasNext ? new ArrayList<>(rows.subList(0, size)) : rows;
+        String nextCursor = null;
+        if (hasNext) {
+            PhieuNhapHang last = content.get(content.size() - 1);
+            nextCursor = KeysetCursor.encode(last.getNgayTao(), last.getId());
+        }
+
+        long approximateTotal = (search == null || search.trim().isEmpty())
+                ? approximateCountService.approximateCount(PhieuNhapHang.class)
+                : approximateCountService.cachedCount("PhieuNhapHang:" + search.trim().toLowerCase(),
+                        () -> phieuNhapHangService.countByKeyword(search));
+
+        return ServiceResult.ok("Lấy danh sách phiếu nhập hàng thành công",
+                new CursorPage<>(content, nextCursor, hasNext, size, approximateTotal));
+    }
+
     @Override
     @Transactional
     public ServiceResult<Map<String, Object>> createImport(ImportRequestDTO request) {
@@ -122,13 +174,17 @@ public class AdminImportServiceImpl implements AdminImportService {
         phieuNhapHang = phieuNhapHangService.save(phieuNhapHang);
         
         // 5. Create ChiTietPhieuNhapHang for each detail
+        // Lấy toàn bộ biến thể trong một truy vấn thay vì từng findById
+        Map<Integer, SanPhamBienThe> variants = sanPhamBienTheService.findAllByIds(
+                request.getDetails().stream().map(detail -> detail.getVariantId()).collect(Collectors.toList()));
+        
+        List<ChiTietPhieuNhapHang> chiTietList = new ArrayList<>();
+        Map<Integer, Integer> receivedQuantities = new HashMap<>();
         for (var detail : request.getDetails()) {
-            // Get SanPhamBienThe
-            Optional<SanPhamBienThe> variantOpt = sanPhamBienTheService.getSanPhamBienTheById(detail.getVariantId());
-            if (variantOpt.isEmpty()) {
+            SanPhamBienThe variant = variants.get(detail.getVariantId());
+            if (variant == null) {
                 throw new NotFoundException("Không tìm thấy biến thể sản phẩm với ID: " + detail.getVariantId());
             }
-            SanPhamBienThe variant = variantOpt.get();
             
             // Create ChiTietPhieuNhapHang
             ChiTietPhieuNhapHang chiTiet = new ChiTietPhieuNhapHang();
@@ -137,16 +193,17 @@ public class AdminImportServiceImpl implements AdminImportService {
             chiTiet.setThanhTienNhap(price.multiply(BigDecimal.valueOf(detail.getQuantity())));
             chiTiet.setPhieuNhapHang(phieuNhapHang);
             chiTiet.setSanPhamBienThe(variant);
+            chiTietList.add(chiTiet);
             
-            // Save ChiTietPhieuNhapHang
-            chiTietPhieuNhapHangService.save(chiTiet);
-            
-            // 6. Update product variant quantity
-            int currentQuantity = variant.getSoLuongTon() != null ? variant.getSoLuongTon() : 0;
-            variant.setSoLuongTon(currentQuantity + detail.getQuantity());
-            sanPhamBienTheService.saveSanPhamBienThe(variant);
+            receivedQuantities.merge(variant.getId(), detail.getQuantity(), Integer::sum);
         }
         
+        // Lưu chi tiết phiếu nhập trong một JDBC batch
+        batchInsertRepository.insertChiTietPhieuNhapHangs(chiTietList);
+        
+        // 6. Update product variant quantity qua sổ cái tồn kho
+        stockLedgerService.receive(receivedQuantities);
+        
         Map<String, Object> result = new HashMap<>();
         result.put("success", true);
         result.put("message", "Tạo phiếu nhập thành công! Mã phiếu: " + phieuNhapHang.getSoChungTu());
@@ -269,15 +326,13 @@ public class AdminImportServiceImpl implements AdminImportService {
         
         // Rollback tồn kho từ các chi tiết
         List<ChiTietPhieuNhapHang> details = chiTietPhieuNhapHangService.findByPhieuNhapHangId(importId);
+        Map<Integer, Integer> reversedQuantities = new HashMap<>();
         for (ChiTietPhieuNhapHang ct : details) {
-            if (ct.getSanPhamBienThe() != null) {
-                SanPhamBienThe variant = ct.getSanPhamBienThe();
-                int currentQuantity = variant.getSoLuongTon() != null ? variant.getSoLuongTon() : 0;
-                int newQuantity = currentQuantity - (ct.getSoLuongNhap() != null ? ct.getSoLuongNhap() : 0);
-                variant.setSoLuongTon(Math.max(newQuantity, 0));
-                sanPhamBienTheService.saveSanPhamBienThe(variant);
+            if (ct.getSanPhamBienThe() != null && ct.getSoLuongNhap() != null) {
+                reversedQuantities.merge(ct.getSanPhamBienThe().getId(), ct.getSoLuongNhap(), Integer::sum);
             }
         }
+        stockLedgerService.reverseReceipt(reversedQuantities);
         
         // Xóa phiếu (cascade sẽ xóa chi tiết)
         phieuNhapHangService.deleteById(importId);
@@ -305,48 +360,60 @@ public class AdminImportServiceImpl implements AdminImportService {
         }
     }
     
-    /**
-     * Export Excel với async processing cho data lớn
-     */
-    public ServiceResult<CompletableFuture<byte[]>> exportImportToExcelAsync(Integer importId) {
-        try {
-            Optional<PhieuNhapHang> phieuOpt = phieuNhapHangService.findById(importId);
-            if (phieuOpt.isEmpty()) {
-                throw new NotFoundException("Không tìm thấy phiếu nhập hàng");
-            }
-            
-            PhieuNhapHang phieu = phieuOpt.get();
-            List<ChiTietPhieuNhapHang> details = chiTietPhieuNhapHangService.findByPhieuNhapHangId(importId);
-            
-            // Sử dụng async version cho data lớn
-            CompletableFuture<byte[]> future = excelExportService.exportImportDetailToExcelAsync(phieu, details);
-            
-            return ServiceResult.ok("Export Excel async đã được khởi tạo", future);
-        } catch (Exception e) {
-            throw new RuntimeException("Lỗi khi khởi tạo export Excel async: " + e.getMessage(), e);
-        }
+    @Override
+    public ServiceResult<StreamingResponseBody> streamImportToExcel(Integer importId) {
+        // Kiểm tra phiếu trước khi bắt đầu ghi response để còn trả được 404
+        PhieuNhapHang phieu = phieuNhapHangService.findById(importId)
+                .orElseThrow(() -> new NotFoundException("Không tìm thấy phiếu nhập hàng"));
+        
+        StreamingResponseBody body = outputStream -> excelExportService.writeImportDetailStreaming(phieu, outputStream);
+        return ServiceResult.ok("Export Excel thành công", body);
     }
     
-    /**
-     * Export Excel với batch processing cho data rất lớn
-     */
-    public ServiceResult<CompletableFuture<byte[]>> exportImportToExcelBatch(Integer importId) {
-        try {
-            Optional<PhieuNhapHang> phieuOpt = phieuNhapHangService.findById(importId);
-            if (phieuOpt.isEmpty()) {
-                throw new NotFoundException("Không tìm thấy phiếu nhập hàng");
-            }
-            
-            PhieuNhapHang phieu = phieuOpt.get();
-            List<ChiTietPhieuNhapHang> details = chiTietPhieuNhapHangService.findByPhieuNhapHangId(importId);
-            
-            // Sử dụng batch version cho data rất lớn
-            CompletableFuture<byte[]> future = excelExportService.exportImportDetailToExcelBatch(phieu, details);
-            
-            return ServiceResult.ok("Export Excel batch đã được khởi tạo", future);
-        } catch (Exception e) {
-            throw new RuntimeException("Lỗi khi khởi tạo export Excel batch: " + e.getMessage(), e);
+    @Override
+    public ServiceResult<StreamingResponseBody> streamImportToPdf(Integer importId) {
+        PhieuNhapHang phieu = phieuNhapHangService.findById(importId)
+                .orElseThrow(() -> new NotFoundException("Không tìm thấy phiếu nhập hàng"));
+        // Nạp chi tiết trước vì body chạy trên thread export, ngoài request
+        List<ChiTietPhieuNhapHang> details = chiTietPhieuNhapHangService.findByPhieuNhapHangId(importId);
+        
+        StreamingResponseBody body = outputStream -> pdfExportService.writeImportDetailPdf(phieu, details, outputStream);
+        return ServiceResult.ok("Export PDF thành công", body);
+    }
+    
+    @Override
+    public ServiceResult<ExportJob> submitImportExport(Integer importId, String format) {
+        PhieuNhapHang phieu = phieuNhapHangService.findById(importId)
+                .orElseThrow(() -> new NotFoundException("Không tìm thấy phiếu nhập hàng"));
+        String normalized = format != null ? format.trim().toLowerCase() : "excel";
+        if (!normalized.equals("excel") && !normalized.equals("pdf")) {
+            throw new BadRequestException("Định dạng không hỗ trợ: " + format + " (excel hoặc pdf)");
         }
+        
+        List<Object[]> columns = chiTietPhieuNhapHangRepository.findExportColumns(importId);
+        long detailCount = columns.stream().filter(row -> row[EXPORT_DETAIL_ID_COLUMN] != null).count();
+        // Khóa gồm phiếu, định dạng và dấu vân tay các cột được in: dữ liệu đổi thì khóa đổi, file cũ tự rơi khỏi cache
+        String dedupeKey = "IMPORT_" + normalized.toUpperCase() + ":" + importId + ":" + exportFingerprint(columns);
+        
+        ExportJob job;
+        if (normalized.equals("excel")) {
+            job = exportJobManager.submit(dedupeKey, "IMPORT_EXCEL", "phieu-nhap-" + importId + ".xlsx",
+                    "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet",
+                    (out, exportJob) -> {
+                        exportJob.setTotalRows(detailCount);
+                        exportJob.setRowsWritten(excelExportService.writeImportDetailStreaming(phieu, out));
+                    });
+        } else {
+            job = exportJobManager.submit(dedupeKey, "IMPORT_PDF", "phieu-nhap-" + importId + ".pdf",
+                    "application/pdf",
+                    (out, exportJob) -> {
+                        exportJob.setTotalRows(detailCount);
+                        List<ChiTietPhieuNhapHang> details = chiTietPhieuNhapHangService.findByPhieuNhapHangId(importId);
+                        pdfExportService.writeImportDetailPdf(phieu, details, out);
+                        exportJob.setRowsWritten(details.size());
+                    });
+        }
+        return ServiceResult.ok("Đã tạo job export", job);
     }
 
     @Override
@@ -368,6 +435,28 @@ public class AdminImportServiceImpl implements AdminImportService {
         }
     }
 
+    /**
+     * SHA-256 của mọi giá trị sẽ được in ra file (theo thứ tự dòng), thay cho tổng / max vốn có thể trùng nhau
+     * khi dữ liệu khác nhau và bỏ sót các cột như mã màu, size, tên nhà cung cấp
+     */
+    private static String exportFingerprint(List<Object[]> columns) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        for (Object[] row : columns) {
+            for (Object value : row) {
+                // Ký tự phân cách để ("ab", "c") và ("a", "bc") không cho cùng kết quả; null khác chuỗi "null"
+                digest.update((value != null ? "\u0001" + value : "\u0000").getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) 0x1F);
+            }
+            digest.update((byte) 0x1E);
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
     private String getCurrentUsername() {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
         if (authentication != null && authentication.isAuthenticated()) {
@@ -389,16 +478,4 @@ public class AdminImportServiceImpl implements AdminImportService {
     public List<ChiTietPhieuNhapHang> getChiTietPhieuNhapHangById(Integer importId) {
         return chiTietPhieuNhapHangService.findByPhieuNhapHangId(importId);
     }
-    
-    /**
-     * Cleanup temp files khi application shutdown
-     */
-    @PreDestroy
-    public void cleanup() {
-        try {
-            excelExportService.cleanupTempFiles();
-        } catch (Exception e) {
-            System.err.println("Lỗi cleanup temp files: " + e.getMessage());
-        }
-    }
 }
@@ -7,14 +7,11 @@ import org.example.graduationproject.models.Loai;
 import org.example.graduationproject.models.NhaCungCap;
 import org.example.graduationproject.models.NhanHieu;
 import org.example.graduationproject.models.SanPham;
-import org.example.graduationproject.repositories.LoaiRepository;
-import org.example.graduationproject.repositories.NhaCungCapRepository;
-import org.example.graduationproject.repositories.NhanHieuRepository;
 import org.example.graduationproject.services.AdminProductService;
 import org.example.graduationproject.services.SanPhamService;
-import org.example.graduationproject.services.ImageService;
+import org.example.graduationproject.services.ImageServiceFactory;
+import org.example.graduationproject.services.cache.ReferenceDataCache;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
 
 import java.util.HashMap;
@@ -28,28 +25,21 @@ public class AdminProductServiceImpl implements AdminProductService {
 
 
     @Autowired
-    private LoaiRepository loaiRepository;
-
-    @Autowired
-    private NhanHieuRepository nhanHieuRepository;
-
-    @Autowired
-    private NhaCungCapRepository nhaCungCapRepository;
+    private ReferenceDataCache referenceDataCache;
 
     @Autowired
     private SanPhamService sanPhamService;
 
     @Autowired
-    @Qualifier("cloudinaryImageService")
-    private ImageService imageService;
+    private ImageServiceFactory imageServiceFactory;
     
 
 
     @Override
     public ServiceResult<Map<String, Object>> getProductFormData() {
-        List<Loai> loais = loaiRepository.findAll();
-        List<NhanHieu> nhanHieus = nhanHieuRepository.findAll();
-        List<NhaCungCap> nhaCungCaps = nhaCungCapRepository.findAll();
+        List<Loai> loais = referenceDataCache.getAllLoai();
+        List<NhanHieu> nhanHieus = referenceDataCache.getAllNhanHieu();
+        List<NhaCungCap> nhaCungCaps = referenceDataCache.getAllNhaCungCap();
         
         Map<String, Object> result = new HashMap<>();
         result.put("loais", loais);
@@ -72,9 +62,9 @@ public class AdminProductServiceImpl implements AdminProductService {
             throw new NotFoundException("Không tìm thấy sản phẩm");
         }
         
-        List<Loai> loais = loaiRepository.findAll();
-        List<NhanHieu> nhanHieus = nhanHieuRepository.findAll();
-        List<NhaCungCap> nhaCungCaps = nhaCungCapRepository.findAll();
+        List<Loai> loais = referenceDataCache.getAllLoai();
+        List<NhanHieu> nhanHieus = referenceDataCache.getAllNhanHieu();
+        List<NhaCungCap> nhaCungCaps = referenceDataCache.getAllNhaCungCap();
         
         Map<String, Object> result = new HashMap<>();
         result.put("product", productDTOOpt.get());
@@ -115,7 +105,7 @@ public class AdminProductServiceImpl implements AdminProductService {
             
             // Xóa image từ Cloudinary
             if (imageUrl != null) {
-                boolean deletedFromCloudinary = imageService.deleteImage(imageUrl);
+                boolean deletedFromCloudinary = imageServiceFactory.getDefaultImageService().deleteImage(imageUrl);
                 if (!deletedFromCloudinary) {
                     System.out.println("Không thể xóa image từ Cloudinary: " + imageUrl);
                 }
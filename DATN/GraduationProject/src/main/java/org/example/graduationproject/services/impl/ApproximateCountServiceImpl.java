@@ -0,0 +1,94 @@
+package org.example.graduationproject.services.impl;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import lombok.extern.slf4j.Slf4j;
+import org.example.graduationproject.services.ApproximateCountService;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.persister.entity.AbstractEntityPersister;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+@Service
+@Slf4j
+public class ApproximateCountServiceImpl implements ApproximateCountService {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${app.pagination.count-ttl-ms:60000}")
+    private long countTtlMs;
+
+    @Value("${app.pagination.count-cache-size:500}")
+    private int maxEntries;
+
+    private final Map<String, CachedCount> cache = new ConcurrentHashMap<>();
+
+    @Override
+    // Chạy ngoài transaction của caller để lỗi truy vấn metadata không làm rollback transaction đó
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public long approximateCount(Class<?> entityClass) {
+        return cachedCount("table:" + entityClass.getName(), () -> readTableRowCount(entityClass));
+    }
+
+    @Override
+    public long cachedCount(String key, Supplier<Long> counter) {
+        long now = System.currentTimeMillis();
+        CachedCount cached = cache.get(key);
+        if (cached != null && cached.expiresAt > now) {
+            return cached.value;
+        }
+
+        Long value = counter.get();
+        long count = value != null ? value : 0L;
+        if (cache.size() >= maxEntries) {
+            cache.values().removeIf(entry -> entry.expiresAt <= now);
+            if (cache.size() >= maxEntries) {
+                cache.clear();
+            }
+        }
+        cache.put(key, new CachedCount(count, now + countTtlMs));
+        return count;
+    }
+
+    /**
+     * Đọc số dòng từ sys.partitions (heap hoặc clustered index), không quét bảng.
+     * Không đọc được metadata thì đếm chính xác bằng JPQL.
+     */
+    private long readTableRowCount(Class<?> entityClass) {
+        AbstractEntityPersister persister = (AbstractEntityPersister) entityManager.getEntityManagerFactory()
+                .unwrap(SessionFactoryImplementor.class)
+                .getMappingMetamodel()
+                .getEntityDescriptor(entityClass);
+        try {
+            Object result = entityManager.createNativeQuery(
+                            "SELECT SUM(p.rows) FROM sys.partitions p " +
+                            "WHERE p.object_id = OBJECT_ID(:tableName) AND p.index_id IN (0, 1)")
+                    .setParameter("tableName", persister.getTableName())
+                    .getSingleResult();
+            if (result instanceof Number number) {
+                return number.longValue();
+            }
+        } catch (Exception e) {
+            log.debug("ApproximateCount: Metadata count unavailable for {}: {}", persister.getTableName(), e.getMessage());
+        }
+        return entityManager.createQuery("SELECT COUNT(e) FROM " + persister.getEntityName() + " e", Long.class)
+                .getSingleResult();
+    }
+
+    private static final class CachedCount {
+        private final long value;
+        private final long expiresAt;
+
+        private CachedCount(long value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
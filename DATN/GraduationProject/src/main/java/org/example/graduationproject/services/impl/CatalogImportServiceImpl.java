@@ -0,0 +1,285 @@
+package org.example.graduationproject.services.impl;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.graduationproject.exceptions.BadRequestException;
+import org.example.graduationproject.services.CatalogImportService;
+import org.example.graduationproject.services.cache.ReferenceDataCache;
+import org.example.graduationproject.services.catalog.HomePageMaterializer;
+import org.example.graduationproject.services.catalog.ProductCatalog;
+import org.example.graduationproject.services.catalogimport.CatalogImportRow;
+import org.example.graduationproject.services.catalogimport.CatalogImportWriter;
+import org.example.graduationproject.services.catalogimport.CatalogRowHandler;
+import org.example.graduationproject.services.catalogimport.CatalogRowMapper;
+import org.example.graduationproject.services.catalogimport.CatalogSheetReader;
+import org.example.graduationproject.services.export.ExportJob;
+import org.example.graduationproject.services.export.ExportJobManager;
+import org.example.graduationproject.services.search.VariantSearchIndex;
+import org.example.graduationproject.utils.CsvEscaper;
+import org.example.graduationproject.utils.LoggerManager;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+@Slf4j
+@Service
+public class CatalogImportServiceImpl implements CatalogImportService {
+
+    private static final String CSV_CONTENT_TYPE = "text/csv; charset=UTF-8";
+    private static final DateTimeFormatter FILE_DATE = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+    private static final int PROGRESS_EVERY = 1000;
+    // Một lô tra tên sản phẩm bằng một IN (...), giữ dưới giới hạn 2100 tham số của SQL Server
+    private static final int MAX_BATCH_SIZE = 1000;
+
+    @Autowired
+    private ExportJobManager exportJobManager;
+
+    @Autowired
+    private CatalogSheetReader catalogSheetReader;
+
+    @Autowired
+    private CatalogImportWriter catalogImportWriter;
+
+    @Autowired
+    private ReferenceDataCache referenceDataCache;
+
+    @Autowired
+    private ProductCatalog productCatalog;
+
+    @Autowired
+    private VariantSearchIndex variantSearchIndex;
+
+    @Autowired
+    private HomePageMaterializer homePageMaterializer;
+
+    @Value("${import.catalog.upload-dir:data/imports}")
+    private String uploadDir;
+
+    // Số dòng ghi trong một transaction
+    @Value("${import.catalog.batch-size:500}")
+    private int batchSize;
+
+    @Value("${import.catalog.max-rows:200000}")
+    private long maxRows;
+
+    @Override
+    public ExportJob submitCatalogImport(MultipartFile file) {
+        if (file == null || file.isEmpty()) {
+            throw new BadRequestException("Vui lòng chọn file import");
+        }
+        String originalName = file.getOriginalFilename() != null ? file.getOriginalFilename().toLowerCase(Locale.ROOT) : "";
+        String format;
+        if (originalName.endsWith(".xlsx")) {
+            format = "xlsx";
+        } else if (originalName.endsWith(".csv")) {
+            format = "csv";
+        } else {
+            throw new BadRequestException("Chỉ hỗ trợ file .xlsx hoặc .csv");
+        }
+
+        // Request kết thúc thì MultipartFile bị xóa, job nền đọc từ bản sao trên đĩa
+        Path upload;
+        try {
+            Path dir = Paths.get(uploadDir);
+            Files.createDirectories(dir);
+            upload = Files.createTempFile(dir, "catalog-", "." + format);
+            file.transferTo(upload);
+        } catch (IOException e) {
+            throw new RuntimeException("Không lưu được file import: " + e.getMessage(), e);
+        }
+
+        String reportName = "loi-import-san-pham-" + LocalDateTime.now().format(FILE_DATE) + ".csv";
+        try {
+            return exportJobManager.submit("CATALOG_IMPORT", reportName, CSV_CONTENT_TYPE,
+                    (out, job) -> runImport(upload, format, out, job));
+        } catch (RuntimeException e) {
+            deleteQuietly(upload);
+            throw e;
+        }
+    }
+
+    private void runImport(Path upload, String format, OutputStream out, ExportJob job) throws Exception {
+        long startTime = System.currentTimeMillis();
+        BufferedWriter report = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+        ImportRun run = new ImportRun(report, job);
+        try {
+            // BOM để Excel mở đúng tiếng Việt
+            report.write('\uFEFF');
+            if ("xlsx".equals(format)) {
+                catalogSheetReader.readXlsx(upload, run);
+            } else {
+                catalogSheetReader.readCsv(upload, run);
+            }
+            if (run.mapper == null) {
+                throw new IllegalArgumentException("File import không có dòng tiêu đề");
+            }
+            run.flushBatch();
+        } finally {
+            report.flush();
+            deleteQuietly(upload);
+            // Lô đã ghi vẫn được giữ khi job lỗi giữa chừng nên read model vẫn phải dựng lại
+            if (run.hasChanges()) {
+                refreshReadModels();
+            }
+        }
+        job.setRowsWritten(run.rowsRead);
+        job.setSummary(run.summary());
+
+        LoggerManager.getInstance().logPerformance("CATALOG_IMPORT", System.currentTimeMillis() - startTime,
+                "rows=" + run.rowsRead + ", imported=" + run.rowsImported + ", failed=" + run.rowsFailed);
+    }
+
+    // Import chạm tới nhiều sản phẩm: dựng lại một lần thay vì phát sự kiện cho từng sản phẩm / biến thể
+    private void refreshReadModels() {
+        try {
+            productCatalog.rebuildAll();
+            variantSearchIndex.rebuildAll();
+            homePageMaterializer.requestRefresh();
+        } catch (Exception e) {
+            log.error("CatalogImportServiceImpl: Could not refresh read models after import", e);
+        }
+    }
+
+    private void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("CatalogImportServiceImpl: Could not delete upload {}: {}", file, e.getMessage());
+        }
+    }
+
+    /**
+     * Trạng thái của một lần import: gom dòng hợp lệ thành lô, ghi dòng lỗi ra báo cáo ngay khi gặp.
+     * Bộ nhớ chỉ giữ một lô, không phụ thuộc số dòng của file.
+     */
+    private class ImportRun implements CatalogRowHandler {
+        private final BufferedWriter report;
+        private final ExportJob job;
+        private final int effectiveBatchSize = Math.max(1, Math.min(batchSize, MAX_BATCH_SIZE));
+        private final List<CatalogImportRow> batch = new ArrayList<>();
+
+        private CatalogRowMapper mapper;
+        private long rowsRead;
+        private long rowsImported;
+        private long rowsFailed;
+        private long productsCreated;
+        private long productsUpdated;
+        private long variantsCreated;
+        private long variantsUpdated;
+
+        ImportRun(BufferedWriter report, ExportJob job) {
+            this.report = report;
+            this.job = job;
+        }
+
+        @Override
+        public void onTotalRows(long totalRows) {
+            job.setTotalRows(Math.max(0, totalRows - 1));
+        }
+
+        @Override
+        public void onRow(long rowNumber, List<String> cells) throws Exception {
+            if (mapper == null) {
+                mapper = new CatalogRowMapper(cells, referenceDataCache);
+                List<String> header = new ArrayList<>();
+                header.add("Dòng");
+                header.add("Lỗi");
+                header.addAll(cells);
+                writeCsvLine(header);
+                return;
+            }
+            if (cells.stream().allMatch(String::isBlank)) {
+                return;
+            }
+            if (++rowsRead > maxRows) {
+                throw new IllegalArgumentException("File import vượt quá " + maxRows + " dòng");
+            }
+            try {
+                batch.add(mapper.map(rowNumber, cells));
+            } catch (IllegalArgumentException e) {
+                reportError(rowNumber, e.getMessage(), cells);
+            }
+            if (batch.size() >= effectiveBatchSize) {
+                flushBatch();
+            }
+            if (rowsRead % PROGRESS_EVERY == 0) {
+                job.setRowsWritten(rowsRead);
+            }
+        }
+
+        void flushBatch() throws IOException {
+            if (batch.isEmpty()) {
+                return;
+            }
+            try {
+                CatalogImportWriter.BatchResult result = catalogImportWriter.write(batch);
+                rowsImported += batch.size();
+                productsCreated += result.getProductsCreated();
+                productsUpdated += result.getProductsUpdated();
+                variantsCreated += result.getVariantsCreated();
+                variantsUpdated += result.getVariantsUpdated();
+            } catch (Exception e) {
+                // Cả lô đã rollback: báo lỗi cho từng dòng của lô rồi đọc tiếp
+                log.warn("CatalogImportServiceImpl: Batch ending at row {} failed: {}",
+                        batch.get(batch.size() - 1).getRowNumber(), e.getMessage());
+                String message = "Lỗi ghi dữ liệu: " + (e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName());
+                for (CatalogImportRow row : batch) {
+                    reportError(row.getRowNumber(), message, row.getCells());
+                }
+            }
+            batch.clear();
+            job.setRowsWritten(rowsRead);
+        }
+
+        boolean hasChanges() {
+            return productsCreated + productsUpdated + variantsCreated + variantsUpdated > 0;
+        }
+
+        Map<String, Object> summary() {
+            Map<String, Object> summary = new LinkedHashMap<>();
+            summary.put("rowsRead", rowsRead);
+            summary.put("rowsImported", rowsImported);
+            summary.put("rowsFailed", rowsFailed);
+            summary.put("productsCreated", productsCreated);
+            summary.put("productsUpdated", productsUpdated);
+            summary.put("variantsCreated", variantsCreated);
+            summary.put("variantsUpdated", variantsUpdated);
+            return summary;
+        }
+
+        private void reportError(long rowNumber, String message, List<String> cells) throws IOException {
+            rowsFailed++;
+            List<String> values = new ArrayList<>(cells.size() + 2);
+            values.add(String.valueOf(rowNumber));
+            values.add(message);
+            values.addAll(cells);
+            writeCsvLine(values);
+        }
+
+        private void writeCsvLine(List<String> values) throws IOException {
+            for (int i = 0; i < values.size(); i++) {
+                if (i > 0) {
+                    report.write(',');
+                }
+                report.write(CsvEscaper.escape(values.get(i)));
+            }
+            report.write("\r\n");
+        }
+    }
+}
@@ -14,6 +14,7 @@ import org.example.graduationproject.services.CheckoutService;
 import org.example.graduationproject.services.GioHangService;
 import org.example.graduationproject.services.HoaDonService;
 import org.example.graduationproject.services.payment.PaymentService;
+import org.example.graduationproject.utils.SqlStatementCounter;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -108,7 +109,9 @@ public class CheckoutServiceImpl implements CheckoutService {
             }
             
             // Create order from cart
-            HoaDon hoaDon = hoaDonService.createOrderFromCart(user, checkoutDTO);
+            // Đo số round-trip SQL của việc tạo đơn (gồm cả commit)
+            HoaDon hoaDon = SqlStatementCounter.measure("ORDER_CREATE_FROM_CART",
+                    () -> hoaDonService.createOrderFromCart(user, checkoutDTO));
             
             if (hoaDon == null) {
                 throw new BadRequestException("Không thể tạo đơn hàng");
@@ -6,19 +6,18 @@ import org.example.graduationproject.dto.UpdateCartItemDTO;
 import org.example.graduationproject.exceptions.BadRequestException;
 import org.example.graduationproject.exceptions.UnauthorizedException;
 import org.example.graduationproject.models.*;
-import org.example.graduationproject.repositories.ChiTietGioHangRepository;
 import org.example.graduationproject.repositories.GioHangRepository;
 import org.example.graduationproject.repositories.SanPhamBienTheRepository;
 import org.example.graduationproject.repositories.UserRepository;
 import org.example.graduationproject.services.GioHangService;
+import org.example.graduationproject.services.cart.CartStore;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 
-import java.math.BigDecimal;
 import java.time.LocalDateTime;
-import java.util.Optional;
+import java.util.List;
 
 @Service
 public class GioHangServiceImpl implements GioHangService {
@@ -27,7 +26,7 @@ public class GioHangServiceImpl implements GioHangService {
     private GioHangRepository gioHangRepository;
 
     @Autowired
-    private ChiTietGioHangRepository chiTietGioHangRepository;
+    private CartStore cartStore;
 
     @Autowired
     private SanPhamBienTheRepository sanPhamBienTheRepository;
@@ -37,20 +36,8 @@ public class GioHangServiceImpl implements GioHangService {
 
     @Override
     public GioHang getOrCreateActiveCart(User user) {
-        Optional<GioHang> existingCart = gioHangRepository.findByUserAndTrangThai(user, "active");
-        
-        if (existingCart.isPresent()) {
-            return existingCart.get();
-        }
-
-        // Tạo giỏ hàng mới
-        GioHang newCart = new GioHang();
-        newCart.setUser(user);
-        newCart.setTrangThai("active");
-        newCart.setNgayTao(LocalDateTime.now());
-        newCart.setNgayCapNhat(LocalDateTime.now());
-        
-        return gioHangRepository.save(newCart);
+        // Giỏ mới chỉ được ghi xuống database cùng lần flush đầu tiên có sản phẩm
+        return cartStore.getCart(user, true);
     }
 
     private User getCurrentUserOrNull() {
@@ -118,53 +105,24 @@ public class GioHangServiceImpl implements GioHangService {
         if (user == null) {
             return ServiceResult.ok("Chưa đăng nhập", 0);
         }
-        GioHang cart = getActiveCart(user);
-        int count = 0;
-        if (cart != null && cart.getChiTietGioHangs() != null) {
-            count = cart.getChiTietGioHangs().size();
-        }
-        return ServiceResult.ok("OK", count);
+        return ServiceResult.ok("OK", cartStore.countItems(user));
     }
 
     @Override
     public boolean addToCart(User user, AddToCartDTO addToCartDTO) {
         try {
-            // Lấy hoặc tạo giỏ hàng
-            GioHang cart = getOrCreateActiveCart(user);
-            
-            // Tìm biến thể sản phẩm dựa trên size và color
-            Optional<SanPhamBienThe> variantOpt = sanPhamBienTheRepository.findById(addToCartDTO.getProductId());
-            if (variantOpt.isEmpty()) {
+            if (addToCartDTO.getQuantity() == null || addToCartDTO.getQuantity() <= 0) {
                 return false;
             }
-            
-            SanPhamBienThe variant = variantOpt.get();
-            
-            // Kiểm tra xem sản phẩm đã có trong giỏ hàng chưa
-            Optional<ChiTietGioHang> existingItem = chiTietGioHangRepository.findByGioHangAndSanPhamBienThe(cart, variant);
-            
-            if (existingItem.isPresent()) {
-                // Cập nhật số lượng
-                ChiTietGioHang item = existingItem.get();
-                item.setSoLuong(item.getSoLuong() + addToCartDTO.getQuantity());
-                item.setThanhTien(item.getGiaBan().multiply(BigDecimal.valueOf(item.getSoLuong())));
-                chiTietGioHangRepository.save(item);
-            } else {
-                // Thêm mới vào giỏ hàng
-                ChiTietGioHang newItem = new ChiTietGioHang();
-                newItem.setGioHang(cart);
-                newItem.setSanPhamBienThe(variant);
-                newItem.setSoLuong(addToCartDTO.getQuantity());
-                newItem.setGiaBan(variant.getSanPham().getGiaBan());
-                newItem.setThanhTien(variant.getSanPham().getGiaBan().multiply(BigDecimal.valueOf(addToCartDTO.getQuantity())));
-                chiTietGioHangRepository.save(newItem);
+
+            // Tìm biến thể sản phẩm (kèm sản phẩm, màu, size để hiển thị giỏ không cần truy vấn thêm)
+            List<SanPhamBienThe> variants = sanPhamBienTheRepository.findAllByIdInWithDetails(List.of(addToCartDTO.getProductId()));
+            if (variants.isEmpty()) {
+                return false;
             }
-            
-            // Cập nhật thời gian giỏ hàng
-            cart.setNgayCapNhat(LocalDateTime.now());
-            gioHangRepository.save(cart);
-            
-            return true;
+
+            // Cộng dồn số lượng nếu đã có trong giỏ, ghi xuống database theo lô
+            return cartStore.addItem(user, variants.get(0), addToCartDTO.getQuantity());
         } catch (Exception e) {
             e.printStackTrace();
             return false;
@@ -174,23 +132,11 @@ public class GioHangServiceImpl implements GioHangService {
     @Override
     public boolean updateCartItemQuantity(User user, Integer cartItemId, Integer quantity) {
         try {
-            Optional<ChiTietGioHang> itemOpt = chiTietGioHangRepository.findById(cartItemId);
-            if (itemOpt.isEmpty()) {
-                return false;
-            }
-            
-            ChiTietGioHang item = itemOpt.get();
-            
-            // Kiểm tra xem item có thuộc về user này không
-            if (!item.getGioHang().getUser().getId().equals(user.getId())) {
+            if (quantity == null || quantity <= 0) {
                 return false;
             }
-            
-            item.setSoLuong(quantity);
-            item.setThanhTien(item.getGiaBan().multiply(BigDecimal.valueOf(quantity)));
-            chiTietGioHangRepository.save(item);
-            
-            return true;
+            // Chỉ tìm trong giỏ của chính user nên không cần kiểm tra quyền sở hữu riêng
+            return cartStore.updateQuantity(user, cartItemId, quantity);
         } catch (Exception e) {
             e.printStackTrace();
             return false;
@@ -200,20 +146,7 @@ public class GioHangServiceImpl implements GioHangService {
     @Override
     public boolean removeFromCart(User user, Integer cartItemId) {
         try {
-            Optional<ChiTietGioHang> itemOpt = chiTietGioHangRepository.findById(cartItemId);
-            if (itemOpt.isEmpty()) {
-                return false;
-            }
-            
-            ChiTietGioHang item = itemOpt.get();
-            
-            // Kiểm tra xem item có thuộc về user này không
-            if (!item.getGioHang().getUser().getId().equals(user.getId())) {
-                return false;
-            }
-            
-            chiTietGioHangRepository.delete(item);
-            return true;
+            return cartStore.removeItem(user, cartItemId);
         } catch (Exception e) {
             e.printStackTrace();
             return false;
@@ -222,13 +155,25 @@ public class GioHangServiceImpl implements GioHangService {
 
     @Override
     public GioHang getActiveCart(User user) {
-        return gioHangRepository.findByUserAndTrangThai(user, "active").orElse(null);
+        return cartStore.getCart(user, false);
+    }
+
+    @Override
+    public void flushActiveCart(User user) {
+        cartStore.flush(user.getId());
     }
     
     @Override
     public boolean updateCartStatus(GioHang gioHang) {
         try {
-            gioHangRepository.save(gioHang);
+            if (gioHang.getId() == null) {
+                return false;
+            }
+            LocalDateTime ngayCapNhat = gioHang.getNgayCapNhat() != null ? gioHang.getNgayCapNhat() : LocalDateTime.now();
+            gioHangRepository.updateTrangThai(gioHang.getId(), gioHang.getTrangThai(), ngayCapNhat);
+            if (!"active".equals(gioHang.getTrangThai()) && gioHang.getUser() != null) {
+                cartStore.closeCart(gioHang.getUser().getId());
+            }
             return true;
         } catch (Exception e) {
             e.printStackTrace();
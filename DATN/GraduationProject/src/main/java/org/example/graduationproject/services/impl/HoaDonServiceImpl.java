@@ -2,17 +2,26 @@ package org.example.graduationproject.services.impl;
 
 import org.example.graduationproject.dto.CheckoutDTO;
 import org.example.graduationproject.dto.CheckoutRequestDTO;
+import org.example.graduationproject.dto.CursorPage;
+import org.example.graduationproject.dto.VariantKey;
 import org.example.graduationproject.enums.PaymentType;
 import org.example.graduationproject.models.*;
+import org.example.graduationproject.repositories.BatchInsertRepository;
 import org.example.graduationproject.repositories.ChiTietHoaDonRepository;
 import org.example.graduationproject.repositories.HoaDonRepository;
-import org.example.graduationproject.repositories.SanPhamBienTheRepository;
+import org.example.graduationproject.services.ApproximateCountService;
 import org.example.graduationproject.services.GioHangService;
 import org.example.graduationproject.services.HoaDonService;
+import org.example.graduationproject.services.SanPhamBienTheService;
+import org.example.graduationproject.services.StockLedgerService;
+import org.example.graduationproject.services.StockReservationService;
 import org.example.graduationproject.events.OrderEventPublisher;
 import org.example.graduationproject.events.OrderStatusChangedEvent;
+import org.example.graduationproject.utils.KeysetCursor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -33,11 +42,23 @@ public class HoaDonServiceImpl implements HoaDonService {
     @Autowired
     private ChiTietHoaDonRepository chiTietHoaDonRepository;
 
+    @Autowired
+    private BatchInsertRepository batchInsertRepository;
+
     @Autowired
     private GioHangService gioHangService;
 
     @Autowired
-    private SanPhamBienTheRepository sanPhamBienTheRepository;
+    private SanPhamBienTheService sanPhamBienTheService;
+
+    @Autowired
+    private StockLedgerService stockLedgerService;
+
+    @Autowired
+    private StockReservationService stockReservationService;
+
+    @Autowired
+    private ApproximateCountService approximateCountService;
     
     @Autowired
     private OrderEventPublisher orderEventPublisher;
@@ -45,6 +66,9 @@ public class HoaDonServiceImpl implements HoaDonService {
     @Override
     @Transactional
     public HoaDon createOrderFromCart(User user, CheckoutDTO checkoutDTO) {
+        // Giỏ hàng được ghi trễ: đẩy các thay đổi còn trong bộ nhớ xuống database trước khi đặt hàng
+        gioHangService.flushActiveCart(user);
+
         // Lấy giỏ hàng active của user
         GioHang activeCart = gioHangService.getActiveCart(user);
         if (activeCart == null || activeCart.getChiTietGioHangs() == null || activeCart.getChiTietGioHangs().isEmpty()) {
@@ -98,8 +122,11 @@ public class HoaDonServiceImpl implements HoaDonService {
             chiTietHoaDons.add(chiTietHoaDon);
         }
         
-        // Lưu chi tiết hóa đơn
-        chiTietHoaDonRepository.saveAll(chiTietHoaDons);
+        // Lưu chi tiết hóa đơn trong một JDBC batch
+        batchInsertRepository.insertChiTietHoaDons(chiTietHoaDons);
+
+        // Giữ hàng cho đơn, không đủ hàng thì không tạo đơn
+        stockReservationService.holdForOrder(hoaDon, chiTietHoaDons);
         
         // Cập nhật trạng thái giỏ hàng thành "ordered"
         activeCart.setTrangThai("ordered");
@@ -155,11 +182,17 @@ public class HoaDonServiceImpl implements HoaDonService {
         // Lưu hóa đơn
         hoaDon = hoaDonRepository.save(hoaDon);
 
+        // Tìm tất cả biến thể của giỏ hàng trong 1 lần truy vấn
+        List<VariantKey> keys = new ArrayList<>();
+        for (CheckoutRequestDTO.CartItemDTO item : checkoutRequestDTO.getItems()) {
+            keys.add(new VariantKey(item.getProductId(), item.getSize(), item.getColor()));
+        }
+        Map<VariantKey, SanPhamBienThe> variants = sanPhamBienTheService.resolveVariants(keys);
+
         // Tạo chi tiết hóa đơn từ items
         List<ChiTietHoaDon> chiTietHoaDons = new ArrayList<>();
         for (CheckoutRequestDTO.CartItemDTO item : checkoutRequestDTO.getItems()) {
-            // Tìm sản phẩm biến thể dựa trên productId, size, color
-            SanPhamBienThe variant = findProductVariant(item.getProductId(), item.getSize(), item.getColor());
+            SanPhamBienThe variant = variants.get(new VariantKey(item.getProductId(), item.getSize(), item.getColor()));
             if (variant == null) {
                 throw new RuntimeException("Không tìm thấy sản phẩm biến thể: " + item.getProductName() + " - " + item.getSize() + " - " + item.getColor());
             }
@@ -173,8 +206,11 @@ public class HoaDonServiceImpl implements HoaDonService {
             chiTietHoaDons.add(chiTietHoaDon);
         }
         
-        // Lưu chi tiết hóa đơn
-        chiTietHoaDonRepository.saveAll(chiTietHoaDons);
+        // Lưu chi tiết hóa đơn trong một JDBC batch
+        batchInsertRepository.insertChiTietHoaDons(chiTietHoaDons);
+
+        // Giữ hàng cho đơn, không đủ hàng thì không tạo đơn
+        stockReservationService.holdForOrder(hoaDon, chiTietHoaDons);
 
         // Publish event cho Observer Pattern
         publishOrderStatusEvent(hoaDon, "NEW", "PENDING");
@@ -182,46 +218,55 @@ public class HoaDonServiceImpl implements HoaDonService {
         return hoaDon;
     }
 
-    /**
-     * Tìm sản phẩm biến thể dựa trên productId, size, color
-     */
-    private SanPhamBienThe findProductVariant(Integer productId, String sizeName, String colorName) {
-        // Tìm tất cả biến thể của sản phẩm
-        List<SanPhamBienThe> variants = sanPhamBienTheRepository.findAll().stream()
-                .filter(v -> v.getSanPham() != null && v.getSanPham().getId().equals(productId))
-                .collect(java.util.stream.Collectors.toList());
-        
-        // Tìm biến thể phù hợp với size và color
-        for (SanPhamBienThe variant : variants) {
-            boolean sizeMatch = variant.getSize() != null && variant.getSize().getTenSize().equals(sizeName);
-            boolean colorMatch = variant.getMauSac() != null && variant.getMauSac().getMaMau().equals(colorName);
-            
-            if (sizeMatch && colorMatch) {
-                return variant;
-            }
-        }
-        
-        return null;
-    }
-
     @Override
     public List<HoaDon> getUserOrders(User user) {
-        return hoaDonRepository.findByUserOrderByNgayTaoDesc(user);
+        return hoaDonRepository.findByUserWithDetails(user);
     }
 
     @Override
     public Page<HoaDon> getAllInvoices(Pageable pageable) {
-        return hoaDonRepository.findAll(pageable);
+        // Lấy trang id trước rồi nạp chi tiết cả trang trong một truy vấn
+        Page<Integer> idPage = hoaDonRepository.findIdPage(pageable);
+        return new PageImpl<>(loadWithDetails(idPage.getContent()), pageable, idPage.getTotalElements());
+    }
+
+    @Override
+    public CursorPage<HoaDon> getInvoicesKeyset(String cursor, int size) {
+        size = KeysetCursor.pageSize(size);
+        KeysetCursor after = KeysetCursor.decode(cursor);
+        Pageable limit = PageRequest.of(0, size + 1);
+        List<HoaDon> rows = after == null
+                ? hoaDonRepository.findKeysetFirstPage(limit)
+                : hoaDonRepository.findKeysetAfter(after.getSortValueAsDateTime(), after.getId(), limit);
+
+        boolean hasNext = rows.size() > size;
+        List<HoaDon> content = hasNext ? new ArrayList<>(rows.subList(0, size)) : rows;
+        String nextCursor = null;
+        if (hasNext) {
+            HoaDon last = content.get(content.size() - 1);
+            nextCursor = KeysetCursor.encode(last.getNgayTao(), last.getId());
+        }
+        List<Integer> ids = new ArrayList<>(content.size());
+        for (HoaDon hoaDon : content) {
+            ids.add(hoaDon.getId());
+        }
+        return new CursorPage<>(loadWithDetails(ids), nextCursor, hasNext, size,
+                approximateCountService.approximateCount(HoaDon.class));
     }
 
     @Override
     public HoaDon getOrderById(Integer orderId) {
-        return hoaDonRepository.findById(orderId).orElse(null);
+        return hoaDonRepository.findByIdWithDetails(orderId).orElse(null);
+    }
+
+    @Override
+    public List<HoaDon> getOrdersWithDetails(List<Integer> orderIds) {
+        return loadWithDetails(orderIds);
     }
 
     @Override
     public HoaDon getUserOrderById(User user, Integer orderId) {
-        HoaDon hoaDon = hoaDonRepository.findById(orderId).orElse(null);
+        HoaDon hoaDon = hoaDonRepository.findByIdWithDetails(orderId).orElse(null);
         if (hoaDon != null && hoaDon.getUser().getId().equals(user.getId())) {
             return hoaDon;
         }
@@ -236,40 +281,15 @@ public class HoaDonServiceImpl implements HoaDonService {
             String currentStatus = hoaDon.getTrangThai();
             String oldStatus = currentStatus; // Lưu status cũ
 
-            // Nếu chuyển từ PENDING -> CONFIRMED thì kiểm tra và trừ tồn kho
+            // Nếu chuyển từ PENDING -> CONFIRMED thì dùng hàng đang giữ / trừ tồn kho
             if ("PENDING".equalsIgnoreCase(currentStatus) && "CONFIRMED".equalsIgnoreCase(newStatus)) {
                 List<ChiTietHoaDon> chiTietList = chiTietHoaDonRepository.findByHoaDon(hoaDon);
 
-                // Gom số lượng theo từng biến thể để kiểm tra 1 lần
-                Map<Integer, Integer> variantIdToRequiredQty = new HashMap<>();
-                for (ChiTietHoaDon cthd : chiTietList) {
-                    if (cthd.getSanPhamBienThe() == null) continue;
-                    Integer variantId = cthd.getSanPhamBienThe().getId();
-                    if (variantId == null) continue;
-                    int required = cthd.getSoLuong() != null ? cthd.getSoLuong() : 0;
-                    variantIdToRequiredQty.merge(variantId, required, Integer::sum);
-                }
-
-                // Kiểm tra tồn kho đủ
-                List<org.example.graduationproject.models.SanPhamBienThe> toUpdate = new ArrayList<>();
-                for (Map.Entry<Integer, Integer> entry : variantIdToRequiredQty.entrySet()) {
-                    org.example.graduationproject.models.SanPhamBienThe variant = sanPhamBienTheRepository.findById(entry.getKey()).orElse(null);
-                    if (variant == null) {
-                        return false; // biến thể không tồn tại
-                    }
-                    int stock = variant.getSoLuongTon() != null ? variant.getSoLuongTon() : 0;
-                    int need = entry.getValue() != null ? entry.getValue() : 0;
-                    if (stock < need) {
-                        return false; // không đủ hàng
-                    }
-                    variant.setSoLuongTon(stock - need);
-                    toUpdate.add(variant);
-                }
-
-                // Cập nhật tồn kho
-                if (!toUpdate.isEmpty()) {
-                    sanPhamBienTheRepository.saveAll(toUpdate);
-                }
+                // Thiếu hàng sẽ ném InsufficientStockException và rollback toàn bộ
+                stockReservationService.commitForOrder(hoaDon, chiTietList);
+            } else if ("PENDING".equalsIgnoreCase(currentStatus) && !"PENDING".equalsIgnoreCase(newStatus)) {
+                // Rời trạng thái chờ duyệt mà không duyệt thì nhả hàng đang giữ
+                stockReservationService.releaseForOrder(hoaDon);
             }
 
             hoaDon.setTrangThai(newStatus);
@@ -311,22 +331,10 @@ public class HoaDonServiceImpl implements HoaDonService {
                 }
 
                 // Hoàn lại tồn kho
-                List<org.example.graduationproject.models.SanPhamBienThe> toUpdate = new ArrayList<>();
-                for (Map.Entry<Integer, Integer> entry : variantIdToRestoreQty.entrySet()) {
-                    org.example.graduationproject.models.SanPhamBienThe variant = sanPhamBienTheRepository.findById(entry.getKey()).orElse(null);
-                    if (variant != null) {
-                        int stock = variant.getSoLuongTon() != null ? variant.getSoLuongTon() : 0;
-                        int restore = entry.getValue() != null ? entry.getValue() : 0;
-                        variant.setSoLuongTon(stock + restore);
-                        toUpdate.add(variant);
-                    }
-                }
-
-                // Cập nhật tồn kho
-
-                if (!toUpdate.isEmpty()) {
-                    sanPhamBienTheRepository.saveAll(toUpdate);
-                }
+                stockLedgerService.release(variantIdToRestoreQty);
+            } else if ("PENDING".equalsIgnoreCase(currentStatus) && "CANCELLED".equalsIgnoreCase(newStatus)) {
+                // Hủy đơn chờ duyệt thì nhả hàng đang giữ
+                stockReservationService.releaseForOrder(hoaDon);
             }
 
             String oldStatus = hoaDon.getTrangThai();
@@ -355,6 +363,9 @@ public class HoaDonServiceImpl implements HoaDonService {
             String oldStatus = hoaDon.getTrangThai();
             hoaDon.setTrangThai("CANCELLED");
             hoaDonRepository.save(hoaDon);
+
+            // Nhả hàng đang giữ cho đơn
+            stockReservationService.releaseForOrder(hoaDon);
             
             // Publish event cho Observer Pattern
             publishOrderStatusEvent(hoaDon, oldStatus, "CANCELLED");
@@ -373,24 +384,40 @@ public class HoaDonServiceImpl implements HoaDonService {
      * Publish event cho Observer Pattern khi order status thay đổi
      */
     private void publishOrderStatusEvent(HoaDon hoaDon, String oldStatus, String newStatus) {
-        try {
-            OrderStatusChangedEvent event = OrderStatusChangedEvent.builder()
-                    .orderId(hoaDon.getId())
-                    .oldStatus(oldStatus)
-                    .newStatus(newStatus)
-                    .customerEmail(hoaDon.getUser() != null ? hoaDon.getUser().getEmail() : null)
-                    .customerName(hoaDon.getUser() != null ? hoaDon.getUser().getHoTen() : null)
-                    .customerPhone(hoaDon.getUser() != null ? hoaDon.getUser().getSoDienThoai() : null)
-                    .orderTotal(hoaDon.getTongTien())
-                    .timestamp(java.time.LocalDateTime.now())
-                    .changeReason("SYSTEM_UPDATE")
-                    .build();
-            
-            orderEventPublisher.publishOrderStatusChanged(event);
-            
-        } catch (Exception e) {
-            // Log error nhưng không throw exception để không ảnh hưởng đến business logic
-            System.err.println("Error publishing order status event: " + e.getMessage());
+        // Ghi outbox cùng transaction: lỗi ở đây rollback cả thay đổi trạng thái để không mất event
+        OrderStatusChangedEvent event = OrderStatusChangedEvent.builder()
+                .orderId(hoaDon.getId())
+                .oldStatus(oldStatus)
+                .newStatus(newStatus)
+                .customerEmail(hoaDon.getUser() != null ? hoaDon.getUser().getEmail() : null)
+                .customerName(hoaDon.getUser() != null ? hoaDon.getUser().getHoTen() : null)
+                .customerPhone(hoaDon.getUser() != null ? hoaDon.getUser().getSoDienThoai() : null)
+                .orderTotal(hoaDon.getTongTien())
+                .timestamp(java.time.LocalDateTime.now())
+                .changeReason("SYSTEM_UPDATE")
+                .build();
+
+        orderEventPublisher.publishOrderStatusChanged(event);
+    }
+
+    /**
+     * Nạp hóa đơn kèm chi tiết theo danh sách id, giữ nguyên thứ tự của danh sách
+     */
+    private List<HoaDon> loadWithDetails(List<Integer> ids) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Map<Integer, HoaDon> byId = new HashMap<>();
+        for (HoaDon hoaDon : hoaDonRepository.findAllWithDetailsByIdIn(ids)) {
+            byId.put(hoaDon.getId(), hoaDon);
+        }
+        List<HoaDon> ordered = new ArrayList<>(ids.size());
+        for (Integer id : ids) {
+            HoaDon hoaDon = byId.get(id);
+            if (hoaDon != null) {
+                ordered.add(hoaDon);
+            }
         }
+        return ordered;
     }
 }
@@ -2,13 +2,14 @@ package org.example.graduationproject.services.impl;
 
 import org.example.graduationproject.dto.ServiceResult;
 import org.example.graduationproject.models.Loai;
-import org.example.graduationproject.models.SanPham;
 import org.example.graduationproject.services.HomeService;
 import org.example.graduationproject.services.LoaiService;
-import org.example.graduationproject.services.SanPhamService;
+import org.example.graduationproject.services.catalog.CatalogSnapshot;
+import org.example.graduationproject.services.catalog.ProductCatalog;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -16,41 +17,59 @@ import java.util.Map;
 @Service
 public class HomeServiceImpl implements HomeService {
 
+    // Số sản phẩm tối đa cho mỗi tab loại / giới tính
+    private static final int PRODUCTS_PER_TAB = 100;
+
+    // Số sản phẩm của khối "nổi bật" / "mới" trên trang chủ
+    private static final int PRODUCTS_PER_SECTION = 8;
+
     @Autowired
-    private SanPhamService sanPhamService;
+    private ProductCatalog productCatalog;
     
     @Autowired
     private LoaiService loaiService;
 
     @Override
     public ServiceResult<Map<String, Object>> getHomePageData() {
-        // Lấy tất cả loại sản phẩm
+        // Lấy tất cả loại sản phẩm (truy vấn duy nhất, sản phẩm đọc từ catalog trong bộ nhớ)
         List<Loai> allLoai = loaiService.getAllLoai();
+        CatalogSnapshot snapshot = productCatalog.currentSnapshot();
 
         // Lấy sản phẩm theo giới tính và loại cho từng tab
-        Map<String, List<SanPham>> sanPhamNamTheoLoai = new HashMap<>();
-        Map<String, List<SanPham>> sanPhamNuTheoLoai = new HashMap<>();
+        Map<String, List<Map<String, Object>>> sanPhamNamTheoLoai = new HashMap<>();
+        Map<String, List<Map<String, Object>>> sanPhamNuTheoLoai = new HashMap<>();
         
         for (Loai loai : allLoai) {
             String tenLoai = loai.getTen().toLowerCase();
             
-            // Lấy sản phẩm nam theo loại (giới tính = 1)
-            List<SanPham> spNamTheoLoai = sanPhamService.filterByCategoryAndGenderPaging(loai.getId(), 1, 0, 100).getContent();
-            sanPhamNamTheoLoai.put(tenLoai, spNamTheoLoai);
+            // Sản phẩm nam theo loại (giới tính = 1)
+            sanPhamNamTheoLoai.put(tenLoai, toProducts(snapshot, snapshot.filter(loai.getId(), 1, null), PRODUCTS_PER_TAB));
             
-            // Lấy sản phẩm nữ theo loại (giới tính = 2)
-            List<SanPham> spNuTheoLoai = sanPhamService.filterByCategoryAndGenderPaging(loai.getId(), 2, 0, 100).getContent();
-            sanPhamNuTheoLoai.put(tenLoai, spNuTheoLoai);
+            // Sản phẩm nữ theo loại (giới tính = 2)
+            sanPhamNuTheoLoai.put(tenLoai, toProducts(snapshot, snapshot.filter(loai.getId(), 2, null), PRODUCTS_PER_TAB));
         }
         
         // Cũng cung cấp danh sách sản phẩm đơn giản
-        List<SanPham> products = sanPhamService.getAll();
+        int[] all = snapshot.filter(null, null, null);
+        List<Map<String, Object>> products = toProducts(snapshot, all, all.length);
         
         Map<String, Object> result = new HashMap<>();
         result.put("sanPhamNamTheoLoai", sanPhamNamTheoLoai);
         result.put("sanPhamNuTheoLoai", sanPhamNuTheoLoai);
         result.put("products", products);
+        // Các khối trang chủ của storefront, cùng thứ tự với /products/featured và /products/new
+        result.put("featuredProducts", toProducts(snapshot, all, PRODUCTS_PER_SECTION));
+        result.put("newProducts", toProducts(snapshot, all, PRODUCTS_PER_SECTION));
         
         return ServiceResult.ok("Lấy dữ liệu trang chủ thành công", result);
     }
+
+    private static List<Map<String, Object>> toProducts(CatalogSnapshot snapshot, int[] positions, int limit) {
+        int count = Math.min(limit, positions.length);
+        List<Map<String, Object>> products = new ArrayList<>(count);
+        for (int k = 0; k < count; k++) {
+            products.add(snapshot.toUserProductDTO(positions[k]));
+        }
+        return products;
+    }
 }
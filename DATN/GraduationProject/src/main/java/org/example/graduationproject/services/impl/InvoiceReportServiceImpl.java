@@ -0,0 +1,58 @@
+package org.example.graduationproject.services.impl;
+
+import org.example.graduationproject.dto.InvoiceReportRequest;
+import org.example.graduationproject.exceptions.BadRequestException;
+import org.example.graduationproject.services.InvoiceReportService;
+import org.example.graduationproject.services.export.ExportJob;
+import org.example.graduationproject.services.export.ExportJobManager;
+import org.example.graduationproject.services.report.InvoiceReportWriter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+
+@Service
+public class InvoiceReportServiceImpl implements InvoiceReportService {
+
+    private static final String XLSX_CONTENT_TYPE = "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet";
+    private static final String CSV_CONTENT_TYPE = "text/csv; charset=UTF-8";
+    private static final DateTimeFormatter FILE_DATE = DateTimeFormatter.ofPattern("yyyyMMdd");
+
+    @Autowired
+    private ExportJobManager exportJobManager;
+
+    @Autowired
+    private InvoiceReportWriter invoiceReportWriter;
+
+    @Value("${report.invoice.max-days:366}")
+    private long maxDays;
+
+    @Override
+    public ExportJob submitInvoiceReport(InvoiceReportRequest request) {
+        if (request.getFromDate() == null || request.getToDate() == null) {
+            throw new BadRequestException("Vui lòng chọn từ ngày và đến ngày");
+        }
+        if (request.getToDate().isBefore(request.getFromDate())) {
+            throw new BadRequestException("Đến ngày phải sau hoặc bằng từ ngày");
+        }
+        if (ChronoUnit.DAYS.between(request.getFromDate(), request.getToDate()) >= maxDays) {
+            throw new BadRequestException("Khoảng thời gian báo cáo tối đa " + maxDays + " ngày");
+        }
+        String format = request.getFormat() != null ? request.getFormat().trim().toLowerCase() : "xlsx";
+        String fileName = "bao-cao-hoa-don-" + request.getFromDate().format(FILE_DATE)
+                + "-" + request.getToDate().format(FILE_DATE) + "." + format;
+
+        switch (format) {
+            case "xlsx":
+                return exportJobManager.submit("INVOICE_REPORT", fileName, XLSX_CONTENT_TYPE,
+                        (out, job) -> invoiceReportWriter.writeXlsx(request, out, job));
+            case "csv":
+                return exportJobManager.submit("INVOICE_REPORT", fileName, CSV_CONTENT_TYPE,
+                        (out, job) -> invoiceReportWriter.writeCsv(request, out, job));
+            default:
+                throw new BadRequestException("Định dạng không hỗ trợ: " + request.getFormat() + " (xlsx hoặc csv)");
+        }
+    }
+}
@@ -1,8 +1,10 @@
 package org.example.graduationproject.services.impl;
 
+import org.example.graduationproject.events.ProductEventPublisher;
 import org.example.graduationproject.models.Loai;
 import org.example.graduationproject.repositories.LoaiRepository;
 import org.example.graduationproject.services.LoaiService;
+import org.example.graduationproject.services.cache.ReferenceDataCache;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
@@ -19,8 +21,14 @@ public class LoaiServiceImpl implements LoaiService {
     @Autowired
     private LoaiRepository loaiRepository;
 
+    @Autowired
+    private ProductEventPublisher productEventPublisher;
+
+    @Autowired
+    private ReferenceDataCache referenceDataCache;
+
     public List<Loai> getAllLoai() {
-        return loaiRepository.findAll();
+        return referenceDataCache.getAllLoai();
     }
 
     public Optional<Loai> getLoaiById(Integer id) {
@@ -28,11 +36,16 @@ public class LoaiServiceImpl implements LoaiService {
     }
 
     public Loai saveLoai(Loai loai) {
-        return loaiRepository.save(loai);
+        Loai saved = loaiRepository.save(loai);
+        referenceDataCache.invalidateLoai();
+        productEventPublisher.publishCategoryChanged(saved.getId(), false);
+        return saved;
     }
 
     public void deleteLoai(Integer id) {
         loaiRepository.deleteById(id);
+        referenceDataCache.invalidateLoai();
+        productEventPublisher.publishCategoryChanged(id, true);
     }
 
     public List<Loai> searchLoaiByTen(String ten) {
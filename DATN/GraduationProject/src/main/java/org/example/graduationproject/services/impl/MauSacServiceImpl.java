@@ -3,6 +3,7 @@ package org.example.graduationproject.services.impl;
 import org.example.graduationproject.models.MauSac;
 import org.example.graduationproject.repositories.MauSacRepository;
 import org.example.graduationproject.services.MauSacService;
+import org.example.graduationproject.services.cache.ReferenceDataCache;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
@@ -16,6 +17,9 @@ public class MauSacServiceImpl implements MauSacService {
     @Autowired
     private MauSacRepository mauSacRepository;
 
+    @Autowired
+    private ReferenceDataCache referenceDataCache;
+
     @Override
     public List<MauSac> findAll() { return mauSacRepository.findAll(); }
 
@@ -23,10 +27,17 @@ public class MauSacServiceImpl implements MauSacService {
     public List<MauSac> findAllWithCategory() { return mauSacRepository.findAllWithCategory(); }
 
     @Override
-    public MauSac save(MauSac color) { return mauSacRepository.save(color); }
+    public MauSac save(MauSac color) {
+        MauSac saved = mauSacRepository.save(color);
+        referenceDataCache.invalidateMauSac();
+        return saved;
+    }
 
     @Override
-    public void deleteById(Integer id) { mauSacRepository.deleteById(id); }
+    public void deleteById(Integer id) {
+        mauSacRepository.deleteById(id);
+        referenceDataCache.invalidateMauSac();
+    }
 
     @Override
     public Optional<MauSac> findById(Integer id) { return mauSacRepository.findById(id); }
@@ -3,6 +3,7 @@ package org.example.graduationproject.services.impl;
 import org.example.graduationproject.models.NhaCungCap;
 import org.example.graduationproject.repositories.NhaCungCapRepository;
 import org.example.graduationproject.services.NhaCungCapService;
+import org.example.graduationproject.services.cache.ReferenceDataCache;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
@@ -16,9 +17,12 @@ public class NhaCungCapServiceImpl implements NhaCungCapService {
     @Autowired
     private NhaCungCapRepository nhaCungCapRepository;
 
+    @Autowired
+    private ReferenceDataCache referenceDataCache;
+
     @Override
     public List<NhaCungCap> getAllNhaCungCap() {
-        return nhaCungCapRepository.findAll();
+        return referenceDataCache.getAllNhaCungCap();
     }
 
     @Override
@@ -33,7 +37,9 @@ public class NhaCungCapServiceImpl implements NhaCungCapService {
 
     @Override
     public NhaCungCap save(NhaCungCap nhaCungCap) {
-        return nhaCungCapRepository.save(nhaCungCap);
+        NhaCungCap saved = nhaCungCapRepository.save(nhaCungCap);
+        referenceDataCache.invalidateNhaCungCap();
+        return saved;
     }
 
     @Override
@@ -44,5 +50,6 @@ public class NhaCungCapServiceImpl implements NhaCungCapService {
     @Override
     public void deleteById(Integer id) {
         nhaCungCapRepository.deleteById(id);
+        referenceDataCache.invalidateNhaCungCap();
     }
 }
@@ -1,8 +1,10 @@
 package org.example.graduationproject.services.impl;
 
+import org.example.graduationproject.events.ProductEventPublisher;
 import org.example.graduationproject.models.NhanHieu;
 import org.example.graduationproject.repositories.NhanHieuRepository;
 import org.example.graduationproject.services.NhanHieuService;
+import org.example.graduationproject.services.cache.ReferenceDataCache;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
@@ -15,6 +17,12 @@ public class NhanHieuServiceImpl implements NhanHieuService {
     @Autowired
     private NhanHieuRepository nhanHieuRepository;
 
+    @Autowired
+    private ProductEventPublisher productEventPublisher;
+
+    @Autowired
+    private ReferenceDataCache referenceDataCache;
+
     public Page<NhanHieu> getAllNhanHieuPaging(int page, int size) {
         return nhanHieuRepository.findAll(PageRequest.of(page, size));
     }
@@ -24,7 +32,10 @@ public class NhanHieuServiceImpl implements NhanHieuService {
     }
 
     public NhanHieu save(NhanHieu nhanHieu) {
-        return nhanHieuRepository.save(nhanHieu);
+        NhanHieu saved = nhanHieuRepository.save(nhanHieu);
+        referenceDataCache.invalidateNhanHieu();
+        productEventPublisher.publishBrandChanged(saved.getId(), false);
+        return saved;
     }
 
     public Optional<NhanHieu> findById(Integer id) {
@@ -33,5 +44,7 @@ public class NhanHieuServiceImpl implements NhanHieuService {
 
     public void deleteById(Integer id) {
         nhanHieuRepository.deleteById(id);
+        referenceDataCache.invalidateNhanHieu();
+        productEventPublisher.publishBrandChanged(id, true);
     }
 }
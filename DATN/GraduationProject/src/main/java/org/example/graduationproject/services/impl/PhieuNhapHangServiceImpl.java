@@ -5,9 +5,11 @@ import org.example.graduationproject.repositories.PhieuNhapHangRepository;
 import org.example.graduationproject.services.PhieuNhapHangService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -51,4 +53,27 @@ public class PhieuNhapHangServiceImpl implements PhieuNhapHangService {
     public Page<PhieuNhapHang> searchByNhaCungCapTenContainingIgnoreCase(String tenNhaCungCap, Pageable pageable) {
         return phieuNhapHangRepository.findByNhaCungCap_TenContainingIgnoreCase(tenNhaCungCap, pageable);
     }
-} 
\ No newline at end of file
+    
+    @Override
+    public List<PhieuNhapHang> findKeyset(String keyword, LocalDateTime ngayTao, Integer id, int limit) {
+        String pattern = toLikePattern(keyword);
+        Pageable pageable = PageRequest.of(0, limit);
+        if (ngayTao == null || id == null) {
+            return phieuNhapHangRepository.findKeysetFirstPage(pattern, pageable);
+        }
+        return phieuNhapHangRepository.findKeysetAfter(pattern, ngayTao, id, pageable);
+    }
+    
+    @Override
+    public long countByKeyword(String keyword) {
+        String pattern = toLikePattern(keyword);
+        return pattern == null ? phieuNhapHangRepository.count() : phieuNhapHangRepository.countByKeyword(pattern);
+    }
+    
+    private static String toLikePattern(String keyword) {
+        if (keyword == null || keyword.trim().isEmpty()) {
+            return null;
+        }
+        return "%" + keyword.trim().toLowerCase() + "%";
+    }
+}
@@ -2,27 +2,43 @@ package org.example.graduationproject.services.impl;
 
 import org.example.graduationproject.dto.BulkProductVariantDTO;
 import org.example.graduationproject.dto.ProductVariantDTO;
+import org.example.graduationproject.dto.VariantKey;
+import org.example.graduationproject.events.ProductEventPublisher;
 import org.example.graduationproject.models.MauSac;
 import org.example.graduationproject.models.SanPham;
 import org.example.graduationproject.models.SanPhamBienThe;
 import org.example.graduationproject.models.Size;
-import org.example.graduationproject.repositories.MauSacRepository;
+import org.example.graduationproject.repositories.BatchInsertRepository;
 import org.example.graduationproject.repositories.SanPhamBienTheRepository;
 import org.example.graduationproject.repositories.SanPhamRepository;
-import org.example.graduationproject.repositories.SizeRepository;
 import org.example.graduationproject.services.SanPhamBienTheService;
+import org.example.graduationproject.services.StockLedgerService;
+import org.example.graduationproject.services.search.VariantSearchIndex;
+import org.example.graduationproject.services.cache.ReferenceDataCache;
+import org.example.graduationproject.utils.LoggerManager;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 @Service
 public class SanPhamBienTheServiceImpl implements SanPhamBienTheService {
 
+    private static final int IDS_PER_QUERY = 1000;
+
     @Autowired
     private SanPhamBienTheRepository sanPhamBienTheRepository;
     
@@ -30,10 +46,27 @@ public class SanPhamBienTheServiceImpl implements SanPhamBienTheService {
     private SanPhamRepository sanPhamRepository;
     
     @Autowired
-    private MauSacRepository mauSacRepository;
+    private ReferenceDataCache referenceDataCache;
     
     @Autowired
-    private SizeRepository sizeRepository;
+    private VariantSearchIndex variantSearchIndex;
+
+    @Autowired
+    private ProductEventPublisher productEventPublisher;
+
+    @Autowired
+    private BatchInsertRepository batchInsertRepository;
+
+    @Autowired
+    private StockLedgerService stockLedgerService;
+
+    // Số sản phẩm tối đa trong một lần tạo biến thể hàng loạt nhiều sản phẩm
+    @Value("${variants.bulk.max-products:2000}")
+    private int maxBulkProducts;
+
+    // Tổng số ô (màu × size, cộng qua mọi sản phẩm) tối đa trong một lần tạo hàng loạt
+    @Value("${variants.bulk.max-cells:20000}")
+    private int maxBulkCells;
 
     @Override
     public List<SanPhamBienThe> getAllSanPhamBienThe() {
@@ -55,14 +88,29 @@ public class SanPhamBienTheServiceImpl implements SanPhamBienTheService {
         return sanPhamBienTheRepository.findById(id);
     }
 
+    @Override
+    public Map<Integer, SanPhamBienThe> findAllByIds(Collection<Integer> ids) {
+        Map<Integer, SanPhamBienThe> result = new HashMap<>();
+        if (ids == null || ids.isEmpty()) {
+            return result;
+        }
+        for (SanPhamBienThe variant : sanPhamBienTheRepository.findAllById(new HashSet<>(ids))) {
+            result.put(variant.getId(), variant);
+        }
+        return result;
+    }
+
     @Override
     public SanPhamBienThe saveSanPhamBienThe(SanPhamBienThe sanPhamBienThe) {
-        return sanPhamBienTheRepository.save(sanPhamBienThe);
+        SanPhamBienThe saved = sanPhamBienTheRepository.save(sanPhamBienThe);
+        productEventPublisher.publishVariantsSaved(List.of(saved.getId()));
+        return saved;
     }
 
     @Override
     public void deleteSanPhamBienThe(Integer id) {
         sanPhamBienTheRepository.deleteById(id);
+        productEventPublisher.publishVariantDeleted(id);
     }
 
     @Override
@@ -75,7 +123,8 @@ public class SanPhamBienTheServiceImpl implements SanPhamBienTheService {
         if (keyword == null || keyword.trim().isEmpty()) {
             return getAllSanPhamBienThe();
         }
-        return sanPhamBienTheRepository.searchByKeyword(keyword);
+        int[] rankedIds = variantSearchIndex.search(keyword);
+        return loadInRankOrder(rankedIds, 0, rankedIds.length);
     }
 
     @Override
@@ -83,7 +132,7 @@ public class SanPhamBienTheServiceImpl implements SanPhamBienTheService {
         if (keyword == null || keyword.trim().isEmpty()) {
             return getAllPaging(pageable);
         }
-        return sanPhamBienTheRepository.searchByKeywordPaging(keyword, pageable);
+        return searchPageFromIndex(keyword, pageable);
     }
 
     @Override
@@ -91,14 +140,47 @@ public class SanPhamBienTheServiceImpl implements SanPhamBienTheService {
         if (keyword == null || keyword.trim().isEmpty()) {
             return getAllPagingWithDetails(pageable);
         }
-        return sanPhamBienTheRepository.searchByKeywordWithDetails(keyword, pageable);
+        return searchPageFromIndex(keyword, pageable);
+    }
+
+    /**
+     * Tìm trên chỉ mục trong bộ nhớ, chỉ nạp từ database các biến thể thuộc trang hiện tại
+     */
+    private Page<SanPhamBienThe> searchPageFromIndex(String keyword, Pageable pageable) {
+        int[] rankedIds = variantSearchIndex.search(keyword);
+        int from = (int) Math.min(pageable.getOffset(), rankedIds.length);
+        int to = Math.min(from + pageable.getPageSize(), rankedIds.length);
+        return new PageImpl<>(loadInRankOrder(rankedIds, from, to), pageable, rankedIds.length);
+    }
+
+    private List<SanPhamBienThe> loadInRankOrder(int[] rankedIds, int from, int to) {
+        List<Integer> ids = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            ids.add(rankedIds[i]);
+        }
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        Map<Integer, SanPhamBienThe> byId = new HashMap<>();
+        for (SanPhamBienThe variant : sanPhamBienTheRepository.findAllByIdInWithDetails(ids)) {
+            byId.put(variant.getId(), variant);
+        }
+        List<SanPhamBienThe> result = new ArrayList<>(ids.size());
+        for (Integer id : ids) {
+            SanPhamBienThe variant = byId.get(id);
+            if (variant != null) {
+                result.add(variant);
+            }
+        }
+        return result;
     }
     
     @Override
     public SanPhamBienThe createProductVariant(ProductVariantDTO productVariantDTO) {
         SanPham sanPham = sanPhamRepository.findById(productVariantDTO.getSanPhamId()).orElse(null);
-        MauSac mauSac = mauSacRepository.findById(productVariantDTO.getMauSacId()).orElse(null);
-        Size size = sizeRepository.findById(productVariantDTO.getSizeId()).orElse(null);
+        MauSac mauSac = referenceDataCache.getMauSac(productVariantDTO.getMauSacId()).orElse(null);
+        Size size = referenceDataCache.getSize(productVariantDTO.getSizeId()).orElse(null);
 
         if (sanPham == null || mauSac == null || size == null) {
             throw new IllegalArgumentException("Invalid product information, color or size!");
@@ -110,28 +192,41 @@ public class SanPhamBienTheServiceImpl implements SanPhamBienTheService {
         sanPhamBienThe.setMauSac(mauSac);
         sanPhamBienThe.setSize(size);
 
-        return sanPhamBienTheRepository.save(sanPhamBienThe);
+        SanPhamBienThe saved = sanPhamBienTheRepository.save(sanPhamBienThe);
+        productEventPublisher.publishVariantsSaved(List.of(saved.getId()));
+        return saved;
     }
     
+    /**
+     * Sửa biến thể: số lượng tồn đi qua sổ cái tồn kho (không ghi đè giá trị đã đọc, không cho thấp hơn
+     * số lượng đang giữ cho đơn chờ duyệt), các trường còn lại ghi qua entity
+     */
     @Override
+    @Transactional
     public SanPhamBienThe updateProductVariant(ProductVariantDTO productVariantDTO) {
         SanPhamBienThe sanPhamBienThe = getSanPhamBienTheById(productVariantDTO.getId())
                 .orElseThrow(() -> new IllegalArgumentException("No variant products found!"));
 
         SanPham sanPham = sanPhamRepository.findById(productVariantDTO.getSanPhamId()).orElse(null);
-        MauSac mauSac = mauSacRepository.findById(productVariantDTO.getMauSacId()).orElse(null);
-        Size size = sizeRepository.findById(productVariantDTO.getSizeId()).orElse(null);
+        MauSac mauSac = referenceDataCache.getMauSac(productVariantDTO.getMauSacId()).orElse(null);
+        Size size = referenceDataCache.getSize(productVariantDTO.getSizeId()).orElse(null);
 
         if (sanPham == null || mauSac == null || size == null) {
             throw new IllegalArgumentException("Invalid product information, color or size!");
         }
 
-        sanPhamBienThe.setSoLuongTon(productVariantDTO.getSoLuongTon());
+        if (productVariantDTO.getSoLuongTon() != null) {
+            stockLedgerService.setOnHand(Map.of(sanPhamBienThe.getId(), productVariantDTO.getSoLuongTon()));
+            // Cột soLuongTon không cập nhật qua entity, chỉ đồng bộ giá trị trả về với bản ghi vừa đặt
+            sanPhamBienThe.setSoLuongTon(productVariantDTO.getSoLuongTon());
+        }
         sanPhamBienThe.setSanPham(sanPham);
         sanPhamBienThe.setMauSac(mauSac);
         sanPhamBienThe.setSize(size);
 
-        return sanPhamBienTheRepository.save(sanPhamBienThe);
+        SanPhamBienThe saved = sanPhamBienTheRepository.save(sanPhamBienThe);
+        productEventPublisher.publishVariantsSaved(List.of(saved.getId()));
+        return saved;
     }
     
     @Override
@@ -159,111 +254,186 @@ public class SanPhamBienTheServiceImpl implements SanPhamBienTheService {
     }
     
     @Override
+    @Transactional
     public List<SanPhamBienThe> createBulkProductVariants(BulkProductVariantDTO bulkDTO) {
-        SanPham sanPham = sanPhamRepository.findById(bulkDTO.getSanPhamId())
-                .orElseThrow(() -> new IllegalArgumentException("Product not found!"));
-        
-        if (bulkDTO.getMauSacIds() == null || bulkDTO.getMauSacIds().isEmpty()) {
-            throw new IllegalArgumentException("Color list cannot be empty!");
+        return createVariantMatrix(List.of(bulkDTO)).created;
+    }
+    
+    @Override
+    @Transactional
+    public BulkProductVariantDTO.BulkCreateResult createBulkProductVariantsWithResult(BulkProductVariantDTO bulkDTO) {
+        return createVariantMatrix(List.of(bulkDTO)).toResult();
+    }
+
+    @Override
+    @Transactional
+    public BulkProductVariantDTO.BulkCreateResult createBulkProductVariantsForProducts(List<BulkProductVariantDTO> bulkDTOs) {
+        if (bulkDTOs == null || bulkDTOs.isEmpty()) {
+            throw new IllegalArgumentException("Product list cannot be empty!");
         }
-        
-        if (bulkDTO.getSizeIds() == null || bulkDTO.getSizeIds().isEmpty()) {
-            throw new IllegalArgumentException("Size list cannot be empty!");
+        if (bulkDTOs.size() > maxBulkProducts) {
+            throw new IllegalArgumentException("Too many products in one request (max " + maxBulkProducts + ")!");
         }
-        
-        List<SanPhamBienThe> createdVariants = new ArrayList<>();
-        
-        for (Integer mauSacId : bulkDTO.getMauSacIds()) {
-            for (Integer sizeId : bulkDTO.getSizeIds()) {
-                // Kiểm tra xem biến thể đã tồn tại chưa
-                if (!existsProductVariant(bulkDTO.getSanPhamId(), mauSacId, sizeId)) {
-                    MauSac mauSac = mauSacRepository.findById(mauSacId)
-                            .orElseThrow(() -> new IllegalArgumentException("Color not found with ID: " + mauSacId));
-                    Size size = sizeRepository.findById(sizeId)
-                            .orElseThrow(() -> new IllegalArgumentException("Size not found with ID: " + sizeId));
-                    
-                    SanPhamBienThe sanPhamBienThe = new SanPhamBienThe();
-                    sanPhamBienThe.setSoLuongTon(bulkDTO.getSoLuongTon());
-                    sanPhamBienThe.setSanPham(sanPham);
-                    sanPhamBienThe.setMauSac(mauSac);
-                    sanPhamBienThe.setSize(size);
-                    
-                    SanPhamBienThe savedVariant = sanPhamBienTheRepository.save(sanPhamBienThe);
-                    createdVariants.add(savedVariant);
+        return createVariantMatrix(bulkDTOs).toResult();
+    }
+
+    /**
+     * Tạo các ô còn thiếu của ma trận màu × size cho một hoặc nhiều sản phẩm theo tập hợp thay vì từng ô:
+     * - Sản phẩm và các tổ hợp đã có: mỗi loại một truy vấn cho mỗi 1000 sản phẩm
+     * - Màu / size: lấy từ ReferenceDataCache (tối đa một truy vấn mỗi loại khi cache trống)
+     * - Ô thiếu tính trong bộ nhớ, ghi bằng JDBC batch rồi đọc lại id trong một truy vấn
+     * Ma trận 12×8 trước đây tốn gần 400 câu lệnh, nay còn khoảng 5.
+     */
+    private BulkVariantOutcome createVariantMatrix(List<BulkProductVariantDTO> bulkDTOs) {
+        long start = System.currentTimeMillis();
+        Set<Integer> sanPhamIds = new LinkedHashSet<>();
+        long requestedCells = 0;
+        for (BulkProductVariantDTO bulkDTO : bulkDTOs) {
+            if (bulkDTO == null || bulkDTO.getSanPhamId() == null) {
+                throw new IllegalArgumentException("Product not found!");
+            }
+            if (bulkDTO.getMauSacIds() == null || bulkDTO.getMauSacIds().isEmpty()) {
+                throw new IllegalArgumentException("Color list cannot be empty!");
+            }
+            if (bulkDTO.getSizeIds() == null || bulkDTO.getSizeIds().isEmpty()) {
+                throw new IllegalArgumentException("Size list cannot be empty!");
+            }
+            sanPhamIds.add(bulkDTO.getSanPhamId());
+            // Kiểm tra trước khi truy vấn: ma trận lớn giữ toàn bộ ô và chi tiết trong bộ nhớ
+            requestedCells += (long) bulkDTO.getMauSacIds().size() * bulkDTO.getSizeIds().size();
+            if (requestedCells > maxBulkCells) {
+                throw new IllegalArgumentException("Too many variants in one request (max " + maxBulkCells + ")!");
+            }
+        }
+
+        Map<Integer, SanPham> products = new HashMap<>();
+        Set<String> existingCells = new HashSet<>();
+        for (List<Integer> chunk : chunks(sanPhamIds)) {
+            for (SanPham sanPham : sanPhamRepository.findAllById(chunk)) {
+                products.put(sanPham.getId(), sanPham);
+            }
+            for (Object[] row : sanPhamBienTheRepository.findVariantCombinations(chunk)) {
+                existingCells.add(cellKey((Integer) row[1], (Integer) row[2], (Integer) row[3]));
+            }
+        }
+        Map<Integer, MauSac> colors = new HashMap<>();
+        for (MauSac mauSac : referenceDataCache.getAllMauSac()) {
+            colors.put(mauSac.getId(), mauSac);
+        }
+        Map<Integer, Size> sizes = new HashMap<>();
+        for (Size size : referenceDataCache.getAllSize()) {
+            sizes.put(size.getId(), size);
+        }
+
+        BulkVariantOutcome outcome = new BulkVariantOutcome();
+        for (BulkProductVariantDTO bulkDTO : bulkDTOs) {
+            SanPham sanPham = products.get(bulkDTO.getSanPhamId());
+            if (sanPham == null) {
+                throw new IllegalArgumentException("Product not found with ID: " + bulkDTO.getSanPhamId());
+            }
+            for (Integer mauSacId : bulkDTO.getMauSacIds()) {
+                MauSac mauSac = colors.computeIfAbsent(mauSacId, id -> referenceDataCache.getMauSac(id)
+                        .orElseThrow(() -> new IllegalArgumentException("Color not found with ID: " + id)));
+                for (Integer sizeId : bulkDTO.getSizeIds()) {
+                    Size size = sizes.computeIfAbsent(sizeId, id -> referenceDataCache.getSize(id)
+                            .orElseThrow(() -> new IllegalArgumentException("Size not found with ID: " + id)));
+
+                    String variantDetail = String.format("%s - %s (%s)",
+                        sanPham.getTen(),
+                        mauSac.getMaMau(),
+                        size.getTenSize());
+
+                    outcome.totalRequested++;
+                    // Thêm vào tập đã có để màu / size lặp lại trong yêu cầu không tạo trùng
+                    if (existingCells.add(cellKey(sanPham.getId(), mauSacId, sizeId))) {
+                        SanPhamBienThe sanPhamBienThe = new SanPhamBienThe();
+                        sanPhamBienThe.setSoLuongTon(bulkDTO.getSoLuongTon());
+                        sanPhamBienThe.setSanPham(sanPham);
+                        sanPhamBienThe.setMauSac(mauSac);
+                        sanPhamBienThe.setSize(size);
+                        outcome.created.add(sanPhamBienThe);
+                        outcome.createdDetails.add(variantDetail);
+                    } else {
+                        outcome.existingDetails.add(variantDetail);
+                    }
                 }
             }
         }
-        
-        return createdVariants;
+
+        if (!outcome.created.isEmpty()) {
+            batchInsertRepository.insertSanPhamBienThes(outcome.created);
+            assignGeneratedIds(outcome.created);
+            productEventPublisher.publishVariantsSaved(outcome.created.stream().map(SanPhamBienThe::getId).toList());
+        }
+        LoggerManager.getInstance().logPerformance("BULK_VARIANTS", System.currentTimeMillis() - start,
+                "products=" + sanPhamIds.size() + ", requested=" + outcome.totalRequested
+                        + ", created=" + outcome.created.size());
+        return outcome;
     }
-    
-    @Override
-    public BulkProductVariantDTO.BulkCreateResult createBulkProductVariantsWithResult(BulkProductVariantDTO bulkDTO) {
-        SanPham sanPham = sanPhamRepository.findById(bulkDTO.getSanPhamId())
-                .orElseThrow(() -> new IllegalArgumentException("Product not found!"));
-        
-        if (bulkDTO.getMauSacIds() == null || bulkDTO.getMauSacIds().isEmpty()) {
-            throw new IllegalArgumentException("Color list cannot be empty!");
+
+    // JDBC batch không trả về id IDENTITY: đọc lại các tổ hợp của sản phẩm vừa ghi để gán id
+    private void assignGeneratedIds(List<SanPhamBienThe> created) {
+        Set<Integer> sanPhamIds = new LinkedHashSet<>();
+        for (SanPhamBienThe variant : created) {
+            sanPhamIds.add(variant.getSanPham().getId());
         }
-        
-        if (bulkDTO.getSizeIds() == null || bulkDTO.getSizeIds().isEmpty()) {
-            throw new IllegalArgumentException("Size list cannot be empty!");
+        Map<String, Integer> idByCell = new HashMap<>();
+        for (List<Integer> chunk : chunks(sanPhamIds)) {
+            for (Object[] row : sanPhamBienTheRepository.findVariantCombinations(chunk)) {
+                idByCell.put(cellKey((Integer) row[1], (Integer) row[2], (Integer) row[3]), (Integer) row[0]);
+            }
         }
-        
-        List<SanPhamBienThe> createdVariants = new ArrayList<>();
-        List<String> createdVariantDetails = new ArrayList<>();
-        List<String> existingVariantDetails = new ArrayList<>();
-        
-        int totalRequested = bulkDTO.getMauSacIds().size() * bulkDTO.getSizeIds().size();
-        int createdNew = 0;
-        int alreadyExists = 0;
-        
-        for (Integer mauSacId : bulkDTO.getMauSacIds()) {
-            MauSac mauSac = mauSacRepository.findById(mauSacId)
-                    .orElseThrow(() -> new IllegalArgumentException("Color not found with ID: " + mauSacId));
-            
-            for (Integer sizeId : bulkDTO.getSizeIds()) {
-                Size size = sizeRepository.findById(sizeId)
-                        .orElseThrow(() -> new IllegalArgumentException("Size not found with ID: " + sizeId));
-                
-                String variantDetail = String.format("%s - %s (%s)", 
-                    sanPham.getTen(), 
-                    mauSac.getMaMau(), 
-                    size.getTenSize());
-                
-                // Kiểm tra xem biến thể đã tồn tại chưa
-                if (!existsProductVariant(bulkDTO.getSanPhamId(), mauSacId, sizeId)) {
-                    SanPhamBienThe sanPhamBienThe = new SanPhamBienThe();
-                    sanPhamBienThe.setSoLuongTon(bulkDTO.getSoLuongTon());
-                    sanPhamBienThe.setSanPham(sanPham);
-                    sanPhamBienThe.setMauSac(mauSac);
-                    sanPhamBienThe.setSize(size);
-                    
-                    SanPhamBienThe savedVariant = sanPhamBienTheRepository.save(sanPhamBienThe);
-                    createdVariants.add(savedVariant);
-                    createdVariantDetails.add(variantDetail);
-                    createdNew++;
-                } else {
-                    existingVariantDetails.add(variantDetail);
-                    alreadyExists++;
-                }
+        for (SanPhamBienThe variant : created) {
+            variant.setId(idByCell.get(cellKey(variant.getSanPham().getId(), variant.getMauSac().getId(), variant.getSize().getId())));
+        }
+    }
+
+    private String cellKey(Integer sanPhamId, Integer mauSacId, Integer sizeId) {
+        return sanPhamId + ":" + mauSacId + ":" + sizeId;
+    }
+
+    // Giữ số tham số của mệnh đề IN dưới giới hạn 2100 của SQL Server
+    private List<List<Integer>> chunks(Collection<Integer> ids) {
+        List<List<Integer>> chunks = new ArrayList<>();
+        List<Integer> current = new ArrayList<>();
+        for (Integer id : ids) {
+            current.add(id);
+            if (current.size() == IDS_PER_QUERY) {
+                chunks.add(current);
+                current = new ArrayList<>();
             }
         }
-        
-        // Tạo thông báo tổng hợp
-        String message;
-        if (createdNew > 0 && alreadyExists > 0) {
-            message = String.format("Đã tạo %d biến thể mới, %d biến thể đã tồn tại", createdNew, alreadyExists);
-        } else if (createdNew > 0) {
-            message = String.format("Đã tạo thành công %d biến thể mới", createdNew);
-        } else {
-            message = String.format("Tất cả %d biến thể đã tồn tại", alreadyExists);
+        if (!current.isEmpty()) {
+            chunks.add(current);
+        }
+        return chunks;
+    }
+
+    private static final class BulkVariantOutcome {
+        int totalRequested;
+        final List<SanPhamBienThe> created = new ArrayList<>();
+        final List<String> createdDetails = new ArrayList<>();
+        final List<String> existingDetails = new ArrayList<>();
+
+        BulkProductVariantDTO.BulkCreateResult toResult() {
+            int createdNew = created.size();
+            int alreadyExists = existingDetails.size();
+
+            // Tạo thông báo tổng hợp
+            String message;
+            if (createdNew > 0 && alreadyExists > 0) {
+                message = String.format("Đã tạo %d biến thể mới, %d biến thể đã tồn tại", createdNew, alreadyExists);
+            } else if (createdNew > 0) {
+                message = String.format("Đã tạo thành công %d biến thể mới", createdNew);
+            } else {
+                message = String.format("Tất cả %d biến thể đã tồn tại", alreadyExists);
+            }
+
+            return new BulkProductVariantDTO.BulkCreateResult(
+                totalRequested, createdNew, alreadyExists,
+                createdDetails, existingDetails, message
+            );
         }
-        
-        return new BulkProductVariantDTO.BulkCreateResult(
-            totalRequested, createdNew, alreadyExists, 
-            createdVariantDetails, existingVariantDetails, message
-        );
     }
     
     @Override
@@ -285,7 +455,7 @@ public class SanPhamBienTheServiceImpl implements SanPhamBienTheService {
             Integer loaiId = sanPham.getLoai().getId();
             
             // Lấy màu sắc phù hợp với loại sản phẩm
-            List<MauSac> availableColors = mauSacRepository.findByLoaiId(loaiId);
+            List<MauSac> availableColors = referenceDataCache.getMauSacByLoai(loaiId);
             List<BulkProductVariantDTO.MauSacInfo> colorInfos = availableColors.stream()
                     .map(color -> new BulkProductVariantDTO.MauSacInfo(
                             color.getId(),
@@ -296,7 +466,7 @@ public class SanPhamBienTheServiceImpl implements SanPhamBienTheService {
             bulkDTO.setAvailableColors(colorInfos);
             
             // Lấy size phù hợp với loại sản phẩm
-            List<Size> availableSizes = sizeRepository.findByLoaiId(loaiId);
+            List<Size> availableSizes = referenceDataCache.getSizeByLoai(loaiId);
             List<BulkProductVariantDTO.SizeInfo> sizeInfos = availableSizes.stream()
                     .map(size -> new BulkProductVariantDTO.SizeInfo(
                             size.getId(),
@@ -307,7 +477,7 @@ public class SanPhamBienTheServiceImpl implements SanPhamBienTheService {
             bulkDTO.setAvailableSizes(sizeInfos);
         } else {
             // Nếu không có loại, lấy tất cả màu sắc và size
-            List<MauSac> allColors = mauSacRepository.findAll();
+            List<MauSac> allColors = referenceDataCache.getAllMauSac();
             List<BulkProductVariantDTO.MauSacInfo> colorInfos = allColors.stream()
                     .map(color -> new BulkProductVariantDTO.MauSacInfo(
                             color.getId(),
@@ -317,7 +487,7 @@ public class SanPhamBienTheServiceImpl implements SanPhamBienTheService {
                     .toList();
             bulkDTO.setAvailableColors(colorInfos);
             
-            List<Size> allSizes = sizeRepository.findAll();
+            List<Size> allSizes = referenceDataCache.getAllSize();
             List<BulkProductVariantDTO.SizeInfo> sizeInfos = allSizes.stream()
                     .map(size -> new BulkProductVariantDTO.SizeInfo(
                             size.getId(),
@@ -330,4 +500,47 @@ public class SanPhamBienTheServiceImpl implements SanPhamBienTheService {
         
         return bulkDTO;
     }
-} 
\ No newline at end of file
+
+    @Override
+    public Optional<SanPhamBienThe> findVariant(Integer sanPhamId, String tenSize, String maMau) {
+        if (sanPhamId == null || tenSize == null || maMau == null) {
+            return Optional.empty();
+        }
+        return sanPhamBienTheRepository.findByCompositeKey(sanPhamId, tenSize, maMau).stream().findFirst();
+    }
+
+    @Override
+    public Map<VariantKey, SanPhamBienThe> resolveVariants(Collection<VariantKey> keys) {
+        Map<VariantKey, SanPhamBienThe> result = new HashMap<>();
+        if (keys == null || keys.isEmpty()) {
+            return result;
+        }
+
+        Set<Integer> sanPhamIds = new HashSet<>();
+        Set<String> tenSizes = new HashSet<>();
+        Set<String> maMaus = new HashSet<>();
+        for (VariantKey key : keys) {
+            if (key == null || key.getProductId() == null || key.getSizeName() == null || key.getColorCode() == null) {
+                continue;
+            }
+            sanPhamIds.add(key.getProductId());
+            tenSizes.add(key.getSizeName());
+            maMaus.add(key.getColorCode());
+        }
+        if (sanPhamIds.isEmpty()) {
+            return result;
+        }
+
+        // 1 truy vấn lấy tập ứng viên, sau đó khớp chính xác theo khóa tổng hợp
+        List<SanPhamBienThe> candidates = sanPhamBienTheRepository.findByCompositeKeys(sanPhamIds, tenSizes, maMaus);
+        for (SanPhamBienThe variant : candidates) {
+            VariantKey key = new VariantKey(
+                    variant.getSanPham().getId(),
+                    variant.getSize().getTenSize(),
+                    variant.getMauSac().getMaMau());
+            result.putIfAbsent(key, variant);
+        }
+        result.keySet().retainAll(new HashSet<>(keys));
+        return result;
+    }
+}
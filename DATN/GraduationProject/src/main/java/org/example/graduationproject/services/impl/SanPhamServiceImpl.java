@@ -1,14 +1,16 @@
 package org.example.graduationproject.services.impl;
 
 import org.example.graduationproject.models.*;
+import org.example.graduationproject.dto.CursorPage;
 import org.example.graduationproject.dto.ProductDTO;
 import org.example.graduationproject.repositories.SanPhamRepository;
-import org.example.graduationproject.repositories.LoaiRepository;
-import org.example.graduationproject.repositories.NhanHieuRepository;
-import org.example.graduationproject.repositories.NhaCungCapRepository;
 import org.example.graduationproject.repositories.ImageSanPhamRepository;
+import org.example.graduationproject.services.ApproximateCountService;
 import org.example.graduationproject.services.SanPhamService;
+import org.example.graduationproject.utils.KeysetCursor;
 import org.example.graduationproject.builders.SanPhamBuilder;
+import org.example.graduationproject.events.ProductEventPublisher;
+import org.example.graduationproject.services.cache.ReferenceDataCache;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
@@ -21,11 +23,14 @@ import jakarta.persistence.PersistenceContext;
 import jakarta.persistence.TypedQuery;
 import jakarta.persistence.criteria.CriteriaBuilder;
 import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Path;
 import jakarta.persistence.criteria.Predicate;
 import jakarta.persistence.criteria.Root;
 import jakarta.persistence.criteria.Join;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 
@@ -37,11 +42,11 @@ public class SanPhamServiceImpl implements SanPhamService {
     @Autowired
     private ImageSanPhamRepository imageSanPhamRepository;
     @Autowired
-    private LoaiRepository loaiRepository;
+    private ReferenceDataCache referenceDataCache;
     @Autowired
-    private NhanHieuRepository nhanHieuRepository;
+    private ProductEventPublisher productEventPublisher;
     @Autowired
-    private NhaCungCapRepository nhaCungCapRepository;
+    private ApproximateCountService approximateCountService;
 
     @PersistenceContext
     private EntityManager entityManager;
@@ -60,6 +65,7 @@ public class SanPhamServiceImpl implements SanPhamService {
     public Boolean create(SanPham sanPham) {
         try{
             this.sanPhamRepository.save(sanPham);
+            productEventPublisher.publishProductSaved(sanPham.getId());
             return true;
         }catch (Exception e){
             e.printStackTrace();
@@ -78,6 +84,7 @@ public class SanPhamServiceImpl implements SanPhamService {
             // Xóa toàn bộ ảnh liên quan trước
             imageSanPhamRepository.deleteAll(imageSanPhamRepository.findAllBySanPham_Id(id));
             this.sanPhamRepository.deleteById(id);
+            productEventPublisher.publishProductDeleted(id);
             return true;
         } catch (Exception e) {
             e.printStackTrace();
@@ -89,6 +96,7 @@ public class SanPhamServiceImpl implements SanPhamService {
     public Boolean update(SanPham sanPham) {
         try {
             this.sanPhamRepository.save(sanPham);
+            productEventPublisher.publishProductSaved(sanPham.getId());
             return true;
         } catch (Exception e) {
             e.printStackTrace();
@@ -98,7 +106,9 @@ public class SanPhamServiceImpl implements SanPhamService {
 
     @Override
     public SanPham save(SanPham sanPham) {
-        return this.sanPhamRepository.save(sanPham);
+        SanPham saved = this.sanPhamRepository.save(sanPham);
+        productEventPublisher.publishProductSaved(saved.getId());
+        return saved;
     }
 
     @Override
@@ -107,6 +117,7 @@ public class SanPhamServiceImpl implements SanPhamService {
         if (sp != null) {
             sp.setTrangThaiHoatDong(active);
             sanPhamRepository.save(sp);
+            productEventPublisher.publishProductSaved(id);
         }
     }
 
@@ -116,9 +127,9 @@ public class SanPhamServiceImpl implements SanPhamService {
         SanPham sanPham = SanPhamBuilder.newBuilder()
             .fromProductDTO(
                 productDTO,
-                loaiRepository.findById(productDTO.getLoaiId()).orElse(null),
-                nhanHieuRepository.findById(productDTO.getNhanHieuId()).orElse(null),
-                nhaCungCapRepository.findById(productDTO.getNhaCungCapId()).orElse(null)
+                referenceDataCache.getLoai(productDTO.getLoaiId()).orElse(null),
+                referenceDataCache.getNhanHieu(productDTO.getNhanHieuId()).orElse(null),
+                referenceDataCache.getNhaCungCap(productDTO.getNhaCungCapId()).orElse(null)
             )
             .build();
         
@@ -134,6 +145,8 @@ public class SanPhamServiceImpl implements SanPhamService {
                 imageSanPhamRepository.save(image);
             }
         }
+
+        productEventPublisher.publishProductSaved(sanPham.getId());
     }
 
     @Override
@@ -151,9 +164,9 @@ public class SanPhamServiceImpl implements SanPhamService {
             .withStatus(existingSanPham.getTrangThaiSanPham(), existingSanPham.getTrangThaiHoatDong())
             .withClassification(
                 productDTO.getGioiTinh(),
-                loaiRepository.findById(productDTO.getLoaiId()).orElse(null),
-                nhanHieuRepository.findById(productDTO.getNhanHieuId()).orElse(null),
-                nhaCungCapRepository.findById(productDTO.getNhaCungCapId()).orElse(null)
+                referenceDataCache.getLoai(productDTO.getLoaiId()).orElse(null),
+                referenceDataCache.getNhanHieu(productDTO.getNhanHieuId()).orElse(null),
+                referenceDataCache.getNhaCungCap(productDTO.getNhaCungCapId()).orElse(null)
             )
             .withTimestamps(existingSanPham.getNgayTao(), java.time.LocalDateTime.now())
             .build();
@@ -178,6 +191,8 @@ public class SanPhamServiceImpl implements SanPhamService {
                 }
             }
         }
+
+        productEventPublisher.publishProductSaved(savedSanPham.getId());
     }
     
     // Phân trang
@@ -226,10 +241,11 @@ public class SanPhamServiceImpl implements SanPhamService {
     
     @Override
     public Page<SanPham> getProductsWithFilters(String search, Integer categoryId, String gender, int page, int size) {
-        // Sử dụng JPA Criteria API để tạo dynamic query
+        // Sử dụng JPA Criteria API để tạo dynamic query, chỉ lấy id của trang
         CriteriaBuilder cb = entityManager.getCriteriaBuilder();
-        CriteriaQuery<SanPham> query = cb.createQuery(SanPham.class);
+        CriteriaQuery<Integer> query = cb.createQuery(Integer.class);
         Root<SanPham> root = query.from(SanPham.class);
+        query.select(root.<Integer>get("id"));
         
         // Tạo danh sách các điều kiện (predicates) sử dụng helper method
         List<Predicate> predicates = createPredicates(cb, root, search, categoryId, gender);
@@ -243,6 +259,91 @@ public class SanPhamServiceImpl implements SanPhamService {
         query.orderBy(cb.asc(root.get("ten")));
         
         // Thực hiện truy vấn để đếm tổng số bản ghi
+        Long totalElements = countProductsWithFilters(search, categoryId, gender);
+        
+        // Thực hiện query chính với phân trang
+        TypedQuery<Integer> typedQuery = entityManager.createQuery(query);
+        typedQuery.setFirstResult(page * size);
+        typedQuery.setMaxResults(size);
+        
+        // Nạp sản phẩm của trang kèm loại, nhãn hiệu, nhà cung cấp và ảnh trong một truy vấn
+        List<SanPham> content = loadWithDetails(typedQuery.getResultList());
+        
+        // Tạo Page object
+        Pageable pageable = PageRequest.of(page, size);
+        return new PageImpl<>(content, pageable, totalElements);
+    }
+
+    @Override
+    public CursorPage<SanPham> getProductsWithFiltersKeyset(String search, Integer categoryId, String gender,
+                                                            String cursor, int size) {
+        size = KeysetCursor.pageSize(size);
+        KeysetCursor after = KeysetCursor.decode(cursor);
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Integer> query = cb.createQuery(Integer.class);
+        Root<SanPham> root = query.from(SanPham.class);
+        query.select(root.<Integer>get("id"));
+        
+        List<Predicate> predicates = createPredicates(cb, root, search, categoryId, gender);
+        
+        // Điều kiện keyset: các sản phẩm đứng sau (ten, id) của cursor.
+        // Sắp xếp tăng dần đặt tên null trước mọi tên khác nên nhóm null được phân trang theo id
+        if (after != null) {
+            Path<String> ten = root.get("ten");
+            Predicate afterId = cb.greaterThan(root.<Integer>get("id"), after.getId());
+            if (after.getSortValue() == null) {
+                predicates.add(cb.or(cb.isNotNull(ten), cb.and(cb.isNull(ten), afterId)));
+            } else {
+                predicates.add(cb.or(
+                    cb.greaterThan(ten, after.getSortValue()),
+                    cb.and(cb.equal(ten, after.getSortValue()), afterId)
+                ));
+            }
+        }
+        query.where(predicates.toArray(new Predicate[0]));
+        query.orderBy(cb.asc(root.get("ten")), cb.asc(root.get("id")));
+        
+        List<Integer> rows = entityManager.createQuery(query)
+                .setMaxResults(size + 1)
+                .getResultList();
+        boolean hasNext = rows.size() > size;
+        List<SanPham> content = loadWithDetails(hasNext ? rows.subList(0, size) : rows);
+        String nextCursor = null;
+        if (hasNext && !content.isEmpty()) {
+            SanPham last = content.get(content.size() - 1);
+            nextCursor = KeysetCursor.encode(last.getTen(), last.getId());
+        }
+        
+        // Tổng số chỉ mang tính tham khảo, lấy từ bộ đếm có cache
+        String countKey = "SanPham:" + (search != null ? search.trim().toLowerCase() : "") + "|" + categoryId + "|" + gender;
+        long approximateTotal = approximateCountService.cachedCount(countKey,
+                () -> countProductsWithFilters(search, categoryId, gender));
+        return new CursorPage<>(content, nextCursor, hasNext, size, approximateTotal);
+    }
+
+    /**
+     * Nạp sản phẩm theo danh sách id kèm các quan hệ của ProductDTO, giữ nguyên thứ tự id
+     */
+    private List<SanPham> loadWithDetails(List<Integer> ids) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Map<Integer, SanPham> byId = new HashMap<>();
+        for (SanPham sanPham : sanPhamRepository.findAllWithDetailsByIdIn(ids)) {
+            byId.put(sanPham.getId(), sanPham);
+        }
+        List<SanPham> ordered = new ArrayList<>(ids.size());
+        for (Integer id : ids) {
+            SanPham sanPham = byId.get(id);
+            if (sanPham != null) {
+                ordered.add(sanPham);
+            }
+        }
+        return ordered;
+    }
+
+    private Long countProductsWithFilters(String search, Integer categoryId, String gender) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
         CriteriaQuery<Long> countQuery = cb.createQuery(Long.class);
         Root<SanPham> countRoot = countQuery.from(SanPham.class);
         
@@ -254,19 +355,7 @@ public class SanPhamServiceImpl implements SanPhamService {
         }
         countQuery.select(cb.count(countRoot));
         
-        // Thực hiện count query
-        Long totalElements = entityManager.createQuery(countQuery).getSingleResult();
-        
-        // Thực hiện query chính với phân trang
-        TypedQuery<SanPham> typedQuery = entityManager.createQuery(query);
-        typedQuery.setFirstResult(page * size);
-        typedQuery.setMaxResults(size);
-        
-        List<SanPham> content = typedQuery.getResultList();
-        
-        // Tạo Page object
-        Pageable pageable = PageRequest.of(page, size);
-        return new PageImpl<>(content, pageable, totalElements);
+        return entityManager.createQuery(countQuery).getSingleResult();
     }
 
     private List<Predicate> createPredicates(CriteriaBuilder cb, Root<SanPham> root, 
@@ -319,7 +408,11 @@ public class SanPhamServiceImpl implements SanPhamService {
     
     @Override
     public void deleteImageById(Integer imageId) {
+        Integer productId = imageSanPhamRepository.findById(imageId)
+            .map(image -> image.getSanPham() != null ? image.getSanPham().getId() : null)
+            .orElse(null);
         imageSanPhamRepository.deleteById(imageId);
+        productEventPublisher.publishProductSaved(productId);
     }
     
     @Override
@@ -335,5 +428,6 @@ public class SanPhamServiceImpl implements SanPhamService {
                 .orElseThrow(() -> new IllegalArgumentException("No products found!"));
         sanPham.setTrangThaiHoatDong(active);
         sanPhamRepository.save(sanPham);
+        productEventPublisher.publishProductSaved(id);
     }
 }
@@ -3,6 +3,7 @@ package org.example.graduationproject.services.impl;
 import org.example.graduationproject.models.Size;
 import org.example.graduationproject.repositories.SizeRepository;
 import org.example.graduationproject.services.SizeService;
+import org.example.graduationproject.services.cache.ReferenceDataCache;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
@@ -16,6 +17,9 @@ public class SizeServiceImpl implements SizeService {
     @Autowired
     private SizeRepository sizeRepository;
 
+    @Autowired
+    private ReferenceDataCache referenceDataCache;
+
     @Override
     public List<Size> findAll() { return sizeRepository.findAll(); }
 
@@ -26,10 +30,17 @@ public class SizeServiceImpl implements SizeService {
     public Page<Size> findAll(Pageable pageable) { return sizeRepository.findAll(pageable); }
 
     @Override
-    public Size save(Size size) { return sizeRepository.save(size); }
+    public Size save(Size size) {
+        Size saved = sizeRepository.save(size);
+        referenceDataCache.invalidateSize();
+        return saved;
+    }
 
     @Override
-    public void deleteById(Integer id) { sizeRepository.deleteById(id); }
+    public void deleteById(Integer id) {
+        sizeRepository.deleteById(id);
+        referenceDataCache.invalidateSize();
+    }
 
     @Override
     public Optional<Size> findById(Integer id) { return sizeRepository.findById(id); }
@@ -0,0 +1,354 @@
+package org.example.graduationproject.services.impl;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Query;
+import org.example.graduationproject.exceptions.InsufficientStockException;
+import org.example.graduationproject.models.SanPhamBienThe;
+import org.example.graduationproject.repositories.SanPhamBienTheRepository;
+import org.example.graduationproject.services.StockLedgerService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+@Service
+public class StockLedgerServiceImpl implements StockLedgerService {
+
+    // Giới hạn số dòng mỗi câu lệnh (SQL Server tối đa 2100 tham số)
+    private static final int LINES_PER_STATEMENT = 200;
+
+    private static final String AVAILABLE = "v.soLuongTon - COALESCE(v.soLuongDaGiu, 0)";
+
+    // Các mẫu biểu thức, {CASE} / {FLOOR:...} được thay theo số dòng của mỗi câu lệnh
+    private static final String CASE_QUANTITY = "{CASE}";
+    private static final String FLOORED_HELD = "{FLOOR:v.soLuongDaGiu}";
+    private static final String FLOORED_ON_HAND = "{FLOOR:v.soLuongTon}";
+
+    @Autowired
+    private SanPhamBienTheRepository sanPhamBienTheRepository;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    @Transactional
+    public void reserve(Map<Integer, Integer> quantities) {
+        guardedUpdate(normalize(quantities),
+                "v.soLuongTon = v.soLuongTon - " + CASE_QUANTITY,
+                AVAILABLE, true);
+    }
+
+    @Override
+    @Transactional
+    public void hold(Map<Integer, Integer> quantities) {
+        guardedUpdate(normalize(quantities),
+                "v.soLuongDaGiu = COALESCE(v.soLuongDaGiu, 0) + " + CASE_QUANTITY,
+                AVAILABLE, true);
+    }
+
+    @Override
+    @Transactional
+    public void commitHold(Map<Integer, Integer> quantities) {
+        guardedUpdate(normalize(quantities),
+                "v.soLuongTon = v.soLuongTon - " + CASE_QUANTITY + ", v.soLuongDaGiu = " + FLOORED_HELD,
+                "v.soLuongTon", false);
+    }
+
+    @Override
+    @Transactional
+    public void releaseHold(Map<Integer, Integer> quantities) {
+        unguardedUpdate(normalize(quantities), "v.soLuongDaGiu = " + FLOORED_HELD);
+    }
+
+    @Override
+    @Transactional
+    public void release(Map<Integer, Integer> quantities) {
+        unguardedUpdate(normalize(quantities), "v.soLuongTon = COALESCE(v.soLuongTon, 0) + " + CASE_QUANTITY);
+    }
+
+    @Override
+    @Transactional
+    public void receive(Map<Integer, Integer> quantities) {
+        unguardedUpdate(normalize(quantities), "v.soLuongTon = COALESCE(v.soLuongTon, 0) + " + CASE_QUANTITY);
+    }
+
+    @Override
+    @Transactional
+    public void reverseReceipt(Map<Integer, Integer> quantities) {
+        unguardedUpdate(normalize(quantities), "v.soLuongTon = " + FLOORED_ON_HAND);
+    }
+
+    @Override
+    @Transactional
+    public void setOnHand(Map<Integer, Integer> quantities) {
+        // Tồn bằng 0 là hợp lệ nên không dùng normalize
+        Map<Integer, Integer> lines = new TreeMap<>();
+        if (quantities != null) {
+            for (Map.Entry<Integer, Integer> entry : quantities.entrySet()) {
+                if (entry.getKey() != null && entry.getValue() != null && entry.getValue() >= 0) {
+                    lines.put(entry.getKey(), entry.getValue());
+                }
+            }
+        }
+        if (lines.isEmpty()) {
+            return;
+        }
+
+        int updated = 0;
+        for (List<Map.Entry<Integer, Integer>> chunk : chunks(lines)) {
+            StringBuilder jpql = new StringBuilder("UPDATE SanPhamBienThe v SET v.soLuongTon = ")
+                    .append(caseExpression(chunk.size()))
+                    .append(" WHERE ");
+            for (int i = 0; i < chunk.size(); i++) {
+                if (i > 0) jpql.append(" OR ");
+                jpql.append("(v.id = :id").append(i)
+                    .append(" AND COALESCE(v.soLuongDaGiu, 0) <= :q").append(i).append(")");
+            }
+            updated += bind(entityManager.createQuery(jpql.toString()), chunk).executeUpdate();
+        }
+
+        if (updated != lines.size()) {
+            List<InsufficientStockException.Shortage> conflicts = findHeldAbove(lines);
+            StringBuilder message = new StringBuilder("Tồn kho mới thấp hơn số lượng đang giữ cho đơn chờ duyệt:");
+            for (InsufficientStockException.Shortage conflict : conflicts) {
+                message.append(" ").append(conflict.getDescription())
+                       .append(": đang giữ ").append(conflict.getRequested())
+                       .append(", tồn mới ").append(conflict.getAvailable()).append(";");
+            }
+            throw new InsufficientStockException(message.toString(), conflicts);
+        }
+    }
+
+    @Override
+    public Map<Integer, Integer> getAvailableToSell(Collection<Integer> variantIds) {
+        Map<Integer, Integer> available = new HashMap<>();
+        if (variantIds == null || variantIds.isEmpty()) {
+            return available;
+        }
+        for (Object[] row : sanPhamBienTheRepository.findStockLevels(variantIds)) {
+            available.put((Integer) row[0], Math.max(toInt(row[1]) - toInt(row[2]), 0));
+        }
+        return available;
+    }
+
+    /**
+     * Cập nhật có điều kiện: chỉ dòng có (guardExpression >= số lượng) mới được cập nhật.
+     * Kiểm tra trước để báo chính xác dòng thiếu hàng; nếu điều kiện bị chặn do giao dịch khác
+     * thì ném exception để rollback toàn bộ.
+     */
+    private void guardedUpdate(Map<Integer, Integer> lines, String setTemplate, String guardExpression,
+                               boolean guardOnAvailable) {
+        if (lines.isEmpty()) {
+            return;
+        }
+
+        List<InsufficientStockException.Shortage> shortages = findShortages(lines, guardOnAvailable);
+        if (!shortages.isEmpty()) {
+            throw new InsufficientStockException(buildShortageMessage(shortages), shortages);
+        }
+
+        int updated = 0;
+        for (List<Map.Entry<Integer, Integer>> chunk : chunks(lines)) {
+            StringBuilder jpql = new StringBuilder("UPDATE SanPhamBienThe v SET ")
+                    .append(expand(setTemplate, chunk.size()))
+                    .append(" WHERE ");
+            for (int i = 0; i < chunk.size(); i++) {
+                if (i > 0) jpql.append(" OR ");
+                jpql.append("(v.id = :id").append(i).append(" AND ")
+                    .append(guardExpression).append(" >= :q").append(i).append(")");
+            }
+            updated += bind(entityManager.createQuery(jpql.toString()), chunk).executeUpdate();
+        }
+
+        if (updated != lines.size()) {
+            List<InsufficientStockException.Shortage> conflicts = findShortages(lines, guardOnAvailable);
+            throw new InsufficientStockException(
+                    "Tồn kho vừa thay đổi bởi giao dịch khác, vui lòng thử lại. " + buildShortageMessage(conflicts),
+                    conflicts);
+        }
+    }
+
+    private void unguardedUpdate(Map<Integer, Integer> lines, String setTemplate) {
+        for (List<Map.Entry<Integer, Integer>> chunk : chunks(lines)) {
+            String jpql = "UPDATE SanPhamBienThe v SET " + expand(setTemplate, chunk.size()) + " WHERE v.id IN :ids";
+            bind(entityManager.createQuery(jpql), chunk)
+                    .setParameter("ids", ids(chunk))
+                    .executeUpdate();
+        }
+    }
+
+    private String expand(String template, int size) {
+        String result = template.replace(CASE_QUANTITY, caseExpression(size));
+        result = result.replace(FLOORED_HELD, flooredDecrement("v.soLuongDaGiu", size));
+        return result.replace(FLOORED_ON_HAND, flooredDecrement("v.soLuongTon", size));
+    }
+
+    /**
+     * (CASE WHEN v.id = :id0 THEN :q0 WHEN v.id = :id1 THEN :q1 ... ELSE 0 END)
+     */
+    private String caseExpression(int size) {
+        StringBuilder expression = new StringBuilder("(CASE");
+        for (int i = 0; i < size; i++) {
+            expression.append(" WHEN v.id = :id").append(i).append(" THEN :q").append(i);
+        }
+        return expression.append(" ELSE 0 END)").toString();
+    }
+
+    /**
+     * Trừ số lượng khỏi cột nhưng không để âm
+     */
+    private String flooredDecrement(String column, int size) {
+        StringBuilder expression = new StringBuilder("(CASE");
+        for (int i = 0; i < size; i++) {
+            expression.append(" WHEN v.id = :id").append(i)
+                      .append(" AND COALESCE(").append(column).append(", 0) > :q").append(i)
+                      .append(" THEN COALESCE(").append(column).append(", 0) - :q").append(i)
+                      .append(" WHEN v.id = :id").append(i).append(" THEN 0");
+        }
+        return expression.append(" ELSE ").append(column).append(" END)").toString();
+    }
+
+    private Query bind(Query query, List<Map.Entry<Integer, Integer>> chunk) {
+        for (int i = 0; i < chunk.size(); i++) {
+            query.setParameter("id" + i, chunk.get(i).getKey());
+            query.setParameter("q" + i, chunk.get(i).getValue());
+        }
+        return query;
+    }
+
+    private List<Integer> ids(List<Map.Entry<Integer, Integer>> chunk) {
+        List<Integer> ids = new ArrayList<>(chunk.size());
+        for (Map.Entry<Integer, Integer> line : chunk) {
+            ids.add(line.getKey());
+        }
+        return ids;
+    }
+
+    /**
+     * Bỏ dòng số lượng <= 0 và sắp xếp theo id để các giao dịch khóa dòng theo cùng thứ tự
+     */
+    private Map<Integer, Integer> normalize(Map<Integer, Integer> quantities) {
+        Map<Integer, Integer> lines = new TreeMap<>();
+        if (quantities == null) {
+            return lines;
+        }
+        for (Map.Entry<Integer, Integer> entry : quantities.entrySet()) {
+            if (entry.getKey() != null && entry.getValue() != null && entry.getValue() > 0) {
+                lines.merge(entry.getKey(), entry.getValue(), Integer::sum);
+            }
+        }
+        return lines;
+    }
+
+    private List<List<Map.Entry<Integer, Integer>>> chunks(Map<Integer, Integer> lines) {
+        List<List<Map.Entry<Integer, Integer>>> chunks = new ArrayList<>();
+        List<Map.Entry<Integer, Integer>> current = new ArrayList<>();
+        for (Map.Entry<Integer, Integer> line : lines.entrySet()) {
+            current.add(line);
+            if (current.size() == LINES_PER_STATEMENT) {
+                chunks.add(current);
+                current = new ArrayList<>();
+            }
+        }
+        if (!current.isEmpty()) {
+            chunks.add(current);
+        }
+        return chunks;
+    }
+
+    private List<InsufficientStockException.Shortage> findShortages(Map<Integer, Integer> lines,
+                                                                   boolean guardOnAvailable) {
+        // Đọc số lượng trực tiếp từ database (không qua entity có thể đã cũ trong persistence context)
+        Map<Integer, Integer> stockLevels = new HashMap<>();
+        for (Object[] row : sanPhamBienTheRepository.findStockLevels(lines.keySet())) {
+            int onHand = toInt(row[1]);
+            stockLevels.put((Integer) row[0], guardOnAvailable ? onHand - toInt(row[2]) : onHand);
+        }
+
+        List<Integer> shortIds = new ArrayList<>();
+        for (Map.Entry<Integer, Integer> line : lines.entrySet()) {
+            Integer stock = stockLevels.get(line.getKey());
+            if (stock == null || stock < line.getValue()) {
+                shortIds.add(line.getKey());
+            }
+        }
+        if (shortIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        Map<Integer, SanPhamBienThe> variants = new HashMap<>();
+        for (SanPhamBienThe variant : sanPhamBienTheRepository.findAllByIdInWithDetails(shortIds)) {
+            variants.put(variant.getId(), variant);
+        }
+        List<InsufficientStockException.Shortage> shortages = new ArrayList<>();
+        for (Integer variantId : shortIds) {
+            SanPhamBienThe variant = variants.get(variantId);
+            String description = variant != null ? describe(variant) : "Biến thể #" + variantId + " không tồn tại";
+            shortages.add(new InsufficientStockException.Shortage(
+                    variantId, description, lines.get(variantId), Math.max(stockLevels.getOrDefault(variantId, 0), 0)));
+        }
+        return shortages;
+    }
+
+    /**
+     * Dòng có số lượng đang giữ lớn hơn tồn mới (requested = đang giữ, available = tồn mới)
+     * hoặc biến thể không tồn tại
+     */
+    private List<InsufficientStockException.Shortage> findHeldAbove(Map<Integer, Integer> lines) {
+        Map<Integer, Integer> held = new HashMap<>();
+        for (Object[] row : sanPhamBienTheRepository.findStockLevels(lines.keySet())) {
+            held.put((Integer) row[0], toInt(row[2]));
+        }
+        List<Integer> conflictIds = new ArrayList<>();
+        for (Map.Entry<Integer, Integer> line : lines.entrySet()) {
+            Integer current = held.get(line.getKey());
+            if (current == null || current > line.getValue()) {
+                conflictIds.add(line.getKey());
+            }
+        }
+        if (conflictIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        Map<Integer, SanPhamBienThe> variants = new HashMap<>();
+        for (SanPhamBienThe variant : sanPhamBienTheRepository.findAllByIdInWithDetails(conflictIds)) {
+            variants.put(variant.getId(), variant);
+        }
+        List<InsufficientStockException.Shortage> conflicts = new ArrayList<>();
+        for (Integer variantId : conflictIds) {
+            SanPhamBienThe variant = variants.get(variantId);
+            String description = variant != null ? describe(variant) : "Biến thể #" + variantId + " không tồn tại";
+            conflicts.add(new InsufficientStockException.Shortage(
+                    variantId, description, held.getOrDefault(variantId, 0), lines.get(variantId)));
+        }
+        return conflicts;
+    }
+
+    private static int toInt(Object value) {
+        return value != null ? ((Number) value).intValue() : 0;
+    }
+
+    private String describe(SanPhamBienThe variant) {
+        return String.format("%s (%s - %s)",
+                variant.getSanPham() != null ? variant.getSanPham().getTen() : "#" + variant.getId(),
+                variant.getMauSac() != null ? variant.getMauSac().getMaMau() : "",
+                variant.getSize() != null ? variant.getSize().getTenSize() : "");
+    }
+
+    private String buildShortageMessage(List<InsufficientStockException.Shortage> shortages) {
+        StringBuilder message = new StringBuilder("Không đủ tồn kho:");
+        for (InsufficientStockException.Shortage shortage : shortages) {
+            message.append(" ").append(shortage.getDescription())
+                   .append(": cần ").append(shortage.getRequested())
+                   .append(", còn ").append(shortage.getAvailable()).append(";");
+        }
+        return message.toString();
+    }
+}
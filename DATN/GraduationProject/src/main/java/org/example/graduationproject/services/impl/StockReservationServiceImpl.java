@@ -0,0 +1,150 @@
+package org.example.graduationproject.services.impl;
+
+import org.example.graduationproject.models.ChiTietHoaDon;
+import org.example.graduationproject.models.GiuTonKho;
+import org.example.graduationproject.models.HoaDon;
+import org.example.graduationproject.models.SanPhamBienThe;
+import org.example.graduationproject.repositories.GiuTonKhoRepository;
+import org.example.graduationproject.services.StockLedgerService;
+import org.example.graduationproject.services.StockReservationService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@Service
+public class StockReservationServiceImpl implements StockReservationService {
+
+    private static final String HELD = "HELD";
+    private static final String COMMITTED = "COMMITTED";
+    private static final String RELEASED = "RELEASED";
+
+    @Autowired
+    private GiuTonKhoRepository giuTonKhoRepository;
+
+    @Autowired
+    private StockLedgerService stockLedgerService;
+
+    // Thời gian giữ hàng cho đơn chờ duyệt
+    @Value("${inventory.hold.ttl-minutes:30}")
+    private long holdTtlMinutes;
+
+    @Override
+    @Transactional
+    public void holdForOrder(HoaDon hoaDon, List<ChiTietHoaDon> chiTietHoaDons) {
+        Map<Integer, Integer> quantities = new HashMap<>();
+        Map<Integer, SanPhamBienThe> variants = new HashMap<>();
+        for (ChiTietHoaDon cthd : chiTietHoaDons) {
+            if (cthd.getSanPhamBienThe() == null || cthd.getSanPhamBienThe().getId() == null) continue;
+            int quantity = cthd.getSoLuong() != null ? cthd.getSoLuong() : 0;
+            if (quantity <= 0) continue;
+            quantities.merge(cthd.getSanPhamBienThe().getId(), quantity, Integer::sum);
+            variants.putIfAbsent(cthd.getSanPhamBienThe().getId(), cthd.getSanPhamBienThe());
+        }
+        if (quantities.isEmpty()) {
+            return;
+        }
+
+        // Giữ hàng có điều kiện, thiếu hàng thì cả đơn bị rollback
+        stockLedgerService.hold(quantities);
+
+        LocalDateTime now = LocalDateTime.now();
+        List<GiuTonKho> holds = new ArrayList<>();
+        for (Map.Entry<Integer, Integer> entry : quantities.entrySet()) {
+            GiuTonKho hold = new GiuTonKho();
+            hold.setHoaDon(hoaDon);
+            hold.setSanPhamBienThe(variants.get(entry.getKey()));
+            hold.setSoLuong(entry.getValue());
+            hold.setNgayTao(now);
+            hold.setHanGiu(now.plusMinutes(holdTtlMinutes));
+            hold.setTrangThai(HELD);
+            holds.add(hold);
+        }
+        giuTonKhoRepository.saveAll(holds);
+    }
+
+    @Override
+    @Transactional
+    public void commitForOrder(HoaDon hoaDon, List<ChiTietHoaDon> chiTietHoaDons) {
+        Map<Integer, Integer> required = new HashMap<>();
+        for (ChiTietHoaDon cthd : chiTietHoaDons) {
+            if (cthd.getSanPhamBienThe() == null || cthd.getSanPhamBienThe().getId() == null) continue;
+            int quantity = cthd.getSoLuong() != null ? cthd.getSoLuong() : 0;
+            required.merge(cthd.getSanPhamBienThe().getId(), quantity, Integer::sum);
+        }
+
+        List<GiuTonKho> holds = giuTonKhoRepository.findForUpdateByHoaDonId(hoaDon.getId(), HELD);
+        Map<Integer, Integer> held = sumByVariant(holds);
+
+        // Phần còn được giữ thì chuyển thành đã bán, phần hết hạn giữ thì trừ trực tiếp
+        Map<Integer, Integer> fromHold = new HashMap<>();
+        Map<Integer, Integer> direct = new HashMap<>();
+        for (Map.Entry<Integer, Integer> entry : required.entrySet()) {
+            int need = entry.getValue();
+            int covered = Math.min(held.getOrDefault(entry.getKey(), 0), need);
+            if (covered > 0) fromHold.put(entry.getKey(), covered);
+            if (need > covered) direct.put(entry.getKey(), need - covered);
+        }
+        Map<Integer, Integer> excess = new HashMap<>();
+        for (Map.Entry<Integer, Integer> entry : held.entrySet()) {
+            int surplus = entry.getValue() - required.getOrDefault(entry.getKey(), 0);
+            if (surplus > 0) excess.put(entry.getKey(), surplus);
+        }
+
+        stockLedgerService.commitHold(fromHold);
+        stockLedgerService.reserve(direct);
+        stockLedgerService.releaseHold(excess);
+
+        if (!holds.isEmpty()) {
+            giuTonKhoRepository.updateTrangThai(ids(holds), COMMITTED);
+        }
+    }
+
+    @Override
+    @Transactional
+    public void releaseForOrder(HoaDon hoaDon) {
+        List<GiuTonKho> holds = giuTonKhoRepository.findForUpdateByHoaDonId(hoaDon.getId(), HELD);
+        if (holds.isEmpty()) {
+            return;
+        }
+        stockLedgerService.releaseHold(sumByVariant(holds));
+        giuTonKhoRepository.updateTrangThai(ids(holds), RELEASED);
+    }
+
+    @Override
+    @Transactional
+    public int expireHoldsBatch(int batchSize) {
+        List<GiuTonKho> holds = giuTonKhoRepository.findExpiredForUpdate(LocalDateTime.now(), PageRequest.of(0, batchSize));
+        if (holds.isEmpty()) {
+            return 0;
+        }
+        // Gom theo biến thể: cả lô chỉ tốn 1 câu lệnh cập nhật tồn kho và 1 câu lệnh cập nhật trạng thái
+        stockLedgerService.releaseHold(sumByVariant(holds));
+        giuTonKhoRepository.updateTrangThai(ids(holds), RELEASED);
+        return holds.size();
+    }
+
+    private Map<Integer, Integer> sumByVariant(List<GiuTonKho> holds) {
+        Map<Integer, Integer> quantities = new HashMap<>();
+        for (GiuTonKho hold : holds) {
+            if (hold.getSanPhamBienThe() == null || hold.getSoLuong() == null) continue;
+            quantities.merge(hold.getSanPhamBienThe().getId(), hold.getSoLuong(), Integer::sum);
+        }
+        return quantities;
+    }
+
+    private List<Integer> ids(List<GiuTonKho> holds) {
+        List<Integer> ids = new ArrayList<>(holds.size());
+        for (GiuTonKho hold : holds) {
+            ids.add(hold.getId());
+        }
+        return ids;
+    }
+}
@@ -91,7 +91,7 @@ public class UserProductServiceImpl implements UserProductService {
             vm.put("id", v.getId());
             vm.put("sizeId", v.getSize() != null ? v.getSize().getId() : null);
             vm.put("colorId", v.getMauSac() != null ? v.getMauSac().getId() : null);
-            vm.put("stock", v.getSoLuongTon());
+            vm.put("stock", v.getSoLuongCoTheBan());
             variantList.add(vm);
         }
 
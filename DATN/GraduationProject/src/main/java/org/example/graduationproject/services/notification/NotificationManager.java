@@ -3,6 +3,7 @@ package org.example.graduationproject.services.notification;
 import org.example.graduationproject.dto.NotificationRequest;
 import org.example.graduationproject.dto.NotificationResult;
 import org.example.graduationproject.enums.NotificationType;
+import org.example.graduationproject.services.notification.dispatch.NotificationDispatcher;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.scheduling.annotation.Async;
@@ -24,6 +25,9 @@ public class NotificationManager {
     @Autowired
     @Qualifier("notificationTaskExecutor")
     private Executor notificationExecutor;
+
+    @Autowired
+    private NotificationDispatcher notificationDispatcher;
     
     @Autowired
     public NotificationManager(@Qualifier("basicNotificationService") NotificationService basicNotificationService,
@@ -64,6 +68,14 @@ public class NotificationManager {
         }, notificationExecutor);
     }
     
+    /**
+     * Đưa thông báo vào NotificationDispatcher (gộp theo người nhận, gửi theo lô từng kênh, có retry)
+     * Dùng cho thông báo phát sinh từ event, luồng gọi không phải chờ gửi xong
+     */
+    public void enqueueNotification(NotificationRequest request) {
+        notificationDispatcher.enqueue(request);
+    }
+    
     /**
      * Gửi thông báo kết hợp (nhiều loại) - SYNC
      */
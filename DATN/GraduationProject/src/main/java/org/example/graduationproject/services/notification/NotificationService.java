@@ -3,9 +3,24 @@ package org.example.graduationproject.services.notification;
 import org.example.graduationproject.dto.NotificationRequest;
 import org.example.graduationproject.dto.NotificationResult;
 
+import java.util.ArrayList;
+import java.util.List;
+
 public interface NotificationService {
 
     NotificationResult sendNotification(NotificationRequest request);
+
+    /**
+     * Gửi một lô thông báo cùng kênh, kết quả theo đúng thứ tự request.
+     * Mặc định gửi từng cái; kênh có API gửi hàng loạt override để gộp thành một lần gọi.
+     */
+    default List<NotificationResult> sendBatch(List<NotificationRequest> requests) {
+        List<NotificationResult> results = new ArrayList<>(requests.size());
+        for (NotificationRequest request : requests) {
+            results.add(sendNotification(request));
+        }
+        return results;
+    }
     
 
     boolean supports(String type);
@@ -7,6 +7,9 @@ import org.example.graduationproject.services.notification.NotificationService;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
+import java.util.List;
+
 @Component("emailNotificationDecorator")
 public class EmailNotificationDecorator implements NotificationService {
     
@@ -51,6 +54,47 @@ public class EmailNotificationDecorator implements NotificationService {
         }
     }
     
+    /**
+     * Gửi cả lô trong một lần gọi tới nhà cung cấp email thay vì một lần gọi cho mỗi thông báo
+     */
+    @Override
+    public List<NotificationResult> sendBatch(List<NotificationRequest> requests) {
+        notificationService.sendBatch(requests);
+
+        List<NotificationResult> results = new ArrayList<>(requests.size());
+        try {
+            System.out.println("=== EMAIL BATCH: " + requests.size() + " notifications ===");
+
+            // Simulate batch sending
+            Thread.sleep(200);
+
+            for (NotificationRequest request : requests) {
+                results.add(NotificationResult.builder()
+                    .success(true)
+                    .message("Email đã được gửi thành công")
+                    .type(NotificationType.EMAIL)
+                    .recipient(request.getRecipientEmail() != null ? request.getRecipientEmail() : request.getRecipient())
+                    .timestamp(System.currentTimeMillis())
+                    .build());
+            }
+        } catch (Exception e) {
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            results.clear();
+            for (NotificationRequest request : requests) {
+                results.add(NotificationResult.builder()
+                    .success(false)
+                    .message("Lỗi khi gửi email: " + e.getMessage())
+                    .type(NotificationType.EMAIL)
+                    .recipient(request.getRecipientEmail() != null ? request.getRecipientEmail() : request.getRecipient())
+                    .timestamp(System.currentTimeMillis())
+                    .build());
+            }
+        }
+        return results;
+    }
+    
     @Override
     public boolean supports(String type) {
         return NotificationType.EMAIL.getCode().equals(type);
@@ -7,6 +7,9 @@ import org.example.graduationproject.services.notification.NotificationService;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
+import java.util.List;
+
 @Component("smsNotificationDecorator")
 public class SmsNotificationDecorator implements NotificationService {
     
@@ -49,6 +52,47 @@ public class SmsNotificationDecorator implements NotificationService {
         }
     }
     
+    /**
+     * Gửi cả lô trong một lần gọi tới nhà cung cấp SMS thay vì một lần gọi cho mỗi thông báo
+     */
+    @Override
+    public List<NotificationResult> sendBatch(List<NotificationRequest> requests) {
+        notificationService.sendBatch(requests);
+
+        List<NotificationResult> results = new ArrayList<>(requests.size());
+        try {
+            System.out.println("=== SMS BATCH: " + requests.size() + " notifications ===");
+
+            // Simulate batch sending
+            Thread.sleep(150);
+
+            for (NotificationRequest request : requests) {
+                results.add(NotificationResult.builder()
+                    .success(true)
+                    .message("SMS đã được gửi thành công")
+                    .type(NotificationType.SMS)
+                    .recipient(request.getRecipientPhone() != null ? request.getRecipientPhone() : request.getRecipient())
+                    .timestamp(System.currentTimeMillis())
+                    .build());
+            }
+        } catch (Exception e) {
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            results.clear();
+            for (NotificationRequest request : requests) {
+                results.add(NotificationResult.builder()
+                    .success(false)
+                    .message("Lỗi khi gửi SMS: " + e.getMessage())
+                    .type(NotificationType.SMS)
+                    .recipient(request.getRecipientPhone() != null ? request.getRecipientPhone() : request.getRecipient())
+                    .timestamp(System.currentTimeMillis())
+                    .build());
+            }
+        }
+        return results;
+    }
+    
     @Override
     public boolean supports(String type) {
         return NotificationType.SMS.getCode().equals(type);
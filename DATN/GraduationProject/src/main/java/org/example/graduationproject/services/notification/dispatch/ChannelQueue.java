@@ -0,0 +1,171 @@
+package org.example.graduationproject.services.notification.dispatch;
+
+import org.example.graduationproject.dto.NotificationRequest;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Hàng đợi của một kênh thông báo.
+ * Thông báo mới vào nhóm "open" theo người nhận và chờ hết cửa sổ coalesce (hoặc đủ maxCoalesced)
+ * rồi mới sang "ready"; thông báo gửi lỗi nằm trong "retrying" tới hạn thử lại.
+ * Mọi nhóm open có cùng độ dài cửa sổ nên thứ tự chèn cũng là thứ tự tới hạn.
+ * Thông báo không có khóa người nhận (key null) không được gộp, vào thẳng "ready".
+ */
+final class ChannelQueue {
+
+    enum Offer { NEW, COALESCED, REJECTED }
+
+    private final long windowMs;
+    private final int maxCoalesced;
+    private final int capacity;
+
+    private final LinkedHashMap<String, PendingNotification> open = new LinkedHashMap<>();
+    private final ArrayDeque<PendingNotification> ready = new ArrayDeque<>();
+    private final PriorityQueue<PendingNotification> retrying =
+            new PriorityQueue<>(Comparator.comparingLong(p -> p.dueAt));
+
+    // Số request (trước khi gộp) chưa gửi xong
+    private int queued;
+    private boolean closed;
+
+    ChannelQueue(long windowMs, int maxCoalesced, int capacity) {
+        this.windowMs = windowMs;
+        this.maxCoalesced = maxCoalesced;
+        this.capacity = capacity;
+    }
+
+    synchronized Offer offer(String key, NotificationRequest request) {
+        if (queued >= capacity) {
+            return Offer.REJECTED;
+        }
+        queued++;
+        if (key == null) {
+            PendingNotification single = new PendingNotification(null, System.currentTimeMillis());
+            single.requests.add(request);
+            ready.add(single);
+            notifyAll();
+            return Offer.NEW;
+        }
+        PendingNotification pending = closed ? null : open.get(key);
+        Offer result = Offer.COALESCED;
+        if (pending == null) {
+            pending = new PendingNotification(key, System.currentTimeMillis() + windowMs);
+            result = Offer.NEW;
+            if (closed) {
+                ready.add(pending);
+                notifyAll();
+            } else {
+                open.put(key, pending);
+            }
+        }
+        pending.requests.add(request);
+        if (!closed && pending.requests.size() >= maxCoalesced) {
+            open.remove(key);
+            ready.add(pending);
+            notifyAll();
+        }
+        return result;
+    }
+
+    /**
+     * Lấy tối đa maxEntries thông báo đã tới hạn, chờ tối đa maxWaitMs; trả danh sách rỗng nếu hết giờ chờ
+     */
+    synchronized List<PendingNotification> take(int maxEntries, long maxWaitMs) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + maxWaitMs;
+        while (true) {
+            long now = System.currentTimeMillis();
+            promoteDue(now);
+            if (!ready.isEmpty() || closed || now >= deadline) {
+                break;
+            }
+            wait(Math.max(1, Math.min(nextDueAt(), deadline) - now));
+        }
+        List<PendingNotification> batch = new ArrayList<>(Math.min(maxEntries, ready.size()));
+        while (batch.size() < maxEntries && !ready.isEmpty()) {
+            batch.add(ready.poll());
+        }
+        return batch;
+    }
+
+    synchronized void complete(PendingNotification pending) {
+        queued -= pending.requests.size();
+    }
+
+    synchronized void retry(PendingNotification pending, long dueAt) {
+        pending.dueAt = dueAt;
+        if (closed) {
+            ready.add(pending);
+        } else {
+            retrying.add(pending);
+        }
+        notifyAll();
+    }
+
+    /**
+     * Ngừng chờ cửa sổ coalesce / hạn thử lại: mọi thứ đang chờ chuyển sang gửi ngay
+     */
+    synchronized void close() {
+        closed = true;
+        ready.addAll(open.values());
+        open.clear();
+        ready.addAll(retrying);
+        retrying.clear();
+        notifyAll();
+    }
+
+    synchronized boolean isClosed() {
+        return closed;
+    }
+
+    synchronized boolean isDrained() {
+        return closed && ready.isEmpty();
+    }
+
+    synchronized int getQueued() {
+        return queued;
+    }
+
+    synchronized int getOpenCount() {
+        return open.size();
+    }
+
+    synchronized int getReadyCount() {
+        return ready.size();
+    }
+
+    synchronized int getRetryingCount() {
+        return retrying.size();
+    }
+
+    private void promoteDue(long now) {
+        Iterator<PendingNotification> iterator = open.values().iterator();
+        while (iterator.hasNext()) {
+            PendingNotification pending = iterator.next();
+            if (pending.dueAt > now) {
+                break;
+            }
+            iterator.remove();
+            ready.add(pending);
+        }
+        while (!retrying.isEmpty() && retrying.peek().dueAt <= now) {
+            ready.add(retrying.poll());
+        }
+    }
+
+    private long nextDueAt() {
+        long next = Long.MAX_VALUE;
+        if (!open.isEmpty()) {
+            next = open.values().iterator().next().dueAt;
+        }
+        if (!retrying.isEmpty()) {
+            next = Math.min(next, retrying.peek().dueAt);
+        }
+        return next;
+    }
+}
@@ -0,0 +1,430 @@
+package org.example.graduationproject.services.notification.dispatch;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.example.graduationproject.dto.NotificationRequest;
+import org.example.graduationproject.dto.NotificationResult;
+import org.example.graduationproject.enums.NotificationType;
+import org.example.graduationproject.models.NotificationDeadLetter;
+import org.example.graduationproject.repositories.NotificationDeadLetterRepository;
+import org.example.graduationproject.services.notification.NotificationService;
+import org.example.graduationproject.utils.LoggerManager;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Gửi thông báo bất đồng bộ theo lô cho từng kênh (BASIC / EMAIL / SMS / PUSH).
+ * - Mỗi kênh có hàng đợi và một thread gửi riêng, kênh chậm (SMS) không làm chậm kênh khác
+ * - Nhiều thông báo cho cùng người nhận trong notification.dispatch.coalesce-window-ms được gộp làm một
+ *   (ví dụ CONFIRMED rồi SHIPPING)
+ * - Mỗi lần gửi lấy tối đa notification.dispatch.batch-size thông báo và gọi sendBatch của kênh một lần
+ * - Token bucket giới hạn số thông báo mỗi giây theo kênh
+ * - Gửi lỗi thì thử lại với exponential backoff có jitter, hết số lần thử thì ghi NotificationDeadLetter
+ * Luồng gọi enqueue không bao giờ phải chờ nhà cung cấp; hàng đợi đầy thì thông báo vào thẳng dead letter.
+ */
+@Component
+@Slf4j
+public class NotificationDispatcher {
+
+    private static final int MAX_ERROR_LENGTH = 1000;
+
+    @Autowired
+    @Qualifier("basicNotificationService")
+    private NotificationService basicNotificationService;
+
+    @Autowired
+    @Qualifier("emailNotificationDecorator")
+    private NotificationService emailNotificationDecorator;
+
+    @Autowired
+    @Qualifier("smsNotificationDecorator")
+    private NotificationService smsNotificationDecorator;
+
+    @Autowired
+    @Qualifier("pushNotificationDecorator")
+    private NotificationService pushNotificationDecorator;
+
+    @Autowired
+    private NotificationDeadLetterRepository deadLetterRepository;
+
+    @Value("${notification.dispatch.coalesce-window-ms:2000}")
+    private long coalesceWindowMs;
+
+    @Value("${notification.dispatch.max-coalesced:20}")
+    private int maxCoalesced;
+
+    @Value("${notification.dispatch.batch-size:100}")
+    private int batchSize;
+
+    // Số request chờ tối đa mỗi kênh
+    @Value("${notification.dispatch.queue-capacity:200000}")
+    private int queueCapacity;
+
+    @Value("${notification.dispatch.max-attempts:5}")
+    private int maxAttempts;
+
+    @Value("${notification.dispatch.retry-base-ms:1000}")
+    private long retryBaseMs;
+
+    @Value("${notification.dispatch.retry-max-ms:60000}")
+    private long retryMaxMs;
+
+    @Value("${notification.dispatch.shutdown-timeout-ms:15000}")
+    private long shutdownTimeoutMs;
+
+    // Flash sale 50k đơn / 10 phút ~ 85 thông báo mỗi giây cho mỗi kênh, giới hạn mặc định để dư
+    @Value("${notification.dispatch.rate.basic-per-second:1000}")
+    private double basicRate;
+
+    @Value("${notification.dispatch.rate.email-per-second:200}")
+    private double emailRate;
+
+    @Value("${notification.dispatch.rate.sms-per-second:100}")
+    private double smsRate;
+
+    @Value("${notification.dispatch.rate.push-per-second:500}")
+    private double pushRate;
+
+    private final Map<NotificationType, ChannelWorker> workers = new EnumMap<>(NotificationType.class);
+
+    @PostConstruct
+    public void start() {
+        workers.put(NotificationType.BASIC, new ChannelWorker(NotificationType.BASIC, basicNotificationService, basicRate));
+        workers.put(NotificationType.EMAIL, new ChannelWorker(NotificationType.EMAIL, emailNotificationDecorator, emailRate));
+        workers.put(NotificationType.SMS, new ChannelWorker(NotificationType.SMS, smsNotificationDecorator, smsRate));
+        workers.put(NotificationType.PUSH, new ChannelWorker(NotificationType.PUSH, pushNotificationDecorator, pushRate));
+        for (ChannelWorker worker : workers.values()) {
+            worker.start();
+        }
+        log.info("NotificationDispatcher: Started {} channels, coalesce window {}ms, batch size {}",
+                workers.size(), coalesceWindowMs, batchSize);
+    }
+
+    @PreDestroy
+    public void stop() {
+        // Gửi nốt những gì đang chờ (bỏ qua cửa sổ coalesce và hạn thử lại)
+        for (ChannelWorker worker : workers.values()) {
+            worker.queue.close();
+        }
+        long deadline = System.currentTimeMillis() + shutdownTimeoutMs;
+        for (ChannelWorker worker : workers.values()) {
+            worker.join(deadline);
+        }
+    }
+
+    /**
+     * Đưa thông báo vào hàng đợi. COMBINED (hoặc không có type) gửi qua basic, push và email / SMS
+     * nếu có địa chỉ, giống sendCombinedNotification; type khác chỉ gửi qua kênh tương ứng.
+     */
+    public void enqueue(NotificationRequest request) {
+        NotificationType type = request.getType();
+        if (type == null || type == NotificationType.COMBINED) {
+            enqueue(NotificationType.BASIC, request);
+            if (hasText(request.getRecipientEmail())) {
+                enqueue(NotificationType.EMAIL, request);
+            }
+            if (hasText(request.getRecipientPhone())) {
+                enqueue(NotificationType.SMS, request);
+            }
+            enqueue(NotificationType.PUSH, request);
+        } else {
+            enqueue(type, request);
+        }
+    }
+
+    private void enqueue(NotificationType channel, NotificationRequest request) {
+        ChannelWorker worker = workers.get(channel);
+        worker.submitted.increment();
+        ChannelQueue.Offer offer = worker.queue.offer(recipientKey(channel, request), request);
+        if (offer == ChannelQueue.Offer.COALESCED) {
+            worker.coalesced.increment();
+        } else if (offer == ChannelQueue.Offer.REJECTED) {
+            worker.rejected.increment();
+            PendingNotification pending = new PendingNotification(recipientKey(channel, request), 0);
+            pending.requests.add(request);
+            pending.lastError = "QUEUE_FULL";
+            saveDeadLetters(channel, List.of(pending));
+        }
+    }
+
+    /**
+     * Gửi lại một thông báo trong dead letter, trả về false nếu không tìm thấy
+     */
+    public boolean retryDeadLetter(Long id) {
+        NotificationDeadLetter deadLetter = deadLetterRepository.findById(id).orElse(null);
+        if (deadLetter == null) {
+            return false;
+        }
+        NotificationType channel = NotificationType.valueOf(deadLetter.getKenh());
+        NotificationRequest request = NotificationRequest.builder()
+                .type(channel)
+                .recipient(deadLetter.getNguoiNhan())
+                .recipientEmail(deadLetter.getEmail())
+                .recipientPhone(deadLetter.getSoDienThoai())
+                .title(deadLetter.getTieuDe())
+                .message(deadLetter.getNoiDung())
+                .orderId(deadLetter.getMaDonHang())
+                .build();
+        deadLetterRepository.delete(deadLetter);
+        enqueue(channel, request);
+        return true;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        for (ChannelWorker worker : workers.values()) {
+            stats.put(worker.channel.getCode(), worker.stats());
+        }
+        return stats;
+    }
+
+    /**
+     * Khóa gộp thông báo: kênh + định danh ổn định của người nhận (email / số điện thoại đã chuẩn hóa).
+     * Tên hiển thị không dùng làm khóa vì hai khách trùng tên (hoặc cùng "Khách hàng") sẽ bị gộp
+     * và nhận nội dung đơn hàng của nhau; không có định danh thì trả null để gửi riêng, không gộp.
+     */
+    private String recipientKey(NotificationType channel, NotificationRequest request) {
+        String email = normalizeEmail(request.getRecipientEmail());
+        String phone = normalizePhone(request.getRecipientPhone());
+        String key;
+        switch (channel) {
+            case EMAIL:
+                key = email != null ? "email:" + email : null;
+                break;
+            case SMS:
+                key = phone != null ? "phone:" + phone : null;
+                break;
+            default:
+                key = email != null ? "email:" + email : phone != null ? "phone:" + phone : null;
+                break;
+        }
+        return key != null ? channel.name() + "|" + key : null;
+    }
+
+    private static String normalizeEmail(String email) {
+        return email != null && !email.isBlank() ? email.trim().toLowerCase() : null;
+    }
+
+    private static String normalizePhone(String phone) {
+        if (phone == null) {
+            return null;
+        }
+        String digits = phone.replaceAll("[^0-9+]", "");
+        return digits.isEmpty() ? null : digits;
+    }
+
+    /**
+     * Exponential backoff có jitter: nửa cố định, nửa ngẫu nhiên để các lần thử lại không dồn cùng lúc
+     */
+    private long backoffMs(int attempt) {
+        long exp = Math.min(retryMaxMs, retryBaseMs << Math.min(attempt - 1, 20));
+        long half = exp / 2;
+        return half + ThreadLocalRandom.current().nextLong(exp - half + 1);
+    }
+
+    private void saveDeadLetters(NotificationType channel, List<PendingNotification> entries) {
+        List<NotificationDeadLetter> rows = new ArrayList<>(entries.size());
+        LocalDateTime now = LocalDateTime.now();
+        for (PendingNotification pending : entries) {
+            NotificationRequest request = pending.merged();
+            NotificationDeadLetter row = new NotificationDeadLetter();
+            row.setKenh(channel.name());
+            row.setNguoiNhan(request.getRecipient());
+            row.setEmail(request.getRecipientEmail());
+            row.setSoDienThoai(request.getRecipientPhone());
+            row.setTieuDe(request.getTitle());
+            row.setNoiDung(request.getMessage());
+            row.setMaDonHang(request.getOrderId());
+            row.setSoLanThu(pending.attempts);
+            String error = pending.lastError;
+            row.setLoiCuoi(error != null && error.length() > MAX_ERROR_LENGTH ? error.substring(0, MAX_ERROR_LENGTH) : error);
+            row.setNgayTao(now);
+            rows.add(row);
+        }
+        try {
+            deadLetterRepository.saveAll(rows);
+        } catch (Exception e) {
+            log.error("NotificationDispatcher: Could not store {} {} dead letters: {}",
+                    rows.size(), channel, e.getMessage(), e);
+        }
+    }
+
+    private static boolean hasText(String value) {
+        return value != null && !value.isEmpty();
+    }
+
+    /**
+     * Hàng đợi, thread gửi, rate limiter và số liệu của một kênh
+     */
+    private final class ChannelWorker {
+        private final NotificationType channel;
+        private final NotificationService service;
+        private final TokenBucketRateLimiter rateLimiter;
+        private final ChannelQueue queue;
+        private final Thread thread;
+
+        private final LongAdder submitted = new LongAdder();
+        private final LongAdder coalesced = new LongAdder();
+        private final LongAdder rejected = new LongAdder();
+        private final LongAdder sent = new LongAdder();
+        private final LongAdder batches = new LongAdder();
+        private final LongAdder failedAttempts = new LongAdder();
+        private final LongAdder retried = new LongAdder();
+        private final LongAdder deadLettered = new LongAdder();
+        private final LongAdder throttledMs = new LongAdder();
+        private final LongAdder sendMs = new LongAdder();
+
+        private ChannelWorker(NotificationType channel, NotificationService service, double permitsPerSecond) {
+            this.channel = channel;
+            this.service = service;
+            this.rateLimiter = new TokenBucketRateLimiter(permitsPerSecond);
+            this.queue = new ChannelQueue(coalesceWindowMs, maxCoalesced, queueCapacity);
+            this.thread = new Thread(this::run, "Notify-" + channel.getCode());
+            this.thread.setDaemon(true);
+        }
+
+        private void start() {
+            thread.start();
+        }
+
+        private void join(long deadline) {
+            try {
+                thread.join(Math.max(1, deadline - System.currentTimeMillis()));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            int left = queue.getQueued();
+            if (left > 0) {
+                log.warn("NotificationDispatcher: {} notifications still queued on {} at shutdown", left, channel);
+            }
+        }
+
+        private void run() {
+            while (true) {
+                List<PendingNotification> batch;
+                try {
+                    batch = queue.take(batchSize, coalesceWindowMs);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                if (batch.isEmpty()) {
+                    if (queue.isDrained()) {
+                        return;
+                    }
+                    continue;
+                }
+                try {
+                    send(batch);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                } catch (Exception e) {
+                    log.error("NotificationDispatcher: Unexpected error on {}: {}", channel, e.getMessage(), e);
+                }
+            }
+        }
+
+        private void send(List<PendingNotification> batch) throws InterruptedException {
+            List<NotificationRequest> requests = new ArrayList<>(batch.size());
+            for (PendingNotification pending : batch) {
+                requests.add(pending.merged());
+            }
+            try {
+                throttledMs.add(rateLimiter.acquire(requests.size()));
+            } catch (InterruptedException e) {
+                // Trả lô về hàng đợi để lần khởi động / thread sau gửi
+                for (PendingNotification pending : batch) {
+                    queue.retry(pending, System.currentTimeMillis());
+                }
+                throw e;
+            }
+
+            long start = System.currentTimeMillis();
+            List<NotificationResult> results = null;
+            String batchError = null;
+            try {
+                results = service.sendBatch(requests);
+            } catch (Exception e) {
+                batchError = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+            }
+            long duration = System.currentTimeMillis() - start;
+            batches.increment();
+            sendMs.add(duration);
+
+            long now = System.currentTimeMillis();
+            List<PendingNotification> dead = new ArrayList<>();
+            for (int i = 0; i < batch.size(); i++) {
+                PendingNotification pending = batch.get(i);
+                NotificationResult result = results != null && i < results.size() ? results.get(i) : null;
+                if (result != null && result.isSuccess()) {
+                    sent.increment();
+                    queue.complete(pending);
+                    continue;
+                }
+                failedAttempts.increment();
+                pending.attempts++;
+                pending.lastError = result != null ? result.getMessage() : batchError;
+                if (pending.attempts >= maxAttempts || queue.isClosed()) {
+                    dead.add(pending);
+                    queue.complete(pending);
+                } else {
+                    retried.increment();
+                    queue.retry(pending, now + backoffMs(pending.attempts));
+                }
+            }
+            if (!dead.isEmpty()) {
+                deadLettered.add(dead.size());
+                saveDeadLetters(channel, dead);
+            }
+            if (duration > 1000) {
+                LoggerManager.getInstance().logPerformance("NOTIFICATION_BATCH_" + channel.getCode(), duration,
+                        "size=" + batch.size() + ", failed=" + (batch.size() - countSuccess(results)));
+            }
+        }
+
+        private int countSuccess(List<NotificationResult> results) {
+            if (results == null) {
+                return 0;
+            }
+            int count = 0;
+            for (NotificationResult result : results) {
+                if (result != null && result.isSuccess()) count++;
+            }
+            return count;
+        }
+
+        private Map<String, Object> stats() {
+            long batchCount = batches.sum();
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("queued", queue.getQueued());
+            stats.put("coalescing", queue.getOpenCount());
+            stats.put("ready", queue.getReadyCount());
+            stats.put("retrying", queue.getRetryingCount());
+            stats.put("submitted", submitted.sum());
+            stats.put("coalesced", coalesced.sum());
+            stats.put("rejected", rejected.sum());
+            stats.put("sent", sent.sum());
+            stats.put("batches", batchCount);
+            stats.put("avgBatchMs", batchCount > 0 ? sendMs.sum() / batchCount : 0);
+            stats.put("failedAttempts", failedAttempts.sum());
+            stats.put("retried", retried.sum());
+            stats.put("deadLettered", deadLettered.sum());
+            stats.put("throttledMs", throttledMs.sum());
+            stats.put("ratePerSecond", rateLimiter.getPermitsPerSecond());
+            return stats;
+        }
+    }
+}
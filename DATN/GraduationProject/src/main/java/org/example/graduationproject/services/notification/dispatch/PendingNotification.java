@@ -0,0 +1,68 @@
+package org.example.graduationproject.services.notification.dispatch;
+
+import org.example.graduationproject.dto.NotificationRequest;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Các thông báo cho cùng một người nhận trên một kênh, gộp lại trong cửa sổ coalesce
+ * và gửi đi như một thông báo
+ */
+final class PendingNotification {
+
+    final String key;
+    final List<NotificationRequest> requests = new ArrayList<>();
+    long dueAt;
+    int attempts;
+    String lastError;
+
+    private NotificationRequest merged;
+
+    PendingNotification(String key, long dueAt) {
+        this.key = key;
+        this.dueAt = dueAt;
+    }
+
+    /**
+     * Thông báo gộp: lấy người nhận của thông báo mới nhất, nối nội dung theo thứ tự đến
+     */
+    NotificationRequest merged() {
+        if (merged != null) {
+            return merged;
+        }
+        NotificationRequest last = requests.get(requests.size() - 1);
+        if (requests.size() == 1) {
+            merged = last;
+            return merged;
+        }
+        StringBuilder message = new StringBuilder();
+        Set<String> orderIds = new LinkedHashSet<>();
+        for (NotificationRequest request : requests) {
+            if (message.length() > 0) {
+                message.append('\n');
+            }
+            message.append("- ");
+            if (request.getTitle() != null) {
+                message.append(request.getTitle()).append(": ");
+            }
+            message.append(request.getMessage());
+            if (request.getOrderId() != null) {
+                orderIds.add(request.getOrderId());
+            }
+        }
+        merged = NotificationRequest.builder()
+                .title("Bạn có " + requests.size() + " cập nhật mới")
+                .message(message.toString())
+                .recipient(last.getRecipient())
+                .recipientEmail(last.getRecipientEmail())
+                .recipientPhone(last.getRecipientPhone())
+                .customerName(last.getCustomerName())
+                .type(last.getType())
+                .orderId(orderIds.isEmpty() ? null : String.join(",", orderIds))
+                .build();
+        return merged;
+    }
+}
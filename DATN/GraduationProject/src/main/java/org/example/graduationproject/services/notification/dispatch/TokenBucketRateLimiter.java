@@ -0,0 +1,45 @@
+package org.example.graduationproject.services.notification.dispatch;
+
+/**
+ * Token bucket giới hạn số thông báo mỗi giây cho một kênh.
+ * Cho phép dồn tối đa một giây token; lô lớn hơn số token hiện có vẫn được gửi
+ * nhưng luồng gọi phải chờ tương ứng nên tốc độ trung bình không vượt permitsPerSecond.
+ */
+public class TokenBucketRateLimiter {
+
+    private final double permitsPerSecond;
+    private double tokens;
+    private long lastRefillNanos;
+
+    public TokenBucketRateLimiter(double permitsPerSecond) {
+        if (permitsPerSecond <= 0) {
+            throw new IllegalArgumentException("permitsPerSecond must be > 0");
+        }
+        this.permitsPerSecond = permitsPerSecond;
+        this.tokens = permitsPerSecond;
+        this.lastRefillNanos = System.nanoTime();
+    }
+
+    /**
+     * Lấy permits token, chờ nếu cần; trả về số ms đã chờ
+     */
+    public long acquire(int permits) throws InterruptedException {
+        long waitMs = reserve(permits);
+        if (waitMs > 0) {
+            Thread.sleep(waitMs);
+        }
+        return waitMs;
+    }
+
+    private synchronized long reserve(int permits) {
+        long now = System.nanoTime();
+        tokens = Math.min(permitsPerSecond, tokens + (now - lastRefillNanos) / 1_000_000_000.0 * permitsPerSecond);
+        lastRefillNanos = now;
+        tokens -= permits;
+        return tokens >= 0 ? 0 : (long) Math.ceil(-tokens * 1000 / permitsPerSecond);
+    }
+
+    public double getPermitsPerSecond() {
+        return permitsPerSecond;
+    }
+}
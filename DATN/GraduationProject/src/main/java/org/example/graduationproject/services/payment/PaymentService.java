@@ -200,12 +200,12 @@ public class PaymentService {
             notificationRequest.setOrderId(request.getOrderId().toString());
             notificationRequest.setCustomerName(request.getCustomerName());
             
-            // Gửi thông báo kết hợp
-            notificationManager.sendCombinedNotification(notificationRequest);
+            // Đưa thông báo kết hợp vào hàng đợi gửi
+            notificationManager.enqueueNotification(notificationRequest);
             
-            loggerManager.logBusinessEvent("NOTIFICATION_SENT", "Payment", 
+            loggerManager.logBusinessEvent("NOTIFICATION_QUEUED", "Payment", 
                                          request.getOrderId().toString(), 
-                                         "Notification sent successfully");
+                                         "Notification queued successfully");
             
         } catch (Exception e) {
             loggerManager.logError("PaymentService", "sendPaymentNotification", e);
@@ -0,0 +1,105 @@
+package org.example.graduationproject.services.pdf;
+
+import com.itextpdf.io.font.FontProgram;
+import com.itextpdf.io.font.FontProgramFactory;
+import com.itextpdf.io.font.PdfEncodings;
+import com.itextpdf.io.font.constants.StandardFonts;
+import com.itextpdf.kernel.font.PdfFontFactory;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Nạp font Unicode (có đủ dấu tiếng Việt) một lần lúc khởi động và dùng chung cho mọi PDF.
+ * FontProgram đã parse được chia sẻ, mỗi document chỉ tạo PdfFont nhẹ bọc quanh nó
+ * (Identity-H, nhúng subset các glyph document đó dùng).
+ * Đường dẫn là danh sách ứng viên cách nhau bởi dấu phẩy, "classpath:" để đọc trong jar;
+ * mặc định dùng DejaVu Sans đóng gói sẵn trong resources/fonts (giấy phép Bitstream Vera, xem LICENSE-DejaVu.txt).
+ * Không tìm thấy font nào thì quay về Times (không đủ dấu tiếng Việt) và ghi cảnh báo.
+ */
+@Component
+@Slf4j
+public class PdfFontRegistry {
+
+    private static final String CLASSPATH_PREFIX = "classpath:";
+
+    @Value("${pdf.font.regular:classpath:fonts/DejaVuSans.ttf,C:/Windows/Fonts/arial.ttf}")
+    private String regularCandidates;
+
+    @Value("${pdf.font.bold:classpath:fonts/DejaVuSans-Bold.ttf,C:/Windows/Fonts/arialbd.ttf}")
+    private String boldCandidates;
+
+    private FontProgram regularProgram;
+    private FontProgram boldProgram;
+
+    @PostConstruct
+    public void init() {
+        regularProgram = load(regularCandidates);
+        boldProgram = load(boldCandidates);
+        if (boldProgram == null) {
+            boldProgram = regularProgram;
+        }
+        if (regularProgram == null) {
+            log.warn("PdfFontRegistry: No Unicode font found in pdf.font.regular, falling back to Times (Vietnamese glyphs will be missing)");
+        }
+    }
+
+    /**
+     * Tạo cặp font cho một document mới
+     */
+    public PdfFonts createFonts() throws IOException {
+        if (regularProgram == null) {
+            return new PdfFonts(PdfFontFactory.createFont(StandardFonts.TIMES_ROMAN),
+                    PdfFontFactory.createFont(StandardFonts.TIMES_BOLD));
+        }
+        return new PdfFonts(
+                PdfFontFactory.createFont(regularProgram, PdfEncodings.IDENTITY_H, PdfFontFactory.EmbeddingStrategy.FORCE_EMBEDDED),
+                PdfFontFactory.createFont(boldProgram, PdfEncodings.IDENTITY_H, PdfFontFactory.EmbeddingStrategy.FORCE_EMBEDDED));
+    }
+
+    public boolean isUnicode() {
+        return regularProgram != null;
+    }
+
+    private FontProgram load(String candidates) {
+        for (String candidate : candidates.split(",")) {
+            String location = candidate.trim();
+            if (location.isEmpty()) {
+                continue;
+            }
+            try {
+                byte[] bytes = read(location);
+                if (bytes != null) {
+                    FontProgram program = FontProgramFactory.createFont(bytes);
+                    log.info("PdfFontRegistry: Loaded font {}", location);
+                    return program;
+                }
+            } catch (IOException | RuntimeException e) {
+                log.warn("PdfFontRegistry: Could not load font {}: {}", location, e.getMessage());
+            }
+        }
+        return null;
+    }
+
+    private byte[] read(String location) throws IOException {
+        if (location.startsWith(CLASSPATH_PREFIX)) {
+            ClassPathResource resource = new ClassPathResource(location.substring(CLASSPATH_PREFIX.length()));
+            if (!resource.exists()) {
+                return null;
+            }
+            try (InputStream in = resource.getInputStream()) {
+                return in.readAllBytes();
+            }
+        }
+        Path path = Paths.get(location);
+        return Files.isRegularFile(path) ? Files.readAllBytes(path) : null;
+    }
+}
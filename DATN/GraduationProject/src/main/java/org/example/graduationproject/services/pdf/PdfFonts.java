@@ -0,0 +1,15 @@
+package org.example.graduationproject.services.pdf;
+
+import com.itextpdf.kernel.font.PdfFont;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Cặp font thường / đậm của một PdfDocument (PdfFont không dùng chung được giữa các document)
+ */
+@Getter
+@AllArgsConstructor
+public class PdfFonts {
+    private final PdfFont regular;
+    private final PdfFont bold;
+}
@@ -0,0 +1,104 @@
+package org.example.graduationproject.services.pdf;
+
+import com.itextpdf.kernel.colors.Color;
+import com.itextpdf.kernel.events.Event;
+import com.itextpdf.kernel.events.IEventHandler;
+import com.itextpdf.kernel.events.PdfDocumentEvent;
+import com.itextpdf.kernel.geom.Rectangle;
+import com.itextpdf.kernel.pdf.PdfDocument;
+import com.itextpdf.kernel.pdf.PdfPage;
+import com.itextpdf.kernel.pdf.canvas.PdfCanvas;
+import com.itextpdf.kernel.pdf.xobject.PdfFormXObject;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Header / footer cố định của mỗi trang. Phần tĩnh (tên cửa hàng, đường kẻ, ngày in) được vẽ một lần
+ * thành form XObject và mọi trang chỉ tham chiếu lại nó; chỉ số trang được vẽ riêng từng trang.
+ * Một instance gắn với một PdfDocument (XObject thuộc về document tạo ra nó).
+ */
+public class PdfPageTemplate implements IEventHandler {
+
+    public static final float MARGIN_X = 36;
+    // Chiều cao dải header / footer, lề trên / dưới của Document phải lớn hơn
+    public static final float HEADER_HEIGHT = 44;
+    public static final float FOOTER_HEIGHT = 36;
+
+    private static final DateTimeFormatter PRINTED_AT = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm");
+
+    private final PdfFonts fonts;
+    private final String headerTitle;
+    private final Color accentColor;
+    private PdfFormXObject template;
+
+    public PdfPageTemplate(PdfFonts fonts, String headerTitle, Color accentColor) {
+        this.fonts = fonts;
+        this.headerTitle = headerTitle;
+        this.accentColor = accentColor;
+    }
+
+    @Override
+    public void handleEvent(Event event) {
+        PdfDocumentEvent documentEvent = (PdfDocumentEvent) event;
+        PdfDocument pdf = documentEvent.getDocument();
+        PdfPage page = documentEvent.getPage();
+        Rectangle pageSize = page.getPageSize();
+        if (template == null) {
+            template = createTemplate(pdf, pageSize);
+        }
+
+        PdfCanvas canvas = new PdfCanvas(page.newContentStreamBefore(), page.getResources(), pdf);
+        canvas.addXObjectAt(template, 0, 0);
+
+        String pageText = "Trang " + pdf.getPageNumber(page);
+        float width = fonts.getRegular().getWidth(pageText, 9);
+        canvas.beginText()
+                .setFontAndSize(fonts.getRegular(), 9)
+                .moveText(pageSize.getRight() - MARGIN_X - width, pageSize.getBottom() + FOOTER_HEIGHT - 24)
+                .showText(pageText)
+                .endText();
+        canvas.release();
+    }
+
+    private PdfFormXObject createTemplate(PdfDocument pdf, Rectangle pageSize) {
+        PdfFormXObject xObject = new PdfFormXObject(pageSize);
+        PdfCanvas canvas = new PdfCanvas(xObject, pdf);
+        float left = pageSize.getLeft() + MARGIN_X;
+        float right = pageSize.getRight() - MARGIN_X;
+        float headerLine = pageSize.getTop() - HEADER_HEIGHT;
+        float footerLine = pageSize.getBottom() + FOOTER_HEIGHT;
+
+        // Header: tên cửa hàng và đường kẻ màu chủ đạo
+        canvas.saveState()
+                .setFillColor(accentColor)
+                .beginText()
+                .setFontAndSize(fonts.getBold(), 12)
+                .moveText(left, headerLine + 10)
+                .showText(headerTitle)
+                .endText()
+                .restoreState();
+        canvas.saveState()
+                .setStrokeColor(accentColor)
+                .setLineWidth(1.5f)
+                .moveTo(left, headerLine)
+                .lineTo(right, headerLine)
+                .stroke()
+                .restoreState();
+
+        // Footer: đường kẻ mảnh và ngày in
+        canvas.saveState()
+                .setLineWidth(0.5f)
+                .moveTo(left, footerLine)
+                .lineTo(right, footerLine)
+                .stroke()
+                .restoreState();
+        canvas.beginText()
+                .setFontAndSize(fonts.getRegular(), 9)
+                .moveText(left, footerLine - 24)
+                .showText("Ngày in: " + LocalDateTime.now().format(PRINTED_AT))
+                .endText();
+        canvas.release();
+        return xObject;
+    }
+}
@@ -0,0 +1,229 @@
+package org.example.graduationproject.services.report;
+
+import org.apache.poi.ss.usermodel.*;
+import org.apache.poi.xssf.streaming.SXSSFSheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.example.graduationproject.dto.InvoiceReportRequest;
+import org.example.graduationproject.dto.InvoiceReportRow;
+import org.example.graduationproject.repositories.HoaDonRepository;
+import org.example.graduationproject.services.export.ExportJob;
+import org.example.graduationproject.utils.CsvEscaper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Ghi báo cáo hóa đơn ra XLSX / CSV bằng cách duyệt một chiều qua kết quả truy vấn.
+ * Trong bộ nhớ chỉ có dòng đang ghi và tối đa report.invoice.row-window dòng của SXSSF,
+ * không phụ thuộc khoảng ngày dài bao nhiêu. Chạy trong transaction chỉ đọc để giữ Stream mở.
+ */
+@Component
+public class InvoiceReportWriter {
+
+    private static final String[] HEADERS = {
+            "Mã HĐ", "Ngày tạo", "Trạng thái", "Thanh toán", "Đã lấy tiền", "Người nhận", "SĐT", "Email",
+            "Tổng tiền HĐ", "Sản phẩm", "Màu", "Size", "Số lượng", "Thành tiền"
+    };
+    private static final int[] COLUMN_WIDTHS = {10, 18, 14, 12, 12, 25, 14, 30, 16, 40, 12, 8, 10, 16};
+    // Giới hạn dòng của một sheet .xlsx
+    private static final int MAX_ROWS_PER_SHEET = 1_048_576;
+    private static final int PROGRESS_EVERY = 1000;
+    private static final DateTimeFormatter CSV_DATE = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    @Autowired
+    private HoaDonRepository hoaDonRepository;
+
+    @Value("${report.invoice.row-window:500}")
+    private int rowWindow;
+
+    @Transactional(readOnly = true)
+    public void writeXlsx(InvoiceReportRequest request, OutputStream out, ExportJob job) throws IOException {
+        job.setTotalRows(count(request));
+        SXSSFWorkbook workbook = new SXSSFWorkbook(rowWindow);
+        workbook.setCompressTempFiles(true);
+        try (Stream<InvoiceReportRow> rows = stream(request)) {
+            CellStyle headerStyle = createHeaderStyle(workbook);
+            CellStyle dateStyle = workbook.createCellStyle();
+            dateStyle.setDataFormat(workbook.createDataFormat().getFormat("dd/mm/yyyy hh:mm"));
+            CellStyle moneyStyle = workbook.createCellStyle();
+            moneyStyle.setDataFormat(workbook.createDataFormat().getFormat("#,##0"));
+
+            int sheetIndex = 1;
+            SXSSFSheet sheet = createSheet(workbook, sheetIndex, headerStyle);
+            int rowNum = 1;
+            long written = 0;
+
+            Iterator<InvoiceReportRow> iterator = rows.iterator();
+            while (iterator.hasNext()) {
+                InvoiceReportRow row = iterator.next();
+                if (rowNum >= MAX_ROWS_PER_SHEET) {
+                    sheet = createSheet(workbook, ++sheetIndex, headerStyle);
+                    rowNum = 1;
+                }
+                Row excelRow = sheet.createRow(rowNum++);
+                int col = 0;
+                setNumber(excelRow.createCell(col++), row.getHoaDonId(), null);
+                Cell dateCell = excelRow.createCell(col++);
+                if (row.getNgayTao() != null) {
+                    dateCell.setCellValue(row.getNgayTao());
+                    dateCell.setCellStyle(dateStyle);
+                }
+                excelRow.createCell(col++).setCellValue(nullToEmpty(row.getTrangThai()));
+                excelRow.createCell(col++).setCellValue(nullToEmpty(row.getLoaiThanhToan()));
+                excelRow.createCell(col++).setCellValue(nullToEmpty(row.getDaLayTien()));
+                excelRow.createCell(col++).setCellValue(nullToEmpty(row.getTenNguoiNhan()));
+                excelRow.createCell(col++).setCellValue(nullToEmpty(row.getSoDienThoaiGiaoHang()));
+                excelRow.createCell(col++).setCellValue(nullToEmpty(row.getEmail()));
+                setMoney(excelRow.createCell(col++), row.getTongTien(), moneyStyle);
+                excelRow.createCell(col++).setCellValue(nullToEmpty(row.getTenSanPham()));
+                excelRow.createCell(col++).setCellValue(nullToEmpty(row.getMaMau()));
+                excelRow.createCell(col++).setCellValue(nullToEmpty(row.getTenSize()));
+                setNumber(excelRow.createCell(col++), row.getSoLuong(), null);
+                setMoney(excelRow.createCell(col), row.getThanhTien(), moneyStyle);
+
+                if (++written % PROGRESS_EVERY == 0) {
+                    job.setRowsWritten(written);
+                }
+            }
+            job.setRowsWritten(written);
+            workbook.write(out);
+        } finally {
+            workbook.dispose();
+            workbook.close();
+        }
+    }
+
+    @Transactional(readOnly = true)
+    public void writeCsv(InvoiceReportRequest request, OutputStream out, ExportJob job) throws IOException {
+        job.setTotalRows(count(request));
+        BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+        try (Stream<InvoiceReportRow> rows = stream(request)) {
+            // BOM để Excel mở đúng tiếng Việt
+            writer.write('\uFEFF');
+            writeCsvLine(writer, HEADERS);
+
+            long written = 0;
+            Iterator<InvoiceReportRow> iterator = rows.iterator();
+            while (iterator.hasNext()) {
+                InvoiceReportRow row = iterator.next();
+                writeCsvLine(writer, new String[] {
+                        toText(row.getHoaDonId()),
+                        row.getNgayTao() != null ? row.getNgayTao().format(CSV_DATE) : "",
+                        row.getTrangThai(),
+                        row.getLoaiThanhToan(),
+                        row.getDaLayTien(),
+                        row.getTenNguoiNhan(),
+                        row.getSoDienThoaiGiaoHang(),
+                        row.getEmail(),
+                        row.getTongTien() != null ? row.getTongTien().toPlainString() : "",
+                        row.getTenSanPham(),
+                        row.getMaMau(),
+                        row.getTenSize(),
+                        toText(row.getSoLuong()),
+                        row.getThanhTien() != null ? row.getThanhTien().toPlainString() : ""
+                });
+                if (++written % PROGRESS_EVERY == 0) {
+                    job.setRowsWritten(written);
+                }
+            }
+            job.setRowsWritten(written);
+        }
+        writer.flush();
+    }
+
+    private Stream<InvoiceReportRow> stream(InvoiceReportRequest request) {
+        return hoaDonRepository.streamReportRows(from(request), to(request),
+                blankToNull(request.getTrangThai()), blankToNull(request.getLoaiThanhToan()));
+    }
+
+    private long count(InvoiceReportRequest request) {
+        return hoaDonRepository.countReportRows(from(request), to(request),
+                blankToNull(request.getTrangThai()), blankToNull(request.getLoaiThanhToan()));
+    }
+
+    private LocalDateTime from(InvoiceReportRequest request) {
+        return request.getFromDate().atStartOfDay();
+    }
+
+    // toDate tính cả ngày cuối
+    private LocalDateTime to(InvoiceReportRequest request) {
+        return request.getToDate().plusDays(1).atStartOfDay();
+    }
+
+    private SXSSFSheet createSheet(SXSSFWorkbook workbook, int index, CellStyle headerStyle) {
+        SXSSFSheet sheet = workbook.createSheet(index == 1 ? "Hóa đơn" : "Hóa đơn (" + index + ")");
+        for (int i = 0; i < COLUMN_WIDTHS.length; i++) {
+            sheet.setColumnWidth(i, COLUMN_WIDTHS[i] * 256);
+        }
+        sheet.createFreezePane(0, 1);
+        Row headerRow = sheet.createRow(0);
+        for (int i = 0; i < HEADERS.length; i++) {
+            Cell cell = headerRow.createCell(i);
+            cell.setCellValue(HEADERS[i]);
+            cell.setCellStyle(headerStyle);
+        }
+        return sheet;
+    }
+
+    private CellStyle createHeaderStyle(Workbook workbook) {
+        CellStyle style = workbook.createCellStyle();
+        Font font = workbook.createFont();
+        font.setBold(true);
+        font.setColor(IndexedColors.WHITE.getIndex());
+        style.setFont(font);
+        style.setFillForegroundColor(IndexedColors.BLUE.getIndex());
+        style.setFillPattern(FillPatternType.SOLID_FOREGROUND);
+        style.setAlignment(HorizontalAlignment.CENTER);
+        return style;
+    }
+
+    private void setNumber(Cell cell, Integer value, CellStyle style) {
+        if (value != null) {
+            cell.setCellValue(value);
+            if (style != null) {
+                cell.setCellStyle(style);
+            }
+        }
+    }
+
+    private void setMoney(Cell cell, BigDecimal value, CellStyle style) {
+        if (value != null) {
+            cell.setCellValue(value.doubleValue());
+            cell.setCellStyle(style);
+        }
+    }
+
+    private void writeCsvLine(BufferedWriter writer, String[] values) throws IOException {
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            writer.write(CsvEscaper.escape(values[i]));
+        }
+        writer.write("\r\n");
+    }
+
+    private String toText(Integer value) {
+        return value != null ? value.toString() : "";
+    }
+
+    private String nullToEmpty(String value) {
+        return value != null ? value : "";
+    }
+
+    private String blankToNull(String value) {
+        return value == null || value.isBlank() ? null : value.trim();
+    }
+}
@@ -0,0 +1,249 @@
+package org.example.graduationproject.services.search;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Chỉ mục đảo ngược nhúng trong bộ nhớ với xếp hạng BM25.
+ * - Từ khóa được bỏ dấu tiếng Việt trước khi đánh chỉ mục và truy vấn
+ * - Từ cuối cùng của truy vấn được khớp theo tiền tố (gõ tới đâu tìm tới đó)
+ * - Từ không khớp chính xác / tiền tố được khớp gần đúng (sai 1-2 ký tự)
+ * - Các từ trong truy vấn kết hợp theo AND
+ * Cập nhật từng tài liệu (index / remove) an toàn khi đọc đồng thời.
+ */
+public class InvertedIndex {
+
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    private static final double PREFIX_FACTOR = 0.8;
+    private static final double FUZZY_FACTOR = 0.5;
+    private static final int MAX_EXPANSIONS = 64;
+
+    // term -> (docId -> trọng số tần suất)
+    private final NavigableMap<String, Map<Integer, Float>> postings = new TreeMap<>();
+    // docId -> các term của tài liệu, dùng để gỡ khi cập nhật
+    private final Map<Integer, Map<String, Float>> documents = new HashMap<>();
+    private final Map<Integer, Float> documentLengths = new HashMap<>();
+    private double totalLength = 0;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * Nội dung một tài liệu: danh sách (văn bản, trọng số trường)
+     */
+    public static class Document {
+        private final List<String> texts = new ArrayList<>();
+        private final List<Float> weights = new ArrayList<>();
+
+        public Document field(String text, float weight) {
+            if (text != null && !text.isEmpty()) {
+                texts.add(text);
+                weights.add(weight);
+            }
+            return this;
+        }
+    }
+
+    /**
+     * Thêm mới hoặc thay thế tài liệu
+     */
+    public void index(int docId, Document document) {
+        Map<String, Float> terms = new HashMap<>();
+        float length = 0;
+        for (int i = 0; i < document.texts.size(); i++) {
+            float weight = document.weights.get(i);
+            for (String token : SearchTextNormalizer.tokenize(document.texts.get(i))) {
+                terms.merge(token, weight, Float::sum);
+                length += weight;
+            }
+        }
+
+        lock.writeLock().lock();
+        try {
+            removeInternal(docId);
+            if (terms.isEmpty()) {
+                return;
+            }
+            for (Map.Entry<String, Float> term : terms.entrySet()) {
+                postings.computeIfAbsent(term.getKey(), k -> new HashMap<>()).put(docId, term.getValue());
+            }
+            documents.put(docId, terms);
+            documentLengths.put(docId, length);
+            totalLength += length;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(int docId) {
+        lock.writeLock().lock();
+        try {
+            removeInternal(docId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            postings.clear();
+            documents.clear();
+            documentLengths.clear();
+            totalLength = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Tìm kiếm và trả về docId theo điểm BM25 giảm dần
+     */
+    public int[] search(String query) {
+        List<String> tokens = SearchTextNormalizer.tokenize(query);
+        if (tokens.isEmpty()) {
+            return new int[0];
+        }
+
+        lock.readLock().lock();
+        try {
+            int docCount = documents.size();
+            if (docCount == 0) {
+                return new int[0];
+            }
+            double avgLength = totalLength / docCount;
+
+            Map<Integer, Double> scores = null;
+            for (int t = 0; t < tokens.size(); t++) {
+                boolean lastToken = t == tokens.size() - 1;
+                Map<String, Double> expansions = expand(tokens.get(t), lastToken);
+
+                // Điểm của từ này = điểm cao nhất trong các dạng mở rộng
+                Map<Integer, Double> tokenScores = new HashMap<>();
+                for (Map.Entry<String, Double> expansion : expansions.entrySet()) {
+                    Map<Integer, Float> docs = postings.get(expansion.getKey());
+                    double idf = Math.log(1 + (docCount - docs.size() + 0.5) / (docs.size() + 0.5));
+                    for (Map.Entry<Integer, Float> posting : docs.entrySet()) {
+                        double tf = posting.getValue();
+                        double norm = K1 * (1 - B + B * documentLengths.get(posting.getKey()) / avgLength);
+                        double score = expansion.getValue() * idf * tf * (K1 + 1) / (tf + norm);
+                        tokenScores.merge(posting.getKey(), score, Math::max);
+                    }
+                }
+
+                // AND giữa các từ
+                if (scores == null) {
+                    scores = tokenScores;
+                } else {
+                    Map<Integer, Double> merged = new HashMap<>();
+                    for (Map.Entry<Integer, Double> entry : scores.entrySet()) {
+                        Double tokenScore = tokenScores.get(entry.getKey());
+                        if (tokenScore != null) {
+                            merged.put(entry.getKey(), entry.getValue() + tokenScore);
+                        }
+                    }
+                    scores = merged;
+                }
+                if (scores.isEmpty()) {
+                    return new int[0];
+                }
+            }
+
+            return scores.entrySet().stream()
+                    .sorted(Map.Entry.<Integer, Double>comparingByValue().reversed()
+                            .thenComparing(Map.Entry.<Integer, Double>comparingByKey()))
+                    .mapToInt(Map.Entry::getKey)
+                    .toArray();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private Map<String, Double> expand(String token, boolean allowPrefix) {
+        Map<String, Double> expansions = new HashMap<>();
+        if (postings.containsKey(token)) {
+            expansions.put(token, 1.0);
+        }
+
+        if (allowPrefix) {
+            for (String term : postings.subMap(token, false, token + Character.MAX_VALUE, false).keySet()) {
+                if (expansions.size() >= MAX_EXPANSIONS) break;
+                expansions.put(term, PREFIX_FACTOR);
+            }
+        }
+
+        // Khớp gần đúng khi không có kết quả chính xác / tiền tố
+        if (expansions.isEmpty() && token.length() >= 4) {
+            int maxDistance = token.length() >= 8 ? 2 : 1;
+            for (String term : postings.keySet()) {
+                if (Math.abs(term.length() - token.length()) > maxDistance) continue;
+                if (editDistance(token, term, maxDistance) <= maxDistance) {
+                    expansions.put(term, FUZZY_FACTOR);
+                    if (expansions.size() >= MAX_EXPANSIONS) break;
+                }
+            }
+        }
+        return expansions;
+    }
+
+    private void removeInternal(int docId) {
+        Map<String, Float> terms = documents.remove(docId);
+        if (terms == null) {
+            return;
+        }
+        for (String term : terms.keySet()) {
+            Map<Integer, Float> docs = postings.get(term);
+            if (docs != null) {
+                docs.remove(docId);
+                if (docs.isEmpty()) {
+                    postings.remove(term);
+                }
+            }
+        }
+        Float length = documentLengths.remove(docId);
+        if (length != null) {
+            totalLength -= length;
+        }
+    }
+
+    /**
+     * Khoảng cách Levenshtein, dừng sớm khi vượt quá ngưỡng
+     */
+    static int editDistance(String a, String b, int limit) {
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            int rowMin = current[0];
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                current[j] = Math.min(Math.min(current[j - 1] + 1, previous[j] + 1), previous[j - 1] + cost);
+                rowMin = Math.min(rowMin, current[j]);
+            }
+            if (rowMin > limit) {
+                return limit + 1;
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[b.length()];
+    }
+}
@@ -0,0 +1,167 @@
+package org.example.graduationproject.services.search;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.graduationproject.events.CategoryChangedEvent;
+import org.example.graduationproject.events.ProductChangedEvent;
+import org.example.graduationproject.events.VariantChangedEvent;
+import org.example.graduationproject.models.SanPhamBienThe;
+import org.example.graduationproject.repositories.SanPhamBienTheRepository;
+import org.example.graduationproject.utils.LoggerManager;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Chỉ mục tìm kiếm biến thể cho trang quản trị (tên sản phẩm, tag, danh mục, mã màu, tên size),
+ * cập nhật theo sự kiện biến thể / sản phẩm / danh mục.
+ * Xóa sản phẩm thì biến thể của nó bị xóa theo mà không có VariantChangedEvent riêng,
+ * nên chỉ mục tự giữ biến thể -> sản phẩm để gỡ chúng.
+ */
+@Component
+@Slf4j
+public class VariantSearchIndex {
+
+    @Autowired
+    private SanPhamBienTheRepository sanPhamBienTheRepository;
+
+    private volatile InvertedIndex index = new InvertedIndex();
+    private volatile boolean ready = false;
+
+    // variantId -> sanPhamId, chỉ truy cập trong các phương thức synchronized
+    private Map<Integer, Integer> productByVariant = new HashMap<>();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        try {
+            rebuildAll();
+        } catch (Exception e) {
+            log.error("VariantSearchIndex: Error building index: {}", e.getMessage(), e);
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onVariantChanged(VariantChangedEvent event) {
+        if (!ready) {
+            return;
+        }
+        try {
+            if (event.isDeleted()) {
+                for (Integer variantId : event.getVariantIds()) {
+                    index.remove(variantId);
+                    productByVariant.remove(variantId);
+                }
+                return;
+            }
+            List<SanPhamBienThe> variants = sanPhamBienTheRepository.findAllByIdInWithDetails(event.getVariantIds());
+            for (SanPhamBienThe variant : variants) {
+                add(index, productByVariant, variant);
+            }
+        } catch (Exception e) {
+            ready = false;
+            log.error("VariantSearchIndex: Error applying variant change: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Tên / danh mục của sản phẩm thay đổi thì đánh chỉ mục lại các biến thể của nó,
+     * sản phẩm bị xóa thì gỡ mọi biến thể của nó
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onProductChanged(ProductChangedEvent event) {
+        if (!ready || event.getProductId() == null) {
+            return;
+        }
+        try {
+            if (event.isDeleted()) {
+                Integer productId = event.getProductId();
+                productByVariant.entrySet().removeIf(entry -> {
+                    if (!productId.equals(entry.getValue())) {
+                        return false;
+                    }
+                    index.remove(entry.getKey());
+                    return true;
+                });
+                return;
+            }
+            for (SanPhamBienThe variant : sanPhamBienTheRepository.findBySanPhamIdForSearchIndex(event.getProductId())) {
+                add(index, productByVariant, variant);
+            }
+        } catch (Exception e) {
+            ready = false;
+            log.error("VariantSearchIndex: Error reindexing product #{}: {}", event.getProductId(), e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Đổi tên danh mục thì đánh chỉ mục lại các biến thể thuộc danh mục đó
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onCategoryChanged(CategoryChangedEvent event) {
+        if (!ready || event.getLoaiId() == null) {
+            return;
+        }
+        try {
+            for (SanPhamBienThe variant : sanPhamBienTheRepository.findByLoaiIdForSearchIndex(event.getLoaiId())) {
+                add(index, productByVariant, variant);
+            }
+        } catch (Exception e) {
+            ready = false;
+            log.error("VariantSearchIndex: Error reindexing category #{}: {}", event.getLoaiId(), e.getMessage(), e);
+        }
+    }
+
+    public synchronized void rebuildAll() {
+        long start = System.currentTimeMillis();
+        InvertedIndex rebuilt = new InvertedIndex();
+        Map<Integer, Integer> rebuiltProducts = new HashMap<>();
+        for (SanPhamBienThe variant : sanPhamBienTheRepository.findAllForSearchIndex()) {
+            add(rebuilt, rebuiltProducts, variant);
+        }
+        index = rebuilt;
+        productByVariant = rebuiltProducts;
+        ready = true;
+        LoggerManager.getInstance().logPerformance("VARIANT_INDEX_REBUILD", System.currentTimeMillis() - start,
+                "variants=" + rebuilt.size());
+    }
+
+    /**
+     * Trả về id biến thể theo độ liên quan giảm dần. Chỉ mục chưa sẵn sàng thì nạp lại.
+     */
+    public int[] search(String keyword) {
+        if (!ready) {
+            rebuildAll();
+        }
+        return index.search(keyword);
+    }
+
+    private static void add(InvertedIndex target, Map<Integer, Integer> products, SanPhamBienThe variant) {
+        target.index(variant.getId(), toSearchDocument(variant));
+        if (variant.getSanPham() != null) {
+            products.put(variant.getId(), variant.getSanPham().getId());
+        } else {
+            products.remove(variant.getId());
+        }
+    }
+
+    private static InvertedIndex.Document toSearchDocument(SanPhamBienThe variant) {
+        InvertedIndex.Document document = new InvertedIndex.Document();
+        if (variant.getSanPham() != null) {
+            document.field(variant.getSanPham().getTen(), 3.0f)
+                    .field(variant.getSanPham().getTag(), 1.0f)
+                    .field(variant.getSanPham().getLoai() != null ? variant.getSanPham().getLoai().getTen() : null, 1.5f);
+        }
+        if (variant.getMauSac() != null) {
+            document.field(variant.getMauSac().getMaMau(), 2.0f);
+        }
+        if (variant.getSize() != null) {
+            document.field(variant.getSize().getTenSize(), 2.0f);
+        }
+        return document;
+    }
+}
@@ -0,0 +1,36 @@
+package org.example.graduationproject.utils;
+
+import java.util.regex.Pattern;
+
+/**
+ * Escape một ô CSV cho file mở bằng Excel / Google Sheets:
+ * - Ô có dấu phẩy, ngoặc kép, xuống dòng được bọc trong ngoặc kép (RFC 4180)
+ * - Ô bắt đầu bằng = + - @ (hoặc tab / CR) được thêm dấu ' phía trước để không bị chạy như công thức
+ *   (CSV injection); số thuần như -5 hay -1.5 không phải công thức nên giữ nguyên
+ */
+public final class CsvEscaper {
+
+    private static final Pattern PLAIN_NUMBER = Pattern.compile("[+-]?\\d+([.,]\\d+)*");
+
+    private CsvEscaper() {
+    }
+
+    public static String escape(String value) {
+        if (value == null || value.isEmpty()) {
+            return "";
+        }
+        String safe = isFormulaLike(value) ? "'" + value : value;
+        if (safe.indexOf(',') >= 0 || safe.indexOf('"') >= 0 || safe.indexOf('\n') >= 0 || safe.indexOf('\r') >= 0) {
+            return '"' + safe.replace("\"", "\"\"") + '"';
+        }
+        return safe;
+    }
+
+    private static boolean isFormulaLike(String value) {
+        char first = value.charAt(0);
+        if (first == '=' || first == '@' || first == '\t' || first == '\r') {
+            return true;
+        }
+        return (first == '+' || first == '-') && !PLAIN_NUMBER.matcher(value).matches();
+    }
+}
@@ -0,0 +1,87 @@
+package org.example.graduationproject.utils;
+
+import org.example.graduationproject.exceptions.BadRequestException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Cursor mờ cho phân trang keyset, mã hóa cặp (giá trị cột sắp xếp, id) của dòng cuối trang.
+ * Trang sau lấy các dòng đứng sau cặp này theo thứ tự (cột sắp xếp, id), id phân định các dòng trùng giá trị.
+ * Mỗi trang truy vấn dư một dòng để biết còn trang sau hay không, không cần COUNT.
+ * Giá trị sắp xếp null được mã hóa riêng (không có phần giá trị) để phân biệt với chuỗi rỗng:
+ * caller phân trang tiếp trong nhóm null chỉ theo id.
+ */
+public final class KeysetCursor {
+
+    private static final String VERSION = "v1";
+
+    // Số dòng tối đa của một trang keyset
+    public static final int MAX_PAGE_SIZE = 100;
+
+    private final String sortValue;
+    private final Integer id;
+
+    private KeysetCursor(String sortValue, Integer id) {
+        this.sortValue = sortValue;
+        this.id = id;
+    }
+
+    public static String encode(Object sortValue, Integer id) {
+        String raw = VERSION + ":" + id + (sortValue != null ? ":" + sortValue : "");
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Kích thước trang hợp lệ: nhỏ hơn 1 là lỗi của client, lớn hơn MAX_PAGE_SIZE thì giảm về MAX_PAGE_SIZE
+     */
+    public static int pageSize(int size) {
+        if (size < 1) {
+            throw new BadRequestException("Kích thước trang phải lớn hơn 0");
+        }
+        return Math.min(size, MAX_PAGE_SIZE);
+    }
+
+    /**
+     * Giải mã cursor; chuỗi rỗng nghĩa là trang đầu và trả về null
+     */
+    public static KeysetCursor decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor.trim()), StandardCharsets.UTF_8);
+            String[] parts = raw.split(":", 3);
+            if (parts.length < 2 || !VERSION.equals(parts[0])) {
+                throw new BadRequestException("Cursor không hợp lệ");
+            }
+            return new KeysetCursor(parts.length == 3 ? parts[2] : null, Integer.valueOf(parts[1]));
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException("Cursor không hợp lệ");
+        }
+    }
+
+    /**
+     * Giá trị cột sắp xếp của dòng cuối trang, null nếu dòng đó có giá trị null
+     */
+    public String getSortValue() {
+        return sortValue;
+    }
+
+    public Integer getId() {
+        return id;
+    }
+
+    public LocalDateTime getSortValueAsDateTime() {
+        if (sortValue == null) {
+            throw new BadRequestException("Cursor không hợp lệ");
+        }
+        try {
+            return LocalDateTime.parse(sortValue);
+        } catch (DateTimeParseException e) {
+            throw new BadRequestException("Cursor không hợp lệ");
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package org.example.graduationproject.utils;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import java.util.function.Supplier;
+
+/**
+ * Đếm số câu lệnh SQL gửi xuống database trên thread hiện tại.
+ * Hibernate gọi inspect mỗi lần chuẩn bị một statement (một batch JDBC chỉ tính một lần),
+ * các đường ghi JDBC thủ công tự gọi record cho mỗi lần executeBatch.
+ */
+public class SqlStatementCounter implements StatementInspector {
+
+    private static final ThreadLocal<int[]> COUNTER = new ThreadLocal<>();
+
+    @Override
+    public String inspect(String sql) {
+        record(1);
+        return sql;
+    }
+
+    public static void start() {
+        COUNTER.set(new int[1]);
+    }
+
+    public static int stop() {
+        int[] counter = COUNTER.get();
+        COUNTER.remove();
+        return counter != null ? counter[0] : 0;
+    }
+
+    public static void record(int statements) {
+        int[] counter = COUNTER.get();
+        if (counter != null) {
+            counter[0] += statements;
+        }
+    }
+
+    /**
+     * Chạy action, ghi log số round-trip và thời gian vào performance log
+     */
+    public static <T> T measure(String operation, Supplier<T> action) {
+        long startTime = System.currentTimeMillis();
+        start();
+        boolean success = false;
+        try {
+            T result = action.get();
+            success = true;
+            return result;
+        } finally {
+            int statements = stop();
+            LoggerManager.getInstance().logPerformance(operation, System.currentTimeMillis() - startTime,
+                    "statements=" + statements + ", success=" + success);
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package org.example.graduationproject.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.graduationproject.dto.NotificationRequest;
+import org.example.graduationproject.dto.NotificationResult;
+import org.example.graduationproject.enums.NotificationType;
+import org.example.graduationproject.services.export.ExportJob;
+import org.example.graduationproject.services.export.ExportJobManager;
+import org.example.graduationproject.services.notification.BasicNotificationService;
+import org.example.graduationproject.services.notification.NotificationManager;
+import org.example.graduationproject.services.notification.NotificationService;
+import org.example.graduationproject.services.notification.decorators.EmailNotificationDecorator;
+import org.example.graduationproject.services.notification.decorators.PushNotificationDecorator;
+import org.example.graduationproject.services.notification.decorators.SmsNotificationDecorator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * So sánh thông lượng hai chế độ app.executors.mode trên cấu hình executor thật của AsyncConfig:
+ * - Fan-out thông báo: NotificationManager gửi email qua executor "notification" (decorator chờ 200ms như gọi SMTP)
+ * - Export: ExportJobManager chạy job trên executor "export", mỗi job chờ I/O giả lập rồi ghi file tạm
+ * Kết quả được ghi log; test chỉ khẳng định mọi task xong, semaphore giữ đúng giới hạn
+ * và virtual thread không bị giới hạn bởi core pool khi hàng đợi platform chưa đầy.
+ */
+@Slf4j
+class ExecutorModeThroughputTest {
+
+    private static final int NOTIFICATIONS = 30;
+    private static final int EXPORT_JOBS = 24;
+    private static final int EXPORT_ROWS = 2_000;
+    private static final long EXPORT_IO_MS = 50;
+
+    @TempDir
+    Path tempDir;
+
+    private final List<ExecutorRegistry> registries = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        registries.forEach(ExecutorRegistry::destroy);
+    }
+
+    @Test
+    void notificationFanOutIsFasterOnVirtualThreads() {
+        long platformNanos = fanOut(ExecutorRegistry.Mode.PLATFORM);
+        long virtualNanos = fanOut(ExecutorRegistry.Mode.VIRTUAL);
+
+        log.info("ExecutorModeThroughputTest: notification fan-out platform {} ops/s, virtual {} ops/s ({} emails each)",
+                opsPerSecond(NOTIFICATIONS, platformNanos), opsPerSecond(NOTIFICATIONS, virtualNanos), NOTIFICATIONS);
+        // Platform: hàng đợi 100 chưa đầy nên chỉ 3 core thread chạy; virtual: tới max-concurrency 10 lời gọi cùng lúc
+        assertThat(virtualNanos).isLessThan(platformNanos);
+    }
+
+    @Test
+    void exportJobsCompleteUnderBothModesWithinTheConcurrencyCap() throws IOException, InterruptedException {
+        long platformNanos = export(ExecutorRegistry.Mode.PLATFORM);
+        long virtualNanos = export(ExecutorRegistry.Mode.VIRTUAL);
+
+        log.info("ExecutorModeThroughputTest: export platform {} jobs/s, virtual {} jobs/s ({} jobs of {} rows each)",
+                opsPerSecond(EXPORT_JOBS, platformNanos), opsPerSecond(EXPORT_JOBS, virtualNanos), EXPORT_JOBS, EXPORT_ROWS);
+        // Cả hai chế độ cùng bị giới hạn bởi app.executors.export.max-concurrency nên thời gian gần như nhau
+        long lowerBound = TimeUnit.MILLISECONDS.toNanos(EXPORT_JOBS / 4 * EXPORT_IO_MS);
+        assertThat(platformNanos).isGreaterThanOrEqualTo(lowerBound);
+        assertThat(virtualNanos).isGreaterThanOrEqualTo(lowerBound);
+    }
+
+    private long fanOut(ExecutorRegistry.Mode mode) {
+        ExecutorRegistry registry = registry(mode);
+        NotificationService basic = new BasicNotificationService();
+        NotificationManager manager = new NotificationManager(basic, new EmailNotificationDecorator(basic),
+                new SmsNotificationDecorator(basic), new PushNotificationDecorator(basic));
+        ReflectionTestUtils.setField(manager, "notificationExecutor", registry.get("notification"));
+
+        long start = System.nanoTime();
+        List<CompletableFuture<NotificationResult>> futures = new ArrayList<>();
+        for (int i = 0; i < NOTIFICATIONS; i++) {
+            futures.add(manager.sendNotificationWithCompletableFuture(NotificationRequest.builder()
+                    .type(NotificationType.EMAIL)
+                    .recipient("Khách " + i)
+                    .recipientEmail("customer" + i + "@example.com")
+                    .title("Đơn hàng đã xác nhận")
+                    .message("Đơn hàng #" + i + " đã được xác nhận")
+                    .build()));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+        long elapsed = System.nanoTime() - start;
+
+        assertThat(futures).allSatisfy(future -> assertThat(future.join().isSuccess()).isTrue());
+        assertThat((int) registry.get("notification").stats().get("peakActive")).isLessThanOrEqualTo(10);
+        return elapsed;
+    }
+
+    private long export(ExecutorRegistry.Mode mode) throws IOException, InterruptedException {
+        ExecutorRegistry registry = registry(mode);
+        ExportJobManager manager = new ExportJobManager();
+        ReflectionTestUtils.setField(manager, "exportTaskExecutor", registry.get("export"));
+        ReflectionTestUtils.setField(manager, "jobsDir", tempDir.resolve(mode.name()).toString());
+        ReflectionTestUtils.setField(manager, "retentionMs", 3_600_000L);
+        ReflectionTestUtils.setField(manager, "cacheMaxBytes", Long.MAX_VALUE);
+        ReflectionTestUtils.setField(manager, "maxPending", EXPORT_JOBS);
+        manager.init();
+
+        long start = System.nanoTime();
+        List<ExportJob> jobs = new ArrayList<>();
+        for (int i = 0; i < EXPORT_JOBS; i++) {
+            jobs.add(manager.submit("benchmark", "benchmark-" + i + ".csv", "text/csv", (out, job) -> {
+                // Chờ như đọc dữ liệu từ database / upload, sau đó ghi file
+                Thread.sleep(EXPORT_IO_MS);
+                job.setTotalRows(EXPORT_ROWS);
+                for (int row = 0; row < EXPORT_ROWS; row++) {
+                    out.write(("SP" + row + ",Áo thun,M,Đỏ,199000\n").getBytes(StandardCharsets.UTF_8));
+                }
+                job.setRowsWritten(EXPORT_ROWS);
+            }));
+        }
+        long deadline = System.currentTimeMillis() + 30_000;
+        while (!jobs.stream().allMatch(ExportJob::isFinished) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        long elapsed = System.nanoTime() - start;
+
+        assertThat(jobs).allSatisfy(job -> {
+            assertThat(job.getStatus()).isEqualTo(ExportJob.Status.COMPLETED);
+            assertThat(job.getRowsWritten()).isEqualTo(EXPORT_ROWS);
+        });
+        assertThat((int) registry.get("export").stats().get("peakActive")).isLessThanOrEqualTo(4);
+        return elapsed;
+    }
+
+    // Cùng các executor và giới hạn mặc định như khi ứng dụng chạy
+    private ExecutorRegistry registry(ExecutorRegistry.Mode mode) {
+        AsyncConfig config = new AsyncConfig();
+        ReflectionTestUtils.setField(config, "executorMode", mode.name().toLowerCase());
+        ReflectionTestUtils.setField(config, "notificationMaxConcurrency", 10);
+        ReflectionTestUtils.setField(config, "generalMaxConcurrency", 5);
+        ReflectionTestUtils.setField(config, "exportMaxConcurrency", 4);
+        ReflectionTestUtils.setField(config, "imageMaxConcurrency", 8);
+        ReflectionTestUtils.setField(config, "mvcMaxConcurrency", 16);
+        ExecutorRegistry registry = config.executorRegistry();
+        registries.add(registry);
+        return registry;
+    }
+
+    private static long opsPerSecond(int operations, long nanos) {
+        return operations * 1_000_000_000L / Math.max(nanos, 1);
+    }
+}
@@ -0,0 +1,95 @@
+package org.example.graduationproject.config;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Kiểm tra giới hạn đồng thời của BoundedExecutor trên cả hai chế độ bằng task blocking giả lập
+ * (như gọi SMTP / upload), thay cho việc đo tải qua API admin
+ */
+class ExecutorRegistryTest {
+
+    private ExecutorRegistry registry;
+
+    @AfterEach
+    void tearDown() {
+        if (registry != null) {
+            registry.destroy();
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(ExecutorRegistry.Mode.class)
+    void neverRunsMoreThanMaxConcurrencyTasksAtOnce(ExecutorRegistry.Mode mode) throws InterruptedException {
+        registry = new ExecutorRegistry(mode);
+        BoundedExecutor executor = registry.register("test", 8, 8, 100, 3);
+
+        int tasks = 40;
+        CountDownLatch done = new CountDownLatch(tasks);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger peak = new AtomicInteger();
+        for (int i = 0; i < tasks; i++) {
+            executor.execute(() -> {
+                peak.accumulateAndGet(running.incrementAndGet(), Math::max);
+                try {
+                    Thread.sleep(10);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    running.decrementAndGet();
+                    done.countDown();
+                }
+            });
+        }
+
+        assertThat(done.await(30, TimeUnit.SECONDS)).isTrue();
+        assertThat(peak.get()).isLessThanOrEqualTo(3);
+        assertThat((int) executor.stats().get("peakActive")).isLessThanOrEqualTo(3);
+        assertThat(executor.stats().get("submitted")).isEqualTo((long) tasks);
+    }
+
+    @Test
+    void virtualModeRunsBlockingTasksWithoutThreadPoolLimit() throws InterruptedException {
+        registry = new ExecutorRegistry(ExecutorRegistry.Mode.VIRTUAL);
+        BoundedExecutor executor = registry.register("notification", 1, 1, 0, 500);
+
+        int tasks = 500;
+        CountDownLatch done = new CountDownLatch(tasks);
+        long start = System.nanoTime();
+        for (int i = 0; i < tasks; i++) {
+            executor.execute(() -> {
+                try {
+                    Thread.sleep(200);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+
+        assertThat(done.await(30, TimeUnit.SECONDS)).isTrue();
+        // 500 task x 200ms tuần tự mất 100s; chạy đồng thời phải xong trong vài giây
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isLessThan(10_000);
+    }
+
+    @Test
+    void rejectsDuplicateAndUnknownExecutors() {
+        registry = new ExecutorRegistry(ExecutorRegistry.Mode.PLATFORM);
+        registry.register("general", 1, 1, 10, 1);
+
+        assertThatThrownBy(() -> registry.register("general", 1, 1, 10, 1))
+                .isInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(() -> registry.get("missing"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,68 @@
+package org.example.graduationproject.config;
+
+import org.example.graduationproject.utils.SqlStatementCounter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StatementBudgetInterceptorTest {
+
+    private final StatementBudgetInterceptor interceptor = new StatementBudgetInterceptor();
+    private final MockHttpServletResponse response = new MockHttpServletResponse();
+
+    @AfterEach
+    void clearCounter() {
+        SqlStatementCounter.stop();
+    }
+
+    @Test
+    void countsOnlyBudgetedGetRequests() {
+        interceptor.preHandle(new MockHttpServletRequest("POST", "/api/admin/invoices"), response, null);
+        SqlStatementCounter.record(2);
+        assertThat(SqlStatementCounter.stop()).isZero();
+
+        interceptor.preHandle(new MockHttpServletRequest("GET", "/api/admin/colors"), response, null);
+        SqlStatementCounter.record(2);
+        assertThat(SqlStatementCounter.stop()).isZero();
+
+        interceptor.preHandle(new MockHttpServletRequest("GET", "/api/admin/invoices"), response, null);
+        SqlStatementCounter.record(2);
+        assertThat(SqlStatementCounter.stop()).isEqualTo(2);
+    }
+
+    @Test
+    void asyncStartReleasesCounterOfRequestThread() {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/user/orders/5");
+        interceptor.preHandle(request, response, null);
+        SqlStatementCounter.record(3);
+
+        interceptor.afterConcurrentHandlingStarted(request, response, null);
+
+        // Request khác chạy sau trên cùng thread không bị cộng vào số đếm cũ
+        SqlStatementCounter.record(1);
+        assertThat(SqlStatementCounter.stop()).isZero();
+    }
+
+    @Test
+    void afterCompletionStopsCounting() {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/admin/products");
+        interceptor.preHandle(request, response, null);
+        SqlStatementCounter.record(1);
+
+        interceptor.afterCompletion(request, response, null, null);
+
+        SqlStatementCounter.record(1);
+        assertThat(SqlStatementCounter.stop()).isZero();
+    }
+
+    @Test
+    void budgetsMatchAntPatterns() {
+        assertThat(StatementBudgetInterceptor.findBudget("/api/admin/invoices")).isNotNull();
+        assertThat(StatementBudgetInterceptor.findBudget("/api/admin/invoices/12")).isNotNull();
+        assertThat(StatementBudgetInterceptor.findBudget("/api/admin/invoices/12/pdf")).isNull();
+        assertThat(StatementBudgetInterceptor.findBudget("/api/cart")).isNull();
+    }
+}
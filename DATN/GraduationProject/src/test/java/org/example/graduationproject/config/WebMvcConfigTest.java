@@ -0,0 +1,43 @@
+package org.example.graduationproject.config;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class WebMvcConfigTest {
+
+    private final ExecutorRegistry registry = new ExecutorRegistry(ExecutorRegistry.Mode.PLATFORM);
+
+    @AfterEach
+    void tearDown() {
+        registry.destroy();
+    }
+
+    @Test
+    void asyncRequestsRunOnMvcExecutorWithStreamTimeout() throws InterruptedException {
+        BoundedExecutor mvc = registry.register("mvc", 1, 2, 10, 2);
+        BoundedExecutor export = registry.register("export", 1, 1, 10, 1);
+        WebMvcConfig config = new WebMvcConfig();
+        ReflectionTestUtils.setField(config, "mvcTaskExecutor", mvc);
+        ReflectionTestUtils.setField(config, "streamTimeoutMs", 600_000L);
+        AsyncSupportConfigurer configurer = new AsyncSupportConfigurer();
+
+        config.configureAsyncSupport(configurer);
+
+        AsyncTaskExecutor executor = (AsyncTaskExecutor) ReflectionTestUtils.getField(configurer, "taskExecutor");
+        CountDownLatch ran = new CountDownLatch(1);
+        executor.execute(ran::countDown);
+        assertThat(ran.await(5, TimeUnit.SECONDS)).isTrue();
+        // StreamingResponseBody không chiếm chỗ của job export nền
+        assertThat(mvc.stats().get("submitted")).isEqualTo(1L);
+        assertThat(export.stats().get("submitted")).isEqualTo(0L);
+        assertThat(ReflectionTestUtils.getField(configurer, "timeout")).isEqualTo(600_000L);
+    }
+}
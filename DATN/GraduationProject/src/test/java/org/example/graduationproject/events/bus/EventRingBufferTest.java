@@ -0,0 +1,194 @@
+package org.example.graduationproject.events.bus;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class EventRingBufferTest {
+
+    @Test
+    void capacityIsRoundedUpToPowerOfTwo() {
+        assertThat(new EventRingBuffer<String>(0).getCapacity()).isEqualTo(2);
+        assertThat(new EventRingBuffer<String>(1).getCapacity()).isEqualTo(2);
+        assertThat(new EventRingBuffer<String>(4).getCapacity()).isEqualTo(4);
+        assertThat(new EventRingBuffer<String>(5).getCapacity()).isEqualTo(8);
+        assertThat(new EventRingBuffer<String>(1000).getCapacity()).isEqualTo(1024);
+    }
+
+    @Test
+    void consumerReceivesEventsInPublishOrder() throws InterruptedException {
+        EventRingBuffer<String> buffer = new EventRingBuffer<>(4);
+        EventRingBuffer<String>.Cursor cursor = buffer.addConsumer();
+
+        // Quay vòng buffer nhiều lần để slot bị tái sử dụng
+        for (int i = 0; i < 10; i++) {
+            assertThat(buffer.publish("e" + i, 100)).isTrue();
+            EventRingBuffer.Envelope<String> envelope = cursor.poll(100);
+            assertThat(envelope.getSequence()).isEqualTo(i);
+            assertThat(envelope.getEvent()).isEqualTo("e" + i);
+        }
+        assertThat(buffer.getPublishedCount()).isEqualTo(10);
+    }
+
+    @Test
+    void lateConsumerOnlySeesLaterEvents() throws InterruptedException {
+        EventRingBuffer<String> buffer = new EventRingBuffer<>(4);
+        buffer.publish("before", 100);
+
+        EventRingBuffer<String>.Cursor cursor = buffer.addConsumer();
+        buffer.publish("after", 100);
+
+        assertThat(cursor.poll(100).getEvent()).isEqualTo("after");
+        assertThat(cursor.poll(10)).isNull();
+    }
+
+    @Test
+    void everyConsumerSeesEveryEvent() throws InterruptedException {
+        EventRingBuffer<String> buffer = new EventRingBuffer<>(8);
+        EventRingBuffer<String>.Cursor first = buffer.addConsumer();
+        EventRingBuffer<String>.Cursor second = buffer.addConsumer();
+        buffer.publish("a", 100);
+        buffer.publish("b", 100);
+
+        assertThat(List.of(first.poll(10).getEvent(), first.poll(10).getEvent())).containsExactly("a", "b");
+        assertThat(second.backlog()).isEqualTo(2);
+        assertThat(List.of(second.poll(10).getEvent(), second.poll(10).getEvent())).containsExactly("a", "b");
+        assertThat(second.backlog()).isZero();
+    }
+
+    @Test
+    void publisherTimesOutWhenSlowestConsumerIsAFullBufferBehind() throws InterruptedException {
+        EventRingBuffer<Integer> buffer = new EventRingBuffer<>(2);
+        EventRingBuffer<Integer>.Cursor fast = buffer.addConsumer();
+        EventRingBuffer<Integer>.Cursor slow = buffer.addConsumer();
+        buffer.publish(1, 100);
+        buffer.publish(2, 100);
+        fast.poll(10);
+        fast.poll(10);
+
+        assertThat(buffer.publish(3, 50)).isFalse();
+
+        assertThat(slow.poll(10).getEvent()).isEqualTo(1);
+        assertThat(buffer.publish(3, 50)).isTrue();
+        assertThat(buffer.getPublishedCount()).isEqualTo(3);
+    }
+
+    @Test
+    void publishWithoutConsumersNeverBlocks() throws InterruptedException {
+        EventRingBuffer<Integer> buffer = new EventRingBuffer<>(2);
+
+        for (int i = 0; i < 10; i++) {
+            assertThat(buffer.publish(i, 0)).isTrue();
+        }
+    }
+
+    @Test
+    void pollReturnsNullAfterWaitAndWakesOnPublish() throws Exception {
+        EventRingBuffer<String> buffer = new EventRingBuffer<>(4);
+        EventRingBuffer<String>.Cursor cursor = buffer.addConsumer();
+        assertThat(cursor.poll(20)).isNull();
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<EventRingBuffer.Envelope<String>> pending = executor.submit(() -> cursor.poll(5_000));
+            Thread.sleep(50);
+            buffer.publish("wake", 100);
+
+            assertThat(pending.get(2, TimeUnit.SECONDS).getEvent()).isEqualTo("wake");
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void workersSharingCursorTakeEachEventExactlyOnce() throws Exception {
+        int events = 20_000;
+        int workers = 4;
+        EventRingBuffer<Integer> buffer = new EventRingBuffer<>(64);
+        EventRingBuffer<Integer>.Cursor cursor = buffer.addConsumer();
+        Queue<Long> taken = new ConcurrentLinkedQueue<>();
+        CountDownLatch done = new CountDownLatch(workers);
+
+        ExecutorService executor = Executors.newFixedThreadPool(workers);
+        try {
+            for (int w = 0; w < workers; w++) {
+                executor.execute(() -> {
+                    try {
+                        EventRingBuffer.Envelope<Integer> envelope;
+                        while ((envelope = cursor.poll(200)) != null) {
+                            taken.add(envelope.getSequence());
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } finally {
+                        done.countDown();
+                    }
+                });
+            }
+            for (int i = 0; i < events; i++) {
+                assertThat(buffer.publish(i, 5_000)).isTrue();
+            }
+            assertThat(done.await(10, TimeUnit.SECONDS)).isTrue();
+        } finally {
+            executor.shutdownNow();
+        }
+
+        Set<Long> unique = new HashSet<>(taken);
+        assertThat(taken).hasSize(events);
+        assertThat(unique).hasSize(events);
+        assertThat(cursor.backlog()).isZero();
+    }
+
+    @Test
+    void blockedPublisherCanBeInterrupted() throws Exception {
+        EventRingBuffer<Integer> buffer = new EventRingBuffer<>(2);
+        buffer.addConsumer();
+        buffer.publish(1, 0);
+        buffer.publish(2, 0);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        Thread publisher = new Thread(() -> {
+            try {
+                buffer.publish(3, 10_000);
+            } catch (Throwable t) {
+                failure.set(t);
+            }
+        });
+        publisher.start();
+        Thread.sleep(50);
+        publisher.interrupt();
+        publisher.join(2_000);
+
+        assertThat(publisher.isAlive()).isFalse();
+        assertThat(failure.get()).isInstanceOf(InterruptedException.class);
+    }
+
+    @Test
+    void backlogCountsUnconsumedEvents() throws InterruptedException {
+        EventRingBuffer<Integer> buffer = new EventRingBuffer<>(8);
+        EventRingBuffer<Integer>.Cursor cursor = buffer.addConsumer();
+        assertThat(cursor.backlog()).isZero();
+
+        List<Integer> published = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            buffer.publish(i, 0);
+            published.add(i);
+        }
+        cursor.poll(0);
+
+        assertThat(cursor.backlog()).isEqualTo(published.size() - 1);
+    }
+}
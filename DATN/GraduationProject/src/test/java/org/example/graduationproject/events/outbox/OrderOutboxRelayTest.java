@@ -0,0 +1,200 @@
+package org.example.graduationproject.events.outbox;
+
+import org.example.graduationproject.events.OrderStatusChangedEvent;
+import org.example.graduationproject.events.bus.OrderEventBus;
+import org.example.graduationproject.models.OrderEventOutbox;
+import org.example.graduationproject.observers.OrderStatusObserver;
+import org.example.graduationproject.repositories.OrderEventConsumptionRepository;
+import org.example.graduationproject.repositories.OrderEventOutboxRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Relay chạy trên thread riêng và đọc các dòng đã commit: test chạy ngoài transaction, ghi outbox qua repository
+ * và dọn bảng sau mỗi trường hợp.
+ */
+@DataJpaTest
+@ActiveProfiles("test")
+@Import({OrderOutboxRelay.class, OrderEventBus.class, OrderEventConsumptionRegistry.class,
+        OrderOutboxRelayTest.Observers.class})
+@TestPropertySource(properties = {
+        "order.outbox.poll-interval-ms=20",
+        "order.outbox.retry-base-ms=100",
+        "order.outbox.retry-max-ms=1000"
+})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class OrderOutboxRelayTest {
+
+    private static final long TIMEOUT_MS = 10_000;
+
+    @Autowired
+    private OrderOutboxRelay relay;
+
+    @Autowired
+    private OrderEventOutboxRepository outboxRepository;
+
+    @Autowired
+    private OrderEventConsumptionRepository consumptionRepository;
+
+    @Autowired
+    private RecordingObserver recordingObserver;
+
+    @Autowired
+    private FlakyObserver flakyObserver;
+
+    @BeforeEach
+    void setUp() {
+        recordingObserver.orderIds.clear();
+        flakyObserver.failuresLeft.clear();
+        flakyObserver.attemptsAt.clear();
+    }
+
+    @AfterEach
+    void tearDown() {
+        relay.stop();
+        outboxRepository.deleteAllInBatch();
+        consumptionRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void rowsAreDeliveredInIdOrderAndMarkedProcessed() {
+        for (int orderId = 1; orderId <= 5; orderId++) {
+            outbox(orderId);
+        }
+        long processedBefore = stat("processed");
+
+        relay.start();
+
+        awaitTrue(() -> outboxRepository.countByNgayXuLyIsNull() == 0);
+        assertThat(recordingObserver.orderIds).containsExactly(1, 2, 3, 4, 5);
+        assertThat(outboxRepository.findAll()).allSatisfy(row -> assertThat(row.getNgayXuLy()).isNotNull());
+        assertThat(stat("processed") - processedBefore).isEqualTo(5);
+        assertThat(stat("inFlight")).isZero();
+    }
+
+    @Test
+    void failedObserverIsRetriedWithBackoffWhileRowStaysPending() {
+        flakyObserver.failuresLeft.put(42, new AtomicInteger(2));
+        OrderEventOutbox row = outbox(42);
+        long processedBefore = stat("processed");
+        long retriedBefore = stat("retried");
+
+        relay.start();
+
+        awaitTrue(() -> flakyObserver.attemptsAt.size() >= 2);
+        assertThat(outboxRepository.findById(row.getId()).orElseThrow().getNgayXuLy()).isNull();
+
+        awaitTrue(() -> outboxRepository.countByNgayXuLyIsNull() == 0);
+        List<Long> attempts = flakyObserver.attemptsAt;
+        assertThat(attempts).hasSize(3);
+        // Lần thử lại thứ n chờ retry-base-ms * 2^(n-1)
+        assertThat(attempts.get(1) - attempts.get(0)).isGreaterThanOrEqualTo(100);
+        assertThat(attempts.get(2) - attempts.get(1)).isGreaterThanOrEqualTo(200);
+        // Observer đã xử lý thành công không chạy lại khi event được giao lại
+        assertThat(recordingObserver.orderIds).containsExactly(42);
+        assertThat(stat("retried") - retriedBefore).isEqualTo(2);
+        assertThat(stat("processed") - processedBefore).isEqualTo(1);
+    }
+
+    @Test
+    void failingRowDoesNotBlockLaterRows() {
+        flakyObserver.failuresLeft.put(1, new AtomicInteger(1));
+        outbox(1);
+        outbox(2);
+
+        relay.start();
+
+        awaitTrue(() -> outboxRepository.countByNgayXuLyIsNull() == 0);
+        assertThat(recordingObserver.orderIds).containsExactly(1, 2);
+        assertThat(flakyObserver.attemptsAt).hasSize(3);
+    }
+
+    private OrderEventOutbox outbox(int orderId) {
+        OrderEventOutbox row = new OrderEventOutbox();
+        row.setHoaDonId(orderId);
+        row.setTrangThaiCu("PENDING");
+        row.setTrangThaiMoi("CONFIRMED");
+        row.setNgayTao(LocalDateTime.now());
+        return outboxRepository.save(row);
+    }
+
+    // Bộ đếm của relay cộng dồn qua các test dùng chung context
+    private long stat(String name) {
+        return ((Number) relay.getStats().get(name)).longValue();
+    }
+
+    private static void awaitTrue(BooleanSupplier condition) {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) {
+                throw new AssertionError("Condition not met within " + TIMEOUT_MS + "ms");
+            }
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new AssertionError(e);
+            }
+        }
+    }
+
+    static class RecordingObserver implements OrderStatusObserver {
+        final List<Integer> orderIds = Collections.synchronizedList(new ArrayList<>());
+
+        @Override
+        public void handleOrderStatusChanged(OrderStatusChangedEvent event) {
+            orderIds.add(event.getOrderId());
+        }
+    }
+
+    /**
+     * Ném lỗi cho số lần đã đặt theo đơn hàng, ghi lại thời điểm mỗi lần được gọi
+     */
+    static class FlakyObserver implements OrderStatusObserver {
+        final Map<Integer, AtomicInteger> failuresLeft = new ConcurrentHashMap<>();
+        final List<Long> attemptsAt = Collections.synchronizedList(new ArrayList<>());
+
+        @Override
+        public void handleOrderStatusChanged(OrderStatusChangedEvent event) {
+            attemptsAt.add(System.currentTimeMillis());
+            AtomicInteger left = failuresLeft.get(event.getOrderId());
+            if (left != null && left.getAndDecrement() > 0) {
+                throw new IllegalStateException("Channel unavailable");
+            }
+        }
+    }
+
+    @TestConfiguration
+    static class Observers {
+        @Bean
+        RecordingObserver recordingObserver() {
+            return new RecordingObserver();
+        }
+
+        @Bean
+        FlakyObserver flakyObserver() {
+            return new FlakyObserver();
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package org.example.graduationproject.observers;
+
+import org.example.graduationproject.events.OrderStatusChangedEvent;
+import org.example.graduationproject.services.notification.NotificationManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Observer không được tự nuốt lỗi: OrderEventBus cần thấy lỗi để OrderOutboxRelay giao lại event
+ */
+class ObserverFailurePropagationTest {
+
+    private NotificationManager notificationManager;
+
+    @BeforeEach
+    void setUp() {
+        notificationManager = mock(NotificationManager.class);
+        doThrow(new IllegalStateException("queue unavailable")).when(notificationManager).enqueueNotification(any());
+    }
+
+    @Test
+    void customerNotificationFailureReachesTheBus() {
+        CustomerNotificationObserver observer = new CustomerNotificationObserver();
+        ReflectionTestUtils.setField(observer, "notificationManager", notificationManager);
+
+        assertThatThrownBy(() -> observer.handleOrderStatusChanged(event("PENDING", "CONFIRMED")))
+                .isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void adminNotificationFailureReachesTheBus() {
+        AdminNotificationObserver observer = new AdminNotificationObserver();
+        ReflectionTestUtils.setField(observer, "notificationManager", notificationManager);
+
+        assertThatThrownBy(() -> observer.handleOrderStatusChanged(event("PENDING", "CANCELLED")))
+                .isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void inventoryNotificationFailureReachesTheBus() {
+        InventoryObserver observer = new InventoryObserver();
+        ReflectionTestUtils.setField(observer, "notificationManager", notificationManager);
+
+        assertThatThrownBy(() -> observer.handleOrderStatusChanged(event("PENDING", "CONFIRMED")))
+                .isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void inventoryObserverAcceptsEventWithoutOldStatus() {
+        InventoryObserver observer = new InventoryObserver();
+        ReflectionTestUtils.setField(observer, "notificationManager", mock(NotificationManager.class));
+
+        assertThatCode(() -> observer.handleOrderStatusChanged(event(null, "DELIVERED"))).doesNotThrowAnyException();
+    }
+
+    private static OrderStatusChangedEvent event(String oldStatus, String newStatus) {
+        return OrderStatusChangedEvent.builder()
+                .orderId(7)
+                .oldStatus(oldStatus)
+                .newStatus(newStatus)
+                .build();
+    }
+}
@@ -0,0 +1,180 @@
+package org.example.graduationproject.repositories;
+
+import org.example.graduationproject.models.ChiTietPhieuNhapHang;
+import org.example.graduationproject.models.MauSac;
+import org.example.graduationproject.models.NhaCungCap;
+import org.example.graduationproject.models.PhieuNhapHang;
+import org.example.graduationproject.models.SanPham;
+import org.example.graduationproject.models.SanPhamBienThe;
+import org.example.graduationproject.models.Size;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@ActiveProfiles("test")
+class ChiTietPhieuNhapHangRepositoryTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private ChiTietPhieuNhapHangRepository repository;
+
+    private PhieuNhapHang phieu;
+    private NhaCungCap nhaCungCap;
+    private SanPham sanPham;
+    private MauSac redColour;
+    private Size size;
+    private SanPhamBienThe red;
+    private SanPhamBienThe blue;
+    private ChiTietPhieuNhapHang first;
+    private ChiTietPhieuNhapHang second;
+
+    @BeforeEach
+    void seed() {
+        sanPham = new SanPham();
+        sanPham.setTen("Áo");
+        sanPham.setNgayCapNhat(LocalDateTime.of(2024, 1, 1, 0, 0));
+        entityManager.persist(sanPham);
+        redColour = colour("Đỏ");
+        size = new Size();
+        size.setTenSize("M");
+        entityManager.persist(size);
+        red = variant(redColour);
+        blue = variant(colour("Xanh"));
+        nhaCungCap = new NhaCungCap();
+        nhaCungCap.setTen("Công ty May A");
+        entityManager.persist(nhaCungCap);
+        phieu = new PhieuNhapHang();
+        phieu.setNgayTao(LocalDateTime.now());
+        phieu.setNhaCungCap(nhaCungCap);
+        entityManager.persist(phieu);
+        first = detail(red);
+        second = detail(blue);
+        entityManager.flush();
+    }
+
+    @Test
+    void swappingVariantsBetweenLinesChangesFingerprint() {
+        List<String> before = fingerprint();
+
+        first.setSanPhamBienThe(blue);
+        second.setSanPhamBienThe(red);
+        flushAndClear();
+
+        // Số dòng, số lượng, tiền không đổi; chỉ cột màu của từng dòng đổi
+        assertThat(fingerprint()).hasSameSizeAs(before).isNotEqualTo(before);
+    }
+
+    @Test
+    void productRenameChangesFingerprint() {
+        List<String> before = fingerprint();
+
+        sanPham.setTen("Áo mới");
+        flushAndClear();
+
+        assertThat(fingerprint()).isNotEqualTo(before);
+    }
+
+    @Test
+    void colourRenameChangesFingerprint() {
+        List<String> before = fingerprint();
+
+        redColour.setMaMau("Đỏ đô");
+        flushAndClear();
+
+        assertThat(fingerprint()).isNotEqualTo(before);
+    }
+
+    @Test
+    void sizeRenameChangesFingerprint() {
+        List<String> before = fingerprint();
+
+        size.setTenSize("L");
+        flushAndClear();
+
+        assertThat(fingerprint()).isNotEqualTo(before);
+    }
+
+    @Test
+    void supplierRenameChangesFingerprint() {
+        List<String> before = fingerprint();
+
+        nhaCungCap.setTen("Công ty May B");
+        flushAndClear();
+
+        assertThat(fingerprint()).isNotEqualTo(before);
+    }
+
+    @Test
+    void unchangedDataKeepsFingerprint() {
+        assertThat(fingerprint()).isEqualTo(fingerprint());
+    }
+
+    @Test
+    void columnsAreOrderedByDetailId() {
+        assertThat(repository.findExportColumns(phieu.getId()))
+                .extracting(row -> row[9])
+                .containsExactly(first.getId(), second.getId());
+    }
+
+    @Test
+    void emptyImportStillReturnsItsHeaderColumns() {
+        PhieuNhapHang empty = new PhieuNhapHang();
+        empty.setSoChungTu("PN-EMPTY");
+        entityManager.persist(empty);
+        entityManager.flush();
+
+        List<Object[]> rows = repository.findExportColumns(empty.getId());
+        assertThat(rows).hasSize(1);
+        assertThat(rows.get(0)[0]).isEqualTo("PN-EMPTY");
+        assertThat(rows.get(0)[9]).isNull();
+    }
+
+    private void flushAndClear() {
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    private List<String> fingerprint() {
+        return repository.findExportColumns(phieu.getId()).stream()
+                .map(Arrays::toString)
+                .collect(Collectors.toList());
+    }
+
+    private MauSac colour(String maMau) {
+        MauSac colour = new MauSac();
+        colour.setMaMau(maMau);
+        return entityManager.persist(colour);
+    }
+
+    private SanPhamBienThe variant(MauSac colour) {
+        SanPhamBienThe variant = new SanPhamBienThe();
+        variant.setSanPham(sanPham);
+        variant.setMauSac(colour);
+        variant.setSize(size);
+        variant.setSoLuongTon(0);
+        return entityManager.persist(variant);
+    }
+
+    private ChiTietPhieuNhapHang detail(SanPhamBienThe variant) {
+        ChiTietPhieuNhapHang detail = new ChiTietPhieuNhapHang();
+        detail.setPhieuNhapHang(phieu);
+        detail.setSanPhamBienThe(variant);
+        detail.setSoLuongNhap(5);
+        detail.setThanhTienNhap(new BigDecimal("500000"));
+        return entityManager.persist(detail);
+    }
+}
@@ -0,0 +1,129 @@
+package org.example.graduationproject.security;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LoginAttemptTrackerTest {
+
+    private static final int MAX_ATTEMPTS = 3;
+    private static final long WINDOW_MS = 400;
+
+    private LoginAttemptTracker tracker;
+
+    @BeforeEach
+    void setUp() {
+        tracker = tracker(100);
+    }
+
+    @Test
+    void locksAfterMaxAttemptsWithinWindow() {
+        tracker.recordFailure("alice");
+        tracker.recordFailure("alice");
+        assertThat(tracker.isLocked("alice")).isFalse();
+        assertThat(tracker.getFailures("alice")).isEqualTo(2);
+
+        tracker.recordFailure("alice");
+
+        assertThat(tracker.isLocked("alice")).isTrue();
+        assertThat(tracker.isLocked("bob")).isFalse();
+        assertThat(stat("lockouts")).isEqualTo(1L);
+    }
+
+    @Test
+    void lockExpiresOnceFailuresSlideOutOfWindow() throws InterruptedException {
+        for (int i = 0; i < MAX_ATTEMPTS; i++) {
+            tracker.recordFailure("alice");
+        }
+        assertThat(tracker.isLocked("alice")).isTrue();
+
+        Thread.sleep(WINDOW_MS + 50);
+
+        assertThat(tracker.isLocked("alice")).isFalse();
+        assertThat(tracker.getFailures("alice")).isZero();
+        // Username không còn lần sai nào thì không còn được theo dõi
+        assertThat(stat("tracked")).isZero();
+    }
+
+    @Test
+    void onlyFailuresInsideWindowCount() throws InterruptedException {
+        tracker.recordFailure("alice");
+        tracker.recordFailure("alice");
+        Thread.sleep(WINDOW_MS / 2 + 50);
+        tracker.recordFailure("alice");
+        assertThat(tracker.isLocked("alice")).isTrue();
+
+        // Hai lần sai đầu đã trượt ra, lần thứ ba còn trong cửa sổ
+        Thread.sleep(WINDOW_MS / 2 + 50);
+
+        assertThat(tracker.getFailures("alice")).isEqualTo(1);
+        assertThat(tracker.isLocked("alice")).isFalse();
+    }
+
+    @Test
+    void windowKeepsAtMostMaxAttemptsTimestamps() {
+        for (int i = 0; i < 20; i++) {
+            tracker.recordFailure("alice");
+        }
+
+        assertThat(tracker.getFailures("alice")).isEqualTo(MAX_ATTEMPTS);
+        assertThat(stat("failures")).isEqualTo(20L);
+    }
+
+    @Test
+    void resetUnlocksImmediately() {
+        for (int i = 0; i < MAX_ATTEMPTS; i++) {
+            tracker.recordFailure("alice");
+        }
+
+        tracker.reset("alice");
+
+        assertThat(tracker.isLocked("alice")).isFalse();
+        assertThat(tracker.getFailures("alice")).isZero();
+    }
+
+    @Test
+    void leastRecentlyUsedUsernameIsEvictedWhenFull() {
+        LoginAttemptTracker small = tracker(2);
+        small.recordFailure("alice");
+        small.recordFailure("bob");
+        // Truy cập lại alice: bob thành ít dùng nhất
+        small.getFailures("alice");
+
+        small.recordFailure("mallory");
+
+        assertThat(small.getFailures("alice")).isEqualTo(1);
+        assertThat(small.getFailures("bob")).isZero();
+        assertThat(small.getFailures("mallory")).isEqualTo(1);
+        assertThat(((Number) small.stats().get("evictions")).longValue()).isEqualTo(1L);
+    }
+
+    @Test
+    void nullUsernameIsIgnored() {
+        tracker.recordFailure(null);
+
+        assertThat(stat("tracked")).isZero();
+        assertThat(stat("failures")).isZero();
+    }
+
+    @Test
+    void windowMinutesIsAtLeastOne() {
+        assertThat(tracker.getWindowMinutes()).isEqualTo(1);
+        ReflectionTestUtils.setField(tracker, "windowMs", 900_000L);
+        assertThat(tracker.getWindowMinutes()).isEqualTo(15);
+    }
+
+    private long stat(String name) {
+        return ((Number) tracker.stats().get(name)).longValue();
+    }
+
+    private static LoginAttemptTracker tracker(int maxEntries) {
+        LoginAttemptTracker tracker = new LoginAttemptTracker();
+        ReflectionTestUtils.setField(tracker, "maxAttempts", MAX_ATTEMPTS);
+        ReflectionTestUtils.setField(tracker, "windowMs", WINDOW_MS);
+        ReflectionTestUtils.setField(tracker, "maxEntries", maxEntries);
+        return tracker;
+    }
+}
@@ -0,0 +1,69 @@
+package org.example.graduationproject.security.jwt;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TokenRevocationRegistryTest {
+
+    private static final long EXPIRATION_SECONDS = 60;
+
+    private TokenRevocationRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        registry = new TokenRevocationRegistry();
+        ReflectionTestUtils.setField(registry, "expirationSeconds", EXPIRATION_SECONDS);
+    }
+
+    @Test
+    void tokensIssuedBeforeRevocationAreRejected() {
+        int issued = registry.currentVersion("alice");
+
+        registry.revokeAll("alice");
+
+        assertThat(registry.isCurrent("alice", issued)).isFalse();
+        assertThat(registry.isCurrent("alice", registry.currentVersion("alice"))).isTrue();
+    }
+
+    @Test
+    void revocationOnlyAffectsThatUser() {
+        int issued = registry.currentVersion("bob");
+
+        registry.revokeAll("alice");
+
+        assertThat(registry.isCurrent("bob", issued)).isTrue();
+        assertThat(registry.size()).isEqualTo(1);
+    }
+
+    @Test
+    void pruneKeepsEntriesWhoseTokensMayStillBeValid() {
+        registry.revokeAll("alice");
+
+        assertThat(registry.pruneExpired(System.currentTimeMillis() + EXPIRATION_SECONDS * 1000 - 1_000)).isZero();
+        assertThat(registry.size()).isEqualTo(1);
+    }
+
+    @Test
+    void pruneDropsEntriesOnceEveryOlderTokenHasExpired() {
+        registry.revokeAll("alice");
+        registry.revokeAll("bob");
+
+        assertThat(registry.pruneExpired(System.currentTimeMillis() + EXPIRATION_SECONDS * 1000 + 1_000)).isEqualTo(2);
+        assertThat(registry.size()).isZero();
+    }
+
+    @Test
+    void revocationAfterPruneStillRejectsTokensIssuedBeforeIt() {
+        registry.revokeAll("alice");
+        int issuedAfterFirstRevocation = registry.currentVersion("alice");
+        registry.pruneExpired(System.currentTimeMillis() + EXPIRATION_SECONDS * 1000 + 1_000);
+        assertThat(registry.isCurrent("alice", issuedAfterFirstRevocation)).isTrue();
+
+        registry.revokeAll("alice");
+
+        assertThat(registry.isCurrent("alice", issuedAfterFirstRevocation)).isFalse();
+    }
+}
@@ -0,0 +1,111 @@
+package org.example.graduationproject.security.jwt.authentication;
+
+import org.example.graduationproject.security.jwt.JwtTokenProvider;
+import org.example.graduationproject.security.jwt.TokenProvider;
+import org.example.graduationproject.security.jwt.TokenRevocationRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetailsService;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class JwtAuthenticationProviderTest {
+
+    private static final String SECRET = "test-secret";
+    private static final String ISSUER = "test";
+
+    private TokenProvider tokenProvider;
+    private UserDetailsService userDetailsService;
+    private TokenRevocationRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        tokenProvider = new JwtTokenProvider(SECRET, ISSUER, 3600);
+        userDetailsService = mock(UserDetailsService.class);
+        when(userDetailsService.loadUserByUsername(anyString())).thenAnswer(invocation ->
+                User.withUsername(invocation.getArgument(0)).password("x").authorities("ROLE_ADMIN").build());
+        registry = new TokenRevocationRegistry();
+    }
+
+    @Test
+    void statelessModeBuildsAuthenticationFromClaimsWithoutLookup() {
+        Authentication result = provider(true).authenticate(new JwtAuthenticationToken(loginToken("alice")));
+
+        assertThat(result.isAuthenticated()).isTrue();
+        assertThat(result.getPrincipal()).isEqualTo("alice");
+        assertThat(result.getAuthorities()).extracting(GrantedAuthority::getAuthority)
+                .containsExactlyInAnyOrder("ROLE_USER", "ROLE_STAFF");
+        verify(userDetailsService, never()).loadUserByUsername(anyString());
+    }
+
+    @Test
+    void revokedTokenIsRejected() {
+        String token = loginToken("alice");
+
+        registry.revokeAll("alice");
+
+        assertThat(provider(true).authenticate(new JwtAuthenticationToken(token))).isNull();
+        assertThat(provider(true).authenticate(new JwtAuthenticationToken(loginToken("alice")))).isNotNull();
+    }
+
+    @Test
+    void revokingOneUserKeepsOtherUsersTokens() {
+        String token = loginToken("bob");
+
+        registry.revokeAll("alice");
+
+        assertThat(provider(true).authenticate(new JwtAuthenticationToken(token))).isNotNull();
+    }
+
+    @Test
+    void tokenWithoutVersionFallsBackToLookup() {
+        String legacy = tokenProvider.generateToken(Map.of("username", "alice", "roles", "ROLE_USER"));
+
+        Authentication result = provider(true).authenticate(new JwtAuthenticationToken(legacy));
+
+        assertThat(result.getAuthorities()).extracting(GrantedAuthority::getAuthority).containsExactly("ROLE_ADMIN");
+        verify(userDetailsService).loadUserByUsername("alice");
+    }
+
+    @Test
+    void lookupModeIgnoresRoleClaims() {
+        Authentication result = provider(false).authenticate(new JwtAuthenticationToken(loginToken("alice")));
+
+        assertThat(result.getAuthorities()).extracting(GrantedAuthority::getAuthority).containsExactly("ROLE_ADMIN");
+        verify(userDetailsService).loadUserByUsername("alice");
+    }
+
+    @Test
+    void expiredOrForeignTokensAreRejected() {
+        String expired = new JwtTokenProvider(SECRET, ISSUER, -60).generateToken(claims("alice"));
+        String foreign = new JwtTokenProvider("other-secret", ISSUER, 3600).generateToken(claims("alice"));
+
+        assertThat(provider(true).authenticate(new JwtAuthenticationToken(expired))).isNull();
+        assertThat(provider(true).authenticate(new JwtAuthenticationToken(foreign))).isNull();
+        verify(userDetailsService, never()).loadUserByUsername(anyString());
+    }
+
+    private JwtAuthenticationProvider provider(boolean stateless) {
+        return new JwtAuthenticationProvider(tokenProvider, userDetailsService, registry, stateless);
+    }
+
+    // Cùng các claim mà AuthController.login đưa vào token
+    private String loginToken(String username) {
+        return tokenProvider.generateToken(claims(username));
+    }
+
+    private Map<String, Object> claims(String username) {
+        return Map.of("username", username, "roles", "ROLE_USER, ROLE_STAFF",
+                TokenRevocationRegistry.VERSION_CLAIM, registry.currentVersion(username));
+    }
+}
@@ -0,0 +1,108 @@
+package org.example.graduationproject.security.jwt.authentication;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.graduationproject.config.HibernateConfig;
+import org.example.graduationproject.models.Role;
+import org.example.graduationproject.models.User;
+import org.example.graduationproject.models.UserRole;
+import org.example.graduationproject.security.JpaUserDetailsService;
+import org.example.graduationproject.security.jwt.JwtTokenProvider;
+import org.example.graduationproject.security.jwt.TokenProvider;
+import org.example.graduationproject.security.jwt.TokenRevocationRegistry;
+import org.example.graduationproject.utils.SqlStatementCounter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * So sánh thông lượng xác thực JWT: dựng quyền từ claim (stateless) và tra UserDetailsService trên H2 (lookup).
+ * Mỗi lần xác thực chạy trên persistence context trống như một request mới.
+ * Kết quả được ghi log; test chỉ khẳng định số câu lệnh SQL và thứ tự nhanh / chậm của hai chế độ.
+ */
+@DataJpaTest
+@ActiveProfiles("test")
+@Import({HibernateConfig.class, JpaUserDetailsService.class})
+@Slf4j
+class JwtAuthenticationThroughputTest {
+
+    private static final int WARMUP = 200;
+    private static final int ITERATIONS = 1_000;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private JpaUserDetailsService userDetailsService;
+
+    private final TokenRevocationRegistry registry = new TokenRevocationRegistry();
+    private final TokenProvider tokenProvider = new JwtTokenProvider("bench-secret", "bench", 3600);
+    private String token;
+
+    @BeforeEach
+    void seed() {
+        Role role = new Role();
+        role.setName("ROLE_USER");
+        entityManager.persist(role);
+        User user = new User();
+        user.setUsername("alice");
+        user.setEmail("alice@example.com");
+        entityManager.persist(user);
+        UserRole userRole = new UserRole();
+        userRole.setUser(user);
+        userRole.setRole(role);
+        entityManager.persist(userRole);
+        entityManager.flush();
+        entityManager.clear();
+
+        token = tokenProvider.generateToken(Map.of("username", "alice", "roles", "ROLE_USER",
+                TokenRevocationRegistry.VERSION_CLAIM, registry.currentVersion("alice")));
+    }
+
+    @AfterEach
+    void clearCounter() {
+        SqlStatementCounter.stop();
+    }
+
+    @Test
+    void statelessModeSkipsTheUserQueryAndOutrunsLookup() {
+        JwtAuthenticationProvider stateless = new JwtAuthenticationProvider(tokenProvider, userDetailsService, registry, true);
+        JwtAuthenticationProvider lookup = new JwtAuthenticationProvider(tokenProvider, userDetailsService, registry, false);
+        run(stateless, WARMUP);
+        run(lookup, WARMUP);
+
+        SqlStatementCounter.start();
+        long statelessNanos = run(stateless, ITERATIONS);
+        int statelessStatements = SqlStatementCounter.stop();
+        SqlStatementCounter.start();
+        long lookupNanos = run(lookup, ITERATIONS);
+        int lookupStatements = SqlStatementCounter.stop();
+
+        log.info("JwtAuthenticationThroughputTest: stateless {} ops/s, lookup {} ops/s ({} authentications each)",
+                opsPerSecond(statelessNanos), opsPerSecond(lookupNanos), ITERATIONS);
+        assertThat(statelessStatements).isZero();
+        assertThat(lookupStatements).isGreaterThanOrEqualTo(ITERATIONS);
+        assertThat(statelessNanos).isLessThan(lookupNanos);
+    }
+
+    private long run(JwtAuthenticationProvider provider, int iterations) {
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            entityManager.clear();
+            assertThat(provider.authenticate(new JwtAuthenticationToken(token))).isNotNull();
+        }
+        return System.nanoTime() - start;
+    }
+
+    private static long opsPerSecond(long nanos) {
+        return ITERATIONS * 1_000_000_000L / Math.max(nanos, 1);
+    }
+}
@@ -0,0 +1,163 @@
+package org.example.graduationproject.services;
+
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.example.graduationproject.models.ChiTietPhieuNhapHang;
+import org.example.graduationproject.models.MauSac;
+import org.example.graduationproject.models.PhieuNhapHang;
+import org.example.graduationproject.models.SanPham;
+import org.example.graduationproject.models.SanPhamBienThe;
+import org.example.graduationproject.models.Size;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Export stream đọc chi tiết theo từng khúc export.excel.fetch-size dòng; khúc nhỏ để mọi trường hợp
+ * đều đi qua ranh giới giữa các khúc
+ */
+@DataJpaTest
+@ActiveProfiles("test")
+@Import(ExcelExportService.class)
+@TestPropertySource(properties = {
+        "export.excel.fetch-size=10",
+        "export.excel.row-window=5"
+})
+class ExcelExportServiceTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private ExcelExportService excelExportService;
+
+    private SanPhamBienThe variant;
+
+    @BeforeEach
+    void seed() {
+        SanPham sanPham = new SanPham();
+        sanPham.setTen("Áo thun");
+        entityManager.persist(sanPham);
+        MauSac mauSac = new MauSac();
+        mauSac.setMaMau("Đỏ");
+        entityManager.persist(mauSac);
+        Size size = new Size();
+        size.setTenSize("M");
+        entityManager.persist(size);
+        variant = new SanPhamBienThe();
+        variant.setSanPham(sanPham);
+        variant.setMauSac(mauSac);
+        variant.setSize(size);
+        variant.setSoLuongTon(0);
+        entityManager.persist(variant);
+    }
+
+    @Test
+    void streamsEveryDetailAcrossChunksInIdOrder() throws IOException {
+        PhieuNhapHang phieu = importWithLines(25);
+        // Chi tiết của phiếu khác không được lẫn vào
+        importWithLines(3);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long written = excelExportService.writeImportDetailStreaming(phieu, out);
+
+        assertThat(written).isEqualTo(25);
+        List<Row> rows = detailRows(out.toByteArray());
+        assertThat(rows).hasSize(25);
+        for (int i = 0; i < rows.size(); i++) {
+            Row row = rows.get(i);
+            assertThat(row.getCell(0).getNumericCellValue()).isEqualTo(i + 1);
+            assertThat(row.getCell(1).getStringCellValue()).isEqualTo("Áo thun");
+            assertThat(row.getCell(2).getStringCellValue()).isEqualTo("Đỏ - M");
+            // Số lượng đặt theo thứ tự id dòng nên kiểm tra luôn thứ tự đọc
+            assertThat(row.getCell(3).getNumericCellValue()).isEqualTo(i + 1);
+        }
+    }
+
+    @Test
+    void exactMultipleOfFetchSizeEndsAfterLastChunk() throws IOException {
+        PhieuNhapHang phieu = importWithLines(20);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long written = excelExportService.writeImportDetailStreaming(phieu, out);
+
+        assertThat(written).isEqualTo(20);
+        assertThat(detailRows(out.toByteArray())).hasSize(20);
+    }
+
+    @Test
+    void emptyImportStillWritesHeaderAndSummary() throws IOException {
+        PhieuNhapHang phieu = importWithLines(0);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long written = excelExportService.writeImportDetailStreaming(phieu, out);
+
+        assertThat(written).isZero();
+        try (XSSFWorkbook workbook = new XSSFWorkbook(new ByteArrayInputStream(out.toByteArray()))) {
+            Sheet sheet = workbook.getSheetAt(0);
+            assertThat(sheet.getRow(0).getCell(0).getStringCellValue()).isEqualTo("CHI TIẾT PHIẾU NHẬP HÀNG");
+            // Độ rộng cột cố định thay cho autoSizeColumn
+            assertThat(sheet.getColumnWidth(1)).isEqualTo(45 * 256);
+            assertThat(detailRows(out.toByteArray())).isEmpty();
+        }
+    }
+
+    private PhieuNhapHang importWithLines(int lines) {
+        PhieuNhapHang phieu = new PhieuNhapHang();
+        phieu.setSoChungTu("PN-" + lines);
+        phieu.setNgayTao(LocalDateTime.of(2024, 1, 1, 9, 0));
+        phieu.setTongTien(BigDecimal.valueOf(lines * 100_000L));
+        entityManager.persist(phieu);
+        for (int i = 1; i <= lines; i++) {
+            ChiTietPhieuNhapHang detail = new ChiTietPhieuNhapHang();
+            detail.setPhieuNhapHang(phieu);
+            detail.setSanPhamBienThe(variant);
+            detail.setSoLuongNhap(i);
+            detail.setThanhTienNhap(BigDecimal.valueOf(100_000));
+            entityManager.persist(detail);
+        }
+        entityManager.flush();
+        entityManager.clear();
+        return phieu;
+    }
+
+    // Các dòng sau dòng tiêu đề bảng "STT" có cột đầu là số thứ tự
+    private static List<Row> detailRows(byte[] xlsx) throws IOException {
+        List<Row> rows = new ArrayList<>();
+        try (XSSFWorkbook workbook = new XSSFWorkbook(new ByteArrayInputStream(xlsx))) {
+            Sheet sheet = workbook.getSheetAt(0);
+            boolean inTable = false;
+            for (Row row : sheet) {
+                if (row.getCell(0) == null) {
+                    continue;
+                }
+                if (!inTable) {
+                    inTable = row.getCell(0).getCellType() == CellType.STRING
+                            && "STT".equals(row.getCell(0).getStringCellValue());
+                } else if (row.getCell(0).getCellType() == CellType.NUMERIC) {
+                    rows.add(row);
+                } else {
+                    break;
+                }
+            }
+        }
+        return rows;
+    }
+}
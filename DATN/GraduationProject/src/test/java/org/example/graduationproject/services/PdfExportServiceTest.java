@@ -0,0 +1,154 @@
+package org.example.graduationproject.services;
+
+import com.itextpdf.kernel.pdf.PdfDictionary;
+import com.itextpdf.kernel.pdf.PdfDocument;
+import com.itextpdf.kernel.pdf.PdfName;
+import com.itextpdf.kernel.pdf.PdfReader;
+import com.itextpdf.kernel.pdf.canvas.parser.PdfTextExtractor;
+import org.example.graduationproject.models.ChiTietHoaDon;
+import org.example.graduationproject.models.HoaDon;
+import org.example.graduationproject.services.pdf.PdfFontRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PdfExportServiceTest {
+
+    private PdfExportService service;
+
+    @BeforeEach
+    void setUp() {
+        // Không cấu hình font: registry quay về Times, test không phụ thuộc font của máy
+        PdfFontRegistry fontRegistry = new PdfFontRegistry();
+        ReflectionTestUtils.setField(fontRegistry, "regularCandidates", "");
+        ReflectionTestUtils.setField(fontRegistry, "boldCandidates", "");
+        fontRegistry.init();
+
+        service = new PdfExportService();
+        ReflectionTestUtils.setField(service, "pdfFontRegistry", fontRegistry);
+        ReflectionTestUtils.setField(service, "headerTitle", "SHOP");
+        ReflectionTestUtils.setField(service, "batchFetchSize", 2);
+    }
+
+    @Test
+    void exportOrderDetailProducesPdf() throws IOException {
+        HoaDon order = order(1, 3);
+
+        byte[] pdf = service.exportOrderDetailToPdf(order, order.getChiTietHoaDons());
+
+        assertThat(new String(pdf, 0, 5, StandardCharsets.US_ASCII)).isEqualTo("%PDF-");
+        assertThat(pageCount(pdf)).isEqualTo(1);
+    }
+
+    @Test
+    void longOrderSpillsOntoSeveralPages() throws IOException {
+        HoaDon order = order(1, 200);
+
+        byte[] pdf = service.exportOrderDetailToPdf(order, order.getChiTietHoaDons());
+
+        assertThat(pageCount(pdf)).isGreaterThan(1);
+    }
+
+    @Test
+    void batchLoadsInChunksAndStartsEachOrderOnNewPage() throws IOException {
+        Map<Integer, HoaDon> orders = new LinkedHashMap<>();
+        for (int id = 1; id <= 5; id++) {
+            orders.put(id, order(id, 2));
+        }
+        List<List<Integer>> requestedChunks = new ArrayList<>();
+        Function<List<Integer>, List<HoaDon>> loader = ids -> {
+            requestedChunks.add(new ArrayList<>(ids));
+            return ids.stream().map(orders::get).filter(Objects::nonNull).collect(Collectors.toList());
+        };
+        List<Integer> ids = List.of(1, 2, 99, 3, 4, 5);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        int rendered = service.writeOrderBatchPdf(ids, loader, out);
+
+        // Id 99 không tồn tại nên bị bỏ qua
+        assertThat(rendered).isEqualTo(5);
+        assertThat(requestedChunks).containsExactly(List.of(1, 2), List.of(99, 3), List.of(4, 5));
+        assertThat(pageCount(out.toByteArray())).isEqualTo(5);
+    }
+
+    @Test
+    void emptyBatchStillProducesValidPdf() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        int rendered = service.writeOrderBatchPdf(List.of(7), ids -> List.of(), out);
+
+        assertThat(rendered).isZero();
+        assertThat(pageCount(out.toByteArray())).isEqualTo(1);
+    }
+
+    @Test
+    void bundledFontIsEmbeddedAsUnicodeAndKeepsVietnameseText() throws IOException {
+        // Cùng font mặc định của pdf.font.regular / pdf.font.bold, đóng gói trong resources/fonts
+        PdfFontRegistry fontRegistry = new PdfFontRegistry();
+        ReflectionTestUtils.setField(fontRegistry, "regularCandidates", "classpath:fonts/DejaVuSans.ttf");
+        ReflectionTestUtils.setField(fontRegistry, "boldCandidates", "classpath:fonts/DejaVuSans-Bold.ttf");
+        fontRegistry.init();
+        ReflectionTestUtils.setField(service, "pdfFontRegistry", fontRegistry);
+        HoaDon order = order(1, 3);
+        order.setTrangThai("Đã giao hàng");
+
+        byte[] pdf = service.exportOrderDetailToPdf(order, order.getChiTietHoaDons());
+
+        assertThat(fontRegistry.isUnicode()).isTrue();
+        try (PdfDocument document = new PdfDocument(new PdfReader(new ByteArrayInputStream(pdf)))) {
+            PdfDictionary fonts = document.getPage(1).getResources().getResource(PdfName.Font);
+            assertThat(fonts.keySet()).isNotEmpty();
+            for (PdfName name : fonts.keySet()) {
+                PdfDictionary font = fonts.getAsDictionary(name);
+                assertThat(font.getAsName(PdfName.Subtype)).isEqualTo(PdfName.Type0);
+                assertThat(font.getAsName(PdfName.Encoding)).isEqualTo(PdfName.IdentityH);
+                // Subset nhúng có tiền tố dạng "ABCDEF+"
+                assertThat(font.getAsName(PdfName.BaseFont).getValue()).matches("[A-Z]{6}\\+DejaVuSans.*");
+                assertThat(font.get(PdfName.ToUnicode)).isNotNull();
+            }
+            assertThat(PdfTextExtractor.getTextFromPage(document.getPage(1))).contains("Đã giao hàng");
+        }
+    }
+
+    private static int pageCount(byte[] pdf) throws IOException {
+        try (PdfDocument document = new PdfDocument(new PdfReader(new ByteArrayInputStream(pdf)))) {
+            return document.getNumberOfPages();
+        }
+    }
+
+    private static HoaDon order(int id, int lines) {
+        HoaDon hoaDon = new HoaDon();
+        hoaDon.setId(id);
+        hoaDon.setNgayTao(LocalDateTime.of(2024, 1, 1, 10, 0));
+        hoaDon.setTrangThai("Da giao hang");
+        List<ChiTietHoaDon> details = new ArrayList<>();
+        BigDecimal total = BigDecimal.ZERO;
+        for (int i = 1; i <= lines; i++) {
+            ChiTietHoaDon detail = new ChiTietHoaDon();
+            detail.setId(i);
+            detail.setSoLuong(1);
+            detail.setThanhTien(BigDecimal.valueOf(100_000));
+            details.add(detail);
+            total = total.add(detail.getThanhTien());
+        }
+        hoaDon.setChiTietHoaDons(details);
+        hoaDon.setTongTien(total);
+        return hoaDon;
+    }
+}
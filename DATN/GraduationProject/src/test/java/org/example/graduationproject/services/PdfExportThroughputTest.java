@@ -0,0 +1,123 @@
+package org.example.graduationproject.services;
+
+import com.itextpdf.kernel.pdf.PdfDocument;
+import com.itextpdf.kernel.pdf.PdfReader;
+import lombok.extern.slf4j.Slf4j;
+import org.example.graduationproject.models.ChiTietHoaDon;
+import org.example.graduationproject.models.HoaDon;
+import org.example.graduationproject.services.pdf.PdfFontRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Đo thông lượng render PDF (tài liệu/giây) với font Unicode đóng gói sẵn, trên hóa đơn giả lập:
+ * single = mỗi hóa đơn một file, batch = tất cả hóa đơn trong một file (dùng chung font và template).
+ * Kết quả được ghi log; test chỉ khẳng định số trang và batch nhỏ hơn tổng các file lẻ.
+ */
+@Slf4j
+class PdfExportThroughputTest {
+
+    private static final int DOCUMENTS = 100;
+    private static final int LINES_PER_DOCUMENT = 10;
+
+    private PdfExportService service;
+
+    @BeforeEach
+    void setUp() {
+        PdfFontRegistry fontRegistry = new PdfFontRegistry();
+        ReflectionTestUtils.setField(fontRegistry, "regularCandidates", "classpath:fonts/DejaVuSans.ttf");
+        ReflectionTestUtils.setField(fontRegistry, "boldCandidates", "classpath:fonts/DejaVuSans-Bold.ttf");
+        fontRegistry.init();
+
+        service = new PdfExportService();
+        ReflectionTestUtils.setField(service, "pdfFontRegistry", fontRegistry);
+        ReflectionTestUtils.setField(service, "headerTitle", "SHOP");
+        ReflectionTestUtils.setField(service, "batchFetchSize", 50);
+    }
+
+    @Test
+    void batchRenderingSharesFontsAndTemplateAcrossInvoices() throws IOException {
+        Map<Integer, HoaDon> orders = sampleOrders();
+        // Chạy nóng để JIT / nạp class không tính vào kết quả
+        HoaDon first = orders.get(1);
+        int pagesPerInvoice = pageCount(service.exportOrderDetailToPdf(first, first.getChiTietHoaDons()));
+        for (int i = 0; i < 20; i++) {
+            service.writeOrderDetailPdf(first, first.getChiTietHoaDons(), OutputStream.nullOutputStream());
+        }
+
+        long singleBytes = 0;
+        long start = System.nanoTime();
+        for (HoaDon order : orders.values()) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            service.writeOrderDetailPdf(order, order.getChiTietHoaDons(), out);
+            singleBytes += out.size();
+        }
+        long singleNanos = System.nanoTime() - start;
+
+        ByteArrayOutputStream batchOut = new ByteArrayOutputStream();
+        start = System.nanoTime();
+        int rendered = service.writeOrderBatchPdf(new ArrayList<>(orders.keySet()),
+                ids -> ids.stream().map(orders::get).collect(Collectors.toList()), batchOut);
+        long batchNanos = System.nanoTime() - start;
+
+        log.info("PdfExportThroughputTest: single {} docs/s ({} bytes), batch {} docs/s ({} bytes), {} invoices of {} lines",
+                docsPerSecond(singleNanos), singleBytes, docsPerSecond(batchNanos), batchOut.size(),
+                DOCUMENTS, LINES_PER_DOCUMENT);
+        assertThat(rendered).isEqualTo(DOCUMENTS);
+        // Mỗi hóa đơn bắt đầu trang mới nên batch có đúng số trang của các file lẻ cộng lại
+        assertThat(pageCount(batchOut.toByteArray())).isEqualTo(DOCUMENTS * pagesPerInvoice);
+        // Font và template chỉ nhúng một lần cho cả batch
+        assertThat((long) batchOut.size()).isLessThan(singleBytes);
+    }
+
+    private static Map<Integer, HoaDon> sampleOrders() {
+        Map<Integer, HoaDon> orders = new LinkedHashMap<>();
+        LocalDateTime now = LocalDateTime.now();
+        for (int id = 1; id <= DOCUMENTS; id++) {
+            HoaDon hoaDon = new HoaDon();
+            hoaDon.setId(id);
+            hoaDon.setNgayTao(now);
+            hoaDon.setTrangThai("Đã giao hàng");
+            hoaDon.setGhiChu("Đơn hàng mẫu số " + id);
+            List<ChiTietHoaDon> details = new ArrayList<>(LINES_PER_DOCUMENT);
+            BigDecimal total = BigDecimal.ZERO;
+            for (int line = 1; line <= LINES_PER_DOCUMENT; line++) {
+                ChiTietHoaDon detail = new ChiTietHoaDon();
+                detail.setId(line);
+                detail.setSoLuong(line % 5 + 1);
+                detail.setThanhTien(BigDecimal.valueOf(150_000L * detail.getSoLuong()));
+                details.add(detail);
+                total = total.add(detail.getThanhTien());
+            }
+            hoaDon.setChiTietHoaDons(details);
+            hoaDon.setTongTien(total);
+            orders.put(id, hoaDon);
+        }
+        return orders;
+    }
+
+    private static int pageCount(byte[] pdf) throws IOException {
+        try (PdfDocument document = new PdfDocument(new PdfReader(new ByteArrayInputStream(pdf)))) {
+            return document.getNumberOfPages();
+        }
+    }
+
+    private static long docsPerSecond(long nanos) {
+        return DOCUMENTS * 1_000_000_000L / Math.max(nanos, 1);
+    }
+}
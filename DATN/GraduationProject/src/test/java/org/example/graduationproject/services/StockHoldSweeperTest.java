@@ -0,0 +1,53 @@
+package org.example.graduationproject.services;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class StockHoldSweeperTest {
+
+    private StockReservationService stockReservationService;
+    private StockHoldSweeper sweeper;
+
+    @BeforeEach
+    void setUp() {
+        stockReservationService = mock(StockReservationService.class);
+        sweeper = new StockHoldSweeper();
+        ReflectionTestUtils.setField(sweeper, "stockReservationService", stockReservationService);
+        ReflectionTestUtils.setField(sweeper, "batchSize", 100);
+        ReflectionTestUtils.setField(sweeper, "maxBatches", 3);
+    }
+
+    @Test
+    void stopsAfterFirstPartialBatch() {
+        when(stockReservationService.expireHoldsBatch(100)).thenReturn(100, 40);
+
+        sweeper.sweepExpiredHolds();
+
+        verify(stockReservationService, times(2)).expireHoldsBatch(100);
+    }
+
+    @Test
+    void runsAtMostMaxBatchesPerSweep() {
+        when(stockReservationService.expireHoldsBatch(100)).thenReturn(100);
+
+        sweeper.sweepExpiredHolds();
+
+        verify(stockReservationService, times(3)).expireHoldsBatch(100);
+    }
+
+    @Test
+    void failedBatchEndsSweepWithoutThrowing() {
+        when(stockReservationService.expireHoldsBatch(100)).thenReturn(100)
+                .thenThrow(new IllegalStateException("deadlock"));
+
+        sweeper.sweepExpiredHolds();
+
+        verify(stockReservationService, times(2)).expireHoldsBatch(100);
+    }
+}
@@ -0,0 +1,136 @@
+package org.example.graduationproject.services.adapters;
+
+import org.example.graduationproject.dto.ImageOperationResult;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class LocalFileSystemAdapterTest {
+
+    private static final String BASE_URL = "/api/images/files";
+
+    @TempDir
+    Path storage;
+
+    private ExecutorService executor;
+    private LocalFileSystemAdapter adapter;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        executor = Executors.newFixedThreadPool(4);
+        adapter = newAdapter(0, 0);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void uploadStoresFileUnderFolderAndReturnsUrl() throws IOException {
+        String url = adapter.uploadImage(image("ao thun.JPG", "abc"), "products");
+
+        assertThat(url).startsWith(BASE_URL + "/products/ao_thun_").endsWith(".jpg");
+        Path stored = adapter.resolve(url.substring(BASE_URL.length() + 1));
+        assertThat(Files.readString(stored)).isEqualTo("abc");
+    }
+
+    @Test
+    void folderCannotEscapeStorageRoot() {
+        String url = adapter.uploadImage(image("a.png", "x"), "../../etc");
+
+        Path stored = adapter.resolve(url.substring(BASE_URL.length() + 1));
+        assertThat(stored).startsWith(storage);
+    }
+
+    @Test
+    void resolveRejectsTraversal() {
+        assertThatThrownBy(() -> adapter.resolve("../secret.txt"))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> adapter.resolve("products/../../secret.txt"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void deleteRemovesOwnFilesOnly() {
+        String url = adapter.uploadImage(image("a.png", "x"), "products");
+
+        assertThat(adapter.deleteImage("https://res.cloudinary.com/demo/image/upload/a.png")).isFalse();
+        assertThat(adapter.deleteImage(url)).isTrue();
+        assertThat(adapter.deleteImage(url)).isFalse();
+    }
+
+    @Test
+    void uploadImagesKeepsOrderAndReportsEachFile() {
+        List<MultipartFile> files = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            files.add(image("img" + i + ".png", "content-" + i));
+        }
+
+        List<ImageOperationResult> results = adapter.uploadImages(files, "batch");
+
+        assertThat(results).hasSize(8);
+        for (int i = 0; i < 8; i++) {
+            assertThat(results.get(i).isSuccess()).isTrue();
+            assertThat(results.get(i).getSource()).isEqualTo("img" + i + ".png");
+            assertThat(results.get(i).getUrl()).contains("/batch/img" + i + "_");
+        }
+    }
+
+    @Test
+    void transientFailuresAreRetriedUntilAttemptsRunOut() throws IOException {
+        LocalFileSystemAdapter failing = newAdapter(0, 1.0);
+
+        List<ImageOperationResult> results = failing.uploadImages(List.of(image("a.png", "x")), "products");
+
+        assertThat(results.get(0).isSuccess()).isFalse();
+        assertThat(results.get(0).getAttempts()).isEqualTo(3);
+        assertThat(results.get(0).getError()).contains("Simulated transient failure");
+    }
+
+    @Test
+    void uploadMultipleImagesRollsBackWhenAnyFileFails() throws IOException {
+        LocalFileSystemAdapter failing = newAdapter(0, 1.0);
+
+        assertThatThrownBy(() -> failing.uploadMultipleImages(List.of(image("a.png", "x")), "products"))
+                .isInstanceOf(RuntimeException.class)
+                .hasMessageContaining("1/1");
+        try (var stored = Files.walk(storage)) {
+            assertThat(stored.filter(Files::isRegularFile)).isEmpty();
+        }
+    }
+
+    private LocalFileSystemAdapter newAdapter(long latencyMs, double failureRate) throws IOException {
+        LocalFileSystemAdapter created = new LocalFileSystemAdapter();
+        ReflectionTestUtils.setField(created, "storageDir", storage.toString());
+        ReflectionTestUtils.setField(created, "baseUrl", BASE_URL);
+        ReflectionTestUtils.setField(created, "simulatedLatencyMs", latencyMs);
+        ReflectionTestUtils.setField(created, "failureRate", failureRate);
+        ReflectionTestUtils.setField(created, "imageTaskExecutor", executor);
+        ReflectionTestUtils.setField(created, "maxAttempts", 3);
+        ReflectionTestUtils.setField(created, "retryBaseMs", 1L);
+        ReflectionTestUtils.setField(created, "retryMaxMs", 5L);
+        ReflectionTestUtils.setField(created, "batchTimeoutMs", 10_000L);
+        created.init();
+        return created;
+    }
+
+    private static MockMultipartFile image(String name, String content) {
+        return new MockMultipartFile("file", name, "image/png", content.getBytes());
+    }
+}
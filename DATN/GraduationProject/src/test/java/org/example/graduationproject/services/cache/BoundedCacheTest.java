@@ -0,0 +1,198 @@
+package org.example.graduationproject.services.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BoundedCacheTest {
+
+    private static final long LONG_TTL = 60_000;
+
+    private final AtomicInteger loads = new AtomicInteger();
+    private final Function<String, String> loader = key -> key + "#" + loads.incrementAndGet();
+
+    @Test
+    void loadsOnceThenServesFromCache() {
+        BoundedCache<String, String> cache = new BoundedCache<>("test", 10, LONG_TTL);
+
+        assertThat(cache.get("a", loader)).isEqualTo("a#1");
+        assertThat(cache.get("a", loader)).isEqualTo("a#1");
+
+        assertThat(loads).hasValue(1);
+        assertThat(cache.stats()).containsEntry("hits", 1L).containsEntry("misses", 1L).containsEntry("size", 1);
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedEntry() {
+        BoundedCache<String, String> cache = new BoundedCache<>("test", 2, LONG_TTL);
+        cache.get("a", loader);
+        cache.get("b", loader);
+        cache.get("a", loader);
+
+        cache.get("c", loader);
+
+        assertThat(cache.get("a", loader)).isEqualTo("a#1");
+        assertThat(cache.get("b", loader)).isEqualTo("b#4");
+        assertThat(cache.stats()).containsEntry("size", 2).containsEntry("evictions", 2L);
+    }
+
+    @Test
+    void expiredEntryIsReloaded() throws InterruptedException {
+        BoundedCache<String, String> cache = new BoundedCache<>("test", 10, 50);
+        cache.get("a", loader);
+
+        Thread.sleep(150);
+
+        assertThat(cache.get("a", loader)).isEqualTo("a#2");
+    }
+
+    @Test
+    void nullIsNotCachedWithoutNegativeTtl() {
+        BoundedCache<String, String> cache = new BoundedCache<>("test", 10, LONG_TTL);
+        Function<String, String> missing = key -> {
+            loads.incrementAndGet();
+            return null;
+        };
+
+        assertThat(cache.get("x", missing)).isNull();
+        assertThat(cache.get("x", missing)).isNull();
+
+        assertThat(loads).hasValue(2);
+        assertThat(cache.stats()).containsEntry("size", 0).doesNotContainKey("negativeHits");
+    }
+
+    @Test
+    void nullIsCachedForNegativeTtl() throws InterruptedException {
+        BoundedCache<String, String> cache = new BoundedCache<>("test", 10, LONG_TTL, 50, 0, null);
+        Function<String, String> missing = key -> {
+            loads.incrementAndGet();
+            return null;
+        };
+
+        assertThat(cache.get("x", missing)).isNull();
+        assertThat(cache.get("x", missing)).isNull();
+        assertThat(loads).hasValue(1);
+        assertThat(cache.stats()).containsEntry("negativeHits", 1L);
+
+        Thread.sleep(150);
+        cache.get("x", missing);
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void invalidateDuringLoadDiscardsLoadedValue() {
+        BoundedCache<String, String> cache = new BoundedCache<>("test", 10, LONG_TTL);
+
+        String stale = cache.get("a", key -> {
+            // Dữ liệu đổi trong lúc đang nạp
+            cache.invalidate(key);
+            return loader.apply(key);
+        });
+
+        assertThat(stale).isEqualTo("a#1");
+        assertThat(cache.get("a", loader)).isEqualTo("a#2");
+        assertThat(cache.get("a", loader)).isEqualTo("a#2");
+    }
+
+    @Test
+    void invalidateAllDropsEveryEntry() {
+        BoundedCache<String, String> cache = new BoundedCache<>("test", 10, LONG_TTL);
+        cache.get("a", loader);
+        cache.get("b", loader);
+
+        cache.invalidateAll();
+
+        assertThat(cache.stats()).containsEntry("size", 0);
+        assertThat(cache.get("a", loader)).isEqualTo("a#3");
+    }
+
+    @Test
+    void refreshAheadServesCurrentValueAndReloadsInBackground() {
+        ManualExecutor executor = new ManualExecutor();
+        // Cửa sổ làm mới bằng TTL: mọi lần trúng cache đều nằm trong cửa sổ
+        BoundedCache<String, String> cache = new BoundedCache<>("test", 10, LONG_TTL, 0, LONG_TTL, executor);
+        cache.get("a", loader);
+
+        assertThat(cache.get("a", loader)).isEqualTo("a#1");
+        assertThat(cache.get("a", loader)).isEqualTo("a#1");
+        assertThat(executor.tasks).hasSize(1);
+
+        executor.runAll();
+
+        assertThat(cache.get("a", loader)).isEqualTo("a#2");
+        assertThat(cache.stats()).containsEntry("refreshes", 1L);
+    }
+
+    @Test
+    void noRefreshWhileFarFromExpiry() {
+        ManualExecutor executor = new ManualExecutor();
+        BoundedCache<String, String> cache = new BoundedCache<>("test", 10, LONG_TTL, 0, 1, executor);
+        cache.get("a", loader);
+
+        cache.get("a", loader);
+
+        assertThat(executor.tasks).isEmpty();
+    }
+
+    @Test
+    void failedRefreshKeepsValueAndRetriesLater() {
+        ManualExecutor executor = new ManualExecutor();
+        BoundedCache<String, String> cache = new BoundedCache<>("test", 10, LONG_TTL, 0, LONG_TTL, executor);
+        cache.get("a", loader);
+
+        cache.get("a", key -> {
+            throw new IllegalStateException("database down");
+        });
+        executor.runAll();
+
+        assertThat(cache.get("a", loader)).isEqualTo("a#1");
+        assertThat(executor.tasks).hasSize(1);
+    }
+
+    @Test
+    void rejectedRefreshKeepsValueAndRetriesLater() {
+        AtomicInteger attempts = new AtomicInteger();
+        Executor rejecting = task -> {
+            attempts.incrementAndGet();
+            throw new RejectedExecutionException("full");
+        };
+        BoundedCache<String, String> cache = new BoundedCache<>("test", 10, LONG_TTL, 0, LONG_TTL, rejecting);
+        cache.get("a", loader);
+
+        assertThat(cache.get("a", loader)).isEqualTo("a#1");
+        assertThat(cache.get("a", loader)).isEqualTo("a#1");
+
+        assertThat(attempts).hasValue(2);
+    }
+
+    @Test
+    void refreshAheadIsDisabledWithoutExecutor() {
+        BoundedCache<String, String> cache = new BoundedCache<>("test", 10, LONG_TTL, 0, LONG_TTL, null);
+        cache.get("a", loader);
+
+        assertThat(cache.get("a", loader)).isEqualTo("a#1");
+        assertThat(cache.stats()).doesNotContainKey("refreshes");
+    }
+
+    private static final class ManualExecutor implements Executor {
+        private final List<Runnable> tasks = new ArrayList<>();
+
+        @Override
+        public void execute(Runnable command) {
+            tasks.add(command);
+        }
+
+        void runAll() {
+            List<Runnable> pending = new ArrayList<>(tasks);
+            tasks.clear();
+            pending.forEach(Runnable::run);
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package org.example.graduationproject.services.cart;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CartJournalTest {
+
+    @TempDir
+    Path dir;
+
+    private Path journalPath;
+    private CartJournal journal;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        journalPath = dir.resolve("cart-journal.log");
+        journal = newJournal();
+    }
+
+    @AfterEach
+    void tearDown() {
+        journal.close();
+    }
+
+    @Test
+    void readPendingReturnsRecordsInWriteOrder() throws IOException {
+        journal.appendSet(1L, 10, 2, new BigDecimal("150000.50"));
+        journal.appendSet(1L, 11, 1, null);
+        journal.appendDelete(1L, 10);
+        journal.appendClear(2L);
+
+        List<String[]> records = journal.readPending();
+
+        assertThat(records).extracting(r -> String.join("|", r)).containsExactly(
+                "SET|1|10|2|150000.50",
+                "SET|1|11|1|",
+                "DEL|1|10",
+                "CLR|2");
+    }
+
+    @Test
+    void rotatedRecordsAreReadBeforeNewOnes() throws IOException {
+        journal.appendSet(1L, 10, 1, null);
+        journal.rotate();
+        journal.appendSet(1L, 10, 5, null);
+
+        assertThat(journal.readPending()).extracting(r -> r[3]).containsExactly("1", "5");
+    }
+
+    @Test
+    void failedFlushKeepsOrderAcrossSecondRotate() throws IOException {
+        journal.appendSet(1L, 10, 1, null);
+        journal.rotate();
+        journal.appendSet(1L, 10, 2, null);
+        // Lần ghi trước thất bại nên không discardFlushed, lần xoay sau nối tiếp vào file đang chờ
+        journal.rotate();
+        journal.appendSet(1L, 10, 3, null);
+
+        assertThat(journal.readPending()).extracting(r -> r[3]).containsExactly("1", "2", "3");
+    }
+
+    @Test
+    void discardFlushedDropsOnlyRotatedRecords() throws IOException {
+        journal.appendSet(1L, 10, 1, null);
+        journal.rotate();
+        journal.appendSet(1L, 11, 2, null);
+
+        journal.discardFlushed();
+
+        assertThat(journal.readPending()).extracting(r -> r[2]).containsExactly("11");
+    }
+
+    @Test
+    void malformedAndTruncatedLinesAreSkipped() throws IOException {
+        journal.appendSet(1L, 10, 1, null);
+        journal.close();
+        Files.writeString(journalPath, "SET|1|x|1|\nXYZ|1\nDEL|1\n\nCLR|abc\nSET|1|11|2", StandardCharsets.UTF_8,
+                StandardOpenOption.APPEND);
+        journal = newJournal();
+
+        assertThat(journal.readPending()).extracting(r -> String.join("|", r)).containsExactly("SET|1|10|1|");
+    }
+
+    @Test
+    void recordsSurviveReopen() throws IOException {
+        journal.appendSet(7L, 3, 4, BigDecimal.TEN);
+        journal.close();
+
+        journal = newJournal();
+
+        assertThat(journal.readPending()).hasSize(1);
+        assertThat(journal.readPending().get(0)).containsExactly("SET", "7", "3", "4", "10");
+    }
+
+    @Test
+    void emptyJournalHasNoPendingRecords() throws IOException {
+        assertThat(journal.readPending()).isEmpty();
+        journal.rotate();
+        journal.discardFlushed();
+        assertThat(journal.readPending()).isEmpty();
+    }
+
+    private CartJournal newJournal() throws IOException {
+        CartJournal created = new CartJournal();
+        ReflectionTestUtils.setField(created, "journalPath", journalPath.toString());
+        ReflectionTestUtils.setField(created, "fsync", false);
+        created.open();
+        return created;
+    }
+}
@@ -0,0 +1,120 @@
+package org.example.graduationproject.services.cart;
+
+import org.example.graduationproject.models.GioHang;
+import org.example.graduationproject.models.SanPham;
+import org.example.graduationproject.models.SanPhamBienThe;
+import org.example.graduationproject.models.User;
+import org.example.graduationproject.repositories.ChiTietGioHangRepository;
+import org.example.graduationproject.repositories.GioHangRepository;
+import org.example.graduationproject.repositories.SanPhamBienTheRepository;
+import org.example.graduationproject.repositories.SanPhamRepository;
+import org.example.graduationproject.repositories.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * CartPersister ghi trong transaction riêng (REQUIRES_NEW), nên dữ liệu mẫu phải được commit trước:
+ * test chạy ngoài transaction và tự dọn dữ liệu sau mỗi trường hợp.
+ */
+@DataJpaTest
+@ActiveProfiles("test")
+@Import(CartPersister.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class CartPersisterTest {
+
+    private static final int DELETED_VARIANT_ID = 999_999;
+
+    @Autowired
+    private CartPersister cartPersister;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private SanPhamRepository sanPhamRepository;
+
+    @Autowired
+    private SanPhamBienTheRepository sanPhamBienTheRepository;
+
+    @Autowired
+    private GioHangRepository gioHangRepository;
+
+    @Autowired
+    private ChiTietGioHangRepository chiTietGioHangRepository;
+
+    private User user;
+    private SanPhamBienThe variant;
+
+    @BeforeEach
+    void seed() {
+        user = new User();
+        user.setUsername("buyer");
+        user.setEmail("buyer@example.com");
+        user = userRepository.save(user);
+        SanPham sanPham = new SanPham();
+        sanPham.setTen("Ao");
+        sanPham.setGiaBan(BigDecimal.TEN);
+        sanPham = sanPhamRepository.save(sanPham);
+        variant = new SanPhamBienThe();
+        variant.setSanPham(sanPham);
+        variant.setSoLuongTon(5);
+        variant = sanPhamBienTheRepository.save(variant);
+    }
+
+    @AfterEach
+    void cleanUp() {
+        chiTietGioHangRepository.deleteAllInBatch();
+        gioHangRepository.deleteAllInBatch();
+        sanPhamBienTheRepository.deleteAllInBatch();
+        sanPhamRepository.deleteAllInBatch();
+        userRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void linesOfDeletedVariantsAreDroppedInsteadOfFailingTheBatch() {
+        CartSnapshot snapshot = snapshot(List.of(new CartSnapshot.Line(variant.getId(), 2, BigDecimal.TEN),
+                new CartSnapshot.Line(DELETED_VARIANT_ID, 1, BigDecimal.ONE)));
+
+        Map<Long, CartFlushResult> results = cartPersister.persist(List.of(snapshot));
+
+        CartFlushResult result = results.get(user.getId());
+        assertThat(result.isClosed()).isFalse();
+        assertThat(result.getDroppedVariantIds()).containsExactly(DELETED_VARIANT_ID);
+        assertThat(result.getLineIds()).containsOnlyKeys(variant.getId());
+
+        GioHang cart = gioHangRepository.findAllWithItemsByIdIn(List.of(result.getCartId())).get(0);
+        assertThat(cart.getChiTietGioHangs()).singleElement().satisfies(item -> {
+            assertThat(item.getId()).isEqualTo(result.getLineIds().get(variant.getId()));
+            assertThat(item.getSoLuong()).isEqualTo(2);
+        });
+    }
+
+    @Test
+    void cartWithOnlyDeletedVariantsIsStillWritten() {
+        CartSnapshot snapshot = snapshot(List.of(new CartSnapshot.Line(DELETED_VARIANT_ID, 1, BigDecimal.ONE)));
+
+        CartFlushResult result = cartPersister.persist(List.of(snapshot)).get(user.getId());
+
+        assertThat(result.getCartId()).isNotNull();
+        assertThat(result.getDroppedVariantIds()).containsExactly(DELETED_VARIANT_ID);
+        assertThat(chiTietGioHangRepository.count()).isZero();
+    }
+
+    private CartSnapshot snapshot(List<CartSnapshot.Line> lines) {
+        return new CartSnapshot(user.getId(), null, 1, LocalDateTime.now(), LocalDateTime.now(), lines);
+    }
+}
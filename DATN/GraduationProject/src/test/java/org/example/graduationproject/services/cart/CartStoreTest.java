@@ -0,0 +1,199 @@
+package org.example.graduationproject.services.cart;
+
+import org.example.graduationproject.models.GioHang;
+import org.example.graduationproject.models.SanPham;
+import org.example.graduationproject.models.SanPhamBienThe;
+import org.example.graduationproject.models.User;
+import org.example.graduationproject.repositories.GioHangRepository;
+import org.example.graduationproject.repositories.SanPhamBienTheRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CartStoreTest {
+
+    private static final long USER_ID = 1L;
+
+    @TempDir
+    Path dir;
+
+    private CartJournal journal;
+    private CartPersister cartPersister;
+    private SanPhamBienTheRepository sanPhamBienTheRepository;
+    private CartStore store;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        journal = new CartJournal();
+        ReflectionTestUtils.setField(journal, "journalPath", dir.resolve("cart-journal.log").toString());
+        ReflectionTestUtils.setField(journal, "fsync", false);
+        journal.open();
+
+        cartPersister = mock(CartPersister.class);
+        sanPhamBienTheRepository = mock(SanPhamBienTheRepository.class);
+        GioHangRepository gioHangRepository = mock(GioHangRepository.class);
+        when(gioHangRepository.findActiveWithItemsByUserId(anyLong())).thenReturn(List.of());
+        when(sanPhamBienTheRepository.findAllByIdInWithDetails(anyCollection())).thenReturn(List.of(variant(10)));
+
+        store = new CartStore();
+        ReflectionTestUtils.setField(store, "cartJournal", journal);
+        ReflectionTestUtils.setField(store, "cartPersister", cartPersister);
+        ReflectionTestUtils.setField(store, "gioHangRepository", gioHangRepository);
+        ReflectionTestUtils.setField(store, "sanPhamBienTheRepository", sanPhamBienTheRepository);
+        ReflectionTestUtils.setField(store, "maxCarts", 100);
+        ReflectionTestUtils.setField(store, "idleMillis", 60_000L);
+        ReflectionTestUtils.setField(store, "flushBatchSize", 10);
+    }
+
+    @AfterEach
+    void tearDown() {
+        journal.close();
+    }
+
+    @Test
+    void replayEndingWithClearDoesNotCreateEmptyCart() throws IOException {
+        journal.appendSet(USER_ID, 10, 2, BigDecimal.TEN);
+        journal.appendClear(USER_ID);
+
+        store.afterSingletonsInstantiated();
+
+        verify(cartPersister, never()).persist(any());
+        assertThat(journal.readPending()).isEmpty();
+    }
+
+    @Test
+    void replayKeepsOnlyChangesAfterLastClear() throws IOException {
+        journal.appendSet(USER_ID, 10, 2, BigDecimal.TEN);
+        journal.appendClear(USER_ID);
+        journal.appendSet(USER_ID, 10, 3, BigDecimal.TEN);
+        when(cartPersister.persist(any())).thenReturn(
+                Map.of(USER_ID, new CartFlushResult(5, Map.of(10, 50), false)));
+
+        store.afterSingletonsInstantiated();
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<CartSnapshot>> captor = ArgumentCaptor.forClass(List.class);
+        verify(cartPersister).persist(captor.capture());
+        CartSnapshot snapshot = captor.getValue().get(0);
+        assertThat(snapshot.getCartId()).isNull();
+        assertThat(snapshot.getLines()).singleElement().satisfies(line -> {
+            assertThat(line.getVariantId()).isEqualTo(10);
+            assertThat(line.getSoLuong()).isEqualTo(3);
+        });
+        assertThat(journal.readPending()).isEmpty();
+    }
+
+    @Test
+    void replayOfAddThenDeleteOnEmptyCartWritesNothing() throws IOException {
+        journal.appendSet(USER_ID, 10, 1, BigDecimal.TEN);
+        journal.appendDelete(USER_ID, 10);
+
+        store.afterSingletonsInstantiated();
+
+        verify(cartPersister, never()).persist(any());
+    }
+
+    @Test
+    void nonPositiveQuantitiesAreRejected() throws IOException {
+        User user = user();
+        assertThat(store.addItem(user, variant(10), 2)).isTrue();
+        Integer itemId = store.getCart(user, false).getChiTietGioHangs().get(0).getId();
+
+        assertThat(store.addItem(user, variant(10), 0)).isFalse();
+        assertThat(store.addItem(user, variant(10), -3)).isFalse();
+        assertThat(store.updateQuantity(user, itemId, 0)).isFalse();
+        assertThat(store.updateQuantity(user, itemId, -1)).isFalse();
+
+        GioHang cart = store.getCart(user, false);
+        assertThat(cart.getChiTietGioHangs()).singleElement()
+                .satisfies(item -> assertThat(item.getSoLuong()).isEqualTo(2));
+        assertThat(journal.readPending()).hasSize(1);
+    }
+
+    @Test
+    void updateQuantityChangesLineAndJournalsNewValue() throws IOException {
+        User user = user();
+        store.addItem(user, variant(10), 1);
+        Integer itemId = store.getCart(user, false).getChiTietGioHangs().get(0).getId();
+
+        assertThat(store.updateQuantity(user, itemId, 4)).isTrue();
+        assertThat(store.updateQuantity(user, 999, 4)).isFalse();
+
+        assertThat(store.getCart(user, false).getChiTietGioHangs().get(0).getSoLuong()).isEqualTo(4);
+        assertThat(journal.readPending()).extracting(r -> r[3]).containsExactly("1", "4");
+    }
+
+    @Test
+    void flushDropsLinesOfDeletedVariantsAndTruncatesJournal() throws IOException {
+        User user = user();
+        store.addItem(user, variant(10), 2);
+        store.addItem(user, variant(11), 1);
+        when(cartPersister.persist(any())).thenReturn(
+                Map.of(USER_ID, new CartFlushResult(5, Map.of(10, 50), false, Set.of(11))));
+
+        store.flushDirty();
+        store.flushDirty();
+
+        verify(cartPersister, times(1)).persist(any());
+        assertThat(journal.readPending()).isEmpty();
+        assertThat(store.countItems(user)).isEqualTo(1);
+        assertThat(store.getCart(user, false).getChiTietGioHangs()).singleElement()
+                .satisfies(item -> assertThat(item.getId()).isEqualTo(50));
+    }
+
+    @Test
+    void getCartRereadsVariantsAndDropsDeletedOnes() throws IOException {
+        User user = user();
+        store.addItem(user, variant(10), 2);
+        store.addItem(user, variant(11), 1);
+        SanPhamBienThe repriced = variant(10);
+        repriced.getSanPham().setTen("Ao moi");
+        repriced.getSanPham().setGiaBan(BigDecimal.valueOf(12));
+        when(sanPhamBienTheRepository.findAllByIdInWithDetails(anyCollection())).thenReturn(List.of(repriced));
+
+        GioHang cart = store.getCart(user, false);
+
+        assertThat(cart.getChiTietGioHangs()).singleElement().satisfies(item -> {
+            assertThat(item.getSanPhamBienThe()).isSameAs(repriced);
+            assertThat(item.getGiaBan()).isEqualByComparingTo("12");
+            assertThat(item.getThanhTien()).isEqualByComparingTo("24");
+        });
+        assertThat(journal.readPending()).extracting(r -> String.join("|", r))
+                .endsWith("SET|1|10|2|12", "DEL|1|11");
+    }
+
+    private static User user() {
+        User user = new User();
+        user.setId(USER_ID);
+        return user;
+    }
+
+    private static SanPhamBienThe variant(int id) {
+        SanPham sanPham = new SanPham();
+        sanPham.setGiaBan(BigDecimal.TEN);
+        SanPhamBienThe variant = new SanPhamBienThe();
+        variant.setId(id);
+        variant.setSanPham(sanPham);
+        return variant;
+    }
+}
@@ -0,0 +1,71 @@
+package org.example.graduationproject.services.catalog;
+
+import org.example.graduationproject.models.SanPham;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CatalogSnapshotTest {
+
+    @Test
+    void buildSortsByVietnameseCollation() {
+        CatalogSnapshot snapshot = CatalogSnapshot.of(List.of(
+                product(1, "Quần"), product(2, "Áo"), product(3, "Ăn mặc"), product(4, "Ba lô")));
+
+        assertThat(idsInOrder(snapshot)).containsExactly(2, 3, 4, 1);
+    }
+
+    @Test
+    void withProductInsertsAtSamePositionAsFullBuild() {
+        List<SanPham> products = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            products.add(product(i, "Sản phẩm " + (i * 37 % 50)));
+        }
+        CatalogSnapshot incremental = CatalogSnapshot.EMPTY;
+        for (SanPham product : products) {
+            incremental = incremental.withProduct(product);
+        }
+
+        assertThat(idsInOrder(incremental)).containsExactly(idsInOrder(CatalogSnapshot.of(products)));
+    }
+
+    @Test
+    void renamedProductMovesToItsNewPosition() {
+        CatalogSnapshot snapshot = CatalogSnapshot.of(List.of(product(1, "An"), product(2, "Bình"), product(3, "Cúc")));
+
+        CatalogSnapshot renamed = snapshot.withProduct(product(1, "Dung"));
+
+        assertThat(idsInOrder(renamed)).containsExactly(2, 3, 1);
+        assertThat(renamed.toUserProductDTO(2)).containsEntry("ten", "Dung");
+    }
+
+    @Test
+    void inactiveProductIsRemoved() {
+        CatalogSnapshot snapshot = CatalogSnapshot.of(List.of(product(1, "An"), product(2, "Bình")));
+        SanPham hidden = product(1, "An");
+        hidden.setTrangThaiHoatDong(false);
+
+        CatalogSnapshot updated = snapshot.withProduct(hidden);
+
+        assertThat(idsInOrder(updated)).containsExactly(2);
+        assertThat(updated.withoutProduct(99)).isSameAs(updated);
+    }
+
+    private static int[] idsInOrder(CatalogSnapshot snapshot) {
+        return Arrays.stream(snapshot.filter(null, null, null))
+                .map(position -> (Integer) snapshot.toUserProductDTO(position).get("id"))
+                .toArray();
+    }
+
+    private static SanPham product(int id, String ten) {
+        SanPham product = new SanPham();
+        product.setId(id);
+        product.setTen(ten);
+        product.setTrangThaiHoatDong(true);
+        return product;
+    }
+}
@@ -0,0 +1,116 @@
+package org.example.graduationproject.services.catalogimport;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CatalogSheetReaderTest {
+
+    @TempDir
+    Path dir;
+
+    private final CatalogSheetReader reader = new CatalogSheetReader();
+
+    @Test
+    void readsRowsWithRowNumbers() throws Exception {
+        Recorder rows = read("ten,gia\nAo,100\nQuan,200\n");
+
+        assertThat(rows.cells).containsExactly(List.of("ten", "gia"), List.of("Ao", "100"), List.of("Quan", "200"));
+        assertThat(rows.numbers).containsExactly(1L, 2L, 3L);
+        assertThat(rows.totalRows).isEqualTo(3);
+    }
+
+    @Test
+    void stripsBomAndHandlesCrLfAndMissingTrailingNewline() throws Exception {
+        Recorder rows = read("\uFEFFten,gia\r\nAo,100\r\nQuan,200");
+
+        assertThat(rows.cells).containsExactly(List.of("ten", "gia"), List.of("Ao", "100"), List.of("Quan", "200"));
+        assertThat(rows.totalRows).isEqualTo(3);
+    }
+
+    @Test
+    void quotedCellsKeepCommasEscapedQuotesAndNewlines() throws Exception {
+        Recorder rows = read("ten,mo ta\n\"Ao, thun\",\"Dong 1\nDong 2 \"\"dep\"\"\"\nQuan,x\n");
+
+        assertThat(rows.cells).containsExactly(
+                List.of("ten", "mo ta"),
+                List.of("Ao, thun", "Dong 1\nDong 2 \"dep\""),
+                List.of("Quan", "x"));
+        // Xuống dòng trong ô không tính là dòng mới
+        assertThat(rows.numbers).containsExactly(1L, 2L, 3L);
+    }
+
+    @Test
+    void emptyCellsAndBlankLines() throws Exception {
+        Recorder rows = read("a,b,c\n,,\n\n1,,3\n");
+
+        assertThat(rows.cells).containsExactly(List.of("a", "b", "c"), List.of("", "", ""), List.of("1", "", "3"));
+        assertThat(rows.numbers).containsExactly(1L, 2L, 4L);
+    }
+
+    @Test
+    void quotedEmptyCellIsStillARow() throws Exception {
+        Recorder rows = read("a\n\"\"\n");
+
+        assertThat(rows.cells).containsExactly(List.of("a"), List.of(""));
+    }
+
+    @Test
+    void readsUtf8() throws Exception {
+        Recorder rows = read("tên\nÁo sơ mi\n");
+
+        assertThat(rows.cells).containsExactly(List.of("tên"), List.of("Áo sơ mi"));
+    }
+
+    @Test
+    void handlerExceptionStopsReading() throws Exception {
+        Path file = write("a\n1\n2\n");
+        List<String> seen = new ArrayList<>();
+
+        assertThatThrownBy(() -> reader.readCsv(file, (rowNumber, cells) -> {
+            seen.add(cells.get(0));
+            if (rowNumber == 2) {
+                throw new IllegalArgumentException("stop");
+            }
+        })).hasMessage("stop");
+        assertThat(seen).containsExactly("a", "1");
+    }
+
+    private Recorder read(String content) throws Exception {
+        Recorder recorder = new Recorder();
+        reader.readCsv(write(content), recorder);
+        return recorder;
+    }
+
+    private Path write(String content) throws Exception {
+        Path file = Files.createTempFile(dir, "catalog-", ".csv");
+        Files.writeString(file, content, StandardCharsets.UTF_8);
+        return file;
+    }
+
+    private static final class Recorder implements CatalogRowHandler {
+        private final List<List<String>> cells = new ArrayList<>();
+        private final List<Long> numbers = new ArrayList<>();
+        private long totalRows = -1;
+
+        @Override
+        public void onTotalRows(long totalRows) {
+            this.totalRows = totalRows;
+        }
+
+        @Override
+        public void onRow(long rowNumber, List<String> row) {
+            // Reader dùng lại danh sách cho dòng sau nên phải chép
+            cells.add(new ArrayList<>(row));
+            numbers.add(rowNumber);
+        }
+    }
+}
@@ -0,0 +1,229 @@
+package org.example.graduationproject.services.image;
+
+import org.example.graduationproject.exceptions.NotFoundException;
+import org.example.graduationproject.repositories.ImageSanPhamRepository;
+import org.example.graduationproject.services.adapters.LocalFileSystemAdapter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ImageDerivativeCacheTest {
+
+    private static final String BASE_URL = "/api/images/files";
+
+    @TempDir
+    Path tempDir;
+
+    private Path uploads;
+    private LocalFileSystemAdapter localImageService;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        uploads = Files.createDirectories(tempDir.resolve("uploads"));
+        localImageService = mock(LocalFileSystemAdapter.class);
+        when(localImageService.resolve(anyString())).thenAnswer(invocation -> uploads.resolve((String) invocation.getArgument(0)));
+    }
+
+    @Test
+    void storeWritesEveryVariantOnceAndSharesIdenticalContent() throws IOException {
+        ImageDerivativeCache cache = cache(Long.MAX_VALUE);
+        byte[] image = png(Color.RED, 800, 600);
+
+        String hash = cache.store(image, "https://res.cloudinary.com/shop/image/upload/v1/a.png");
+        String same = cache.store(image, "https://res.cloudinary.com/shop/image/upload/v1/b.png");
+
+        assertThat(same).isEqualTo(hash);
+        for (ImageVariant variant : ImageVariant.values()) {
+            Path file = cache.find(hash, variant).orElseThrow();
+            BufferedImage derivative = ImageIO.read(file.toFile());
+            assertThat(Math.max(derivative.getWidth(), derivative.getHeight()))
+                    .isEqualTo(Math.min(800, variant.getMaxSize()));
+        }
+        assertThat(stat(cache, "images")).isEqualTo(1L);
+        assertThat(stat(cache, "generated")).isEqualTo(1L);
+        assertThat(Files.readAllLines(tempDir.resolve("derivatives").resolve(hash).resolve("sources.txt"))).hasSize(2);
+    }
+
+    @Test
+    void overLimitEvictsLeastRecentlyUsedImage() throws IOException {
+        ImageDerivativeCache probe = cache(Long.MAX_VALUE);
+        probe.store(png(Color.RED, 400, 400), null);
+        long oneImage = stat(probe, "cachedBytes");
+        // Đủ chỗ cho hai ảnh cùng kích thước, ảnh thứ ba đẩy ảnh ít dùng nhất ra
+        ImageDerivativeCache cache = cache(oneImage * 2 + oneImage / 2, "derivatives-lru");
+        String red = cache.store(png(Color.RED, 400, 400), "https://res.cloudinary.com/shop/image/upload/v1/red.png");
+        String green = cache.store(png(Color.GREEN, 400, 400), "https://res.cloudinary.com/shop/image/upload/v1/green.png");
+
+        // Dùng lại ảnh đỏ: ảnh xanh lá thành ít dùng nhất
+        assertThat(cache.find(red, ImageVariant.CARD)).isPresent();
+        String blue = cache.store(png(Color.BLUE, 400, 400), "https://res.cloudinary.com/shop/image/upload/v1/blue.png");
+
+        assertThat(cache.find(green, ImageVariant.CARD)).isEmpty();
+        assertThat(tempDir.resolve("derivatives-lru").resolve(green)).doesNotExist();
+        assertThat(cache.find(red, ImageVariant.CARD)).isPresent();
+        assertThat(cache.find(blue, ImageVariant.CARD)).isPresent();
+        assertThat(stat(cache, "evicted")).isEqualTo(1L);
+        assertThat(stat(cache, "images")).isEqualTo(2L);
+        // URL của ảnh bị đẩy ra không còn trỏ tới hash cũ
+        assertThat(stat(cache, "sources")).isEqualTo(2L);
+    }
+
+    @Test
+    void newlyStoredImageIsKeptEvenWhenAloneOverLimit() throws IOException {
+        ImageDerivativeCache cache = cache(1);
+
+        String hash = cache.store(png(Color.RED, 400, 400), null);
+
+        assertThat(cache.find(hash, ImageVariant.DETAIL)).isPresent();
+    }
+
+    @Test
+    void unchangedLocalSourceIsServedFromCache() throws IOException {
+        ImageDerivativeCache cache = cache(Long.MAX_VALUE);
+        String url = upload("a.png", png(Color.RED, 300, 300));
+
+        Path first = cache.resolve(url, ImageVariant.THUMBNAIL);
+        Path second = cache.resolve(url, ImageVariant.THUMBNAIL);
+
+        assertThat(second).isEqualTo(first);
+        assertThat(stat(cache, "fetched")).isEqualTo(1L);
+        assertThat(stat(cache, "hits")).isEqualTo(1L);
+        assertThat(stat(cache, "stale")).isZero();
+    }
+
+    @Test
+    void overwrittenLocalSourceIsRegenerated() throws IOException {
+        ImageDerivativeCache cache = cache(Long.MAX_VALUE);
+        String url = upload("a.png", png(Color.RED, 300, 300));
+        Path before = cache.resolve(url, ImageVariant.CARD);
+
+        Path source = uploads.resolve("a.png");
+        Files.write(source, png(Color.BLUE, 300, 300));
+        Files.setLastModifiedTime(source, FileTime.fromMillis(Files.getLastModifiedTime(source).toMillis() + 5_000));
+        Path after = cache.resolve(url, ImageVariant.CARD);
+
+        assertThat(after.getParent()).isNotEqualTo(before.getParent());
+        assertThat(centerColour(after)).isEqualTo(Color.BLUE.getRGB() & 0xFFFFFF);
+        assertThat(stat(cache, "stale")).isEqualTo(1L);
+        assertThat(stat(cache, "fetched")).isEqualTo(2L);
+        // Ảnh cũ không còn ghi nhận URL đã đổi nội dung
+        assertThat(Files.readAllLines(before.getParent().resolve("sources.txt"))).doesNotContain(url);
+    }
+
+    @Test
+    void deletedLocalSourceIsNotServedFromCache() throws IOException {
+        ImageDerivativeCache cache = cache(Long.MAX_VALUE);
+        String url = upload("a.png", png(Color.RED, 300, 300));
+        cache.resolve(url, ImageVariant.CARD);
+
+        Files.delete(uploads.resolve("a.png"));
+
+        assertThatThrownBy(() -> cache.resolve(url, ImageVariant.CARD)).isInstanceOf(NotFoundException.class);
+    }
+
+    @Test
+    void restartKeepsCacheForSourcesNotModifiedSinceGeneration() throws IOException {
+        String url = upload("a.png", png(Color.RED, 300, 300));
+        Path source = uploads.resolve("a.png");
+        // Ảnh gốc có trước khi tạo ảnh phái sinh
+        Files.setLastModifiedTime(source, FileTime.fromMillis(System.currentTimeMillis() - 60_000));
+        Path generated = cache(Long.MAX_VALUE).resolve(url, ImageVariant.CARD);
+
+        ImageDerivativeCache restarted = cache(Long.MAX_VALUE);
+        Path served = restarted.resolve(url, ImageVariant.CARD);
+
+        assertThat(served).isEqualTo(generated);
+        assertThat(stat(restarted, "fetched")).isZero();
+        assertThat(stat(restarted, "hits")).isEqualTo(1L);
+    }
+
+    @Test
+    void restartDetectsSourceModifiedAfterGeneration() throws IOException {
+        String url = upload("a.png", png(Color.RED, 300, 300));
+        Path generated = cache(Long.MAX_VALUE).resolve(url, ImageVariant.CARD);
+        Path source = uploads.resolve("a.png");
+        Files.write(source, png(Color.BLUE, 300, 300));
+        Files.setLastModifiedTime(source, FileTime.fromMillis(
+                Files.getLastModifiedTime(generated.getParent()).toMillis() + 5_000));
+
+        ImageDerivativeCache restarted = cache(Long.MAX_VALUE);
+        Path served = restarted.resolve(url, ImageVariant.CARD);
+
+        assertThat(served.getParent()).isNotEqualTo(generated.getParent());
+        assertThat(stat(restarted, "stale")).isEqualTo(1L);
+    }
+
+    private ImageDerivativeCache cache(long maxBytes) throws IOException {
+        return cache(maxBytes, "derivatives");
+    }
+
+    private ImageDerivativeCache cache(long maxBytes, String dir) throws IOException {
+        ImageDerivativeCache cache = new ImageDerivativeCache();
+        ReflectionTestUtils.setField(cache, "localImageService", localImageService);
+        ReflectionTestUtils.setField(cache, "imageSanPhamRepository", mock(ImageSanPhamRepository.class));
+        ReflectionTestUtils.setField(cache, "cloudName", "shop");
+        ReflectionTestUtils.setField(cache, "localBaseUrl", BASE_URL);
+        ReflectionTestUtils.setField(cache, "cacheDir", tempDir.resolve(dir).toString());
+        ReflectionTestUtils.setField(cache, "cacheMaxBytes", maxBytes);
+        ReflectionTestUtils.setField(cache, "allowedHosts", List.of("res.cloudinary.com"));
+        ReflectionTestUtils.setField(cache, "maxSourceBytes", 5 * 1024 * 1024);
+        ReflectionTestUtils.setField(cache, "maxSourcePixels", 50_000_000L);
+        ReflectionTestUtils.setField(cache, "fetchTimeoutMs", 1_000L);
+        ReflectionTestUtils.setField(cache, "maxSourcesPerImage", 16);
+        cache.init();
+        return cache;
+    }
+
+    private String upload(String name, byte[] content) throws IOException {
+        Files.write(uploads.resolve(name), content);
+        return BASE_URL + "/" + name;
+    }
+
+    private static long stat(ImageDerivativeCache cache, String name) {
+        Map<String, Object> stats = cache.getStats();
+        return ((Number) stats.get(name)).longValue();
+    }
+
+    private static int centerColour(Path jpeg) throws IOException {
+        BufferedImage image = ImageIO.read(jpeg.toFile());
+        int rgb = image.getRGB(image.getWidth() / 2, image.getHeight() / 2) & 0xFFFFFF;
+        // JPEG làm lệch màu vài đơn vị: làm tròn về kênh trội
+        int r = (rgb >> 16) & 0xFF;
+        int g = (rgb >> 8) & 0xFF;
+        int b = rgb & 0xFF;
+        return (r > 128 ? 0xFF0000 : 0) | (g > 128 ? 0x00FF00 : 0) | (b > 128 ? 0x0000FF : 0);
+    }
+
+    private static byte[] png(Color colour, int width, int height) throws IOException {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        try {
+            g.setColor(colour);
+            g.fillRect(0, 0, width, height);
+        } finally {
+            g.dispose();
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", out);
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,54 @@
+package org.example.graduationproject.services.impl;
+
+import org.example.graduationproject.models.Loai;
+import org.example.graduationproject.models.SanPham;
+import org.example.graduationproject.services.LoaiService;
+import org.example.graduationproject.services.catalog.CatalogSnapshot;
+import org.example.graduationproject.services.catalog.ProductCatalog;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class HomeServiceImplTest {
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void payloadCarriesStorefrontSectionsInCatalogOrder() {
+        Loai loai = new Loai();
+        loai.setId(1);
+        loai.setTen("Áo");
+        List<SanPham> products = new ArrayList<>();
+        for (int i = 1; i <= 10; i++) {
+            SanPham sanPham = new SanPham();
+            sanPham.setId(i);
+            sanPham.setTen(String.format("San pham %02d", 11 - i));
+            sanPham.setTrangThaiHoatDong(true);
+            sanPham.setGioiTinh(i % 2 == 0 ? 1 : 2);
+            sanPham.setLoai(loai);
+            products.add(sanPham);
+        }
+        ProductCatalog productCatalog = mock(ProductCatalog.class);
+        when(productCatalog.currentSnapshot()).thenReturn(CatalogSnapshot.of(products));
+        LoaiService loaiService = mock(LoaiService.class);
+        when(loaiService.getAllLoai()).thenReturn(List.of(loai));
+        HomeServiceImpl homeService = new HomeServiceImpl();
+        ReflectionTestUtils.setField(homeService, "productCatalog", productCatalog);
+        ReflectionTestUtils.setField(homeService, "loaiService", loaiService);
+
+        Map<String, Object> data = homeService.getHomePageData().getData();
+
+        List<Map<String, Object>> featured = (List<Map<String, Object>>) data.get("featuredProducts");
+        assertThat(featured).extracting(p -> p.get("id")).containsExactly(10, 9, 8, 7, 6, 5, 4, 3);
+        assertThat((List<Map<String, Object>>) data.get("newProducts")).hasSize(8);
+        assertThat((List<Map<String, Object>>) data.get("products")).hasSize(10);
+        assertThat((Map<String, List<Map<String, Object>>>) data.get("sanPhamNamTheoLoai"))
+                .hasEntrySatisfying("áo", tab -> assertThat(tab).hasSize(5));
+    }
+}
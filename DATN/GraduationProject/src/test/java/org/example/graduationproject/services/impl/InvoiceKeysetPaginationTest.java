@@ -0,0 +1,114 @@
+package org.example.graduationproject.services.impl;
+
+import org.example.graduationproject.dto.CursorPage;
+import org.example.graduationproject.events.OrderEventPublisher;
+import org.example.graduationproject.exceptions.BadRequestException;
+import org.example.graduationproject.models.HoaDon;
+import org.example.graduationproject.repositories.BatchInsertRepository;
+import org.example.graduationproject.services.ApproximateCountService;
+import org.example.graduationproject.services.GioHangService;
+import org.example.graduationproject.services.SanPhamBienTheService;
+import org.example.graduationproject.services.StockLedgerService;
+import org.example.graduationproject.services.StockReservationService;
+import org.example.graduationproject.utils.KeysetCursor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@Import(HoaDonServiceImpl.class)
+class InvoiceKeysetPaginationTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private HoaDonServiceImpl hoaDonService;
+
+    @MockitoBean
+    private BatchInsertRepository batchInsertRepository;
+
+    @MockitoBean
+    private GioHangService gioHangService;
+
+    @MockitoBean
+    private SanPhamBienTheService sanPhamBienTheService;
+
+    @MockitoBean
+    private StockLedgerService stockLedgerService;
+
+    @MockitoBean
+    private StockReservationService stockReservationService;
+
+    @MockitoBean
+    private ApproximateCountService approximateCountService;
+
+    @MockitoBean
+    private OrderEventPublisher orderEventPublisher;
+
+    private final List<Integer> seededIds = new ArrayList<>();
+
+    @BeforeEach
+    void seed() {
+        LocalDateTime base = LocalDateTime.of(2026, 1, 1, 8, 0);
+        // Nhiều hóa đơn trùng ngayTao để id phải phân định thứ tự
+        for (int minutes : new int[]{0, 5, 5, 10, 5, 0}) {
+            HoaDon hoaDon = new HoaDon();
+            hoaDon.setNgayTao(base.plusMinutes(minutes));
+            seededIds.add(entityManager.persist(hoaDon).getId());
+        }
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void nonPositiveSizeIsRejected() {
+        assertThatThrownBy(() -> hoaDonService.getInvoicesKeyset(null, 0)).isInstanceOf(BadRequestException.class);
+        assertThatThrownBy(() -> hoaDonService.getInvoicesKeyset(null, -5)).isInstanceOf(BadRequestException.class);
+    }
+
+    @Test
+    void oversizedPageIsClampedToMaximum() {
+        CursorPage<HoaDon> page = hoaDonService.getInvoicesKeyset("", Integer.MAX_VALUE);
+
+        assertThat(page.getSize()).isEqualTo(KeysetCursor.MAX_PAGE_SIZE);
+        assertThat(page.getContent()).hasSize(seededIds.size());
+        assertThat(page.isHasNext()).isFalse();
+    }
+
+    @Test
+    void everyInvoiceIsVisitedOnceNewestFirst() {
+        List<Integer> visited = walk(1);
+
+        assertThat(visited).containsExactlyInAnyOrderElementsOf(seededIds);
+        assertThat(walk(2)).containsExactlyElementsOf(visited);
+        assertThat(walk(4)).containsExactlyElementsOf(visited);
+    }
+
+    private List<Integer> walk(int size) {
+        List<Integer> visited = new ArrayList<>();
+        String cursor = null;
+        for (int guard = 0; guard <= seededIds.size(); guard++) {
+            CursorPage<HoaDon> page = hoaDonService.getInvoicesKeyset(cursor, size);
+            page.getContent().forEach(hoaDon -> visited.add(hoaDon.getId()));
+            if (!page.isHasNext()) {
+                return visited;
+            }
+            cursor = page.getNextCursor();
+        }
+        throw new AssertionError("Keyset pagination did not terminate");
+    }
+}
@@ -0,0 +1,97 @@
+package org.example.graduationproject.services.impl;
+
+import org.example.graduationproject.dto.InvoiceReportRequest;
+import org.example.graduationproject.exceptions.BadRequestException;
+import org.example.graduationproject.services.export.ExportJob;
+import org.example.graduationproject.services.export.ExportJobManager;
+import org.example.graduationproject.services.export.ExportTask;
+import org.example.graduationproject.services.report.InvoiceReportWriter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+class InvoiceReportServiceImplTest {
+
+    private static final LocalDate FROM = LocalDate.of(2024, 3, 1);
+
+    private ExportJobManager exportJobManager;
+    private InvoiceReportWriter invoiceReportWriter;
+    private InvoiceReportServiceImpl service;
+
+    @BeforeEach
+    void setUp() {
+        exportJobManager = mock(ExportJobManager.class);
+        invoiceReportWriter = mock(InvoiceReportWriter.class);
+        service = new InvoiceReportServiceImpl();
+        ReflectionTestUtils.setField(service, "exportJobManager", exportJobManager);
+        ReflectionTestUtils.setField(service, "invoiceReportWriter", invoiceReportWriter);
+        ReflectionTestUtils.setField(service, "maxDays", 31L);
+    }
+
+    @Test
+    void defaultFormatIsXlsxAndTaskRunsWriter() throws Exception {
+        InvoiceReportRequest request = request(FROM, LocalDate.of(2024, 3, 31), null);
+
+        service.submitInvoiceReport(request);
+
+        ArgumentCaptor<ExportTask> task = ArgumentCaptor.forClass(ExportTask.class);
+        verify(exportJobManager).submit(eq("INVOICE_REPORT"), eq("bao-cao-hoa-don-20240301-20240331.xlsx"),
+                eq("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet"), task.capture());
+        OutputStream out = new ByteArrayOutputStream();
+        ExportJob job = mock(ExportJob.class);
+        task.getValue().write(out, job);
+        verify(invoiceReportWriter).writeXlsx(request, out, job);
+    }
+
+    @Test
+    void csvFormatIsCaseAndWhitespaceInsensitive() throws Exception {
+        InvoiceReportRequest request = request(FROM, FROM, " CSV ");
+
+        service.submitInvoiceReport(request);
+
+        ArgumentCaptor<ExportTask> task = ArgumentCaptor.forClass(ExportTask.class);
+        verify(exportJobManager).submit(eq("INVOICE_REPORT"), eq("bao-cao-hoa-don-20240301-20240301.csv"),
+                eq("text/csv; charset=UTF-8"), task.capture());
+        OutputStream out = new ByteArrayOutputStream();
+        ExportJob job = mock(ExportJob.class);
+        task.getValue().write(out, job);
+        verify(invoiceReportWriter).writeCsv(request, out, job);
+    }
+
+    @Test
+    void invalidRequestsAreRejectedBeforeQueueing() {
+        assertRejected(request(null, FROM, "xlsx"));
+        assertRejected(request(FROM, null, "xlsx"));
+        assertRejected(request(FROM, FROM.minusDays(1), "xlsx"));
+        // 1/3 - 1/4 là 32 ngày tính cả hai đầu, vượt giới hạn 31
+        assertRejected(request(FROM, LocalDate.of(2024, 4, 1), "xlsx"));
+        assertRejected(request(FROM, FROM, "pdf"));
+
+        verify(exportJobManager, never()).submit(anyString(), anyString(), anyString(), any());
+    }
+
+    private void assertRejected(InvoiceReportRequest request) {
+        assertThatThrownBy(() -> service.submitInvoiceReport(request)).isInstanceOf(BadRequestException.class);
+    }
+
+    private static InvoiceReportRequest request(LocalDate fromDate, LocalDate toDate, String format) {
+        return InvoiceReportRequest.builder()
+                .fromDate(fromDate)
+                .toDate(toDate)
+                .format(format)
+                .build();
+    }
+}
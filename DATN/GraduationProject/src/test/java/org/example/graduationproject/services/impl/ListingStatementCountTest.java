@@ -0,0 +1,295 @@
+package org.example.graduationproject.services.impl;
+
+import org.example.graduationproject.config.HibernateConfig;
+import org.example.graduationproject.config.StatementBudgetInterceptor;
+import org.example.graduationproject.dto.CursorPage;
+import org.example.graduationproject.events.OrderEventPublisher;
+import org.example.graduationproject.events.ProductEventPublisher;
+import org.example.graduationproject.models.ChiTietHoaDon;
+import org.example.graduationproject.models.HoaDon;
+import org.example.graduationproject.models.ImageSanPham;
+import org.example.graduationproject.models.Loai;
+import org.example.graduationproject.models.MauSac;
+import org.example.graduationproject.models.NhaCungCap;
+import org.example.graduationproject.models.NhanHieu;
+import org.example.graduationproject.models.Role;
+import org.example.graduationproject.models.SanPham;
+import org.example.graduationproject.models.SanPhamBienThe;
+import org.example.graduationproject.models.Size;
+import org.example.graduationproject.models.User;
+import org.example.graduationproject.models.UserRole;
+import org.example.graduationproject.repositories.BatchInsertRepository;
+import org.example.graduationproject.services.ApproximateCountService;
+import org.example.graduationproject.services.GioHangService;
+import org.example.graduationproject.services.SanPhamBienTheService;
+import org.example.graduationproject.services.StockLedgerService;
+import org.example.graduationproject.services.StockReservationService;
+import org.example.graduationproject.services.cache.ReferenceDataCache;
+import org.example.graduationproject.utils.SqlStatementCounter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Số câu lệnh SQL của các service đứng sau endpoint danh sách, tính cả các quan hệ mà controller đọc khi dựng DTO.
+ * Mỗi trường hợp so sánh trang nhỏ với trang lớn: số câu lệnh phải bằng nhau (không N+1)
+ * và không vượt ngân sách của StatementBudgetInterceptor cho endpoint đó.
+ */
+@DataJpaTest
+@ActiveProfiles("test")
+@Import({HibernateConfig.class, HoaDonServiceImpl.class, SanPhamServiceImpl.class})
+class ListingStatementCountTest {
+
+    private static final int ORDERS = 8;
+    private static final int PRODUCTS = 8;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private HoaDonServiceImpl hoaDonService;
+
+    @Autowired
+    private SanPhamServiceImpl sanPhamService;
+
+    @MockitoBean
+    private BatchInsertRepository batchInsertRepository;
+
+    @MockitoBean
+    private GioHangService gioHangService;
+
+    @MockitoBean
+    private SanPhamBienTheService sanPhamBienTheService;
+
+    @MockitoBean
+    private StockLedgerService stockLedgerService;
+
+    @MockitoBean
+    private StockReservationService stockReservationService;
+
+    @MockitoBean
+    private ApproximateCountService approximateCountService;
+
+    @MockitoBean
+    private OrderEventPublisher orderEventPublisher;
+
+    @MockitoBean
+    private ReferenceDataCache referenceDataCache;
+
+    @MockitoBean
+    private ProductEventPublisher productEventPublisher;
+
+    private final List<User> users = new ArrayList<>();
+    private Integer firstOrderId;
+
+    @BeforeEach
+    void seed() {
+        Loai loai = new Loai();
+        loai.setTen("Áo");
+        entityManager.persist(loai);
+        NhanHieu nhanHieu = new NhanHieu();
+        nhanHieu.setTen("Brand");
+        entityManager.persist(nhanHieu);
+        NhaCungCap nhaCungCap = new NhaCungCap();
+        nhaCungCap.setTen("Supplier");
+        entityManager.persist(nhaCungCap);
+        MauSac mauSac = new MauSac();
+        mauSac.setMaMau("#000000");
+        mauSac.setLoai(loai);
+        entityManager.persist(mauSac);
+        Size size = new Size();
+        size.setTenSize("M");
+        size.setLoai(loai);
+        entityManager.persist(size);
+
+        List<SanPhamBienThe> variants = new ArrayList<>();
+        for (int i = 0; i < PRODUCTS; i++) {
+            SanPham sanPham = new SanPham();
+            sanPham.setTen("San pham " + i);
+            sanPham.setGiaBan(BigDecimal.valueOf(100_000 + i));
+            sanPham.setTrangThaiHoatDong(true);
+            sanPham.setGioiTinh(0);
+            sanPham.setLoai(loai);
+            sanPham.setNhanHieu(nhanHieu);
+            sanPham.setNhaCungCap(nhaCungCap);
+            sanPham.setNgayTao(LocalDateTime.now());
+            entityManager.persist(sanPham);
+            for (int j = 0; j < 2; j++) {
+                ImageSanPham image = new ImageSanPham();
+                image.setImageName("img-" + i + "-" + j + ".jpg");
+                image.setSanPham(sanPham);
+                entityManager.persist(image);
+            }
+            SanPhamBienThe variant = new SanPhamBienThe();
+            variant.setSanPham(sanPham);
+            variant.setMauSac(mauSac);
+            variant.setSize(size);
+            variant.setSoLuongTon(10);
+            entityManager.persist(variant);
+            variants.add(variant);
+        }
+
+        Role role = new Role();
+        role.setName("ROLE_USER");
+        entityManager.persist(role);
+        for (int i = 0; i < 3; i++) {
+            User user = new User();
+            user.setUsername("user" + i);
+            user.setEmail("user" + i + "@example.com");
+            user.setHoTen("User " + i);
+            entityManager.persist(user);
+            UserRole userRole = new UserRole();
+            userRole.setUser(user);
+            userRole.setRole(role);
+            entityManager.persist(userRole);
+            users.add(user);
+        }
+
+        LocalDateTime base = LocalDateTime.of(2024, 1, 1, 8, 0);
+        for (int i = 0; i < ORDERS; i++) {
+            HoaDon hoaDon = new HoaDon();
+            hoaDon.setNgayTao(base.plusHours(i));
+            hoaDon.setTrangThai("Chờ duyệt");
+            hoaDon.setTongTien(BigDecimal.valueOf(300_000));
+            // user0 có 1 đơn, user1 / user2 chia các đơn còn lại
+            hoaDon.setUser(users.get(i == 0 ? 0 : 1 + i % 2));
+            entityManager.persist(hoaDon);
+            for (int j = 0; j < 3; j++) {
+                ChiTietHoaDon detail = new ChiTietHoaDon();
+                detail.setHoaDon(hoaDon);
+                detail.setSanPhamBienThe(variants.get((i + j) % variants.size()));
+                detail.setSoLuong(1);
+                detail.setThanhTien(BigDecimal.valueOf(100_000));
+                entityManager.persist(detail);
+            }
+            if (firstOrderId == null) {
+                firstOrderId = hoaDon.getId();
+            }
+        }
+    }
+
+    @AfterEach
+    void clearCounter() {
+        SqlStatementCounter.stop();
+    }
+
+    @Test
+    void adminInvoicePageDoesNotGrowWithPageSize() {
+        int small = statements(() -> touchInvoices(hoaDonService.getAllInvoices(invoicePage(2)).getContent(), false));
+        int large = statements(() -> touchInvoices(hoaDonService.getAllInvoices(invoicePage(6)).getContent(), false));
+
+        assertThat(large).isEqualTo(small);
+        assertThat(large).isLessThanOrEqualTo(StatementBudgetInterceptor.findBudget("/api/admin/invoices"));
+    }
+
+    @Test
+    void adminInvoiceKeysetPageDoesNotGrowWithPageSize() {
+        int small = statements(() -> touchInvoices(hoaDonService.getInvoicesKeyset(null, 2).getContent(), false));
+        int large = statements(() -> touchInvoices(hoaDonService.getInvoicesKeyset(null, 6).getContent(), false));
+
+        assertThat(large).isEqualTo(small);
+        assertThat(large).isLessThanOrEqualTo(StatementBudgetInterceptor.findBudget("/api/admin/invoices"));
+    }
+
+    @Test
+    void adminInvoiceDetailStaysWithinBudget() {
+        int count = statements(() -> touchInvoices(List.of(hoaDonService.getOrderById(firstOrderId)), false));
+
+        assertThat(count).isLessThanOrEqualTo(StatementBudgetInterceptor.findBudget("/api/admin/invoices/" + firstOrderId));
+    }
+
+    @Test
+    void userOrdersDoNotGrowWithOrderCount() {
+        int oneOrder = statements(() -> touchInvoices(hoaDonService.getUserOrders(users.get(0)), true));
+        int manyOrders = statements(() -> touchInvoices(hoaDonService.getUserOrders(users.get(1)), true));
+
+        assertThat(manyOrders).isEqualTo(oneOrder);
+        assertThat(manyOrders).isLessThanOrEqualTo(StatementBudgetInterceptor.findBudget("/api/user/orders"));
+    }
+
+    @Test
+    void productPageDoesNotGrowWithPageSize() {
+        int small = statements(() -> touchProducts(sanPhamService.getProductsWithFilters("", null, null, 0, 2).getContent()));
+        int large = statements(() -> touchProducts(sanPhamService.getProductsWithFilters("", null, null, 0, 6).getContent()));
+
+        assertThat(large).isEqualTo(small);
+        assertThat(large).isLessThanOrEqualTo(StatementBudgetInterceptor.findBudget("/api/admin/products"));
+    }
+
+    @Test
+    void productKeysetPageDoesNotGrowWithPageSize() {
+        int small = statements(() -> touchProducts(keysetProducts(2)));
+        int large = statements(() -> touchProducts(keysetProducts(6)));
+
+        assertThat(large).isEqualTo(small);
+        assertThat(large).isLessThanOrEqualTo(StatementBudgetInterceptor.findBudget("/api/admin/products"));
+    }
+
+    /**
+     * Đếm câu lệnh của listing trên persistence context trống, như một request mới
+     */
+    private int statements(Runnable listing) {
+        entityManager.flush();
+        entityManager.clear();
+        SqlStatementCounter.start();
+        listing.run();
+        return SqlStatementCounter.stop();
+    }
+
+    private List<SanPham> keysetProducts(int size) {
+        CursorPage<SanPham> page = sanPhamService.getProductsWithFiltersKeyset("", null, null, null, size);
+        assertThat(page.isHasNext()).isTrue();
+        return page.getContent();
+    }
+
+    private static PageRequest invoicePage(int size) {
+        return PageRequest.of(0, size, Sort.by("ngayTao").descending());
+    }
+
+    // Đọc đúng các quan hệ mà AdminInvoiceApiController / UserOrderApiController dùng khi dựng DTO
+    private static void touchInvoices(List<HoaDon> invoices, boolean withImages) {
+        Set<Object> seen = new HashSet<>();
+        for (HoaDon hoaDon : invoices) {
+            seen.add(hoaDon.getUser().getHoTen());
+            seen.add(hoaDon.getUser().getUserRoles().size());
+            for (ChiTietHoaDon detail : hoaDon.getChiTietHoaDons()) {
+                SanPhamBienThe variant = detail.getSanPhamBienThe();
+                seen.add(variant.getSanPham().getTen());
+                seen.add(variant.getSize().getTenSize());
+                seen.add(variant.getMauSac().getMaMau());
+                if (withImages) {
+                    seen.add(variant.getSanPham().getImages().get(0).getImageName());
+                }
+            }
+        }
+        assertThat(seen).isNotEmpty();
+    }
+
+    // Đọc đúng các quan hệ mà ProductApiController.convertToDTO dùng
+    private static void touchProducts(List<SanPham> products) {
+        assertThat(products).isNotEmpty();
+        for (SanPham sanPham : products) {
+            assertThat(sanPham.getLoai().getId()).isNotNull();
+            assertThat(sanPham.getNhanHieu().getId()).isNotNull();
+            assertThat(sanPham.getNhaCungCap().getId()).isNotNull();
+            assertThat(sanPham.getImages()).hasSize(2);
+        }
+    }
+}
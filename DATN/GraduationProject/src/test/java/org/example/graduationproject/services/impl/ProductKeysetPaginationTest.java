@@ -0,0 +1,81 @@
+package org.example.graduationproject.services.impl;
+
+import org.example.graduationproject.dto.CursorPage;
+import org.example.graduationproject.events.ProductEventPublisher;
+import org.example.graduationproject.models.SanPham;
+import org.example.graduationproject.services.ApproximateCountService;
+import org.example.graduationproject.services.cache.ReferenceDataCache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@Import(SanPhamServiceImpl.class)
+class ProductKeysetPaginationTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private SanPhamServiceImpl sanPhamService;
+
+    @MockitoBean
+    private ApproximateCountService approximateCountService;
+
+    @MockitoBean
+    private ReferenceDataCache referenceDataCache;
+
+    @MockitoBean
+    private ProductEventPublisher productEventPublisher;
+
+    private final List<Integer> seededIds = new ArrayList<>();
+
+    @BeforeEach
+    void seed() {
+        for (String ten : new String[]{null, "B", null, "", "A", null, "A", ""}) {
+            SanPham sanPham = new SanPham();
+            sanPham.setTen(ten);
+            sanPham.setTrangThaiHoatDong(true);
+            seededIds.add(entityManager.persist(sanPham).getId());
+        }
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void everyProductIsVisitedOnceIncludingNullNames() {
+        for (int size = 1; size <= 4; size++) {
+            assertThat(walk(size)).as("page size %d", size).containsExactlyInAnyOrderElementsOf(seededIds);
+        }
+    }
+
+    @Test
+    void pagesFollowFirstPageOrder() {
+        assertThat(walk(2)).containsExactlyElementsOf(walk(seededIds.size()));
+    }
+
+    private List<Integer> walk(int size) {
+        List<Integer> visited = new ArrayList<>();
+        String cursor = null;
+        for (int guard = 0; guard <= seededIds.size(); guard++) {
+            CursorPage<SanPham> page = sanPhamService.getProductsWithFiltersKeyset(null, null, null, cursor, size);
+            page.getContent().forEach(sanPham -> visited.add(sanPham.getId()));
+            if (!page.isHasNext()) {
+                return visited;
+            }
+            cursor = page.getNextCursor();
+        }
+        throw new AssertionError("Keyset pagination did not terminate");
+    }
+}
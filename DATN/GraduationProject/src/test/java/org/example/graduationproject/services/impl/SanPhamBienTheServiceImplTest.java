@@ -0,0 +1,82 @@
+package org.example.graduationproject.services.impl;
+
+import org.example.graduationproject.dto.BulkProductVariantDTO;
+import org.example.graduationproject.repositories.BatchInsertRepository;
+import org.example.graduationproject.repositories.SanPhamBienTheRepository;
+import org.example.graduationproject.repositories.SanPhamRepository;
+import org.example.graduationproject.services.cache.ReferenceDataCache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+class SanPhamBienTheServiceImplTest {
+
+    private SanPhamRepository sanPhamRepository;
+    private SanPhamBienTheRepository sanPhamBienTheRepository;
+    private BatchInsertRepository batchInsertRepository;
+    private SanPhamBienTheServiceImpl service;
+
+    @BeforeEach
+    void setUp() {
+        sanPhamRepository = mock(SanPhamRepository.class);
+        sanPhamBienTheRepository = mock(SanPhamBienTheRepository.class);
+        batchInsertRepository = mock(BatchInsertRepository.class);
+        service = new SanPhamBienTheServiceImpl();
+        ReflectionTestUtils.setField(service, "sanPhamRepository", sanPhamRepository);
+        ReflectionTestUtils.setField(service, "sanPhamBienTheRepository", sanPhamBienTheRepository);
+        ReflectionTestUtils.setField(service, "batchInsertRepository", batchInsertRepository);
+        ReflectionTestUtils.setField(service, "referenceDataCache", mock(ReferenceDataCache.class));
+        ReflectionTestUtils.setField(service, "maxBulkProducts", 10);
+        ReflectionTestUtils.setField(service, "maxBulkCells", 100);
+    }
+
+    @Test
+    void rejectsRequestWhoseCellsExceedCapAcrossProducts() {
+        // 3 sản phẩm × 6 màu × 6 size = 108 ô, mỗi sản phẩm riêng lẻ vẫn dưới giới hạn
+        List<BulkProductVariantDTO> bulkDTOs = new ArrayList<>();
+        for (int sanPhamId = 1; sanPhamId <= 3; sanPhamId++) {
+            bulkDTOs.add(bulk(sanPhamId, 6, 6));
+        }
+
+        assertThatThrownBy(() -> service.createBulkProductVariantsForProducts(bulkDTOs))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("max 100");
+        verifyNoInteractions(sanPhamRepository, sanPhamBienTheRepository, batchInsertRepository);
+    }
+
+    @Test
+    void rejectsSingleProductMatrixAboveCap() {
+        assertThatThrownBy(() -> service.createBulkProductVariantsWithResult(bulk(1, 11, 10)))
+                .isInstanceOf(IllegalArgumentException.class);
+        verifyNoInteractions(sanPhamRepository, sanPhamBienTheRepository, batchInsertRepository);
+    }
+
+    @Test
+    void rejectsTooManyProducts() {
+        List<BulkProductVariantDTO> bulkDTOs = new ArrayList<>();
+        for (int sanPhamId = 1; sanPhamId <= 11; sanPhamId++) {
+            bulkDTOs.add(bulk(sanPhamId, 1, 1));
+        }
+
+        assertThatThrownBy(() -> service.createBulkProductVariantsForProducts(bulkDTOs))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("max 10");
+    }
+
+    private static BulkProductVariantDTO bulk(int sanPhamId, int colors, int sizes) {
+        BulkProductVariantDTO dto = new BulkProductVariantDTO();
+        dto.setSanPhamId(sanPhamId);
+        dto.setMauSacIds(IntStream.rangeClosed(1, colors).boxed().toList());
+        dto.setSizeIds(IntStream.rangeClosed(1, sizes).boxed().toList());
+        dto.setSoLuongTon(0);
+        return dto;
+    }
+}
@@ -0,0 +1,192 @@
+package org.example.graduationproject.services.impl;
+
+import org.example.graduationproject.dto.ProductVariantDTO;
+import org.example.graduationproject.events.ProductEventPublisher;
+import org.example.graduationproject.exceptions.InsufficientStockException;
+import org.example.graduationproject.models.MauSac;
+import org.example.graduationproject.models.SanPham;
+import org.example.graduationproject.models.SanPhamBienThe;
+import org.example.graduationproject.models.Size;
+import org.example.graduationproject.repositories.BatchInsertRepository;
+import org.example.graduationproject.services.cache.ReferenceDataCache;
+import org.example.graduationproject.services.search.VariantSearchIndex;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@Import({StockLedgerServiceImpl.class, SanPhamBienTheServiceImpl.class})
+class StockLedgerServiceImplTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private StockLedgerServiceImpl stockLedgerService;
+
+    @Autowired
+    private SanPhamBienTheServiceImpl sanPhamBienTheService;
+
+    @MockitoBean
+    private ReferenceDataCache referenceDataCache;
+
+    @MockitoBean
+    private VariantSearchIndex variantSearchIndex;
+
+    @MockitoBean
+    private ProductEventPublisher productEventPublisher;
+
+    @MockitoBean
+    private BatchInsertRepository batchInsertRepository;
+
+    private SanPham sanPham;
+    private SanPhamBienThe held;
+    private SanPhamBienThe free;
+
+    @BeforeEach
+    void seed() {
+        sanPham = new SanPham();
+        sanPham.setTen("Ao");
+        entityManager.persist(sanPham);
+        held = variant(sanPham, 10);
+        free = variant(sanPham, 5);
+        entityManager.flush();
+        // soLuongDaGiu chỉ ghi được qua sổ cái
+        stockLedgerService.hold(Map.of(held.getId(), 4));
+        entityManager.clear();
+    }
+
+    @Test
+    void setOnHandWritesOnlyOnHandColumn() {
+        stockLedgerService.setOnHand(Map.of(held.getId(), 6, free.getId(), 0));
+
+        SanPhamBienThe reloadedHeld = reload(held);
+        assertThat(reloadedHeld.getSoLuongTon()).isEqualTo(6);
+        assertThat(reloadedHeld.getSoLuongDaGiu()).isEqualTo(4);
+        assertThat(reloadedHeld.getSoLuongCoTheBan()).isEqualTo(2);
+        assertThat(reload(free).getSoLuongTon()).isZero();
+    }
+
+    @Test
+    void setOnHandRejectsValueBelowHeldQuantity() {
+        assertThatThrownBy(() -> stockLedgerService.setOnHand(Map.of(held.getId(), 3, free.getId(), 8)))
+                .isInstanceOfSatisfying(InsufficientStockException.class, e -> {
+                    assertThat(e.getShortages()).hasSize(1);
+                    InsufficientStockException.Shortage conflict = e.getShortages().get(0);
+                    assertThat(conflict.getVariantId()).isEqualTo(held.getId());
+                    assertThat(conflict.getRequested()).isEqualTo(4);
+                    assertThat(conflict.getAvailable()).isEqualTo(3);
+                });
+        assertThat(reload(held).getSoLuongTon()).isEqualTo(10);
+    }
+
+    @Test
+    void setOnHandReportsMissingVariant() {
+        assertThatThrownBy(() -> stockLedgerService.setOnHand(Map.of(-1, 5)))
+                .isInstanceOfSatisfying(InsufficientStockException.class,
+                        e -> assertThat(e.getShortages()).extracting(InsufficientStockException.Shortage::getVariantId)
+                                .containsExactly(-1));
+    }
+
+    @Test
+    void setOnHandIgnoresNegativeAndNullQuantities() {
+        Map<Integer, Integer> quantities = new HashMap<>();
+        quantities.put(held.getId(), -1);
+        quantities.put(free.getId(), null);
+
+        stockLedgerService.setOnHand(quantities);
+
+        assertThat(reload(held).getSoLuongTon()).isEqualTo(10);
+        assertThat(reload(free).getSoLuongTon()).isEqualTo(5);
+    }
+
+    @Test
+    void adminUpdateCannotSetOnHandBelowHeldQuantity() {
+        stubReferenceData();
+
+        assertThatThrownBy(() -> sanPhamBienTheService.updateProductVariant(dto(held, 3)))
+                .isInstanceOf(InsufficientStockException.class);
+
+        SanPhamBienThe reloaded = reload(held);
+        assertThat(reloaded.getSoLuongTon()).isEqualTo(10);
+        assertThat(reloaded.getSoLuongDaGiu()).isEqualTo(4);
+    }
+
+    @Test
+    void adminUpdateSetsOnHandThroughLedgerAndKeepsHold() {
+        stubReferenceData();
+
+        SanPhamBienThe updated = sanPhamBienTheService.updateProductVariant(dto(held, 7));
+        entityManager.flush();
+
+        assertThat(updated.getSoLuongTon()).isEqualTo(7);
+        SanPhamBienThe reloaded = reload(held);
+        assertThat(reloaded.getSoLuongTon()).isEqualTo(7);
+        assertThat(reloaded.getSoLuongDaGiu()).isEqualTo(4);
+        assertThat(reloaded.getMauSac()).isNotNull();
+    }
+
+    @Test
+    void savingStaleEntityDoesNotOverwriteStockColumns() {
+        SanPhamBienThe stale = entityManager.find(SanPhamBienThe.class, held.getId());
+        stockLedgerService.reserve(Map.of(held.getId(), 2));
+
+        stale.setSoLuongTon(100);
+        stale.setSoLuongDaGiu(0);
+        stale.setSanPham(sanPham);
+        entityManager.merge(stale);
+        entityManager.flush();
+
+        SanPhamBienThe reloaded = reload(held);
+        assertThat(reloaded.getSoLuongTon()).isEqualTo(8);
+        assertThat(reloaded.getSoLuongDaGiu()).isEqualTo(4);
+    }
+
+    private void stubReferenceData() {
+        MauSac mauSac = new MauSac();
+        mauSac.setMaMau("Den");
+        entityManager.persist(mauSac);
+        Size size = new Size();
+        size.setTenSize("M");
+        entityManager.persist(size);
+        when(referenceDataCache.getMauSac(any())).thenReturn(Optional.of(mauSac));
+        when(referenceDataCache.getSize(any())).thenReturn(Optional.of(size));
+    }
+
+    private ProductVariantDTO dto(SanPhamBienThe variant, int soLuongTon) {
+        ProductVariantDTO dto = new ProductVariantDTO();
+        dto.setId(variant.getId());
+        dto.setSanPhamId(sanPham.getId());
+        dto.setMauSacId(1);
+        dto.setSizeId(1);
+        dto.setSoLuongTon(soLuongTon);
+        return dto;
+    }
+
+    private SanPhamBienThe variant(SanPham sanPham, int onHand) {
+        SanPhamBienThe variant = new SanPhamBienThe();
+        variant.setSanPham(sanPham);
+        variant.setSoLuongTon(onHand);
+        return entityManager.persist(variant);
+    }
+
+    private SanPhamBienThe reload(SanPhamBienThe variant) {
+        entityManager.clear();
+        return entityManager.find(SanPhamBienThe.class, variant.getId());
+    }
+}
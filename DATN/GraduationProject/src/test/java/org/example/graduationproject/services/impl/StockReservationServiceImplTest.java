@@ -0,0 +1,262 @@
+package org.example.graduationproject.services.impl;
+
+import org.example.graduationproject.controllers.api.ProductVariantApiController;
+import org.example.graduationproject.dto.ProductVariantDTO;
+import org.example.graduationproject.events.ProductEventPublisher;
+import org.example.graduationproject.exceptions.InsufficientStockException;
+import org.example.graduationproject.models.ChiTietHoaDon;
+import org.example.graduationproject.models.GiuTonKho;
+import org.example.graduationproject.models.HoaDon;
+import org.example.graduationproject.models.MauSac;
+import org.example.graduationproject.models.SanPham;
+import org.example.graduationproject.models.SanPhamBienThe;
+import org.example.graduationproject.models.Size;
+import org.example.graduationproject.repositories.BatchInsertRepository;
+import org.example.graduationproject.repositories.GiuTonKhoRepository;
+import org.example.graduationproject.services.cache.ReferenceDataCache;
+import org.example.graduationproject.services.search.VariantSearchIndex;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@Import({StockLedgerServiceImpl.class, StockReservationServiceImpl.class, SanPhamBienTheServiceImpl.class,
+        ProductVariantApiController.class})
+class StockReservationServiceImplTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private StockReservationServiceImpl stockReservationService;
+
+    @Autowired
+    private GiuTonKhoRepository giuTonKhoRepository;
+
+    @Autowired
+    private ProductVariantApiController productVariantApiController;
+
+    @MockitoBean
+    private ReferenceDataCache referenceDataCache;
+
+    @MockitoBean
+    private VariantSearchIndex variantSearchIndex;
+
+    @MockitoBean
+    private ProductEventPublisher productEventPublisher;
+
+    @MockitoBean
+    private BatchInsertRepository batchInsertRepository;
+
+    private SanPham sanPham;
+    private MauSac mauSac;
+    private Size size;
+    private SanPhamBienThe variant;
+
+    @BeforeEach
+    void seed() {
+        sanPham = new SanPham();
+        sanPham.setTen("Ao");
+        entityManager.persist(sanPham);
+        mauSac = new MauSac();
+        mauSac.setMaMau("Den");
+        entityManager.persist(mauSac);
+        size = new Size();
+        size.setTenSize("M");
+        entityManager.persist(size);
+
+        variant = new SanPhamBienThe();
+        variant.setSanPham(sanPham);
+        variant.setMauSac(mauSac);
+        variant.setSize(size);
+        variant.setSoLuongTon(10);
+        entityManager.persist(variant);
+        entityManager.flush();
+        entityManager.clear();
+
+        when(referenceDataCache.getMauSac(any())).thenReturn(Optional.of(mauSac));
+        when(referenceDataCache.getSize(any())).thenReturn(Optional.of(size));
+    }
+
+    @Test
+    void holdForOrderHoldsMergedQuantityAndRecordsOneHoldPerVariant() {
+        HoaDon hoaDon = order();
+
+        stockReservationService.holdForOrder(hoaDon, List.of(line(2), line(1), line(0)));
+
+        SanPhamBienThe reloaded = reload();
+        assertThat(reloaded.getSoLuongTon()).isEqualTo(10);
+        assertThat(reloaded.getSoLuongDaGiu()).isEqualTo(3);
+        assertThat(giuTonKhoRepository.findAll()).singleElement().satisfies(hold -> {
+            assertThat(hold.getSoLuong()).isEqualTo(3);
+            assertThat(hold.getTrangThai()).isEqualTo("HELD");
+            assertThat(hold.getHanGiu()).isAfter(LocalDateTime.now());
+        });
+    }
+
+    @Test
+    void holdForOrderRejectsQuantityAboveAvailable() {
+        stockReservationService.holdForOrder(order(), List.of(line(8)));
+
+        assertThatThrownBy(() -> stockReservationService.holdForOrder(order(), List.of(line(3))))
+                .isInstanceOf(InsufficientStockException.class);
+
+        assertThat(reload().getSoLuongDaGiu()).isEqualTo(8);
+        assertThat(giuTonKhoRepository.findAll()).hasSize(1);
+    }
+
+    @Test
+    void commitForOrderTurnsHoldIntoSale() {
+        HoaDon hoaDon = order();
+        stockReservationService.holdForOrder(hoaDon, List.of(line(3)));
+
+        stockReservationService.commitForOrder(hoaDon, List.of(line(3)));
+
+        SanPhamBienThe reloaded = reload();
+        assertThat(reloaded.getSoLuongTon()).isEqualTo(7);
+        assertThat(reloaded.getSoLuongDaGiu()).isZero();
+        assertThat(giuTonKhoRepository.findAll()).extracting(GiuTonKho::getTrangThai).containsExactly("COMMITTED");
+    }
+
+    @Test
+    void commitForOrderTakesUncoveredQuantityFromAvailableStock() {
+        HoaDon hoaDon = order();
+        stockReservationService.holdForOrder(hoaDon, List.of(line(3)));
+
+        stockReservationService.commitForOrder(hoaDon, List.of(line(5)));
+
+        SanPhamBienThe reloaded = reload();
+        assertThat(reloaded.getSoLuongTon()).isEqualTo(5);
+        assertThat(reloaded.getSoLuongDaGiu()).isZero();
+    }
+
+    @Test
+    void commitForOrderAfterExpiryFailsWhenStockWasSoldMeanwhile() {
+        HoaDon expiredOrder = order();
+        stockReservationService.holdForOrder(expiredOrder, List.of(line(6)));
+        expireAll();
+        assertThat(stockReservationService.expireHoldsBatch(10)).isEqualTo(1);
+        stockReservationService.holdForOrder(order(), List.of(line(8)));
+
+        assertThatThrownBy(() -> stockReservationService.commitForOrder(expiredOrder, List.of(line(6))))
+                .isInstanceOf(InsufficientStockException.class);
+    }
+
+    @Test
+    void releaseForOrderReturnsHoldOnce() {
+        HoaDon hoaDon = order();
+        stockReservationService.holdForOrder(hoaDon, List.of(line(4)));
+
+        stockReservationService.releaseForOrder(hoaDon);
+        stockReservationService.releaseForOrder(hoaDon);
+
+        assertThat(reload().getSoLuongDaGiu()).isZero();
+        assertThat(giuTonKhoRepository.findAll()).extracting(GiuTonKho::getTrangThai).containsExactly("RELEASED");
+    }
+
+    @Test
+    void expireHoldsBatchReleasesOnlyExpiredHolds() {
+        stockReservationService.holdForOrder(order(), List.of(line(2)));
+        expireAll();
+        stockReservationService.holdForOrder(order(), List.of(line(3)));
+
+        assertThat(stockReservationService.expireHoldsBatch(10)).isEqualTo(1);
+        assertThat(stockReservationService.expireHoldsBatch(10)).isZero();
+
+        assertThat(reload().getSoLuongDaGiu()).isEqualTo(3);
+        assertThat(giuTonKhoRepository.findAll()).extracting(GiuTonKho::getTrangThai)
+                .containsExactlyInAnyOrder("RELEASED", "HELD");
+    }
+
+    @Test
+    void expireHoldsBatchRespectsBatchSize() {
+        for (int i = 0; i < 3; i++) {
+            stockReservationService.holdForOrder(order(), List.of(line(1)));
+        }
+        expireAll();
+
+        assertThat(stockReservationService.expireHoldsBatch(2)).isEqualTo(2);
+        assertThat(stockReservationService.expireHoldsBatch(2)).isEqualTo(1);
+        assertThat(reload().getSoLuongDaGiu()).isZero();
+    }
+
+    @Test
+    void adminEditOfVariantKeepsActiveHold() {
+        stockReservationService.holdForOrder(order(), List.of(line(3)));
+
+        ResponseEntity<Map<String, Object>> response = productVariantApiController.updateVariant(variant.getId(), dto(8));
+
+        assertThat(response.getStatusCode().value()).isEqualTo(200);
+        SanPhamBienThe reloaded = reload();
+        assertThat(reloaded.getSoLuongTon()).isEqualTo(8);
+        assertThat(reloaded.getSoLuongDaGiu()).isEqualTo(3);
+        assertThat(reloaded.getSoLuongCoTheBan()).isEqualTo(5);
+    }
+
+    @Test
+    void adminEditBelowHeldQuantityIsRejected() {
+        stockReservationService.holdForOrder(order(), List.of(line(3)));
+
+        ResponseEntity<Map<String, Object>> response = productVariantApiController.updateVariant(variant.getId(), dto(2));
+
+        assertThat(response.getStatusCode().value()).isEqualTo(409);
+        SanPhamBienThe reloaded = reload();
+        assertThat(reloaded.getSoLuongTon()).isEqualTo(10);
+        assertThat(reloaded.getSoLuongDaGiu()).isEqualTo(3);
+    }
+
+    private HoaDon order() {
+        HoaDon hoaDon = new HoaDon();
+        hoaDon.setTrangThai("Chờ duyệt");
+        hoaDon.setNgayTao(LocalDateTime.now());
+        return entityManager.persist(hoaDon);
+    }
+
+    private ChiTietHoaDon line(int soLuong) {
+        ChiTietHoaDon line = new ChiTietHoaDon();
+        line.setSanPhamBienThe(entityManager.find(SanPhamBienThe.class, variant.getId()));
+        line.setSoLuong(soLuong);
+        return line;
+    }
+
+    private ProductVariantDTO dto(int soLuongTon) {
+        ProductVariantDTO dto = new ProductVariantDTO();
+        dto.setSanPhamId(sanPham.getId());
+        dto.setMauSacId(mauSac.getId());
+        dto.setSizeId(size.getId());
+        dto.setSoLuongTon(soLuongTon);
+        return dto;
+    }
+
+    private void expireAll() {
+        List<GiuTonKho> holds = new ArrayList<>(giuTonKhoRepository.findAll());
+        for (GiuTonKho hold : holds) {
+            hold.setHanGiu(LocalDateTime.now().minusMinutes(1));
+        }
+        entityManager.flush();
+    }
+
+    private SanPhamBienThe reload() {
+        entityManager.flush();
+        entityManager.clear();
+        return entityManager.find(SanPhamBienThe.class, variant.getId());
+    }
+}
@@ -0,0 +1,182 @@
+package org.example.graduationproject.services.notification.dispatch;
+
+import org.example.graduationproject.dto.NotificationRequest;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ChannelQueueTest {
+
+    private static final long LONG_WINDOW = 60_000;
+
+    @Test
+    void requestsForSameKeyAreCoalescedUntilWindowEnds() throws InterruptedException {
+        ChannelQueue queue = new ChannelQueue(100, 10, 100);
+
+        assertThat(queue.offer("user:1", request("a"))).isEqualTo(ChannelQueue.Offer.NEW);
+        assertThat(queue.offer("user:1", request("b"))).isEqualTo(ChannelQueue.Offer.COALESCED);
+        assertThat(queue.offer("user:2", request("c"))).isEqualTo(ChannelQueue.Offer.NEW);
+
+        assertThat(queue.take(10, 0)).isEmpty();
+        assertThat(queue.getOpenCount()).isEqualTo(2);
+
+        Thread.sleep(150);
+        List<PendingNotification> batch = queue.take(10, 0);
+        assertThat(batch).extracting(p -> p.key).containsExactly("user:1", "user:2");
+        assertThat(batch.get(0).requests).extracting(NotificationRequest::getMessage).containsExactly("a", "b");
+        assertThat(queue.getQueued()).isEqualTo(3);
+    }
+
+    @Test
+    void groupIsReadyAsSoonAsMaxCoalescedIsReached() throws InterruptedException {
+        ChannelQueue queue = new ChannelQueue(LONG_WINDOW, 2, 100);
+        queue.offer("user:1", request("a"));
+        queue.offer("user:1", request("b"));
+
+        assertThat(queue.getOpenCount()).isZero();
+        assertThat(queue.take(10, 0)).singleElement().satisfies(p -> assertThat(p.requests).hasSize(2));
+
+        // Nhóm đã đóng, request tiếp theo mở nhóm mới
+        assertThat(queue.offer("user:1", request("c"))).isEqualTo(ChannelQueue.Offer.NEW);
+        assertThat(queue.getOpenCount()).isEqualTo(1);
+    }
+
+    @Test
+    void requestWithoutKeyIsNeverCoalesced() throws InterruptedException {
+        ChannelQueue queue = new ChannelQueue(LONG_WINDOW, 10, 100);
+
+        assertThat(queue.offer(null, request("a"))).isEqualTo(ChannelQueue.Offer.NEW);
+        assertThat(queue.offer(null, request("b"))).isEqualTo(ChannelQueue.Offer.NEW);
+
+        assertThat(queue.getOpenCount()).isZero();
+        assertThat(queue.take(10, 0)).hasSize(2).allSatisfy(p -> {
+            assertThat(p.key).isNull();
+            assertThat(p.requests).hasSize(1);
+        });
+    }
+
+    @Test
+    void capacityCountsRequestsUntilCompleted() throws InterruptedException {
+        ChannelQueue queue = new ChannelQueue(LONG_WINDOW, 10, 2);
+        queue.offer(null, request("a"));
+        queue.offer("user:1", request("b"));
+
+        assertThat(queue.offer("user:1", request("c"))).isEqualTo(ChannelQueue.Offer.REJECTED);
+        assertThat(queue.offer(null, request("d"))).isEqualTo(ChannelQueue.Offer.REJECTED);
+        assertThat(queue.getQueued()).isEqualTo(2);
+
+        PendingNotification sent = queue.take(1, 0).get(0);
+        queue.complete(sent);
+
+        assertThat(queue.getQueued()).isEqualTo(1);
+        assertThat(queue.offer(null, request("e"))).isEqualTo(ChannelQueue.Offer.NEW);
+    }
+
+    @Test
+    void takeReturnsAtMostMaxEntries() throws InterruptedException {
+        ChannelQueue queue = new ChannelQueue(LONG_WINDOW, 10, 100);
+        for (int i = 0; i < 5; i++) {
+            queue.offer(null, request("m" + i));
+        }
+
+        assertThat(queue.take(3, 0)).hasSize(3);
+        assertThat(queue.getReadyCount()).isEqualTo(2);
+    }
+
+    @Test
+    void retriedNotificationWaitsUntilDue() throws InterruptedException {
+        ChannelQueue queue = new ChannelQueue(LONG_WINDOW, 10, 100);
+        queue.offer(null, request("a"));
+        PendingNotification failed = queue.take(1, 0).get(0);
+
+        queue.retry(failed, System.currentTimeMillis() + 100);
+
+        assertThat(queue.take(10, 0)).isEmpty();
+        assertThat(queue.getRetryingCount()).isEqualTo(1);
+        assertThat(queue.take(10, 2_000)).containsExactly(failed);
+        assertThat(queue.getRetryingCount()).isZero();
+        // Request vẫn được tính vào capacity cho tới khi complete
+        assertThat(queue.getQueued()).isEqualTo(1);
+    }
+
+    @Test
+    void retriesAreReleasedInDueOrder() throws InterruptedException {
+        ChannelQueue queue = new ChannelQueue(LONG_WINDOW, 10, 100);
+        queue.offer(null, request("a"));
+        queue.offer(null, request("b"));
+        List<PendingNotification> failed = queue.take(2, 0);
+        long now = System.currentTimeMillis();
+
+        queue.retry(failed.get(0), now + 400);
+        queue.retry(failed.get(1), now + 40);
+
+        assertThat(queue.take(10, 2_000)).containsExactly(failed.get(1));
+        assertThat(queue.take(10, 2_000)).containsExactly(failed.get(0));
+    }
+
+    @Test
+    void closeFlushesOpenAndRetryingImmediately() throws InterruptedException {
+        ChannelQueue queue = new ChannelQueue(LONG_WINDOW, 10, 100);
+        queue.offer(null, request("a"));
+        PendingNotification failed = queue.take(1, 0).get(0);
+        queue.retry(failed, System.currentTimeMillis() + LONG_WINDOW);
+        queue.offer("user:1", request("b"));
+
+        queue.close();
+
+        assertThat(queue.isClosed()).isTrue();
+        assertThat(queue.isDrained()).isFalse();
+        assertThat(queue.take(10, LONG_WINDOW)).hasSize(2);
+        assertThat(queue.isDrained()).isTrue();
+    }
+
+    @Test
+    void afterCloseOffersAndRetriesGoStraightToReady() throws InterruptedException {
+        ChannelQueue queue = new ChannelQueue(LONG_WINDOW, 10, 100);
+        queue.close();
+
+        assertThat(queue.offer("user:1", request("a"))).isEqualTo(ChannelQueue.Offer.NEW);
+        assertThat(queue.offer("user:1", request("b"))).isEqualTo(ChannelQueue.Offer.NEW);
+        List<PendingNotification> batch = queue.take(10, 0);
+        assertThat(batch).hasSize(2);
+
+        queue.retry(batch.get(0), System.currentTimeMillis() + LONG_WINDOW);
+        assertThat(queue.getRetryingCount()).isZero();
+        assertThat(queue.take(10, 0)).containsExactly(batch.get(0));
+    }
+
+    @Test
+    void closedEmptyQueueDoesNotBlockTake() throws InterruptedException {
+        ChannelQueue queue = new ChannelQueue(LONG_WINDOW, 10, 100);
+        queue.close();
+
+        long start = System.currentTimeMillis();
+        assertThat(queue.take(10, LONG_WINDOW)).isEmpty();
+        assertThat(System.currentTimeMillis() - start).isLessThan(1_000);
+    }
+
+    @Test
+    void blockedTakeWakesOnOffer() throws Exception {
+        ChannelQueue queue = new ChannelQueue(LONG_WINDOW, 10, 100);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<List<PendingNotification>> pending = executor.submit(() -> queue.take(10, 5_000));
+            Thread.sleep(50);
+            queue.offer(null, request("a"));
+
+            assertThat(pending.get(2, TimeUnit.SECONDS)).hasSize(1);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static NotificationRequest request(String message) {
+        return NotificationRequest.builder().message(message).build();
+    }
+}
@@ -0,0 +1,218 @@
+package org.example.graduationproject.services.report;
+
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.usermodel.DateUtil;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.example.graduationproject.dto.InvoiceReportRequest;
+import org.example.graduationproject.models.ChiTietHoaDon;
+import org.example.graduationproject.models.HoaDon;
+import org.example.graduationproject.models.MauSac;
+import org.example.graduationproject.models.SanPham;
+import org.example.graduationproject.models.SanPhamBienThe;
+import org.example.graduationproject.models.Size;
+import org.example.graduationproject.models.User;
+import org.example.graduationproject.services.export.ExportJob;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Báo cáo hóa đơn đọc thẳng từ Stream của truy vấn projection; cửa sổ SXSSF nhỏ để sheet
+ * phải flush xuống đĩa giữa chừng
+ */
+@DataJpaTest
+@ActiveProfiles("test")
+@Import(InvoiceReportWriter.class)
+@TestPropertySource(properties = "report.invoice.row-window=5")
+class InvoiceReportWriterTest {
+
+    private static final LocalDate FROM = LocalDate.of(2024, 3, 1);
+    private static final LocalDate TO = LocalDate.of(2024, 3, 31);
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private InvoiceReportWriter invoiceReportWriter;
+
+    private SanPhamBienThe variant;
+    private User user;
+
+    @BeforeEach
+    void seed() {
+        SanPham sanPham = new SanPham();
+        sanPham.setTen("Áo thun");
+        entityManager.persist(sanPham);
+        MauSac mauSac = new MauSac();
+        mauSac.setMaMau("Đỏ");
+        entityManager.persist(mauSac);
+        Size size = new Size();
+        size.setTenSize("M");
+        entityManager.persist(size);
+        variant = new SanPhamBienThe();
+        variant.setSanPham(sanPham);
+        variant.setMauSac(mauSac);
+        variant.setSize(size);
+        variant.setSoLuongTon(0);
+        entityManager.persist(variant);
+        user = new User();
+        user.setUsername("khach");
+        user.setEmail("khach@example.com");
+        entityManager.persist(user);
+    }
+
+    @Test
+    void csvCoversWholeDateRangeWithOneLinePerDetail() throws IOException {
+        HoaDon delivered = invoice(LocalDateTime.of(2024, 3, 1, 0, 0), "Đã giao hàng", "COD", 2);
+        // Ngày cuối được tính trọn ngày
+        HoaDon pending = invoice(LocalDateTime.of(2024, 3, 31, 23, 30), "Chờ xác nhận", "VNPAY", 0);
+        invoice(LocalDateTime.of(2024, 2, 29, 23, 59), "Đã giao hàng", "COD", 1);
+        invoice(LocalDateTime.of(2024, 4, 1, 0, 0), "Đã giao hàng", "COD", 1);
+        ExportJob job = mock(ExportJob.class);
+
+        List<String[]> lines = csv(request(null, null), job);
+
+        assertThat(lines).hasSize(4);
+        assertThat(lines.get(0)[0]).isEqualTo("\uFEFFMã HĐ");
+        assertThat(lines.get(1)).containsExactly(String.valueOf(delivered.getId()), "2024-03-01 00:00:00",
+                "Đã giao hàng", "COD", "Chưa", "Nguyễn Văn A", "0901234567", "khach@example.com",
+                "200000.00", "Áo thun", "Đỏ", "M", "1", "100000.00");
+        assertThat(lines.get(2)[12]).isEqualTo("2");
+        // Hóa đơn không có chi tiết vẫn có một dòng, các cột chi tiết để trống
+        assertThat(lines.get(3)[0]).isEqualTo(String.valueOf(pending.getId()));
+        assertThat(Arrays.copyOfRange(lines.get(3), 9, 14)).containsOnly("");
+        verify(job).setTotalRows(3);
+        verify(job).setRowsWritten(3);
+    }
+
+    @Test
+    void csvNeutralisesFormulaButKeepsSignedNumbers() throws IOException {
+        HoaDon hoaDon = invoice(LocalDateTime.of(2024, 3, 5, 9, 0), "Đã giao hàng", "COD", 0);
+        hoaDon.setTenNguoiNhan("=1+2");
+        hoaDon.setSoDienThoaiGiaoHang("+84901234567");
+        entityManager.flush();
+        entityManager.clear();
+
+        List<String[]> lines = csv(request(null, null), mock(ExportJob.class));
+
+        assertThat(lines.get(1)[5]).isEqualTo("'=1+2");
+        assertThat(lines.get(1)[6]).isEqualTo("+84901234567");
+    }
+
+    @Test
+    void statusAndPaymentFiltersIgnoreBlankValues() throws IOException {
+        invoice(LocalDateTime.of(2024, 3, 2, 9, 0), "Đã giao hàng", "COD", 2);
+        HoaDon vnpay = invoice(LocalDateTime.of(2024, 3, 3, 9, 0), "Đã giao hàng", "VNPAY", 1);
+        invoice(LocalDateTime.of(2024, 3, 4, 9, 0), "Đã hủy", "VNPAY", 1);
+
+        assertThat(csv(request("Đã giao hàng", " "), mock(ExportJob.class))).hasSize(4);
+        List<String[]> both = csv(request(" Đã giao hàng ", "VNPAY"), mock(ExportJob.class));
+        assertThat(both).hasSize(2);
+        assertThat(both.get(1)[0]).isEqualTo(String.valueOf(vnpay.getId()));
+    }
+
+    @Test
+    void xlsxWritesEveryRowPastTheSxssfWindowInDateOrder() throws IOException {
+        // Tạo ngược thứ tự ngày để kiểm tra ORDER BY chứ không phải thứ tự id
+        for (int day = 12; day >= 1; day--) {
+            invoice(LocalDateTime.of(2024, 3, day, 10, 0), "Đã giao hàng", "COD", 1);
+        }
+        ExportJob job = mock(ExportJob.class);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        invoiceReportWriter.writeXlsx(request(null, null), out, job);
+
+        try (XSSFWorkbook workbook = new XSSFWorkbook(new ByteArrayInputStream(out.toByteArray()))) {
+            Sheet sheet = workbook.getSheet("Hóa đơn");
+            assertThat(sheet.getRow(0).getCell(0).getStringCellValue()).isEqualTo("Mã HĐ");
+            assertThat(sheet.getLastRowNum()).isEqualTo(12);
+            for (int i = 1; i <= 12; i++) {
+                Row row = sheet.getRow(i);
+                assertThat(row.getCell(0).getCellType()).isEqualTo(CellType.NUMERIC);
+                assertThat(DateUtil.getLocalDateTime(row.getCell(1).getNumericCellValue()))
+                        .isEqualTo(LocalDateTime.of(2024, 3, i, 10, 0));
+                assertThat(row.getCell(8).getNumericCellValue()).isEqualTo(100_000);
+                assertThat(row.getCell(9).getStringCellValue()).isEqualTo("Áo thun");
+            }
+        }
+        verify(job).setTotalRows(12);
+        verify(job).setRowsWritten(12);
+    }
+
+    @Test
+    void emptyRangeStillWritesHeader() throws IOException {
+        invoice(LocalDateTime.of(2024, 5, 1, 9, 0), "Đã giao hàng", "COD", 1);
+        ExportJob job = mock(ExportJob.class);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        invoiceReportWriter.writeXlsx(request(null, null), out, job);
+
+        try (XSSFWorkbook workbook = new XSSFWorkbook(new ByteArrayInputStream(out.toByteArray()))) {
+            assertThat(workbook.getSheetAt(0).getLastRowNum()).isZero();
+        }
+        verify(job).setTotalRows(0);
+        verify(job).setRowsWritten(0);
+    }
+
+    private List<String[]> csv(InvoiceReportRequest request, ExportJob job) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        invoiceReportWriter.writeCsv(request, out, job);
+        // Dữ liệu test không có dấu phẩy nên tách thẳng theo dấu phẩy
+        return Arrays.stream(out.toString(StandardCharsets.UTF_8).split("\r\n"))
+                .map(line -> line.split(",", -1))
+                .toList();
+    }
+
+    private static InvoiceReportRequest request(String trangThai, String loaiThanhToan) {
+        return InvoiceReportRequest.builder()
+                .fromDate(FROM)
+                .toDate(TO)
+                .trangThai(trangThai)
+                .loaiThanhToan(loaiThanhToan)
+                .build();
+    }
+
+    private HoaDon invoice(LocalDateTime ngayTao, String trangThai, String loaiThanhToan, int lines) {
+        HoaDon hoaDon = new HoaDon();
+        hoaDon.setNgayTao(ngayTao);
+        hoaDon.setTrangThai(trangThai);
+        hoaDon.setLoaiThanhToan(loaiThanhToan);
+        hoaDon.setDaLayTien("Chưa");
+        hoaDon.setTenNguoiNhan("Nguyễn Văn A");
+        hoaDon.setSoDienThoaiGiaoHang("0901234567");
+        hoaDon.setTongTien(BigDecimal.valueOf(Math.max(1, lines) * 100_000L));
+        hoaDon.setUser(user);
+        entityManager.persist(hoaDon);
+        for (int i = 1; i <= lines; i++) {
+            ChiTietHoaDon detail = new ChiTietHoaDon();
+            detail.setHoaDon(hoaDon);
+            detail.setSanPhamBienThe(variant);
+            detail.setSoLuong(i);
+            detail.setThanhTien(BigDecimal.valueOf(100_000L * i));
+            entityManager.persist(detail);
+        }
+        entityManager.flush();
+        return hoaDon;
+    }
+}
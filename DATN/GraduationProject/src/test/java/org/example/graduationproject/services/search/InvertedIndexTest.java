@@ -0,0 +1,122 @@
+package org.example.graduationproject.services.search;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class InvertedIndexTest {
+
+    private InvertedIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new InvertedIndex();
+        index.index(1, doc("Áo Sơ Mi Đỏ"));
+        index.index(2, doc("Áo thun trắng"));
+        index.index(3, doc("Quần jean xanh"));
+    }
+
+    @Test
+    void matchesWithoutVietnameseDiacritics() {
+        assertThat(index.search("ao so mi do")).containsExactly(1);
+        assertThat(index.search("ĐỎ")).containsExactly(1);
+    }
+
+    @Test
+    void termsAreCombinedWithAnd() {
+        assertThat(index.search("áo")).containsExactlyInAnyOrder(1, 2);
+        assertThat(index.search("áo jean")).isEmpty();
+    }
+
+    @Test
+    void onlyLastTermIsMatchedAsPrefix() {
+        assertThat(index.search("áo th")).containsExactly(2);
+        // "th" không phải từ cuối nên phải khớp chính xác
+        assertThat(index.search("th áo")).isEmpty();
+    }
+
+    @Test
+    void toleratesSmallTyposInLongerTerms() {
+        assertThat(index.search("jeam")).containsExactly(3);
+        assertThat(index.search("trwng")).containsExactly(2);
+        // Từ ngắn hơn 4 ký tự không khớp gần đúng
+        assertThat(index.search("qun")).isEmpty();
+    }
+
+    @Test
+    void exactMatchDisablesFuzzyExpansion() {
+        index.index(4, doc("jeam"));
+
+        assertThat(index.search("jean")).containsExactly(3);
+        assertThat(index.search("jeaq")).containsExactlyInAnyOrder(3, 4);
+    }
+
+    @Test
+    void heavierFieldsRankFirst() {
+        index.index(10, new InvertedIndex.Document().field("Túi", 3.0f).field("da", 1.0f));
+        index.index(11, new InvertedIndex.Document().field("Ví", 3.0f).field("túi nhỏ", 1.0f));
+
+        assertThat(index.search("túi")).containsExactly(10, 11);
+    }
+
+    @Test
+    void tiesAreOrderedById() {
+        InvertedIndex ties = new InvertedIndex();
+        ties.index(9, doc("mũ"));
+        ties.index(4, doc("mũ"));
+        ties.index(7, doc("mũ"));
+
+        assertThat(ties.search("mu")).containsExactly(4, 7, 9);
+    }
+
+    @Test
+    void reindexReplacesPreviousTerms() {
+        index.index(2, doc("Váy hoa"));
+
+        assertThat(index.search("thun")).isEmpty();
+        assertThat(index.search("vay")).containsExactly(2);
+        assertThat(index.size()).isEqualTo(3);
+    }
+
+    @Test
+    void removeDropsDocumentAndIgnoresUnknownIds() {
+        index.remove(1);
+        index.remove(1);
+        index.remove(99);
+
+        assertThat(index.search("so mi")).isEmpty();
+        assertThat(index.search("áo")).containsExactly(2);
+        assertThat(index.size()).isEqualTo(2);
+    }
+
+    @Test
+    void documentWithoutTokensIsNotStored() {
+        index.index(1, new InvertedIndex.Document().field(null, 1.0f).field("", 1.0f).field("!!!", 1.0f));
+
+        assertThat(index.size()).isEqualTo(2);
+        assertThat(index.search("so mi")).isEmpty();
+    }
+
+    @Test
+    void blankQueryAndEmptyIndexReturnNothing() {
+        assertThat(index.search(null)).isEmpty();
+        assertThat(index.search("  - ")).isEmpty();
+
+        index.clear();
+        assertThat(index.size()).isZero();
+        assertThat(index.search("áo")).isEmpty();
+    }
+
+    @Test
+    void editDistanceStopsAtLimit() {
+        assertThat(InvertedIndex.editDistance("jean", "jaen", 2)).isEqualTo(2);
+        assertThat(InvertedIndex.editDistance("kitten", "sitting", 3)).isEqualTo(3);
+        assertThat(InvertedIndex.editDistance("abcdef", "uvwxyz", 1)).isEqualTo(2);
+        assertThat(InvertedIndex.editDistance("", "ab", 2)).isEqualTo(2);
+    }
+
+    private static InvertedIndex.Document doc(String text) {
+        return new InvertedIndex.Document().field(text, 1.0f);
+    }
+}
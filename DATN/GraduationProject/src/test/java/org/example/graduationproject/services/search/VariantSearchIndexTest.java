@@ -0,0 +1,125 @@
+package org.example.graduationproject.services.search;
+
+import org.example.graduationproject.events.CategoryChangedEvent;
+import org.example.graduationproject.events.ProductChangedEvent;
+import org.example.graduationproject.events.VariantChangedEvent;
+import org.example.graduationproject.models.Loai;
+import org.example.graduationproject.models.MauSac;
+import org.example.graduationproject.models.SanPham;
+import org.example.graduationproject.models.SanPhamBienThe;
+import org.example.graduationproject.repositories.SanPhamBienTheRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class VariantSearchIndexTest {
+
+    private SanPhamBienTheRepository repository;
+    private VariantSearchIndex searchIndex;
+    private SanPham ao;
+    private SanPham quan;
+    private Loai loai;
+
+    @BeforeEach
+    void setUp() {
+        loai = new Loai();
+        loai.setId(5);
+        loai.setTen("Mùa đông");
+        ao = product(1, "Áo khoác");
+        ao.setLoai(loai);
+        quan = product(2, "Quần kaki");
+        repository = mock(SanPhamBienTheRepository.class);
+        when(repository.findAllForSearchIndex()).thenReturn(List.of(
+                variant(10, ao, "Đen"), variant(11, ao, "Trắng"), variant(20, quan, "Đen")));
+
+        searchIndex = new VariantSearchIndex();
+        ReflectionTestUtils.setField(searchIndex, "sanPhamBienTheRepository", repository);
+        searchIndex.rebuildAll();
+    }
+
+    @Test
+    void deletedProductTakesItsVariantsOutOfTheIndex() {
+        searchIndex.onProductChanged(ProductChangedEvent.builder().productId(1).changeType("DELETED").build());
+
+        assertThat(searchIndex.search("khoac")).isEmpty();
+        assertThat(searchIndex.search("den")).containsExactly(20);
+    }
+
+    @Test
+    void deletingUnknownProductKeepsIndex() {
+        searchIndex.onProductChanged(ProductChangedEvent.builder().productId(99).changeType("DELETED").build());
+
+        assertThat(searchIndex.search("den")).containsExactlyInAnyOrder(10, 20);
+    }
+
+    @Test
+    void variantMovedToAnotherProductIsRemovedWithItsNewProduct() {
+        when(repository.findAllByIdInWithDetails(List.of(11))).thenReturn(List.of(variant(11, quan, "Trắng")));
+        searchIndex.onVariantChanged(VariantChangedEvent.builder().variantIds(List.of(11)).changeType("SAVED").build());
+
+        searchIndex.onProductChanged(ProductChangedEvent.builder().productId(1).changeType("DELETED").build());
+        assertThat(searchIndex.search("trang")).containsExactly(11);
+
+        searchIndex.onProductChanged(ProductChangedEvent.builder().productId(2).changeType("DELETED").build());
+        assertThat(searchIndex.search("trang")).isEmpty();
+    }
+
+    @Test
+    void deletedVariantIsRemoved() {
+        searchIndex.onVariantChanged(VariantChangedEvent.builder().variantIds(List.of(10)).changeType("DELETED").build());
+
+        assertThat(searchIndex.search("den")).containsExactly(20);
+    }
+
+    @Test
+    void renamedCategoryReindexesItsVariants() {
+        assertThat(searchIndex.search("dong")).containsExactlyInAnyOrder(10, 11);
+
+        Loai renamed = new Loai();
+        renamed.setId(5);
+        renamed.setTen("Thu");
+        SanPham aoMoi = product(1, "Áo khoác");
+        aoMoi.setLoai(renamed);
+        when(repository.findByLoaiIdForSearchIndex(5)).thenReturn(List.of(variant(10, aoMoi, "Đen"), variant(11, aoMoi, "Trắng")));
+        searchIndex.onCategoryChanged(CategoryChangedEvent.builder().loaiId(5).changeType("SAVED").build());
+
+        assertThat(searchIndex.search("dong")).isEmpty();
+        assertThat(searchIndex.search("thu")).containsExactlyInAnyOrder(10, 11);
+        assertThat(searchIndex.search("quan")).containsExactly(20);
+    }
+
+    @Test
+    void categoryEventKeepsProductMappingForLaterDelete() {
+        SanPham aoMoi = product(1, "Áo khoác");
+        aoMoi.setLoai(loai);
+        when(repository.findByLoaiIdForSearchIndex(5)).thenReturn(List.of(variant(10, aoMoi, "Đen"), variant(11, aoMoi, "Trắng")));
+        searchIndex.onCategoryChanged(CategoryChangedEvent.builder().loaiId(5).changeType("SAVED").build());
+
+        searchIndex.onProductChanged(ProductChangedEvent.builder().productId(1).changeType("DELETED").build());
+
+        assertThat(searchIndex.search("khoac")).isEmpty();
+    }
+
+    private static SanPham product(int id, String ten) {
+        SanPham sanPham = new SanPham();
+        sanPham.setId(id);
+        sanPham.setTen(ten);
+        return sanPham;
+    }
+
+    private static SanPhamBienThe variant(int id, SanPham sanPham, String maMau) {
+        MauSac mauSac = new MauSac();
+        mauSac.setMaMau(maMau);
+        SanPhamBienThe variant = new SanPhamBienThe();
+        variant.setId(id);
+        variant.setSanPham(sanPham);
+        variant.setMauSac(mauSac);
+        return variant;
+    }
+}
@@ -0,0 +1,35 @@
+package org.example.graduationproject.utils;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CsvEscaperTest {
+
+    @Test
+    void plainValuesAreUnchanged() {
+        assertThat(CsvEscaper.escape(null)).isEmpty();
+        assertThat(CsvEscaper.escape("")).isEmpty();
+        assertThat(CsvEscaper.escape("Áo thun")).isEqualTo("Áo thun");
+        assertThat(CsvEscaper.escape("-5")).isEqualTo("-5");
+        assertThat(CsvEscaper.escape("+1.5")).isEqualTo("+1.5");
+    }
+
+    @Test
+    void separatorsQuotesAndNewlinesAreQuoted() {
+        assertThat(CsvEscaper.escape("a,b")).isEqualTo("\"a,b\"");
+        assertThat(CsvEscaper.escape("say \"hi\"")).isEqualTo("\"say \"\"hi\"\"\"");
+        assertThat(CsvEscaper.escape("line1\nline2")).isEqualTo("\"line1\nline2\"");
+    }
+
+    @Test
+    void formulaLikeCellsAreNeutralized() {
+        assertThat(CsvEscaper.escape("=1+1")).isEqualTo("'=1+1");
+        assertThat(CsvEscaper.escape("+SUM(A1)")).isEqualTo("'+SUM(A1)");
+        assertThat(CsvEscaper.escape("-2+3")).isEqualTo("'-2+3");
+        assertThat(CsvEscaper.escape("@cmd")).isEqualTo("'@cmd");
+        assertThat(CsvEscaper.escape("\tx")).isEqualTo("'\tx");
+        assertThat(CsvEscaper.escape("=HYPERLINK(\"http://x\",\"y\")"))
+                .isEqualTo("\"'=HYPERLINK(\"\"http://x\"\",\"\"y\"\")\"");
+    }
+}
@@ -0,0 +1,219 @@
+package org.example.graduationproject.utils;
+
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FileRangeSenderTest {
+
+    private static final int LENGTH = 1000;
+    private static final String ETAG = "\"abc-card\"";
+    private static final String CACHE_CONTROL = "public, max-age=60";
+    // Header HTTP chỉ chính xác tới giây
+    private static final Instant MODIFIED = Instant.parse("2024-05-01T10:00:00Z");
+
+    @TempDir
+    Path tempDir;
+
+    private Path file;
+    private byte[] content;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        content = new byte[LENGTH];
+        for (int i = 0; i < LENGTH; i++) {
+            content[i] = (byte) i;
+        }
+        file = tempDir.resolve("image.jpg");
+        Files.write(file, content);
+        Files.setLastModifiedTime(file, FileTime.from(MODIFIED));
+    }
+
+    @Test
+    void plainRequestSendsWholeFileWithValidators() throws IOException {
+        MockHttpServletResponse response = send(request());
+
+        assertThat(response.getStatus()).isEqualTo(HttpServletResponse.SC_OK);
+        assertThat(response.getContentAsByteArray()).isEqualTo(content);
+        assertThat(response.getContentLengthLong()).isEqualTo(LENGTH);
+        assertThat(response.getHeader(HttpHeaders.ETAG)).isEqualTo(ETAG);
+        assertThat(response.getHeader(HttpHeaders.CACHE_CONTROL)).isEqualTo(CACHE_CONTROL);
+        assertThat(response.getHeader(HttpHeaders.ACCEPT_RANGES)).isEqualTo("bytes");
+        assertThat(response.getDateHeader(HttpHeaders.LAST_MODIFIED)).isEqualTo(MODIFIED.toEpochMilli());
+        assertThat(response.getHeader(HttpHeaders.CONTENT_RANGE)).isNull();
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+            "bytes=0-99, 0, 99",
+            // Khoảng hậu tố: n byte cuối, n lớn hơn file thì lấy cả file
+            "bytes=-100, 900, 999",
+            "bytes=-5000, 0, 999",
+            // Khoảng mở: từ vị trí tới hết file, điểm cuối vượt file bị cắt về byte cuối
+            "bytes=990-, 990, 999",
+            "bytes=900-5000, 900, 999",
+            "bytes=999-999, 999, 999"
+    })
+    void singleRangeSendsPartialContent(String range, int start, int end) throws IOException {
+        MockHttpServletRequest request = request();
+        request.addHeader(HttpHeaders.RANGE, range);
+
+        MockHttpServletResponse response = send(request);
+
+        assertThat(response.getStatus()).isEqualTo(HttpServletResponse.SC_PARTIAL_CONTENT);
+        assertThat(response.getHeader(HttpHeaders.CONTENT_RANGE)).isEqualTo("bytes " + start + "-" + end + "/" + LENGTH);
+        assertThat(response.getContentLengthLong()).isEqualTo(end - start + 1);
+        assertThat(response.getContentAsByteArray()).isEqualTo(Arrays.copyOfRange(content, start, end + 1));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"bytes=1000-", "bytes=5000-6000", "bytes=-0", "bytes=50-10", "bytes=abc"})
+    void unsatisfiableRangeIs416WithFileLength(String range) throws IOException {
+        MockHttpServletRequest request = request();
+        request.addHeader(HttpHeaders.RANGE, range);
+
+        MockHttpServletResponse response = send(request);
+
+        assertThat(response.getStatus()).isEqualTo(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+        assertThat(response.getHeader(HttpHeaders.CONTENT_RANGE)).isEqualTo("bytes */" + LENGTH);
+        assertThat(response.getContentAsByteArray()).isEmpty();
+    }
+
+    @Test
+    void multiRangeFallsBackToWholeFile() throws IOException {
+        MockHttpServletRequest request = request();
+        request.addHeader(HttpHeaders.RANGE, "bytes=0-9,20-29");
+
+        MockHttpServletResponse response = send(request);
+
+        assertThat(response.getStatus()).isEqualTo(HttpServletResponse.SC_OK);
+        assertThat(response.getHeader(HttpHeaders.CONTENT_RANGE)).isNull();
+        assertThat(response.getContentAsByteArray()).isEqualTo(content);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"\"abc-card\"", "W/\"abc-card\"", "\"other\", \"abc-card\"", "*"})
+    void matchingIfNoneMatchIs304WithoutBody(String ifNoneMatch) throws IOException {
+        MockHttpServletRequest request = request();
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, ifNoneMatch);
+
+        MockHttpServletResponse response = send(request);
+
+        assertThat(response.getStatus()).isEqualTo(HttpServletResponse.SC_NOT_MODIFIED);
+        assertThat(response.getHeader(HttpHeaders.ETAG)).isEqualTo(ETAG);
+        assertThat(response.getContentAsByteArray()).isEmpty();
+    }
+
+    @Test
+    void ifNoneMatchTakesPrecedenceOverIfModifiedSince() throws IOException {
+        MockHttpServletRequest request = request();
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, "\"other\"");
+        request.addHeader(HttpHeaders.IF_MODIFIED_SINCE, httpDate(MODIFIED.plusSeconds(60)));
+
+        MockHttpServletResponse response = send(request);
+
+        assertThat(response.getStatus()).isEqualTo(HttpServletResponse.SC_OK);
+        assertThat(response.getContentAsByteArray()).isEqualTo(content);
+    }
+
+    @Test
+    void ifModifiedSinceIs304OnlyWhenFileIsNotNewer() throws IOException {
+        MockHttpServletRequest unchanged = request();
+        unchanged.addHeader(HttpHeaders.IF_MODIFIED_SINCE, httpDate(MODIFIED));
+        MockHttpServletRequest older = request();
+        older.addHeader(HttpHeaders.IF_MODIFIED_SINCE, httpDate(MODIFIED.minusSeconds(1)));
+
+        assertThat(send(unchanged).getStatus()).isEqualTo(HttpServletResponse.SC_NOT_MODIFIED);
+        assertThat(send(older).getStatus()).isEqualTo(HttpServletResponse.SC_OK);
+    }
+
+    @Test
+    void ifRangeWithCurrentValidatorKeepsRange() throws IOException {
+        MockHttpServletRequest byEtag = request();
+        byEtag.addHeader(HttpHeaders.RANGE, "bytes=0-9");
+        byEtag.addHeader(HttpHeaders.IF_RANGE, ETAG);
+        MockHttpServletRequest byDate = request();
+        byDate.addHeader(HttpHeaders.RANGE, "bytes=0-9");
+        byDate.addHeader(HttpHeaders.IF_RANGE, httpDate(MODIFIED));
+
+        assertThat(send(byEtag).getStatus()).isEqualTo(HttpServletResponse.SC_PARTIAL_CONTENT);
+        assertThat(send(byDate).getStatus()).isEqualTo(HttpServletResponse.SC_PARTIAL_CONTENT);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"\"old-card\"", "Wed, 01 May 2024 09:59:59 GMT"})
+    void ifRangeWithStaleValidatorSendsWholeFile(String ifRange) throws IOException {
+        MockHttpServletRequest request = request();
+        request.addHeader(HttpHeaders.RANGE, "bytes=0-9");
+        request.addHeader(HttpHeaders.IF_RANGE, ifRange);
+
+        MockHttpServletResponse response = send(request);
+
+        // File đã đổi so với phần client đang có: gửi lại cả file thay vì ghép nhầm
+        assertThat(response.getStatus()).isEqualTo(HttpServletResponse.SC_OK);
+        assertThat(response.getHeader(HttpHeaders.CONTENT_RANGE)).isNull();
+        assertThat(response.getContentAsByteArray()).isEqualTo(content);
+    }
+
+    @Test
+    void headRequestSendsHeadersOnly() throws IOException {
+        MockHttpServletRequest request = request();
+        request.setMethod("HEAD");
+
+        MockHttpServletResponse response = send(request);
+
+        assertThat(response.getStatus()).isEqualTo(HttpServletResponse.SC_OK);
+        assertThat(response.getContentLengthLong()).isEqualTo(LENGTH);
+        assertThat(response.getContentAsByteArray()).isEmpty();
+    }
+
+    @Test
+    void largeRangeIsHandedToTomcatSendfile() throws IOException {
+        byte[] large = new byte[100 * 1024];
+        Files.write(file, large);
+        MockHttpServletRequest request = request();
+        request.setAttribute("org.apache.tomcat.sendfile.support", Boolean.TRUE);
+        request.addHeader(HttpHeaders.RANGE, "bytes=1024-");
+
+        MockHttpServletResponse response = send(request);
+
+        assertThat(response.getStatus()).isEqualTo(HttpServletResponse.SC_PARTIAL_CONTENT);
+        assertThat(request.getAttribute("org.apache.tomcat.sendfile.filename")).isEqualTo(file.toAbsolutePath().toString());
+        assertThat(request.getAttribute("org.apache.tomcat.sendfile.start")).isEqualTo(1024L);
+        // end của sendfile là vị trí sau byte cuối
+        assertThat(request.getAttribute("org.apache.tomcat.sendfile.end")).isEqualTo((long) large.length);
+        assertThat(response.getContentAsByteArray()).isEmpty();
+    }
+
+    private static MockHttpServletRequest request() {
+        return new MockHttpServletRequest("GET", "/api/images/derivatives/abc/card");
+    }
+
+    private MockHttpServletResponse send(MockHttpServletRequest request) throws IOException {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        FileRangeSender.send(request, response, file, "image/jpeg", ETAG, CACHE_CONTROL);
+        return response;
+    }
+
+    private static String httpDate(Instant instant) {
+        return DateTimeFormatter.RFC_1123_DATE_TIME.format(instant.atOffset(ZoneOffset.UTC));
+    }
+}
@@ -0,0 +1,81 @@
+package org.example.graduationproject.utils;
+
+import org.example.graduationproject.exceptions.BadRequestException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class KeysetCursorTest {
+
+    @Test
+    void roundTripsSortValueAndId() {
+        KeysetCursor cursor = KeysetCursor.decode(KeysetCursor.encode("Áo thun", 42));
+
+        assertThat(cursor.getSortValue()).isEqualTo("Áo thun");
+        assertThat(cursor.getId()).isEqualTo(42);
+    }
+
+    @Test
+    void sortValueMayContainSeparator() {
+        KeysetCursor cursor = KeysetCursor.decode(KeysetCursor.encode("Size: M:L", 7));
+
+        assertThat(cursor.getSortValue()).isEqualTo("Size: M:L");
+        assertThat(cursor.getId()).isEqualTo(7);
+    }
+
+    @Test
+    void nullAndEmptySortValuesStayDistinct() {
+        assertThat(KeysetCursor.decode(KeysetCursor.encode(null, 3)).getSortValue()).isNull();
+        assertThat(KeysetCursor.decode(KeysetCursor.encode("", 3)).getSortValue()).isEmpty();
+    }
+
+    @Test
+    void dateTimeSortValueRoundTrips() {
+        LocalDateTime ngayTao = LocalDateTime.of(2024, 5, 1, 8, 30, 15, 123_000_000);
+
+        assertThat(KeysetCursor.decode(KeysetCursor.encode(ngayTao, 1)).getSortValueAsDateTime()).isEqualTo(ngayTao);
+    }
+
+    @Test
+    void nullOrMalformedDateTimeIsRejected() {
+        assertThatThrownBy(() -> KeysetCursor.decode(KeysetCursor.encode(null, 1)).getSortValueAsDateTime())
+                .isInstanceOf(BadRequestException.class);
+        assertThatThrownBy(() -> KeysetCursor.decode(KeysetCursor.encode("hôm qua", 1)).getSortValueAsDateTime())
+                .isInstanceOf(BadRequestException.class);
+    }
+
+    @Test
+    void blankCursorMeansFirstPage() {
+        assertThat(KeysetCursor.decode(null)).isNull();
+        assertThat(KeysetCursor.decode("")).isNull();
+        assertThat(KeysetCursor.decode("   ")).isNull();
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"v2:1:a", "v1", "v1:abc:a", "x:1:a"})
+    void rejectsForeignOrTamperedCursors(String raw) {
+        String cursor = Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+
+        assertThatThrownBy(() -> KeysetCursor.decode(cursor)).isInstanceOf(BadRequestException.class);
+    }
+
+    @Test
+    void rejectsInvalidBase64() {
+        assertThatThrownBy(() -> KeysetCursor.decode("not base64!")).isInstanceOf(BadRequestException.class);
+    }
+
+    @Test
+    void pageSizeRejectsNonPositiveAndClampsLargeValues() {
+        assertThatThrownBy(() -> KeysetCursor.pageSize(0)).isInstanceOf(BadRequestException.class);
+        assertThatThrownBy(() -> KeysetCursor.pageSize(-1)).isInstanceOf(BadRequestException.class);
+        assertThat(KeysetCursor.pageSize(1)).isEqualTo(1);
+        assertThat(KeysetCursor.pageSize(KeysetCursor.MAX_PAGE_SIZE + 1)).isEqualTo(KeysetCursor.MAX_PAGE_SIZE);
+    }
+}
@@ -2,7 +2,7 @@ import React from 'react';
 import { useLanguage } from '@/context/LanguageContext';
 import { useCart } from '@/context/CartContext';
 import { useNavigate } from 'react-router-dom';
-import { ROUTES } from '@/utils/constants';
+import { ROUTES, resolveApiUrl } from '@/utils/constants';
 
 interface Product {
   id: number;
@@ -11,6 +11,8 @@ interface Product {
   khuyenMai?: number;
   hinhAnh?: string;
   imageUrls?: string[];
+  thumbnailUrl?: string;
+  cardImageUrl?: string;
   loai?: {
     id: number;
     ten: string;
@@ -39,8 +41,10 @@ const ProductCard: React.FC<ProductCardProps> = ({ product, className = '' }) =>
   const discountedPrice = originalPrice - (originalPrice * discount / 100);
 
   // Get product image
-  const productImage = product.hinhAnh || 
-    (product.imageUrls && product.imageUrls.length > 0 ? product.imageUrls[0] : null);
+  const productImage = resolveApiUrl(product.hinhAnh ||
+    (product.imageUrls && product.imageUrls.length > 0 ? product.imageUrls[0] : null));
+  // Ảnh cỡ card (vài chục KB) thay vì ảnh gốc
+  const cardImage = resolveApiUrl(product.cardImageUrl) || productImage;
 
   // Get gender text
   const getGenderText = (gender?: number) => {
@@ -87,14 +91,20 @@ const ProductCard: React.FC<ProductCardProps> = ({ product, className = '' }) =>
     >
       {/* Product Image */}
       <div className="relative aspect-square overflow-hidden">
-        {productImage ? (
+        {cardImage ? (
           <img
-            src={productImage}
+            src={cardImage}
             alt={product.ten}
+            loading="lazy"
             className="w-full h-full object-cover group-hover:scale-105 transition-transform duration-300"
             onError={(e) => {
               const target = e.target as HTMLImageElement;
-              target.src = '/placeholder-image.svg';
+              // Không tạo được ảnh card thì dùng ảnh gốc, vẫn lỗi thì dùng ảnh mặc định
+              if (productImage && target.src !== productImage) {
+                target.src = productImage;
+              } else {
+                target.src = '/placeholder-image.svg';
+              }
             }}
           />
         ) : (
@@ -13,6 +13,8 @@ interface Product {
   khuyenMai?: number;
   hinhAnh?: string;
   imageUrls?: string[];
+  thumbnailUrl?: string;
+  cardImageUrl?: string;
   loai?: {
     id: number;
     ten: string;
@@ -46,13 +48,11 @@ const Home: React.FC = () => {
     try {
       setLoading(true);
       
-      // Load featured products
-      const featuredResponse = await axios.get('http://localhost:8080/api/user/products/featured?size=8');
-      setFeaturedProducts(featuredResponse.data.content || []);
-      
-      // Load new products
-      const newResponse = await axios.get('http://localhost:8080/api/user/products/new?size=8');
-      setNewProducts(newResponse.data.content || []);
+      // Dữ liệu trang chủ dựng sẵn ở server (một request, trình duyệt tự gửi If-None-Match theo ETag)
+      const response = await axios.get('http://localhost:8080/api/user/products/home');
+      const homeData = response.data?.data || {};
+      setFeaturedProducts(homeData.featuredProducts || []);
+      setNewProducts(homeData.newProducts || []);
       
     } catch (error) {
       console.error('Error loading home data:', error);
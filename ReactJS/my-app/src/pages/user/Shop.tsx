@@ -10,6 +10,8 @@ interface Product {
   khuyenMai?: number;
   hinhAnh?: string;
   imageUrls?: string[];
+  thumbnailUrl?: string;
+  cardImageUrl?: string;
   loai?: {
     id: number;
     ten: string;
@@ -1,5 +1,11 @@
 export const API_BASE_URL = 'http://localhost:8080/api';
 
+// Đường dẫn /api/... do backend trả về (ảnh thumbnail / card, ảnh lưu local) cần gắn host của API
+export const resolveApiUrl = (path?: string | null): string | null => {
+  if (!path) return null;
+  return path.startsWith('/api/') ? API_BASE_URL.replace(/\/api$/, '') + path : path;
+};
+
 export const ROUTES = {
   LOGIN: '/login',
   REGISTER: '/register',